@@ -4,8 +4,9 @@ import model.exceptions.*;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.lang.ref.SoftReference;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 /**
@@ -14,27 +15,37 @@ import java.util.*;
 public class Customer implements Iterable<String[]> {
     private String name;
     private HashMap<String, Order> activeOrders = new HashMap<String, Order>(); // key = Invoice Number :: value = Order
-    private List<Order> completeOrders = new ArrayList<>();
+    // key = Invoice Number :: value = Order, kept in the order the orders were completed
+    private LinkedHashMap<String, Order> completeOrders = new LinkedHashMap<>();
 
     private boolean iterateActiveOrders = true;                    // set iterator to iterate activeOrders by default
 
+    // display rows of activeOrders/completeOrders, rebuilt from each Order's cached row only when marked dirty or
+    // reclaimed, as they hold the label histories of the orders joined as text
+    private SoftReference<String[][]> activeRows;
+    private SoftReference<String[][]> completeRows;
+    private boolean activeRowsDirty = true;
+    private boolean completeRowsDirty = true;
+
     public Customer(String name) {
         this.name = name;
     }
 
     // MODIFIES: this
-    // EFFECTS: adds a new order with given invoice number into activeOrders
-    public void importOrder(String content, LocalDate importDate, String invoiceNum, int quantity, String location)
+    // EFFECTS: adds a new order with given invoice number into activeOrders and returns it
+    public Order importOrder(String content, LocalDate importDate, String invoiceNum, int quantity, String location)
             throws QuantityNegativeException, QuantityZeroException, InvalidImportDateException {
-        this.activeOrders.put(invoiceNum,
-                new Order(content, importDate, invoiceNum, quantity, location));
+        Order order = new Order(content, importDate, invoiceNum, quantity, location);
+        this.activeOrders.put(invoiceNum, order);
+        this.activeRowsDirty = true;
+        return order;
     }
 
     // MODIFIES: this
     // EFFECTS: if order with given invoiceNumber does not exist throw OrderDoesNotExistException,
     //          otherwise remove indicated quantity from specified order and check if any items are left for given order
-    //          if nothing is remaining register it as complete
-    public void removeFromOrder(String importInvoiceNumber, int removalQuantity, LocalDate exportDate,
+    //          if nothing is remaining register it as complete; returns the details of the removal
+    public ExportLabel removeFromOrder(String importInvoiceNumber, int removalQuantity, LocalDate exportDate,
                                 String exportInvoiceNumber) throws OrderDoesNotExistException,
             QuantityNegativeException, QuantityZeroException, QuantityExceedsMaxQuantityException,
             RemovalQuantityExceedsAvailabilityException, InvalidExportDateException {
@@ -46,13 +57,16 @@ public class Customer implements Iterable<String[]> {
         }
 
         // remove indicated quantity from currentOrder
-        currentOrder.remove(removalQuantity,exportInvoiceNumber, exportDate);
+        ExportLabel exportLabel = currentOrder.remove(removalQuantity,exportInvoiceNumber, exportDate);
+        this.activeRowsDirty = true;
 
         // if the current order has no items remaining in inventory, remove from activeOrders & add to completeOrders
         if (currentOrder.getCurrentQuantity() == 0) {
             this.activeOrders.remove(importInvoiceNumber);
-            this.completeOrders.add(currentOrder);
+            this.completeOrders.put(currentOrder.getInvoiceNumber(), currentOrder);
+            this.completeRowsDirty = true;
         }
+        return exportLabel;
     }
 
     // MODIFIES: this
@@ -65,11 +79,12 @@ public class Customer implements Iterable<String[]> {
 
         if (currentOrder != null) {
             this.activeOrders.remove(invoiceNumber);
+            this.activeRowsDirty = true;
         } else {
-            if (!this.completeOrders.remove(new Order("", null,
-                    invoiceNumber,1, ""))) {
+            if (this.completeOrders.remove(invoiceNumber) == null) {
                 throw new OrderDoesNotExistException(invoiceNumber);
             }
+            this.completeRowsDirty = true;
         }
     }
 
@@ -86,6 +101,7 @@ public class Customer implements Iterable<String[]> {
         }
 
         currentOrder.addMonthlyChargeLabel(quantity, monthlyInvoiceNum, startDate, endDate);
+        this.activeRowsDirty = true;
     }
 
     // EFFECTS: if the order we are looking for is not an active order throw OrderDoesNotExistException,
@@ -105,6 +121,50 @@ public class Customer implements Iterable<String[]> {
         if (!storageLocation.isEmpty()) {
             currentOrder.setStorageLocation(storageLocation);
         }
+        this.activeRowsDirty = true;
+    }
+
+    // EFFECTS: returns a copy of this customer whose orders can be changed independently of this one
+    public Customer copy() {
+        Customer copy = new Customer(this.name);
+        for (Order o : this.activeOrders.values()) {
+            copy.addOrder(true, o.copy());
+        }
+        for (Order o : this.completeOrders.values()) {
+            copy.addOrder(false, o.copy());
+        }
+        return copy;
+    }
+
+    // MODIFIES: this, archive
+    // EFFECTS: moves the label histories of every complete order whose last export took place on or before given
+    //          date into given archive, returns the number of orders archived;
+    //          throws IOException if the archive could not be written, orders archived before the failure stay archived
+    public int archiveCompleteOrders(LocalDate completedOnOrBefore, OrderArchive archive) throws IOException {
+        int archived = 0;
+        for (Order o : this.completeOrders.values()) {
+            if (!o.isArchived() && !getCompletionDate(o).isAfter(completedOnOrBefore)) {
+                o.archiveLabels(archive.archive(o));
+                archived++;
+            }
+        }
+
+        if (archived > 0) {
+            // drop display rows built from the archived labels, they are rebuilt when history is next viewed
+            this.completeRows = null;
+            this.completeRowsDirty = true;
+        }
+        return archived;
+    }
+
+    // EFFECTS: returns the date of the last export of given complete order, without loading its label histories if
+    //          they are not in memory
+    private static LocalDate getCompletionDate(Order order) {
+        long completionDay = order.getImportDate().toEpochDay();
+        for (long exportDay : order.getExportDays()) {
+            completionDay = Math.max(completionDay, exportDay);
+        }
+        return LocalDate.ofEpochDay(completionDay);
     }
 
 
@@ -120,7 +180,7 @@ public class Customer implements Iterable<String[]> {
         JSONObject jsonObject = new JSONObject();
         jsonObject.put("name", this.name);
         jsonObject.put("activeOrders", convertOrderListToJsonArray(this.activeOrders.values()));
-        jsonObject.put("completeOrders", convertOrderListToJsonArray(this.completeOrders));
+        jsonObject.put("completeOrders", convertOrderListToJsonArray(this.completeOrders.values()));
         return jsonObject;
     }
 
@@ -164,12 +224,19 @@ public class Customer implements Iterable<String[]> {
         return this.name;
     }
 
+    // EFFECTS: returns the active or complete order with given invoice number, if not found return NULL
+    public Order getOrder(String invoiceNum) {
+        Order order = this.activeOrders.get(invoiceNum);
+        return order == null ? this.completeOrders.get(invoiceNum) : order;
+    }
+
     public Map<String, Order> getActiveOrders() {
         return Collections.unmodifiableMap(this.activeOrders);
     }
 
-    public List<Order> getCompleteOrders() {
-        return Collections.unmodifiableList(this.completeOrders);
+    // EFFECTS: returns the complete orders of this customer in the order they were completed
+    public Collection<Order> getCompleteOrders() {
+        return Collections.unmodifiableCollection(this.completeOrders.values());
     }
 
     public int getActiveOrderSize() {
@@ -180,6 +247,39 @@ public class Customer implements Iterable<String[]> {
         return this.completeOrders.size();
     }
 
+    // EFFECTS: if forActiveOrders is true returns display rows of activeOrders, else of completeOrders;
+    //          rows are only rebuilt when this customer's orders have changed since the last call or the garbage
+    //          collector needed the memory, so callers must not modify the returned arrays
+    public String[][] getRows(boolean forActiveOrders) {
+        if (forActiveOrders) {
+            String[][] rows = this.activeRowsDirty ? null : this.activeRows.get();
+            if (rows == null) {
+                rows = buildRows(this.activeOrders.values());
+                this.activeRows = new SoftReference<>(rows);
+                this.activeRowsDirty = false;
+            }
+            return rows;
+        }
+        String[][] rows = this.completeRowsDirty ? null : this.completeRows.get();
+        if (rows == null) {
+            rows = buildRows(this.completeOrders.values());
+            this.completeRows = new SoftReference<>(rows);
+            this.completeRowsDirty = false;
+        }
+        return rows;
+    }
+
+    // EFFECTS: returns the display rows of given orders, reusing each order's cached row where it is still valid
+    private String[][] buildRows(Collection<Order> orders) {
+        String[][] rows = new String[orders.size()][];
+        int index = 0;
+        for (Order o : orders) {
+            rows[index] = o.getRow(this.name);
+            index++;
+        }
+        return rows;
+    }
+
     ////////////////////////////////////////////////////////////////////////////////////////////////////
     /**
      * setters
@@ -187,34 +287,27 @@ public class Customer implements Iterable<String[]> {
 
     public void setName(String name) {
         this.name = name;
+        this.activeRowsDirty = true;
+        this.completeRowsDirty = true;
     }
 
     // MODIFIES: this
     // EFFECTS: sets Orders by converting given JSON Array representation of it
     public void setOrdersFromJsonArray(boolean setActiveOrders, JSONArray jsonOrders) throws CorruptFileException {
         for (Object o : jsonOrders) {
-            JSONObject jo = (JSONObject) o;
-            String content = jo.getString("content");
-            LocalDate importDate = LocalDate.parse(jo.getString("importDate"));
-            JSONArray exports = jo.getJSONArray("exports");
-            JSONArray monthlyChargeLabels = jo.getJSONArray("monthlyChargeLabels");
-            String invoiceNumber = jo.getString("invoiceNumber");
-            int originalQuantity = jo.getInt("originalQuantity");
-            int currentQuantity = jo.getInt("currentQuantity");
-            String storageLocation = jo.getString("storageLocation");
-            try {
-                Order order = new Order(content, importDate, invoiceNumber, originalQuantity, storageLocation);
-                order.setCurrentQuantity(currentQuantity);
-                order.setLabelsFromJsonArray(true, exports);
-                order.setLabelsFromJsonArray(false, monthlyChargeLabels);
-                if (setActiveOrders) {
-                    this.activeOrders.put(invoiceNumber, order);
-                } else {
-                    this.completeOrders.add(order);
-                }
-            } catch (QuantityNegativeException | QuantityZeroException | InvalidImportDateException e) {
-                throw new CorruptFileException();
-            }
+            addOrder(setActiveOrders, Order.fromJsonObject((JSONObject) o));
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: adds given order into activeOrders if isActiveOrder is true, otherwise into completeOrders
+    public void addOrder(boolean isActiveOrder, Order order) {
+        if (isActiveOrder) {
+            this.activeOrders.put(order.getInvoiceNumber(), order);
+            this.activeRowsDirty = true;
+        } else {
+            this.completeOrders.put(order.getInvoiceNumber(), order);
+            this.completeRowsDirty = true;
         }
     }
 
@@ -224,7 +317,7 @@ public class Customer implements Iterable<String[]> {
      */
     private class CustomerIterator implements Iterator<String[]> {
         private Iterator<Order> activeOrderIterator = activeOrders.values().iterator();
-        private Iterator<Order> completeOrderIterator = completeOrders.iterator();
+        private Iterator<Order> completeOrderIterator = completeOrders.values().iterator();
 
         @Override
         public boolean hasNext() {
@@ -235,21 +328,7 @@ public class Customer implements Iterable<String[]> {
         public String[] next() {
             Order currentOrder
                     = iterateActiveOrders ? this.activeOrderIterator.next() : this.completeOrderIterator.next();
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yy");
-
-            String invoiceNumber = currentOrder.getInvoiceNumber();
-            String quantity = Integer.toString(currentOrder.getCurrentQuantity());
-            String content = currentOrder.getContent();
-            String importDate = currentOrder.getImportDate().format(formatter);
-            String location = currentOrder.getStorageLocation();
-            String exportInfo = currentOrder.getExportsString();
-            String monthlyChargeInfo = currentOrder.getMonthlyChargeLabelsString();
-
-
-            String[] returnArray = {name, invoiceNumber, quantity, content, importDate,
-                    location, exportInfo, monthlyChargeInfo};
-
-            return returnArray;
+            return currentOrder.getRow(name);
         }
     }
 }
@@ -0,0 +1,18 @@
+package model;
+
+import model.exceptions.CorruptFileException;
+
+import java.io.IOException;
+
+/**
+ * Represents a way of building a Customer and its Orders from a part of a save file. Loaders may be called from
+ * several threads at once, each call with a different source
+ * @param <T> the type of the part of the save file a Customer is built from
+ */
+public interface CustomerLoader<T> {
+
+    // EFFECTS: builds and returns the customer that given source represents, or null if the source is to be skipped;
+    //          throws IOException if the source could not be read and CorruptFileException if it does not represent
+    //          a valid customer
+    Customer load(T source) throws IOException, CorruptFileException;
+}
@@ -0,0 +1,64 @@
+package model;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Represents the locks that let several threads share a Warehouse. A change to a customer holds the shared side of the
+ * warehouse lock and the lock of the stripe that the customer's name hashes to, so changes to customers on different
+ * stripes run in parallel while changes to customers on the same stripe run one at a time. An operation that reads or
+ * replaces every customer holds the exclusive side of the warehouse lock, so it never sees a change half made
+ */
+class CustomerLocks {
+    private final ReadWriteLock warehouseLock = new ReentrantReadWriteLock();
+    private final Lock[] stripes;
+
+    // EFFECTS: creates locks with given number of stripes,
+    //          throws IllegalArgumentException if the number of stripes is less than 1
+    CustomerLocks(int stripeCount) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("Lock stripe count " + stripeCount + " is less than 1");
+        }
+        this.stripes = new Lock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: waits until no operation holds the whole warehouse and no other thread holds the stripe of given
+    //          customer name, then locks both for the current thread
+    void lockCustomer(String customerName) {
+        this.warehouseLock.readLock().lock();
+        stripeOf(customerName).lock();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: releases the locks taken by lockCustomer for given customer name
+    void unlockCustomer(String customerName) {
+        stripeOf(customerName).unlock();
+        this.warehouseLock.readLock().unlock();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: waits until no other thread holds any customer or the whole warehouse, then locks the whole warehouse
+    //          for the current thread; must not be called by a thread that holds a customer
+    void lockWarehouse() {
+        this.warehouseLock.writeLock().lock();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: releases the lock taken by lockWarehouse
+    void unlockWarehouse() {
+        this.warehouseLock.writeLock().unlock();
+    }
+
+    // EFFECTS: returns the lock of the stripe that given customer name hashes to
+    private Lock stripeOf(String customerName) {
+        int hash = customerName.hashCode();
+        // spread the high bits, so that names that differ only there do not all share a stripe
+        return this.stripes[Math.floorMod(hash ^ (hash >>> 16), this.stripes.length)];
+    }
+}
@@ -0,0 +1,56 @@
+package model;
+
+import java.time.LocalDate;
+
+/**
+ * Represents a single export transaction in the warehouse, linking an ExportLabel back to the Order it was removed
+ * from and the name of the Customer that owns that Order. An event can also refer to its label only by position, so
+ * that an index of events does not keep the label histories of its orders in memory
+ */
+public class ExportEvent {
+    private final String customerName;
+    private final Order order;
+    private final ExportLabel exportLabel;  // NULL if it is read from the exports of order each time it is needed
+    private final int exportPosition;       // position of the export label in the exports of order
+
+    public ExportEvent(String customerName, Order order, ExportLabel exportLabel) {
+        this.customerName = customerName;
+        this.order = order;
+        this.exportLabel = exportLabel;
+        this.exportPosition = -1;
+    }
+
+    // REQUIRES: order has an export at given position, and exports are never removed from it
+    // EFFECTS: creates the event of the export at given position in the exports of given order, whose label is read
+    //          from the order each time it is needed
+    ExportEvent(String customerName, Order order, int exportPosition) {
+        this.customerName = customerName;
+        this.order = order;
+        this.exportLabel = null;
+        this.exportPosition = exportPosition;
+    }
+
+    // getters
+    public String getCustomerName() {
+        return this.customerName;
+    }
+
+    public Order getOrder() {
+        return this.order;
+    }
+
+    public ExportLabel getExportLabel() {
+        if (this.exportLabel != null) {
+            return this.exportLabel;
+        }
+        return (ExportLabel) this.order.getExports().get(this.exportPosition);
+    }
+
+    public LocalDate getExportDate() {
+        return getExportLabel().getExportDate();
+    }
+
+    public int getQuantity() {
+        return getExportLabel().getQuantity();
+    }
+}
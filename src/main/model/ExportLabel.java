@@ -31,7 +31,7 @@ public class ExportLabel extends Label {
     @Override
     public String toString() {
         return "QTY=" + super.quantity + "; INV="
-                + super.invoiceNumber + "; " + this.exportDate.format(super.format) + "\n";
+                + super.invoiceNumber + "; " + this.exportDate.format(DATE_FORMAT) + "\n";
     }
 
     @Override
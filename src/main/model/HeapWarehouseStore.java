@@ -0,0 +1,80 @@
+package model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Represents a WarehouseStore that keeps every Customer and Order on the heap, in concurrent maps so that it can be
+ * called from several threads at once
+ */
+public class HeapWarehouseStore implements WarehouseStore {
+    private final Set<Customer> customerSet = ConcurrentHashMap.newKeySet();
+    // key = Customer Name :: value = Customer
+    private final Map<String, Customer> customerMap = new ConcurrentHashMap<>();
+    // key = Invoice Number :: value = Customer Name
+    private final Map<String, String> invoiceOwners = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean isInMemory() {
+        return true;
+    }
+
+    @Override
+    public boolean containsCustomer(String customerName) {
+        return this.customerMap.containsKey(customerName);
+    }
+
+    @Override
+    public Customer getCustomer(String customerName) {
+        return this.customerMap.get(customerName);
+    }
+
+    @Override
+    public Set<Customer> getCustomers() {
+        return Collections.unmodifiableSet(this.customerSet);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: stores given customer under its name, replacing the customer stored under that name; storing the
+    //          customer that is already stored changes nothing
+    @Override
+    public void putCustomer(Customer customer) {
+        Customer previous = this.customerMap.put(customer.getName(), customer);
+        if (previous != customer) {
+            if (previous != null) {
+                this.customerSet.remove(previous);
+            }
+            this.customerSet.add(customer);
+        }
+    }
+
+    @Override
+    public void removeCustomer(String customerName) {
+        Customer customer = this.customerMap.remove(customerName);
+        if (customer != null) {
+            this.customerSet.remove(customer);
+        }
+    }
+
+    @Override
+    public String getCustomerNameOfInvoice(String invoiceNum) {
+        return this.invoiceOwners.get(invoiceNum);
+    }
+
+    @Override
+    public void putInvoice(String invoiceNum, String customerName) {
+        this.invoiceOwners.put(invoiceNum, customerName);
+    }
+
+    @Override
+    public boolean putInvoiceIfAbsent(String invoiceNum, String customerName) {
+        return this.invoiceOwners.putIfAbsent(invoiceNum, customerName) == null;
+    }
+
+    @Override
+    public void removeInvoice(String invoiceNum) {
+        this.invoiceOwners.remove(invoiceNum);
+    }
+}
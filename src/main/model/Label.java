@@ -10,7 +10,8 @@ import java.time.format.DateTimeFormatter;
 public abstract class Label {
     protected int quantity;
     protected String invoiceNumber;
-    protected DateTimeFormatter format = DateTimeFormatter.ofPattern("MM/dd/yy");
+    // DateTimeFormatter is immutable and thread-safe, so every label shares one instance
+    public static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yy");
 
     public Label(int quantity, String invoiceNumber) {
         this.quantity = quantity;
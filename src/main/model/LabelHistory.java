@@ -0,0 +1,74 @@
+package model;
+
+import model.exceptions.CorruptFileException;
+import model.exceptions.InvalidMonthRangeException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents the label histories of an Order: the ExportLabels of every export event and the MonthlyChargeLabels of
+ * every monthly charge recorded for it
+ */
+public class LabelHistory {
+    private final List<Label> exports;
+    private final List<Label> monthlyChargeLabels;
+
+    public LabelHistory(List<Label> exports, List<Label> monthlyChargeLabels) {
+        this.exports = exports;
+        this.monthlyChargeLabels = monthlyChargeLabels;
+    }
+
+    // EFFECTS: returns JSON object representation of this LabelHistory
+    public JSONObject convertToJsonObject() {
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("exports", convertLabelListToJsonArray(this.exports));
+        jsonObject.put("monthlyChargeLabels", convertLabelListToJsonArray(this.monthlyChargeLabels));
+        return jsonObject;
+    }
+
+    // EFFECTS: converts and returns a list of labels as a JSON array
+    private static JSONArray convertLabelListToJsonArray(List<Label> labels) {
+        JSONArray jsonArray = new JSONArray();
+        for (Label l : labels) {
+            jsonArray.put(l.convertToJsonObject());
+        }
+        return jsonArray;
+    }
+
+    // EFFECTS: returns LabelHistory converted from given JSON object representation of it,
+    //          throws CorruptFileException if a monthly charge label does not represent a valid month
+    public static LabelHistory fromJsonObject(JSONObject jsonObject) throws CorruptFileException {
+        List<Label> exports = new ArrayList<>();
+        for (Object o : jsonObject.getJSONArray("exports")) {
+            JSONObject jo = (JSONObject) o;
+            exports.add(new ExportLabel(jo.getInt("quantity"), jo.getString("invoiceNumber"),
+                    LocalDate.parse(jo.getString("exportDate"))));
+        }
+
+        List<Label> monthlyChargeLabels = new ArrayList<>();
+        try {
+            for (Object o : jsonObject.getJSONArray("monthlyChargeLabels")) {
+                JSONObject jo = (JSONObject) o;
+                monthlyChargeLabels.add(new MonthlyChargeLabel(jo.getInt("quantity"), jo.getString("invoiceNumber"),
+                        LocalDate.parse(jo.getString("startDate")), LocalDate.parse(jo.getString("endDate"))));
+            }
+        } catch (InvalidMonthRangeException e) {
+            throw new CorruptFileException();
+        }
+        return new LabelHistory(exports, monthlyChargeLabels);
+    }
+
+    // getters
+    public List<Label> getExports() {
+        return Collections.unmodifiableList(this.exports);
+    }
+
+    public List<Label> getMonthlyChargeLabels() {
+        return Collections.unmodifiableList(this.monthlyChargeLabels);
+    }
+}
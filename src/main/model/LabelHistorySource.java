@@ -0,0 +1,12 @@
+package model;
+
+/**
+ * Represents a place that the label histories of an Order can be loaded back from on demand, such as an archive on
+ * disk or the compact encoding they were loaded in
+ */
+public interface LabelHistorySource {
+
+    // EFFECTS: loads and returns the label histories held by this source,
+    //          throws java.io.UncheckedIOException if they can no longer be read
+    LabelHistory load();
+}
@@ -0,0 +1,87 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents a list of labels that never changes. Appending a label makes a new list in constant time that shares
+ * every earlier label with this one, so an order exported from many times does not copy its label history on each
+ * export; the labels are only gathered into one list the first time the whole list is read
+ */
+final class LabelList {
+    static final LabelList EMPTY = new LabelList(Collections.emptyList());
+
+    private final Label last;               // label appended last, NULL if this list was made from a whole list
+    private final int size;
+    private volatile List<Label> labels;    // all labels of this list in order, NULL until first read
+    private volatile LabelList previous;    // this list without its last label, NULL once labels is set
+
+    // EFFECTS: creates a list of given labels
+    LabelList(List<Label> labels) {
+        this.last = null;
+        this.size = labels.size();
+        this.labels = Collections.unmodifiableList(labels);
+        this.previous = null;
+    }
+
+    // EFFECTS: creates a list of the labels of given list followed by given label
+    private LabelList(LabelList previous, Label last) {
+        this.last = last;
+        this.size = previous.size + 1;
+        this.labels = null;
+        this.previous = previous;
+    }
+
+    // EFFECTS: returns a list of the labels of this list followed by given label
+    LabelList append(Label label) {
+        return new LabelList(this, label);
+    }
+
+    // EFFECTS: returns a list of the labels of this list followed by given labels
+    LabelList append(List<Label> addedLabels) {
+        if (this.size == 0) {
+            return new LabelList(addedLabels);
+        }
+        LabelList appended = this;
+        for (Label l : addedLabels) {
+            appended = appended.append(l);
+        }
+        return appended;
+    }
+
+    // EFFECTS: returns the number of labels in this list
+    int size() {
+        return this.size;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: returns the labels of this list in order as an unmodifiable list, gathering them the first time it is
+    //          called and letting go of the earlier lists they were shared with
+    List<Label> toList() {
+        List<Label> result = this.labels;
+        if (result == null) {
+            Label[] gathered = new Label[this.size];
+            LabelList list = this;
+            List<Label> start = null;
+            while (start == null) {
+                // labels is set before previous is dropped, so a list found without previous has its labels set
+                LabelList listPrevious = list.previous;
+                if (listPrevious == null) {
+                    start = list.labels;
+                } else {
+                    gathered[list.size - 1] = list.last;
+                    list = listPrevious;
+                    start = list.labels;
+                }
+            }
+            for (int i = 0; i < start.size(); i++) {
+                gathered[i] = start.get(i);
+            }
+            result = Collections.unmodifiableList(Arrays.asList(gathered));
+            this.labels = result;
+            this.previous = null;
+        }
+        return result;
+    }
+}
@@ -46,7 +46,7 @@ public class MonthlyChargeLabel extends Label {
     @Override
     public String toString() {
         return "QTY=" + super.quantity + "; INV=" + super.invoiceNumber + "; "
-                + this.startDate.format(super.format) + "-" + this.endDate.format(super.format) + "\n";
+                + this.startDate.format(DATE_FORMAT) + "-" + this.endDate.format(DATE_FORMAT) + "\n";
     }
 
     @Override
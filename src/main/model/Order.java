@@ -4,11 +4,13 @@ import model.exceptions.*;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.lang.ref.SoftReference;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.ConcurrentModificationException;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.time.temporal.ChronoUnit.DAYS;
 
@@ -16,16 +18,29 @@ import static java.time.temporal.ChronoUnit.DAYS;
  * Represents an Order a Customer can make. Each Order has content, import date, export date, invoice number, quantity
  * <p>
  * *** Note: An Order can have partial removals ***
+ * <p>
+ * The current quantity and label histories of an Order carry a version. Exports and monthly charges are checked
+ * against the version they read and applied by compare-and-set, so two threads changing one order at once never lose
+ * either change; the one that finds the order changed under it checks and applies its change again
  */
 public class Order {
+    // times an export or monthly charge is checked and applied again after other threads changed the order first
+    private static final int MAX_UPDATE_ATTEMPTS = 32;
+
     private String content;
     private LocalDate importDate;
-    private List<Label> exports = new ArrayList<>();
-    private List<Label> monthlyChargeLabels = new ArrayList<>();
+    private final AtomicReference<Stock> stock; // current quantity and label histories, replaced on every change
     private String invoiceNumber;
     private final int originalQuantity;
-    private int currentQuantity;
     private String storageLocation;
+    // display row of this order, held softly as it holds the label histories joined as text; null when it must be
+    // rebuilt
+    private volatile SoftReference<String[]> cachedRow;
+    // non-null while the label histories of this order are not in memory
+    private volatile LabelHistorySource labelSource;
+    private volatile boolean isArchived;        // true if labelSource is an archive rather than the loaded snapshot
+    // label histories most recently loaded from labelSource
+    private volatile SoftReference<LabelHistory> faultedInLabels;
 
     public Order(String content, LocalDate importDate, String invoiceNumber, int quantity,
                  String storageLocation) throws QuantityNegativeException, QuantityZeroException,
@@ -42,17 +57,37 @@ public class Order {
         this.importDate = importDate;
         this.invoiceNumber = invoiceNumber;
         this.originalQuantity = quantity;
-        this.currentQuantity = quantity;
+        this.stock = new AtomicReference<>(new Stock(0, quantity, LabelList.EMPTY, LabelList.EMPTY, null));
         this.storageLocation = storageLocation;
     }
 
+    // EFFECTS: creates a copy of given order, see copy()
+    private Order(Order order) {
+        this.content = order.content;
+        this.importDate = order.importDate;
+        this.stock = new AtomicReference<>(order.stock.get());
+        this.invoiceNumber = order.invoiceNumber;
+        this.originalQuantity = order.originalQuantity;
+        this.storageLocation = order.storageLocation;
+        this.labelSource = order.labelSource;
+        this.isArchived = order.isArchived;
+    }
+
+    // EFFECTS: returns a copy of this order that can be changed independently of it,
+    //          labels are immutable and are shared with the copy
+    public Order copy() {
+        return new Order(this);
+    }
+
     // MODIFIES: this
     // EFFECTS: if quantity is not valid throws InvalidQuantityException,
     //          if removal quantity is greater than original quantity throw QuantityExceedsMaxQuantityException,
     //          if removal quantity greater than available quantity throw RemovalQuantityExceedsAvailabilityException,
     //          if export date before this import date or is a future date, throw InvalidExportDateException,
-    //          else decrement removal quantity from current quantity and add removal details into export history
-    public void remove(int removalQuantity, String exportInvoiceNum, LocalDate exportDate)
+    //          else decrement removal quantity from current quantity, add removal details into export history and
+    //          return them; if other threads keep changing this order first, throws ConcurrentModificationException
+    //          after MAX_UPDATE_ATTEMPTS attempts
+    public ExportLabel remove(int removalQuantity, String exportInvoiceNum, LocalDate exportDate)
             throws QuantityNegativeException, QuantityZeroException, QuantityExceedsMaxQuantityException,
             RemovalQuantityExceedsAvailabilityException, InvalidExportDateException {
         // confirms if quantity is valid, if not throws exception
@@ -63,8 +98,27 @@ public class Order {
             throw new QuantityExceedsMaxQuantityException(removalQuantity, this.originalQuantity);
         }
 
+        ExportLabel exportLabel = new ExportLabel(removalQuantity, exportInvoiceNum, exportDate);
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            Stock current = loadedStock();
+            validateRemoval(current, removalQuantity, exportDate);
+
+            // decrement current quantity and record export details, unless another thread changed this order first
+            if (this.stock.compareAndSet(current, current.withExport(exportLabel))) {
+                this.cachedRow = null;
+                return exportLabel;
+            }
+        }
+        throw concurrentUpdateFailure();
+    }
+
+    // EFFECTS: if removing given quantity from given stock is more than available,
+    //          throw RemovalQuantityExceedsAvailabilityException,
+    //          if export date before this import date or is a future date, throw InvalidExportDateException
+    private void validateRemoval(Stock current, int removalQuantity, LocalDate exportDate)
+            throws RemovalQuantityExceedsAvailabilityException, InvalidExportDateException {
         // if removing more than available, throw RemovalQuantityExceedsAvailabilityException
-        if (this.currentQuantity < removalQuantity) {
+        if (current.currentQuantity < removalQuantity) {
             throw new RemovalQuantityExceedsAvailabilityException();
         }
 
@@ -72,12 +126,6 @@ public class Order {
         if (DAYS.between(this.importDate, exportDate) < 0 || DAYS.between(LocalDate.now(), exportDate) > 0) {
             throw new InvalidExportDateException();
         }
-
-        // decrement current quantity appropriately
-        this.currentQuantity -= removalQuantity;
-
-        // record export details into exports list
-        this.exports.add(new ExportLabel(removalQuantity, exportInvoiceNum, exportDate));
     }
 
     // MODIFIES: this
@@ -85,7 +133,9 @@ public class Order {
     //          if quantity is greater than original quantity throw QuantityExceedsMaxQuantityException,
     //          if start date is prior to this Orders import date throw InvalidStartDateException,
     //          if end date has not yet occurred throw InvalidEndDateException,
-    //          otherwise create a new MonthlyChargeLabel with the given details and record/save it
+    //          otherwise create a new MonthlyChargeLabel with the given details and record/save it; if other threads
+    //          keep changing this order first, throws ConcurrentModificationException after MAX_UPDATE_ATTEMPTS
+    //          attempts
     public void addMonthlyChargeLabel(int quantity, String invoiceNum, LocalDate startDate, LocalDate endDate)
             throws QuantityNegativeException, QuantityZeroException, QuantityExceedsMaxQuantityException,
             InvalidStartDateException, InvalidEndDateException, InvalidMonthRangeException {
@@ -108,7 +158,21 @@ public class Order {
         }
 
         // create a new MonthlyChargeLabel with the given details and record/save it
-        this.monthlyChargeLabels.add(new MonthlyChargeLabel(quantity, invoiceNum, startDate, endDate));
+        MonthlyChargeLabel monthlyChargeLabel = new MonthlyChargeLabel(quantity, invoiceNum, startDate, endDate);
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            Stock current = loadedStock();
+            if (this.stock.compareAndSet(current, current.withMonthlyCharge(monthlyChargeLabel))) {
+                this.cachedRow = null;
+                return;
+            }
+        }
+        throw concurrentUpdateFailure();
+    }
+
+    // EFFECTS: returns the exception thrown when other threads changed this order first on every attempt to change it
+    private ConcurrentModificationException concurrentUpdateFailure() {
+        return new ConcurrentModificationException("Order " + this.invoiceNumber + " was changed by another thread "
+                + MAX_UPDATE_ATTEMPTS + " times in a row");
     }
 
     // EFFECTS: if quantity is negative throw NegativeQuantityException,
@@ -131,11 +195,11 @@ public class Order {
         JSONObject jsonObject = new JSONObject();
         jsonObject.put("content", this.content);
         jsonObject.put("importDate", this.importDate.toString());
-        jsonObject.put("exports", convertLabelListToJsonArray(this.exports));
-        jsonObject.put("monthlyChargeLabels", convertLabelListToJsonArray(this.monthlyChargeLabels));
+        jsonObject.put("exports", convertLabelListToJsonArray(readExports()));
+        jsonObject.put("monthlyChargeLabels", convertLabelListToJsonArray(readMonthlyChargeLabels()));
         jsonObject.put("invoiceNumber", this.invoiceNumber);
         jsonObject.put("originalQuantity", this.originalQuantity);
-        jsonObject.put("currentQuantity", this.currentQuantity);
+        jsonObject.put("currentQuantity", getCurrentQuantity());
         jsonObject.put("storageLocation", this.storageLocation);
         return jsonObject;
     }
@@ -149,6 +213,136 @@ public class Order {
         return jsonArray;
     }
 
+    // EFFECTS: returns Order converted from given JSON object representation of it,
+    //          throws CorruptFileException if it does not represent a valid Order
+    public static Order fromJsonObject(JSONObject jsonObject) throws CorruptFileException {
+        try {
+            Order order = new Order(jsonObject.getString("content"),
+                    LocalDate.parse(jsonObject.getString("importDate")), jsonObject.getString("invoiceNumber"),
+                    jsonObject.getInt("originalQuantity"), jsonObject.getString("storageLocation"));
+            order.setCurrentQuantity(jsonObject.getInt("currentQuantity"));
+            order.setLabelsFromJsonArray(true, jsonObject.getJSONArray("exports"));
+            order.setLabelsFromJsonArray(false, jsonObject.getJSONArray("monthlyChargeLabels"));
+            return order;
+        } catch (QuantityNegativeException | QuantityZeroException | InvalidImportDateException e) {
+            throw new CorruptFileException();
+        }
+    }
+
+    // REQUIRES: labels is not null
+    // MODIFIES: this
+    // EFFECTS: drops the label histories of this order from memory, they are loaded back from given labels each
+    //          time they are read until this order next changes
+    public void archiveLabels(LabelHistorySource labels) {
+        long[] exportDays = getExportDays();
+        this.isArchived = true;
+        setLabelSource(labels, exportDays);
+    }
+
+    // REQUIRES: labels is not null, exportDays holds the export date of each export label held by labels as an epoch
+    //           day, in order
+    // MODIFIES: this
+    // EFFECTS: sets the label histories of this order, which has just been loaded, to the ones held by given labels
+    //          without decoding them; they are decoded each time they are read, as archived labels are, until this
+    //          order next changes
+    public void deferLabels(LabelHistorySource labels, long[] exportDays) {
+        this.isArchived = false;
+        setLabelSource(labels, exportDays);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: drops the label histories of this order from memory, they are loaded from given labels from now on;
+    //          only given export days, those of the dropped export labels, are kept
+    private void setLabelSource(LabelHistorySource labels, long[] exportDays) {
+        // the source is set before the labels are dropped, so a thread that finds them dropped can load them from it
+        this.faultedInLabels = null;
+        this.labelSource = labels;
+        this.stock.updateAndGet(s -> s.withoutLabels(exportDays));
+        this.cachedRow = null;
+    }
+
+    // EFFECTS: returns true if the label histories of this order are archived
+    public boolean isArchived() {
+        return this.labelSource != null && this.isArchived;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: returns the stock of this order, loading its label histories back first and keeping them in memory if
+    //          they are archived or deferred
+    private Stock loadedStock() {
+        while (true) {
+            Stock current = this.stock.get();
+            Stock loaded = withLoadedLabels(current);
+            if (loaded == current) {
+                return current;
+            }
+            // the loaded labels are installed only over the stock they were loaded for, so they never overwrite an
+            // export or monthly charge that another thread added after loading them itself
+            if (loaded != null && this.stock.compareAndSet(current, loaded)) {
+                dropLabelSource();
+                return loaded;
+            }
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: returns the stock of this order with its label histories, loading them from their source without
+    //          keeping them in memory if they are archived or deferred
+    private Stock readableStock() {
+        Stock readable = withLoadedLabels(this.stock.get());
+        while (readable == null) {
+            readable = withLoadedLabels(this.stock.get());
+        }
+        return readable;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: returns given stock of this order if its label histories are in memory, else given stock with them
+    //          loaded from their source, or null if another thread loaded them back and dropped the source since given
+    //          stock was read
+    private Stock withLoadedLabels(Stock current) {
+        if (current.exports != null) {
+            return current;
+        }
+        // the source is set before the labels are dropped and dropped after they are loaded back, so it is only
+        // missing here once the stock read is out of date
+        LabelHistorySource source = this.labelSource;
+        return source == null ? null : current.withLabels(loadLabels(source));
+    }
+
+    // MODIFIES: this
+    // EFFECTS: returns the label histories held by given source, loading them from it only if the garbage collector
+    //          has reclaimed the copy that was last loaded
+    private LabelHistory loadLabels(LabelHistorySource source) {
+        SoftReference<LabelHistory> faultedIn = this.faultedInLabels;
+        LabelHistory labelHistory = faultedIn == null ? null : faultedIn.get();
+        if (labelHistory == null) {
+            labelHistory = source.load();
+            this.faultedInLabels = new SoftReference<>(labelHistory);
+        }
+        return labelHistory;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: forgets the source of the label histories of this order, which are now in memory
+    private void dropLabelSource() {
+        this.labelSource = null;
+        this.isArchived = false;
+        this.faultedInLabels = null;
+        this.cachedRow = null;
+    }
+
+    // EFFECTS: returns the export labels of this order, loading them from their source if they are not in memory
+    private List<Label> readExports() {
+        return readableStock().exports.toList();
+    }
+
+    // EFFECTS: returns the monthly charge labels of this order, loading them from their source if they are not in
+    //          memory
+    private List<Label> readMonthlyChargeLabels() {
+        return readableStock().monthlyChargeLabels.toList();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -171,20 +365,37 @@ public class Order {
 
     // EFFECTS: returns a string representation of all the exports for this
     public String getExportsString() {
-        String retVal = "";
-        for (Label el : this.exports) {
-            retVal += el.toString();
-        }
-        return retVal;
+        return joinLabels(readExports());
     }
 
     // EFFECTS: returns a string representation of all the monthly charges for this
     public String getMonthlyChargeLabelsString() {
-        String retVal = "";
-        for (Label mcl : this.monthlyChargeLabels) {
-            retVal += mcl.toString();
+        return joinLabels(readMonthlyChargeLabels());
+    }
+
+    // EFFECTS: returns the string representations of given labels joined together
+    private static String joinLabels(List<Label> labels) {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (Label l : labels) {
+            stringBuilder.append(l.toString());
+        }
+        return stringBuilder.toString();
+    }
+
+    // EFFECTS: returns the display row of this order owned by given customer as
+    //          {name, invoice number, quantity, content, import date, location, export info, monthly charge info};
+    //          the row is cached until this order changes or the garbage collector needs the memory, so callers must
+    //          not modify the returned array
+    public String[] getRow(String customerName) {
+        SoftReference<String[]> cached = this.cachedRow;
+        String[] row = cached == null ? null : cached.get();
+        if (row == null || !row[0].equals(customerName)) {
+            row = new String[]{customerName, this.invoiceNumber, Integer.toString(getCurrentQuantity()),
+                    this.content, this.importDate.format(Label.DATE_FORMAT), this.storageLocation,
+                    getExportsString(), getMonthlyChargeLabelsString()};
+            this.cachedRow = new SoftReference<>(row);
         }
-        return retVal;
+        return row;
     }
 
     public String getContent() {
@@ -196,11 +407,11 @@ public class Order {
     }
 
     public List<Label> getExports() {
-        return Collections.unmodifiableList(this.exports);
+        return readExports();
     }
 
     public List<Label> getMonthlyChargeLabels() {
-        return Collections.unmodifiableList(this.monthlyChargeLabels);
+        return readMonthlyChargeLabels();
     }
 
     public String getInvoiceNumber() {
@@ -211,8 +422,36 @@ public class Order {
         return this.originalQuantity;
     }
 
+    // EFFECTS: returns the export date of every export of this order as an epoch day, in the order they were
+    //          recorded, without loading the label histories of this order if they are archived or deferred
+    public long[] getExportDays() {
+        Stock current = this.stock.get();
+        if (current.exports == null) {
+            return current.exportDays.clone();
+        }
+        List<Label> exports = current.exports.toList();
+        long[] exportDays = new long[exports.size()];
+        for (int i = 0; i < exportDays.length; i++) {
+            exportDays[i] = ((ExportLabel) exports.get(i)).getExportDate().toEpochDay();
+        }
+        return exportDays;
+    }
+
+    // EFFECTS: returns the number of exports of this order, without loading the label histories of this order if they
+    //          are archived or deferred
+    public int getExportCount() {
+        Stock current = this.stock.get();
+        return current.exports == null ? current.exportDays.length : current.exports.size();
+    }
+
     public int getCurrentQuantity() {
-        return this.currentQuantity;
+        return this.stock.get().currentQuantity;
+    }
+
+    // EFFECTS: returns the version of the current quantity and label histories of this order, which every export,
+    //          monthly charge and quantity change increases by one
+    public long getVersion() {
+        return this.stock.get().version;
     }
 
     public String getStorageLocation() {
@@ -225,45 +464,139 @@ public class Order {
     // MODIFIES: this
     // EFFECTS: sets Labels by converting given JSON Array representation of it
     public void setLabelsFromJsonArray(boolean forExports, JSONArray labels) throws CorruptFileException {
+        List<Label> parsedLabels = parseLabels(forExports, labels);
+        Stock current = loadedStock();
+        while (!this.stock.compareAndSet(current, forExports
+                ? current.withLabels(current.exports.append(parsedLabels), current.monthlyChargeLabels)
+                : current.withLabels(current.exports, current.monthlyChargeLabels.append(parsedLabels)))) {
+            current = loadedStock();
+        }
+        this.cachedRow = null;
+    }
+
+    // EFFECTS: returns the export labels, or monthly charge labels if not forExports, in given JSON array
+    //          representation of them, throws CorruptFileException if it does not represent valid labels
+    private static List<Label> parseLabels(boolean forExports, JSONArray labels) throws CorruptFileException {
+        List<Label> parsedLabels = new ArrayList<>();
         for (Object o : labels) {
             JSONObject jo = (JSONObject) o;
             int quantity = jo.getInt("quantity");
             String invoiceNumber = jo.getString("invoiceNumber");
             if (forExports) {
                 LocalDate exportDate = LocalDate.parse(jo.getString("exportDate"));
-                ExportLabel exportLabel = new ExportLabel(quantity, invoiceNumber, exportDate);
-                this.exports.add(exportLabel);
+                parsedLabels.add(new ExportLabel(quantity, invoiceNumber, exportDate));
             } else {
                 LocalDate startDate = LocalDate.parse(jo.getString("startDate"));
                 LocalDate endDate = LocalDate.parse(jo.getString("endDate"));
                 try {
-                    MonthlyChargeLabel monthlyChargeLabel =
-                            new MonthlyChargeLabel(quantity, invoiceNumber, startDate, endDate);
-                    this.monthlyChargeLabels.add(monthlyChargeLabel);
+                    parsedLabels.add(new MonthlyChargeLabel(quantity, invoiceNumber, startDate, endDate));
                 } catch (InvalidMonthRangeException e) {
                     throw new CorruptFileException();
                 }
             }
         }
+        return parsedLabels;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: replaces the label histories of this order with given ones
+    public void setLabelHistory(LabelHistory labelHistory) {
+        // the labels are set before the source is dropped, so a thread that finds the source dropped finds them set;
+        // the version moves on, so a change that another thread checked against the replaced labels is checked again
+        this.stock.updateAndGet(s -> s.withReplacedLabels(labelHistory));
+        dropLabelSource();
     }
 
     public void setInvoiceNumber(String invoiceNumber) {
         this.invoiceNumber = invoiceNumber;
+        this.cachedRow = null;
     }
 
     public void setImportDate(LocalDate importDate) {
         this.importDate = importDate;
+        this.cachedRow = null;
     }
 
     public void setCurrentQuantity(int quantity) {
-        this.currentQuantity = quantity;
+        this.stock.updateAndGet(s -> s.withQuantity(quantity));
+        this.cachedRow = null;
     }
 
     public void setStorageLocation(String storageLocation) {
         this.storageLocation = storageLocation;
+        this.cachedRow = null;
     }
 
     public void setContent(String content) {
         this.content = content;
+        this.cachedRow = null;
+    }
+
+    /**
+     * Represents the current quantity and label histories of an Order at one version. A stock never changes; each
+     * change to an order replaces its stock with a new one of the next version. The label lists share their labels
+     * with the stock they were appended to, and are NULL while the label histories of the order are archived or
+     * deferred, when only the export date of each export is kept
+     */
+    private static final class Stock {
+        private final long version;
+        private final int currentQuantity;
+        private final LabelList exports;
+        private final LabelList monthlyChargeLabels;
+        private final long[] exportDays;    // epoch day of each export while the labels are dropped, else NULL
+
+        Stock(long version, int currentQuantity, LabelList exports, LabelList monthlyChargeLabels,
+                long[] exportDays) {
+            this.version = version;
+            this.currentQuantity = currentQuantity;
+            this.exports = exports;
+            this.monthlyChargeLabels = monthlyChargeLabels;
+            this.exportDays = exportDays;
+        }
+
+        // EFFECTS: returns the next version of this stock, with the quantity of given export removed and the export
+        //          added to the export history
+        Stock withExport(ExportLabel exportLabel) {
+            return new Stock(this.version + 1, this.currentQuantity - exportLabel.getQuantity(),
+                    this.exports.append(exportLabel), this.monthlyChargeLabels, null);
+        }
+
+        // EFFECTS: returns the next version of this stock, with given monthly charge added to the monthly charges
+        Stock withMonthlyCharge(MonthlyChargeLabel monthlyChargeLabel) {
+            return new Stock(this.version + 1, this.currentQuantity, this.exports,
+                    this.monthlyChargeLabels.append(monthlyChargeLabel), null);
+        }
+
+        // EFFECTS: returns the next version of this stock, with given current quantity
+        Stock withQuantity(int quantity) {
+            return new Stock(this.version + 1, quantity, this.exports, this.monthlyChargeLabels, this.exportDays);
+        }
+
+        // EFFECTS: returns this stock with given label histories in memory, at the same version, as the labels are the
+        //          same ones
+        Stock withLabels(LabelList exports, LabelList monthlyChargeLabels) {
+            return new Stock(this.version, this.currentQuantity, exports, monthlyChargeLabels, null);
+        }
+
+        // EFFECTS: returns this stock with the label histories held by given label history in memory, at the same
+        //          version
+        Stock withLabels(LabelHistory labelHistory) {
+            return withLabels(new LabelList(labelHistory.getExports()),
+                    new LabelList(labelHistory.getMonthlyChargeLabels()));
+        }
+
+        // EFFECTS: returns this stock with its label histories dropped from memory except for given export days, at
+        //          the same version
+        Stock withoutLabels(long[] exportDays) {
+            return new Stock(this.version, this.currentQuantity, null, null, exportDays);
+        }
+
+        // EFFECTS: returns the next version of this stock, with its label histories replaced by the ones held by
+        //          given label history
+        Stock withReplacedLabels(LabelHistory labelHistory) {
+            Stock replaced = withLabels(labelHistory);
+            return new Stock(this.version + 1, replaced.currentQuantity, replaced.exports,
+                    replaced.monthlyChargeLabels, null);
+        }
     }
 }
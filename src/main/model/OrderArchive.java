@@ -0,0 +1,13 @@
+package model;
+
+import java.io.IOException;
+
+/**
+ * Represents an archive that the label histories of complete Orders can be moved into to free up memory
+ */
+public interface OrderArchive {
+
+    // EFFECTS: writes the label histories of given order into this archive and returns a source to load them back,
+    //          throws IOException if they could not be written
+    LabelHistorySource archive(Order order) throws IOException;
+}
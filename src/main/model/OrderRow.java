@@ -0,0 +1,70 @@
+package model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Represents a read-only row of order details, as displayed for the current inventory or transaction history.
+ * Each OrderRow is a view of an Order together with the name of the Customer that owns it
+ */
+public class OrderRow {
+    private final String customerName;
+    private final Order order;
+    private final boolean isActiveOrder;
+
+    public OrderRow(String customerName, Order order, boolean isActiveOrder) {
+        this.customerName = customerName;
+        this.order = order;
+        this.isActiveOrder = isActiveOrder;
+    }
+
+    // EFFECTS: returns this row formatted for display, see Order.getRow
+    public String[] toDisplayRow() {
+        return this.order.getRow(this.customerName);
+    }
+
+    // getters
+    public String getCustomerName() {
+        return this.customerName;
+    }
+
+    public Order getOrder() {
+        return this.order;
+    }
+
+    public boolean isActiveOrder() {
+        return this.isActiveOrder;
+    }
+
+    public String getInvoiceNumber() {
+        return this.order.getInvoiceNumber();
+    }
+
+    public int getCurrentQuantity() {
+        return this.order.getCurrentQuantity();
+    }
+
+    public int getOriginalQuantity() {
+        return this.order.getOriginalQuantity();
+    }
+
+    public String getContent() {
+        return this.order.getContent();
+    }
+
+    public LocalDate getImportDate() {
+        return this.order.getImportDate();
+    }
+
+    public String getStorageLocation() {
+        return this.order.getStorageLocation();
+    }
+
+    public List<Label> getExports() {
+        return this.order.getExports();
+    }
+
+    public List<Label> getMonthlyChargeLabels() {
+        return this.order.getMonthlyChargeLabels();
+    }
+}
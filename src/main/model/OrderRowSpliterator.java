@@ -0,0 +1,102 @@
+package model;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the active or complete orders of a range of customers, producing an OrderRow per order.
+ * Splitting first divides the range of customers in half; once a single customer remains, that customer's own
+ * orders are split. Rows are only created as they are traversed
+ */
+class OrderRowSpliterator implements Spliterator<OrderRow> {
+    private final Customer[] customers;
+    private final boolean isActiveOrder;
+    private int index;                          // index of the customer currently being traversed
+    private final int fence;                    // one past the index of the last customer in range
+    private Spliterator<Order> orders;          // remaining orders of customers[index], null until traversal begins
+    private long estimatedSize;
+
+    // EFFECTS: creates a spliterator over the active orders (if isActiveOrder) or complete orders of given customers
+    OrderRowSpliterator(Customer[] customers, boolean isActiveOrder) {
+        this(customers, isActiveOrder, 0, customers.length, null, countOrders(customers, isActiveOrder));
+    }
+
+    private OrderRowSpliterator(Customer[] customers, boolean isActiveOrder, int index, int fence,
+                                Spliterator<Order> orders, long estimatedSize) {
+        this.customers = customers;
+        this.isActiveOrder = isActiveOrder;
+        this.index = index;
+        this.fence = fence;
+        this.orders = orders;
+        this.estimatedSize = estimatedSize;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super OrderRow> action) {
+        while (this.index < this.fence) {
+            Customer customer = this.customers[this.index];
+            if (this.orders == null) {
+                this.orders = ordersOf(customer);
+            }
+            if (this.orders.tryAdvance(o -> action.accept(new OrderRow(customer.getName(), o, this.isActiveOrder)))) {
+                return true;
+            }
+            this.orders = null;
+            this.index++;
+        }
+        return false;
+    }
+
+    @Override
+    public Spliterator<OrderRow> trySplit() {
+        int remainingCustomers = this.fence - this.index;
+        if (remainingCustomers > 1 && this.orders == null) {
+            // hand the first half of the customer range to the new spliterator
+            int middle = this.index + remainingCustomers / 2;
+            long prefixSize = this.estimatedSize / 2;
+            OrderRowSpliterator prefix = new OrderRowSpliterator(this.customers, this.isActiveOrder, this.index,
+                    middle, null, prefixSize);
+            this.index = middle;
+            this.estimatedSize -= prefixSize;
+            return prefix;
+        }
+        if (remainingCustomers == 1) {
+            // hand part of the last customer's orders to the new spliterator
+            if (this.orders == null) {
+                this.orders = ordersOf(this.customers[this.index]);
+            }
+            Spliterator<Order> prefixOrders = this.orders.trySplit();
+            if (prefixOrders != null) {
+                this.estimatedSize = this.orders.estimateSize();
+                return new OrderRowSpliterator(this.customers, this.isActiveOrder, this.index, this.index + 1,
+                        prefixOrders, prefixOrders.estimateSize());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return this.estimatedSize;
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL;
+    }
+
+    // EFFECTS: returns a spliterator over the active orders (if isActiveOrder) or complete orders of given customer
+    private Spliterator<Order> ordersOf(Customer customer) {
+        return this.isActiveOrder ? customer.getActiveOrders().values().spliterator()
+                : customer.getCompleteOrders().spliterator();
+    }
+
+    // EFFECTS: returns the total number of active orders (if isActiveOrder) or complete orders of given customers
+    private static long countOrders(Customer[] customers, boolean isActiveOrder) {
+        long total = 0;
+        for (Customer c : customers) {
+            total += isActiveOrder ? c.getActiveOrderSize() : c.getCompleteOrderSize();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,106 @@
+package model;
+
+import java.util.*;
+
+/**
+ * Represents an inverted index from search tokens to Orders. Each Order is indexed by the tokens in its content,
+ * its invoice number and the name of the Customer that owns it
+ */
+public class SearchIndex {
+    private static final String TOKEN_SEPARATOR = "[^\\p{L}\\p{N}]+";
+
+    private final NavigableMap<String, Set<Order>> postings = new TreeMap<>(); // key = Token :: value = Orders
+    private final Map<Order, Set<String>> orderTokens = new HashMap<>();        // key = Order :: value = Tokens
+
+    // MODIFIES: this
+    // EFFECTS: indexes given order under the tokens of its content, its invoice number and given customer name,
+    //          if the order was previously indexed its old tokens are replaced
+    public void add(Order order, String customerName) {
+        remove(order);
+
+        Set<String> tokens = new HashSet<>();
+        tokens.addAll(tokenize(order.getContent()));
+        tokens.addAll(tokenize(order.getInvoiceNumber()));
+        tokens.addAll(tokenize(customerName));
+
+        for (String token : tokens) {
+            this.postings.computeIfAbsent(token, k -> new HashSet<>()).add(order);
+        }
+        this.orderTokens.put(order, tokens);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: removes given order from the index, does nothing if the order is not indexed
+    public void remove(Order order) {
+        Set<String> tokens = this.orderTokens.remove(order);
+        if (tokens == null) {
+            return;
+        }
+
+        for (String token : tokens) {
+            Set<Order> orders = this.postings.get(token);
+            orders.remove(order);
+            if (orders.isEmpty()) {
+                this.postings.remove(token);
+            }
+        }
+    }
+
+    // EFFECTS: returns the orders that match every token in given query, a query token matches an indexed token
+    //          that starts with it; an empty query matches nothing
+    public Set<Order> search(String query) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Set<Order> matches = null;
+        for (String token : queryTokens) {
+            Set<Order> tokenMatches = findPrefixMatches(token);
+            if (matches == null) {
+                matches = tokenMatches;
+            } else {
+                // iterate over the smaller of the two sets when intersecting
+                Set<Order> smaller = matches.size() <= tokenMatches.size() ? matches : tokenMatches;
+                Set<Order> larger = smaller == matches ? tokenMatches : matches;
+                smaller.retainAll(larger);
+                matches = smaller;
+            }
+            if (matches.isEmpty()) {
+                break;
+            }
+        }
+        return matches;
+    }
+
+    // EFFECTS: returns the number of orders in the index
+    public int size() {
+        return this.orderTokens.size();
+    }
+
+    // EFFECTS: returns a new set of every order indexed under a token that starts with given prefix
+    private Set<Order> findPrefixMatches(String prefix) {
+        Set<Order> matches = new HashSet<>();
+        for (Map.Entry<String, Set<Order>> entry : this.postings.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            matches.addAll(entry.getValue());
+        }
+        return matches;
+    }
+
+    // EFFECTS: splits given text into lowercase tokens of letters and digits
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split(TOKEN_SEPARATOR)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
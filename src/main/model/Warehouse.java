@@ -4,31 +4,93 @@ import model.exceptions.*;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.text.ParseException;
 import java.time.LocalDate;
+import java.time.Period;
 import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * A representation of a Warehouse with a set of customers
+ * A representation of a Warehouse with a set of customers, kept in a WarehouseStore. A warehouse is used by one thread
+ * unless it is created with a number of lock stripes, in which case any number of threads may share it
  */
 public class Warehouse {
-    private final Set<Customer> customerSet = new HashSet<>();
+    private final WarehouseStore store;
+    // the indexes below hold the stored orders themselves, so they are only kept when the store is in memory;
+    // otherwise the queries that use them read the customers of the store one at a time instead
+    private final boolean isIndexed;
+    private final Map<String, Set<Order>> locationIndex = new HashMap<>(); // key = Location :: value = Active Orders
+    private final SearchIndex searchIndex = new SearchIndex();
+    // key = Import Date as Epoch Day :: value = Active and Complete Orders
+    private final NavigableMap<Long, Set<Order>> importDateIndex = new TreeMap<>();
+    // key = Export Date as Epoch Day :: value = Export Events in the order they were recorded, which refer to their
+    // labels by position so that the labels of orders whose labels are not in memory are not decoded to index them
+    private final NavigableMap<Long, List<ExportEvent>> exportIndex = new TreeMap<>();
+    private final List<WarehouseListener> listeners = new CopyOnWriteArrayList<>();
+    private final CustomerLocks locks;       // NULL unless several threads may share this warehouse
+    private OrderArchive loadArchive;        // NULL unless old complete orders are archived as they are loaded
+    private Period loadArchiveAge;
+
+    // EFFECTS: creates an empty warehouse that keeps its customers and orders on the heap
+    public Warehouse() {
+        this(new HeapWarehouseStore());
+    }
+
+    // EFFECTS: creates a warehouse that keeps its customers and orders in given store, starting with the customers
+    //          the store already holds
+    public Warehouse(WarehouseStore store) {
+        this(store, null);
+    }
 
+    // EFFECTS: creates a warehouse that keeps its customers and orders in given store, starting with the customers
+    //          the store already holds, that any number of threads may share. Changes to customers whose names hash
+    //          to different ones of given number of lock stripes run in parallel; queries wait for the changes in
+    //          progress and run one at a time. Throws IllegalArgumentException if lockStripes is less than 1
+    public Warehouse(WarehouseStore store, int lockStripes) {
+        this(store, new CustomerLocks(lockStripes));
+    }
+
+    // EFFECTS: creates a warehouse that keeps its customers and orders in given store, shared between threads under
+    //          given locks, or used by one thread if locks is NULL
+    private Warehouse(WarehouseStore store, CustomerLocks locks) {
+        this.store = store;
+        this.locks = locks;
+        this.isIndexed = store.isInMemory();
+        if (this.isIndexed) {
+            for (Customer c : store.getCustomers()) {
+                indexCustomerOrders(c);
+            }
+        }
+    }
 
     // MODIFIES: this
     // EFFECTS: if a customer with given name already exists throw CustomerAlreadyExistsException,
-    //          otherwise create a new customer and add to customerSet
+    //          otherwise create a new customer and add it to the store
     public void addCustomer(String customerName) throws CustomerAlreadyExistsException, InvalidCustomerNameException {
         if (customerName.length() == 0) {
             throw new InvalidCustomerNameException();
         }
 
-        // if a customer with given name already exists throw CustomerAlreadyExistsException
-        if (findCustomer(customerName) != null) {
-            throw new CustomerAlreadyExistsException(customerName);
-        }
+        lockCustomer(customerName);
+        try {
+            // if a customer with given name already exists throw CustomerAlreadyExistsException
+            if (this.store.containsCustomer(customerName)) {
+                throw new CustomerAlreadyExistsException(customerName);
+            }
 
-        this.customerSet.add(new Customer(customerName));
+            this.store.putCustomer(new Customer(customerName));
+            for (WarehouseListener l : this.listeners) {
+                l.customerAdded(customerName);
+            }
+        } finally {
+            unlockCustomer(customerName);
+        }
     }
 
     // EFFECTS: if the specified customer does not exist then throw CustomerDoesNotExistException,
@@ -36,36 +98,43 @@ public class Warehouse {
     public void importProduct(String customerName, String content, LocalDate importDate, String invoiceNum,
                               int quantity, String storageLocation) throws CustomerDoesNotExistException,
             OrderAlreadyExistsException, QuantityNegativeException, QuantityZeroException, InvalidImportDateException {
+        lockCustomer(customerName);
+        try {
+            Customer existingCustomer = findCustomer(customerName);
+            if (existingCustomer == null) {
+                throw new CustomerDoesNotExistException(customerName);
+            }
 
-        Customer existingCustomer = findCustomer(customerName);
-
-
-        if (existingCustomer == null) {
-            throw new CustomerDoesNotExistException(customerName);
+            Order order = importReservedOrder(existingCustomer, content, importDate, invoiceNum, quantity,
+                    storageLocation);
+            this.store.putCustomer(existingCustomer);
+            indexOrder(existingCustomer, order);
+            addToLocationIndex(order);
+            for (WarehouseListener l : this.listeners) {
+                l.productImported(customerName, content, importDate, invoiceNum, quantity, storageLocation);
+            }
+        } finally {
+            unlockCustomer(customerName);
         }
-
-        // throws OrderAlreadyExistsException if invoice number used in previous order
-        checkInvoiceNumberValid(invoiceNum);
-
-        existingCustomer.importOrder(content, importDate, invoiceNum, quantity, storageLocation);
     }
 
-    // EFFECTS: helper function that throws OrderAlreadyExistsException if given invoice number has been used previously
-    private void checkInvoiceNumberValid(String invoiceNum) throws OrderAlreadyExistsException {
-        // check to make sure no duplicate invoice number in current inventory as well as any past orders
-        for (Customer c : this.customerSet) {
-            // check if each customer's active orders have given invoice number
-            for (String key : c.getActiveOrders().keySet()) {
-                if (key.equals(invoiceNum)) {
-                    throw new OrderAlreadyExistsException(invoiceNum);
-                }
-            }
-            // check if each customer's previous orders have given invoice number
-            for (Order o : c.getCompleteOrders()) {
-                if (o.getInvoiceNumber().equals(invoiceNum)) {
-                    throw new OrderAlreadyExistsException(invoiceNum);
-                }
-            }
+    // MODIFIES: this, customer
+    // EFFECTS: reserves given invoice number for given customer and imports the order into it; the reservation is
+    //          checked and made in one step, so two customers cannot both import an invoice number at once.
+    //          Throws OrderAlreadyExistsException if invoice number used in previous order; if the order is not
+    //          valid the reservation is released
+    private Order importReservedOrder(Customer customer, String content, LocalDate importDate, String invoiceNum,
+                                      int quantity, String storageLocation) throws OrderAlreadyExistsException,
+            QuantityNegativeException, QuantityZeroException, InvalidImportDateException {
+        // the store holds the invoice number of every active and complete order in the warehouse
+        if (!this.store.putInvoiceIfAbsent(invoiceNum, customer.getName())) {
+            throw new OrderAlreadyExistsException(invoiceNum);
+        }
+        try {
+            return customer.importOrder(content, importDate, invoiceNum, quantity, storageLocation);
+        } catch (QuantityNegativeException | QuantityZeroException | InvalidImportDateException e) {
+            this.store.removeInvoice(invoiceNum);
+            throw e;
         }
     }
 
@@ -76,13 +145,38 @@ public class Warehouse {
             OrderDoesNotExistException, QuantityNegativeException, QuantityZeroException,
             QuantityExceedsMaxQuantityException, RemovalQuantityExceedsAvailabilityException,
             InvalidExportDateException, ParseException {
-        Customer existingCustomer = findCustomer(customerName);
+        lockCustomer(customerName);
+        try {
+            Customer existingCustomer = findCustomer(customerName);
+            if (existingCustomer == null) {
+                throw new CustomerDoesNotExistException(customerName);
+            }
 
-        if (existingCustomer == null) {
-            throw new CustomerDoesNotExistException(customerName);
+            // NOTE: a fully exported order is moved to completeOrders as the same Order object, so it stays in every
+            //       index and its invoice number stays reserved
+            ExportLabel exportLabel =
+                    existingCustomer.removeFromOrder(importInvoiceNum, quantity, exportDate, exportInvoiceNum);
+            this.store.putCustomer(existingCustomer);
+            indexExport(customerName, existingCustomer.getOrder(importInvoiceNum), exportLabel);
+            for (WarehouseListener l : this.listeners) {
+                l.orderExported(customerName, importInvoiceNum, quantity, exportDate, exportInvoiceNum);
+            }
+        } finally {
+            unlockCustomer(customerName);
         }
+    }
 
-        existingCustomer.removeFromOrder(importInvoiceNum, quantity, exportDate, exportInvoiceNum);
+    // REQUIRES: given export is the last export of given order
+    // MODIFIES: this
+    // EFFECTS: adds given export of given order of given customer into exportIndex, and removes the order from
+    //          locationIndex if it has been fully exported, as it no longer occupies its storage location
+    private void indexExport(String customerName, Order order, ExportLabel exportLabel) {
+        // the customer is locked, so no other export of the order has been recorded since given one
+        addToExportIndex(exportLabel.getExportDate().toEpochDay(),
+                new ExportEvent(customerName, order, order.getExportCount() - 1));
+        if (order.getCurrentQuantity() == 0) {
+            removeFromLocationIndex(order);
+        }
     }
 
     // EFFECTS: if the specified customer does not exist throw CustomerDoesNotExistException,
@@ -92,33 +186,342 @@ public class Warehouse {
             throws CustomerDoesNotExistException, OrderDoesNotExistException,
             QuantityZeroException, QuantityNegativeException, QuantityExceedsMaxQuantityException,
             InvalidStartDateException, InvalidEndDateException, InvalidMonthRangeException {
-        Customer existingCustomer = findCustomer(customerName);
+        lockCustomer(customerName);
+        try {
+            Customer existingCustomer = findCustomer(customerName);
+            if (existingCustomer == null) {
+                throw new CustomerDoesNotExistException(customerName);
+            }
 
-        if (existingCustomer == null) {
-            throw new CustomerDoesNotExistException(customerName);
+            existingCustomer.recordMonthlyCharge(importInvoiceNum, initialDate, endDate, quantity, monthlyInvoiceNum);
+            this.store.putCustomer(existingCustomer);
+            for (WarehouseListener l : this.listeners) {
+                l.monthlyChargeRecorded(customerName, importInvoiceNum, initialDate, endDate, quantity,
+                        monthlyInvoiceNum);
+            }
+        } finally {
+            unlockCustomer(customerName);
         }
-
-        existingCustomer.recordMonthlyCharge(importInvoiceNum, initialDate, endDate, quantity, monthlyInvoiceNum);
     }
 
-    // EFFECTS: finds and returns reference to specified customer from customerSet, if not found return NULL
+    // EFFECTS: finds and returns reference to specified customer from the store, if not found return NULL
     private Customer findCustomer(String customerName) {
-        Customer referenceCustomer = new Customer(customerName);
-        Customer existingCustomer = null;
-        for (Customer c : this.customerSet) {
-            if (c.equals(referenceCustomer)) {
-                existingCustomer = c;
+        return this.store.getCustomer(customerName);
+    }
+
+    // EFFECTS: returns true if several threads may share this warehouse
+    public boolean isConcurrent() {
+        return this.locks != null;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: waits for the changes in progress to finish, then keeps other threads from changing or reading this
+    //          warehouse until unlockAllCustomers is called, so that it can be read together with state kept outside
+    //          it; does nothing if only one thread uses this warehouse. Must not be called by a listener while it is
+    //          notified of a change
+    public void lockAllCustomers() {
+        if (this.locks != null) {
+            this.locks.lockWarehouse();
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: lets other threads change and read this warehouse again after lockAllCustomers
+    public void unlockAllCustomers() {
+        if (this.locks != null) {
+            this.locks.unlockWarehouse();
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: waits until no other thread changes the customer with given name and no query runs, then keeps them
+    //          waiting until unlockCustomer is called; does nothing if only one thread uses this warehouse
+    private void lockCustomer(String customerName) {
+        if (this.locks != null) {
+            this.locks.lockCustomer(customerName);
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: releases the customer locked by lockCustomer
+    private void unlockCustomer(String customerName) {
+        if (this.locks != null) {
+            this.locks.unlockCustomer(customerName);
+        }
+    }
+
+    // EFFECTS: returns the result of given query, which runs while no customer is being changed
+    private <T> T query(Supplier<T> query) {
+        lockAllCustomers();
+        try {
+            return query.get();
+        } finally {
+            unlockAllCustomers();
+        }
+    }
+
+    // EFFECTS: returns the stream given query returns; if several threads may share this warehouse, its elements are
+    //          collected while no customer is being changed, as a lazily evaluated stream would read them later
+    private <T> Stream<T> queryStream(Supplier<Stream<T>> query) {
+        if (this.locks == null) {
+            return query.get();
+        }
+        return query(() -> query.get().collect(Collectors.toList())).stream();
+    }
+
+    // EFFECTS: returns an unmodifiable view of given set, or if several threads may share this warehouse an
+    //          unmodifiable copy of it, as the set changes with the warehouse
+    private <T> Set<T> shareable(Set<T> set) {
+        return Collections.unmodifiableSet(this.locks == null ? set : new LinkedHashSet<>(set));
+    }
+
+    // EFFECTS: returns the active or complete order with the given invoice number, if not found return NULL
+    public Order findOrder(String invoiceNum) {
+        String customerName = this.store.getCustomerNameOfInvoice(invoiceNum);
+        if (customerName == null) {
+            return null;
+        }
+        lockCustomer(customerName);
+        try {
+            Customer customer = findCustomer(customerName);
+            return customer == null ? null : customer.getOrder(invoiceNum);
+        } finally {
+            unlockCustomer(customerName);
+        }
+    }
+
+    // EFFECTS: returns every active and complete order whose content, invoice number or customer name contains
+    //          a word starting with each word in given query
+    public Set<Order> search(String query) {
+        return query(() -> {
+            if (!this.isIndexed) {
+                // index one customer at a time, so only that customer's orders are held
+                return this.store.getCustomers().stream().flatMap(c -> {
+                    SearchIndex customerIndex = new SearchIndex();
+                    streamOrders(c).forEach(o -> customerIndex.add(o, c.getName()));
+                    return customerIndex.search(query).stream();
+                }).collect(Collectors.toSet());
+            }
+            return Collections.unmodifiableSet(this.searchIndex.search(query));
+        });
+    }
+
+    // EFFECTS: returns the active orders currently stored at given storage location
+    public Set<Order> getOrdersAtLocation(String storageLocation) {
+        return query(() -> {
+            if (!this.isIndexed) {
+                return streamActiveOrders().filter(o -> o.getStorageLocation().equals(storageLocation))
+                        .collect(Collectors.toSet());
+            }
+            Set<Order> orders = this.locationIndex.get(storageLocation);
+            return orders == null ? Collections.emptySet() : shareable(orders);
+        });
+    }
+
+    // EFFECTS: returns the total current quantity of active orders stored at given storage location
+    public int getQuantityAtLocation(String storageLocation) {
+        return query(() -> {
+            int total = 0;
+            for (Order o : getOrdersAtLocation(storageLocation)) {
+                total += o.getCurrentQuantity();
+            }
+            return total;
+        });
+    }
+
+    // EFFECTS: returns every storage location that currently holds at least one active order
+    public Set<String> getStorageLocations() {
+        return query(() -> {
+            if (!this.isIndexed) {
+                return streamActiveOrders().map(Order::getStorageLocation).collect(Collectors.toSet());
+            }
+            return shareable(this.locationIndex.keySet());
+        });
+    }
+
+    // EFFECTS: returns the total current quantity of active orders stored at each storage location
+    public Map<String, Integer> getQuantitiesByLocation() {
+        return query(() -> {
+            if (!this.isIndexed) {
+                return streamActiveOrders().collect(Collectors.groupingBy(Order::getStorageLocation,
+                        Collectors.summingInt(Order::getCurrentQuantity)));
+            }
+            Map<String, Integer> quantities = new HashMap<>();
+            for (String location : this.locationIndex.keySet()) {
+                quantities.put(location, getQuantityAtLocation(location));
+            }
+            return quantities;
+        });
+    }
+
+    // EFFECTS: returns a lazily evaluated stream of the active and complete orders imported between given start and
+    //          end dates (inclusive), in import date order; only orders within the date range are visited. If
+    //          several threads may share this warehouse, the orders are collected before the stream is returned
+    public Stream<Order> getOrdersImportedBetween(LocalDate startDate, LocalDate endDate) {
+        return queryStream(() -> {
+            if (startDate.isAfter(endDate)) {
+                return Stream.empty();
+            }
+            if (!this.isIndexed) {
+                return this.store.getCustomers().stream().flatMap(Warehouse::streamOrders)
+                        .filter(o -> !o.getImportDate().isBefore(startDate) && !o.getImportDate().isAfter(endDate))
+                        .sorted(Comparator.comparing(Order::getImportDate));
+            }
+            return this.importDateIndex.subMap(startDate.toEpochDay(), true, endDate.toEpochDay(), true)
+                    .values().stream()
+                    .flatMap(Set::stream);
+        });
+    }
+
+    // EFFECTS: returns a lazily evaluated stream of every export event that took place between given start and end
+    //          dates (inclusive), in export date order; only export events within the date range are visited, unless
+    //          the store is not in memory, in which case every order is read. If several threads may share this
+    //          warehouse, the export events are collected before the stream is returned
+    public Stream<ExportEvent> getExportsBetween(LocalDate startDate, LocalDate endDate) {
+        return queryStream(() -> {
+            if (startDate.isAfter(endDate)) {
+                return Stream.empty();
+            }
+            if (!this.isIndexed) {
+                return this.store.getCustomers().stream().flatMap(c -> streamOrders(c).flatMap(o -> o.getExports()
+                        .stream().map(l -> new ExportEvent(c.getName(), o, (ExportLabel) l))))
+                        .filter(e -> !e.getExportDate().isBefore(startDate) && !e.getExportDate().isAfter(endDate))
+                        .sorted(Comparator.comparing(ExportEvent::getExportDate));
+            }
+            return this.exportIndex.subMap(startDate.toEpochDay(), true, endDate.toEpochDay(), true)
+                    .values().stream()
+                    .flatMap(List::stream)
+                    .map(e -> new ExportEvent(e.getCustomerName(), e.getOrder(), e.getExportLabel()));
+        });
+    }
+
+    // EFFECTS: returns the total exported quantity for each day between given start and end dates (inclusive)
+    //          that had at least one export, in date order
+    public SortedMap<LocalDate, Integer> getDailyExportTotals(LocalDate startDate, LocalDate endDate) {
+        SortedMap<LocalDate, Integer> dailyTotals = new TreeMap<>();
+        getExportsBetween(startDate, endDate).forEach(e -> dailyTotals.merge(e.getExportDate(), e.getQuantity(),
+                Integer::sum));
+        return dailyTotals;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: appends given export event into exportIndex under given export date as an epoch day
+    private synchronized void addToExportIndex(long exportDay, ExportEvent exportEvent) {
+        if (!this.isIndexed) {
+            return;
+        }
+        this.exportIndex.computeIfAbsent(exportDay, k -> new ArrayList<>()).add(exportEvent);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: removes every export event of given order from exportIndex
+    private synchronized void removeFromExportIndex(Order order) {
+        for (long exportDay : order.getExportDays()) {
+            List<ExportEvent> exportEvents = this.exportIndex.get(exportDay);
+            if (exportEvents != null) {
+                exportEvents.removeIf(e -> e.getOrder() == order);
+                if (exportEvents.isEmpty()) {
+                    this.exportIndex.remove(exportDay);
+                }
+            }
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: adds given active order into locationIndex under its storage location
+    private synchronized void addToLocationIndex(Order order) {
+        if (this.isIndexed) {
+            addToIndex(this.locationIndex, order.getStorageLocation(), order);
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: removes given order from locationIndex under its storage location
+    private synchronized void removeFromLocationIndex(Order order) {
+        if (this.isIndexed) {
+            removeFromIndex(this.locationIndex, order.getStorageLocation(), order);
+        }
+    }
+
+    // MODIFIES: index
+    // EFFECTS: adds given order into given index under given key
+    private static <K> void addToIndex(Map<K, Set<Order>> index, K key, Order order) {
+        index.computeIfAbsent(key, k -> new HashSet<>()).add(order);
+    }
+
+    // MODIFIES: index
+    // EFFECTS: removes given order from given index under given key,
+    //          the key is dropped from the index once it holds no orders
+    private static <K> void removeFromIndex(Map<K, Set<Order>> index, K key, Order order) {
+        Set<Order> orders = index.get(key);
+        if (orders != null) {
+            orders.remove(order);
+            if (orders.isEmpty()) {
+                index.remove(key);
             }
         }
-        return existingCustomer;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: adds every active and complete order of given customer into searchIndex, importDateIndex and
+    //          exportIndex, and every active order of given customer into locationIndex
+    private void indexCustomerOrders(Customer customer) {
+        for (Order o : customer.getActiveOrders().values()) {
+            indexOrder(customer, o);
+            addToLocationIndex(o);
+        }
+        for (Order o : customer.getCompleteOrders()) {
+            indexOrder(customer, o);
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: adds given order of given customer into searchIndex and importDateIndex, and its previous exports
+    //          into exportIndex
+    private synchronized void indexOrder(Customer customer, Order order) {
+        if (!this.isIndexed) {
+            return;
+        }
+        this.searchIndex.add(order, customer.getName());
+        addToIndex(this.importDateIndex, order.getImportDate().toEpochDay(), order);
+        long[] exportDays = order.getExportDays();
+        for (int i = 0; i < exportDays.length; i++) {
+            addToExportIndex(exportDays[i], new ExportEvent(customer.getName(), order, i));
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: removes every active and complete order of given customer from searchIndex, importDateIndex,
+    //          exportIndex and locationIndex
+    private void unindexCustomerOrders(Customer customer) {
+        for (Order o : customer.getActiveOrders().values()) {
+            unindexOrder(o);
+            removeFromLocationIndex(o);
+        }
+        for (Order o : customer.getCompleteOrders()) {
+            unindexOrder(o);
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: removes given order from searchIndex, importDateIndex and exportIndex
+    private synchronized void unindexOrder(Order order) {
+        if (!this.isIndexed) {
+            return;
+        }
+        this.searchIndex.remove(order);
+        removeFromIndex(this.importDateIndex, order.getImportDate().toEpochDay(), order);
+        removeFromExportIndex(order);
     }
 
 
     // EFFECTS: returns warehouse represented as a JSON object
     public JSONObject convertToJsonObject() {
-        JSONObject jsonObject = new JSONObject();
-        jsonObject.put("customerSet", convertCustomerSetToJsonArray(this.customerSet));
-        return jsonObject;
+        return query(() -> {
+            JSONObject jsonObject = new JSONObject();
+            jsonObject.put("customerSet", convertCustomerSetToJsonArray(this.store.getCustomers()));
+            return jsonObject;
+        });
     }
 
     // EFFECTS: returns representation of customer set as a JSON array
@@ -132,26 +535,54 @@ public class Warehouse {
     }
 
     // EFFECTS: if a customer of specified name does not exist throw new CustomerDoesNotExistException,
-    //          else removes customer from customerSet
+    //          else removes customer and its invoice numbers from the store
     public void deleteCustomer(String name) throws CustomerDoesNotExistException {
-        Customer customer = findCustomer(name);
-        if (customer == null) {
-            throw new CustomerDoesNotExistException(name);
+        lockCustomer(name);
+        try {
+            Customer customer = findCustomer(name);
+            if (customer == null) {
+                throw new CustomerDoesNotExistException(name);
+            }
+            this.store.removeCustomer(name);
+            unindexCustomerOrders(customer);
+            for (WarehouseListener l : this.listeners) {
+                l.customerDeleted(name);
+            }
+            // the invoice numbers are released after listeners are notified, so that another customer that reuses
+            // one of them is always notified of after this customer is deleted
+            streamOrders(customer).forEach(o -> this.store.removeInvoice(o.getInvoiceNumber()));
+        } finally {
+            unlockCustomer(name);
         }
-        this.customerSet.remove(customer);
     }
 
     // EFFECTS: if the specified customer does not exist throw CustomerDoesNotExistException,
     //         otherwise finds customer and deletes indicated order from it
     public void deleteCustomerOrder(String customerName, String invoiceNum) throws CustomerDoesNotExistException,
             QuantityNegativeException, QuantityZeroException, InvalidImportDateException, OrderDoesNotExistException {
-        Customer existingCustomer = findCustomer(customerName);
+        lockCustomer(customerName);
+        try {
+            Customer existingCustomer = findCustomer(customerName);
+            if (existingCustomer == null) {
+                throw new CustomerDoesNotExistException(customerName);
+            }
 
-        if (existingCustomer == null) {
-            throw new CustomerDoesNotExistException(customerName);
+            Order order = existingCustomer.getOrder(invoiceNum);
+            boolean wasActive = existingCustomer.getActiveOrders().containsKey(invoiceNum);
+            existingCustomer.deleteOrder(invoiceNum);
+            this.store.putCustomer(existingCustomer);
+            unindexOrder(order);
+            if (wasActive) {
+                removeFromLocationIndex(order);
+            }
+            for (WarehouseListener l : this.listeners) {
+                l.customerOrderDeleted(customerName, invoiceNum);
+            }
+            // released after listeners are notified, as in deleteCustomer
+            this.store.removeInvoice(invoiceNum);
+        } finally {
+            unlockCustomer(customerName);
         }
-
-        existingCustomer.deleteOrder(invoiceNum);
     }
 
     // EFFECTS: if specified customer does not exist throw CustomerDoesNotExistException,
@@ -159,13 +590,127 @@ public class Warehouse {
     public void editExistingActiveCustomerOrder(String customerName, String invoiceNum, String content,
                                                 String storageLocation)
             throws CustomerDoesNotExistException, OrderDoesNotExistException {
-        Customer existingCustomer = findCustomer(customerName);
+        lockCustomer(customerName);
+        try {
+            Customer existingCustomer = findCustomer(customerName);
+            if (existingCustomer == null) {
+                throw new CustomerDoesNotExistException(customerName);
+            }
+
+            Order activeOrder = existingCustomer.getActiveOrders().get(invoiceNum);
+            String previousLocation = activeOrder == null ? null : activeOrder.getStorageLocation();
 
-        if (existingCustomer == null) {
-            throw new CustomerDoesNotExistException(customerName);
+            existingCustomer.editActiveOrder(invoiceNum, content, storageLocation);
+            this.store.putCustomer(existingCustomer);
+            reindexEditedOrder(customerName, activeOrder, previousLocation);
+            for (WarehouseListener l : this.listeners) {
+                l.activeOrderEdited(customerName, invoiceNum, content, storageLocation);
+            }
+        } finally {
+            unlockCustomer(customerName);
         }
+    }
 
-        existingCustomer.editActiveOrder(invoiceNum, content, storageLocation);
+    // MODIFIES: this
+    // EFFECTS: moves given edited active order of given customer to its new storage location in locationIndex if it
+    //          has changed from given previous location, and indexes its new content in searchIndex
+    private synchronized void reindexEditedOrder(String customerName, Order activeOrder, String previousLocation) {
+        if (!this.isIndexed) {
+            return;
+        }
+        if (!activeOrder.getStorageLocation().equals(previousLocation)) {
+            removeFromIndex(this.locationIndex, previousLocation, activeOrder);
+            addToIndex(this.locationIndex, activeOrder.getStorageLocation(), activeOrder);
+        }
+        this.searchIndex.add(activeOrder, customerName);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: notifies listeners that the changes made until finishBatch is called form one batch, so that they can
+    //          handle them together, for example by forcing them to disk once rather than once per change
+    public void startBatch() {
+        for (WarehouseListener l : this.listeners) {
+            l.batchStarted();
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: notifies listeners that the batch begun by startBatch has finished
+    public void finishBatch() {
+        for (WarehouseListener l : this.listeners) {
+            l.batchFinished();
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: registers given listener to be notified after each successful change to this warehouse. If several
+    //          threads may share this warehouse, listeners are notified on the thread that made the change while the
+    //          changed customer is locked, so they must not read or change this warehouse while notified
+    public void addListener(WarehouseListener listener) {
+        this.listeners.add(listener);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: stops notifying given listener of changes to this warehouse
+    public void removeListener(WarehouseListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    // EFFECTS: returns a copy of this warehouse whose customers and orders can be changed independently of this one
+    //          and are kept on the heap; labels are immutable and are shared, and listeners are not copied
+    public Warehouse copy() {
+        return query(() -> {
+            Warehouse copy = new Warehouse();
+            for (Customer c : this.store.getCustomers()) {
+                copy.addLoadedCustomer(c.copy());
+            }
+            return copy;
+        });
+    }
+
+    // EFFECTS: returns a copy of the customer with given name, see Customer.copy(), or NULL if there is no such
+    //          customer; only that customer is locked while it is copied
+    public Customer copyCustomer(String customerName) {
+        lockCustomer(customerName);
+        try {
+            Customer customer = findCustomer(customerName);
+            return customer == null ? null : customer.copy();
+        } finally {
+            unlockCustomer(customerName);
+        }
+    }
+
+    // MODIFIES: this, archive
+    // EFFECTS: moves the label histories of complete orders whose last export took place more than given age ago
+    //          into given archive and returns the number of orders archived; archived orders stay in every index
+    //          and their labels are loaded back from the archive whenever they are viewed, searched or saved,
+    //          throws IOException if the archive could not be written
+    public int archiveCompleteOrders(Period age, OrderArchive archive) throws IOException {
+        LocalDate completedOnOrBefore = LocalDate.now().minus(age);
+        int archived = 0;
+        lockAllCustomers();
+        try {
+            for (Customer c : this.store.getCustomers()) {
+                int customerArchived = c.archiveCompleteOrders(completedOnOrBefore, archive);
+                if (customerArchived > 0) {
+                    this.store.putCustomer(c);
+                    archived += customerArchived;
+                }
+            }
+        } finally {
+            unlockAllCustomers();
+        }
+        return archived;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: from now on, moves the label histories of the complete orders of every customer added by
+    //          addLoadedCustomer whose last export took place more than given age ago into given archive before the
+    //          customer is stored and indexed, as archiveCompleteOrders does, so they are never held in memory all at
+    //          once; orders that cannot be archived keep their labels in memory
+    public void archiveLoadedOrders(Period age, OrderArchive archive) {
+        this.loadArchiveAge = age;
+        this.loadArchive = archive;
     }
 
     // EFFECTS: Returns Warehouse with data loaded from source file
@@ -175,48 +720,163 @@ public class Warehouse {
     }
 
     // MODIFIES: this
-    // EFFECTS: sets customer set by converting given JSON Array representation of it
+    // EFFECTS: sets customer set by converting given JSON Array representation of it, building the customers in
+    //          parallel
     private void setCustomerSetFromJsonArray(JSONArray jsonCustomerArray) throws CorruptFileException {
+        List<JSONObject> jsonCustomers = new ArrayList<>();
         for (Object o : jsonCustomerArray) {
-            JSONObject jo = (JSONObject) o;
-            String name = jo.getString("name");
-            JSONArray activeOrders = jo.getJSONArray("activeOrders");
-            JSONArray completeOrders = jo.getJSONArray("completeOrders");
-            Customer customer = new Customer(name);
-            customer.setOrdersFromJsonArray(true, activeOrders);
-            customer.setOrdersFromJsonArray(false, completeOrders);
-            this.customerSet.add(customer);
+            jsonCustomers.add((JSONObject) o);
+        }
+        try {
+            addLoadedCustomers(jsonCustomers, Warehouse::convertJsonObjectToCustomer);
+        } catch (IOException e) {
+            // converting JSON objects reads nothing, so this never happens
+            throw new CorruptFileException();
+        }
+    }
+
+    // EFFECTS: returns the customer that given JSON object represents
+    private static Customer convertJsonObjectToCustomer(JSONObject jo) throws CorruptFileException {
+        String name = jo.getString("name");
+        JSONArray activeOrders = jo.getJSONArray("activeOrders");
+        JSONArray completeOrders = jo.getJSONArray("completeOrders");
+        Customer customer = new Customer(name);
+        customer.setOrdersFromJsonArray(true, activeOrders);
+        customer.setOrdersFromJsonArray(false, completeOrders);
+        return customer;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: builds one customer from each of given sources with given loader in parallel on the common ForkJoin
+    //          pool, then adds them in source order as addLoadedCustomer does, skipping sources the loader returns
+    //          null for; the indexes of this warehouse are only modified on the calling thread. Throws the first
+    //          IOException or CorruptFileException thrown by the loader, in which case no customer is added
+    public <T> void addLoadedCustomers(List<T> sources, CustomerLoader<T> loader)
+            throws IOException, CorruptFileException {
+        List<Customer> customers;
+        try {
+            customers = sources.parallelStream().map(source -> {
+                try {
+                    return loader.load(source);
+                } catch (IOException | CorruptFileException e) {
+                    throw new CompletionException(e);
+                }
+            }).collect(Collectors.toList());
+        } catch (CompletionException e) {
+            throw unwrapLoadFailure(e);
         }
+        customers.stream().filter(Objects::nonNull).forEach(this::addLoadedCustomer);
+    }
+
+    // EFFECTS: returns the checked exception of a failed parallel load; the ForkJoin pool may wrap the exception
+    //          thrown on a worker thread once more when rethrowing it on the calling thread
+    private static CorruptFileException unwrapLoadFailure(CompletionException e) throws IOException {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof CorruptFileException) {
+                return (CorruptFileException) cause;
+            }
+        }
+        throw e;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: adds given customer, whose orders have been read from a save file, to this warehouse and indexes
+    //          its orders; does nothing if a customer with the same name has already been added
+    public void addLoadedCustomer(Customer customer) {
+        lockCustomer(customer.getName());
+        try {
+            if (this.store.containsCustomer(customer.getName())) {
+                return;
+            }
+            archiveLoadedCustomer(customer);
+            this.store.putCustomer(customer);
+            streamOrders(customer).forEach(o -> this.store.putInvoice(o.getInvoiceNumber(), customer.getName()));
+            indexCustomerOrders(customer);
+        } finally {
+            unlockCustomer(customer.getName());
+        }
+    }
+
+    // MODIFIES: customer
+    // EFFECTS: moves the label histories of the old complete orders of given loaded customer into loadArchive, if
+    //          loaded orders are archived
+    private void archiveLoadedCustomer(Customer customer) {
+        if (this.loadArchive == null) {
+            return;
+        }
+        try {
+            customer.archiveCompleteOrders(LocalDate.now().minus(this.loadArchiveAge), this.loadArchive);
+        } catch (IOException e) {
+            // orders that could not be archived keep their labels in memory
+        }
+    }
+
+    // EFFECTS: returns a stream of the active orders followed by the complete orders of given customer
+    private static Stream<Order> streamOrders(Customer customer) {
+        return Stream.concat(customer.getActiveOrders().values().stream(), customer.getCompleteOrders().stream());
+    }
+
+    // EFFECTS: returns a stream of the active orders of every customer, read from the store one customer at a time
+    private Stream<Order> streamActiveOrders() {
+        return this.store.getCustomers().stream().flatMap(c -> c.getActiveOrders().values().stream());
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////////
     // getters
 
 
+    // EFFECTS: returns the customers of this warehouse; customers that are not in memory are read from the store as
+    //          the set is iterated, unless several threads may share this warehouse, and changes to them are not
+    //          stored
     public Set<Customer> getCustomerSet() {
-        return Collections.unmodifiableSet(this.customerSet);
+        return query(() -> shareable(this.store.getCustomers()));
     }
 
-    // EFFECTS: if isActiveOrder is true return active order as String[][], else return complete order as String[][]
+    // EFFECTS: if isActiveOrder is true return active order as String[][], else return complete order as String[][];
+    //          each customer's cached rows are reused, so only orders that changed since the last call are formatted
     public String[][] getOrders(boolean isActiveOrder) {
-        int totalOrders = 0;
-        for (Customer c : this.customerSet) {
-            if (isActiveOrder) {
-                totalOrders += c.getActiveOrderSize();
-            } else {
-                totalOrders += c.getCompleteOrderSize();
+        return query(() -> {
+            // the store is read once, as customers that are not in memory are read again on every iteration
+            List<String[][]> customerRows = new ArrayList<>();
+            int totalOrders = 0;
+            for (Customer c : this.store.getCustomers()) {
+                String[][] rows = c.getRows(isActiveOrder);
+                customerRows.add(rows);
+                totalOrders += rows.length;
             }
-        }
-        String[][] returnArray = new String[totalOrders][];
-        int index = 0;
-        for (Customer c : this.customerSet) {
-            c.chooseIterator(isActiveOrder);
-            for (String[] o : c) {
-                returnArray[index] = o;
-                index++;
+            String[][] returnArray = new String[totalOrders][];
+            int index = 0;
+            for (String[][] rows : customerRows) {
+                System.arraycopy(rows, 0, returnArray, index, rows.length);
+                index += rows.length;
             }
-        }
-        return returnArray;
+            return returnArray;
+        });
+    }
+
+    // EFFECTS: returns a lazily evaluated stream of rows of every active order if isActiveOrder is true,
+    //          else of every complete order; rows are created as the stream is traversed, and the stream can be
+    //          split across customers and within a customer's orders for parallel processing; customers that are
+    //          not in memory are read from the store one at a time and are not split. If several threads may share
+    //          this warehouse, the rows are collected before the stream is returned and are not split
+    public Stream<OrderRow> streamOrderRows(boolean isActiveOrder) {
+        return queryStream(() -> {
+            if (!this.isIndexed) {
+                return this.store.getCustomers().stream().flatMap(c -> (isActiveOrder
+                        ? c.getActiveOrders().values().stream() : c.getCompleteOrders().stream())
+                        .map(o -> new OrderRow(c.getName(), o, isActiveOrder)));
+            }
+            Customer[] customers = this.store.getCustomers().toArray(new Customer[0]);
+            return StreamSupport.stream(new OrderRowSpliterator(customers, isActiveOrder), false);
+        });
+    }
+
+    // EFFECTS: returns a lazily evaluated stream of rows of every active order followed by every complete order
+    public Stream<OrderRow> streamOrderRows() {
+        return Stream.concat(streamOrderRows(true), streamOrderRows(false));
     }
     ////////////////////////////////////////////////////////////////////////////////////////////////////
     // setters
@@ -0,0 +1,40 @@
+package model;
+
+import java.time.LocalDate;
+
+/**
+ * Represents a listener that is notified after each successful change to a Warehouse, with the same arguments the
+ * change was made with
+ */
+public interface WarehouseListener {
+
+    // EFFECTS: called after a customer of given name has been added
+    void customerAdded(String customerName);
+
+    // EFFECTS: called after an order with given details has been imported for given customer
+    void productImported(String customerName, String content, LocalDate importDate, String invoiceNum, int quantity,
+                         String storageLocation);
+
+    // EFFECTS: called after given quantity has been exported from the order of given customer
+    void orderExported(String customerName, String importInvoiceNum, int quantity, LocalDate exportDate,
+                       String exportInvoiceNum);
+
+    // EFFECTS: called after a monthly charge has been recorded for the order of given customer
+    void monthlyChargeRecorded(String customerName, String importInvoiceNum, LocalDate startDate, LocalDate endDate,
+                               int quantity, String monthlyInvoiceNum);
+
+    // EFFECTS: called after the customer of given name has been deleted
+    void customerDeleted(String customerName);
+
+    // EFFECTS: called after the order of given invoice number has been deleted from given customer
+    void customerOrderDeleted(String customerName, String invoiceNum);
+
+    // EFFECTS: called after the active order of given customer has been edited
+    void activeOrderEdited(String customerName, String invoiceNum, String content, String storageLocation);
+
+    // EFFECTS: called before a batch of changes is made; the changes are reported as usual, followed by batchFinished
+    void batchStarted();
+
+    // EFFECTS: called after the last change of a batch has been reported, even if some of its changes failed
+    void batchFinished();
+}
@@ -0,0 +1,52 @@
+package model;
+
+import java.util.Set;
+
+/**
+ * Represents the storage that holds the Customers of a Warehouse together with their Orders, keyed by customer name,
+ * and the name of the Customer that owns each invoice number. Stores other than the heap report their failures as
+ * java.io.UncheckedIOException. A store may be called from several threads at once, as a Warehouse shared between
+ * threads changes different customers in parallel
+ */
+public interface WarehouseStore {
+
+    // EFFECTS: returns true if getCustomer returns the stored customer itself, so that the orders it returns stay
+    //          current as the warehouse changes; false if it returns a new copy on every call
+    boolean isInMemory();
+
+    // EFFECTS: returns true if a customer with given name is stored
+    boolean containsCustomer(String customerName);
+
+    // EFFECTS: returns the stored customer with given name, if not found return NULL
+    Customer getCustomer(String customerName);
+
+    // EFFECTS: returns an unmodifiable view of every stored customer; customers that are not in memory are read as
+    //          the view is iterated
+    Set<Customer> getCustomers();
+
+    // MODIFIES: this
+    // EFFECTS: stores given customer and its orders under its name, replacing the customer stored under that name;
+    //          must be called after every change to a customer returned by getCustomer
+    void putCustomer(Customer customer);
+
+    // MODIFIES: this
+    // EFFECTS: removes the customer with given name, does nothing if it is not stored
+    void removeCustomer(String customerName);
+
+    // EFFECTS: returns the name of the customer that owns given invoice number, if not found return NULL
+    String getCustomerNameOfInvoice(String invoiceNum);
+
+    // MODIFIES: this
+    // EFFECTS: records that given invoice number belongs to the customer with given name
+    void putInvoice(String invoiceNum, String customerName);
+
+    // MODIFIES: this
+    // EFFECTS: records that given invoice number belongs to the customer with given name and returns true, unless the
+    //          invoice number already has an owner, in which case nothing changes and false is returned; the check
+    //          and the change are made in one step
+    boolean putInvoiceIfAbsent(String invoiceNum, String customerName);
+
+    // MODIFIES: this
+    // EFFECTS: forgets the owner of given invoice number, does nothing if it has none
+    void removeInvoice(String invoiceNum);
+}
@@ -0,0 +1,129 @@
+package persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes files by writing to a temporary file beside the destination, forcing it to disk and then renaming it over
+ * the destination, so a failed write never leaves the destination partly written. Each write uses its own temporary
+ * file, so writers of the same destination never write to one another's temporary file, and the last rename wins
+ */
+final class AtomicFile {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private AtomicFile() {
+    }
+
+    /**
+     * Writes the content to the destination through a buffer, then forces the rename to disk by forcing the directory
+     * where the platform allows it. The destination keeps its POSIX permissions, and a new destination gets the
+     * permissions any new file in its directory would. The temporary file is deleted if any step fails
+     * @param destination the location to write to
+     * @param content writes the content of the file
+     * @throws IOException throws IOException if any step fails
+     */
+    static void write(File destination, Content content) throws IOException {
+        Path target = destination.getAbsoluteFile().toPath();
+        Path temp = createTemp(target);
+        try {
+            copyPermissions(target, temp);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+                content.write(out);
+                out.flush();
+                channel.force(true);
+            }
+            moveIntoPlace(temp, target);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        forceDirectory(target.getParent());
+    }
+
+    /**
+     * Creates a new temporary file beside the destination under a name no other write is using. Unlike
+     * Files.createTempFile, the file gets the default permissions of a new file rather than owner-only ones
+     * @param target the destination
+     * @return the temporary file
+     * @throws IOException throws IOException if the file could not be created
+     */
+    private static Path createTemp(Path target) throws IOException {
+        while (true) {
+            Path temp = target.resolveSibling(target.getFileName() + "."
+                    + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                Files.newByteChannel(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).close();
+                return temp;
+            } catch (FileAlreadyExistsException e) {
+                // another write is using the name, try another one
+            }
+        }
+    }
+
+    /**
+     * Gives the temporary file the POSIX permissions of the destination it replaces, if the destination exists and
+     * the file system has POSIX permissions
+     * @param target the destination
+     * @param temp the temporary file
+     * @throws IOException throws IOException if the permissions could not be read or set
+     */
+    private static void copyPermissions(Path target, Path temp) throws IOException {
+        PosixFileAttributeView view = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        if (view == null) {
+            return;
+        }
+        try {
+            Files.setPosixFilePermissions(temp, view.readAttributes().permissions());
+        } catch (NoSuchFileException e) {
+            // the destination does not exist yet, so the temporary file keeps the permissions it was created with
+        }
+    }
+
+    /**
+     * Forces the entries of a directory, such as a rename into it, to disk. Platforms that cannot open a directory,
+     * such as Windows, keep the rename without it
+     * @param directory the directory
+     */
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // the rename is still in place, only its durability after a crash is left to the file system
+        }
+    }
+
+    /**
+     * Renames the temporary file over the destination, atomically if the file system supports it
+     * @param temp the temporary file
+     * @param target the destination
+     * @throws IOException throws IOException if the file could not be renamed
+     */
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Writes the content of a file
+     */
+    interface Content {
+        void write(OutputStream out) throws IOException;
+    }
+}
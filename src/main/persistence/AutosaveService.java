@@ -0,0 +1,232 @@
+package persistence;
+
+import model.Customer;
+import model.Warehouse;
+import model.WarehouseListener;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a service that saves a Warehouse to a file in the background a fixed interval after it changes.
+ * <p>
+ * The first change after a save schedules the next one; changes made before it runs are written together by that
+ * save. The warehouse is changed by one thread, so copies are taken on the thread that changes it, through the given
+ * model executor, and only the copies are written on the background thread. Only the customers changed since the last
+ * save are copied; the background thread keeps the copies of the others from earlier saves and writes them all
+ * together. At most one interval of changes is lost if the application stops. A save that fails is retried an
+ * interval later
+ */
+public class AutosaveService implements WarehouseListener, Closeable {
+    private final Warehouse warehouse;
+    private final File destination;
+    private final SnapshotFormat format;
+    private final long intervalMillis;
+    private final Executor modelExecutor;
+    private final ScheduledExecutorService saver = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "warehouse-autosave");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> scheduledSave;    // only accessed on the model thread
+    private boolean closed;                      // only accessed on the model thread
+    private final Set<String> changedCustomers = new HashSet<>(); // customers changed since the last copy, model thread
+    private final Map<String, Customer> savedCustomers = new HashMap<>(); // last copy of each customer, background
+    private volatile boolean lastWriteFailed;
+
+    /**
+     * Creates an autosave service and starts watching the warehouse for changes
+     * @param warehouse the warehouse to save
+     * @param destination the file the warehouse is saved to
+     * @param format the format the warehouse is saved in
+     * @param intervalMillis the time in milliseconds between a change and the save that writes it
+     * @param modelExecutor runs tasks on the thread that changes the warehouse, such as the Swing event thread
+     */
+    public AutosaveService(Warehouse warehouse, File destination, SnapshotFormat format, long intervalMillis,
+                           Executor modelExecutor) {
+        this.warehouse = warehouse;
+        this.destination = destination;
+        this.format = format;
+        this.intervalMillis = intervalMillis;
+        this.modelExecutor = modelExecutor;
+        for (Customer c : warehouse.getCustomerSet()) {
+            this.changedCustomers.add(c.getName());
+        }
+        this.warehouse.addListener(this);
+    }
+
+    /**
+     * Stops watching the warehouse and writes any changes not saved yet, or not written by a save that failed, on the
+     * background thread after the saves already started. Returns without waiting for the writes, see
+     * awaitTermination. Must be called on the thread that changes the warehouse
+     */
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.warehouse.removeListener(this);
+        Map<String, Customer> unsavedChanges = null;
+        if (this.scheduledSave != null) {
+            this.scheduledSave.cancel(false);
+            unsavedChanges = copyChangedCustomers();
+        }
+
+        Map<String, Customer> lastChanges = unsavedChanges;
+        // runs after every earlier save, so it knows whether the last of them failed
+        this.saver.execute(() -> {
+            if (lastChanges != null || this.lastWriteFailed) {
+                write(lastChanges == null ? Collections.emptyMap() : lastChanges);
+            }
+        });
+        this.saver.shutdown();
+    }
+
+    /**
+     * Waits for the writes started before close() to finish
+     * @param timeout the longest time to wait
+     * @param unit the unit of the timeout
+     * @return true if the writes finished, false if the timeout passed first
+     * @throws InterruptedException throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.saver.awaitTermination(timeout, unit);
+    }
+
+    public File getDestination() {
+        return this.destination;
+    }
+
+    /**
+     * Records that a customer changed and schedules a save, see markDirty(). Runs on the model thread
+     * @param customerName the name of the changed customer
+     */
+    private void markDirty(String customerName) {
+        if (!this.closed) {
+            this.changedCustomers.add(customerName);
+            markDirty();
+        }
+    }
+
+    /**
+     * Schedules a save an interval from now, unless one is already scheduled. Runs on the model thread
+     */
+    private void markDirty() {
+        if (this.scheduledSave == null && !this.closed) {
+            this.scheduledSave = this.saver.schedule(() -> this.modelExecutor.execute(this::takeSnapshot),
+                    this.intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Copies the customers changed since the last copy and hands the copies to the background thread to be written.
+     * Runs on the model thread
+     */
+    private void takeSnapshot() {
+        if (this.closed) {
+            return;
+        }
+        this.scheduledSave = null;
+        Map<String, Customer> changes = copyChangedCustomers();
+        this.saver.execute(() -> write(changes));
+    }
+
+    /**
+     * Copies each customer changed since the last copy. Runs on the model thread
+     * @return the copy of each changed customer by name, null for a customer that has been deleted
+     */
+    private Map<String, Customer> copyChangedCustomers() {
+        Map<String, Customer> changes = new HashMap<>();
+        for (String name : this.changedCustomers) {
+            changes.put(name, this.warehouse.copyCustomer(name));
+        }
+        this.changedCustomers.clear();
+        return changes;
+    }
+
+    /**
+     * Replaces the copies of the changed customers and writes the copies of every customer to the destination,
+     * retrying an interval later if it fails. Runs on the background thread
+     * @param changes the copy of each changed customer by name, null for a customer that has been deleted
+     */
+    private void write(Map<String, Customer> changes) {
+        for (Map.Entry<String, Customer> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                this.savedCustomers.remove(change.getKey());
+            } else {
+                this.savedCustomers.put(change.getKey(), change.getValue());
+            }
+        }
+        try {
+            // the copies are written as they are, without building the indexes of a warehouse around them
+            this.format.saveCustomers(this.destination, this.savedCustomers.values(), new JSONObject(), null);
+            this.lastWriteFailed = false;
+        } catch (IOException | RuntimeException e) {
+            // the destination is left as it was, so the changes are written by the next save
+            this.lastWriteFailed = true;
+            this.modelExecutor.execute(this::markDirty);
+        }
+    }
+
+    @Override
+    public void customerAdded(String customerName) {
+        markDirty(customerName);
+    }
+
+    @Override
+    public void productImported(String customerName, String content, LocalDate importDate, String invoiceNum,
+                                int quantity, String storageLocation) {
+        markDirty(customerName);
+    }
+
+    @Override
+    public void orderExported(String customerName, String importInvoiceNum, int quantity, LocalDate exportDate,
+                              String exportInvoiceNum) {
+        markDirty(customerName);
+    }
+
+    @Override
+    public void monthlyChargeRecorded(String customerName, String importInvoiceNum, LocalDate startDate,
+                                      LocalDate endDate, int quantity, String monthlyInvoiceNum) {
+        markDirty(customerName);
+    }
+
+    @Override
+    public void customerDeleted(String customerName) {
+        markDirty(customerName);
+    }
+
+    @Override
+    public void customerOrderDeleted(String customerName, String invoiceNum) {
+        markDirty(customerName);
+    }
+
+    @Override
+    public void activeOrderEdited(String customerName, String invoiceNum, String content, String storageLocation) {
+        markDirty(customerName);
+    }
+
+    @Override
+    public void batchStarted() {
+        // each change of a batch marks the warehouse dirty, and saves are already delayed
+    }
+
+    @Override
+    public void batchFinished() {
+        // each change of a batch marks the warehouse dirty, and saves are already delayed
+    }
+}
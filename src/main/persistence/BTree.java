@@ -0,0 +1,463 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents a sorted map from strings to byte arrays, stored as a B-tree in the pages of a PageFile. Every node is
+ * a single page. Values larger than MAX_INLINE_VALUE bytes are kept in a chain of overflow pages instead of in their
+ * leaf. Removing a key does not merge nodes; pages of emptied leaves are reused when keys are inserted into them again.
+ * <p>
+ * The root page and size of the tree are kept in two consecutive value slots of the PageFile header
+ */
+class BTree {
+    static final int MAX_KEY_BYTES = 256;
+    static final int MAX_INLINE_VALUE = 256;
+
+    private static final byte LEAF = 1;
+    private static final byte INTERNAL = 2;
+    private static final byte OVERFLOW = 3;
+    private static final int NODE_HEADER_SIZE = 1 + Short.BYTES;
+    private static final int OVERFLOW_HEADER_SIZE = 1 + Integer.BYTES;
+    private static final int OVERFLOW_CAPACITY = PageFile.PAGE_SIZE - OVERFLOW_HEADER_SIZE;
+
+    private final PageFile file;
+    private final int rootSlot;
+
+    /**
+     * Opens the tree whose root is kept in the slot of the file, creating an empty tree if the slot holds no root
+     * @param file the file the tree is stored in
+     * @param rootSlot the value slot that holds the root page, the next slot holds the size of the tree
+     * @throws IOException throws IOException if the root of a new tree could not be allocated
+     */
+    BTree(PageFile file, int rootSlot) throws IOException {
+        this.file = file;
+        this.rootSlot = rootSlot;
+        if (file.getValue(rootSlot) == 0) {
+            int root = file.allocate();
+            writeNode(root, new Node(true));
+            file.setValue(rootSlot, root);
+        }
+    }
+
+    int size() {
+        return this.file.getValue(this.rootSlot + 1);
+    }
+
+    /**
+     * Returns the value stored under the key
+     * @param key the key to look up
+     * @return the value, or null if the key is not in the tree
+     * @throws IOException throws IOException if the tree could not be read
+     */
+    byte[] get(String key) throws IOException {
+        Node leaf = findLeaf(key);
+        int i = Collections.binarySearch(leaf.keys, key);
+        return i < 0 ? null : readValue(leaf.values.get(i));
+    }
+
+    /**
+     * Returns true if a value is stored under the key, without reading the value
+     * @param key the key to look up
+     * @return true if the key is in the tree
+     * @throws IOException throws IOException if the tree could not be read
+     */
+    boolean containsKey(String key) throws IOException {
+        return Collections.binarySearch(findLeaf(key).keys, key) >= 0;
+    }
+
+    /**
+     * Returns the smallest key in the tree greater than the given key
+     * @param key the key to start after, or null to return the smallest key in the tree
+     * @return the next key, or null if there is none
+     * @throws IOException throws IOException if the tree could not be read
+     */
+    String higherKey(String key) throws IOException {
+        return higherKey(this.file.getValue(this.rootSlot), key);
+    }
+
+    /**
+     * Returns the smallest key greater than the given key in the subtree
+     * @param page the root page of the subtree
+     * @param key the key to start after, or null to start at the smallest key
+     * @return the next key, or null if the subtree has none
+     * @throws IOException throws IOException if the tree could not be read
+     */
+    private String higherKey(int page, String key) throws IOException {
+        Node node = readNode(page);
+        if (node.isLeaf) {
+            int i = 0;
+            if (key != null) {
+                i = Collections.binarySearch(node.keys, key);
+                i = i >= 0 ? i + 1 : -i - 1;
+            }
+            return i < node.keys.size() ? node.keys.get(i) : null;
+        }
+        // emptied leaves are not merged, so the following subtrees are searched until a key is found
+        for (int c = key == null ? 0 : childIndex(node, key); c < node.children.size(); c++) {
+            String higher = higherKey(node.children.get(c), key);
+            if (higher != null) {
+                return higher;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stores the value under the key, replacing the value previously stored under it
+     * @param key the key, at most MAX_KEY_BYTES bytes long in UTF-8
+     * @param value the value to store
+     * @throws IOException throws IOException if the tree could not be read or written
+     * @throws IllegalArgumentException throws IllegalArgumentException if the key is too long
+     */
+    void put(String key, byte[] value) throws IOException {
+        if (key.getBytes(StandardCharsets.UTF_8).length > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("Key is longer than " + MAX_KEY_BYTES + " bytes: " + key);
+        }
+        if (!containsKey(key)) {
+            this.file.setValue(this.rootSlot + 1, size() + 1);
+        }
+        int root = this.file.getValue(this.rootSlot);
+        Split split = insert(root, key, storeValue(value));
+        if (split != null) {
+            Node newRoot = new Node(false);
+            newRoot.children.add(root);
+            newRoot.keys.add(split.key);
+            newRoot.children.add(split.page);
+            int page = this.file.allocate();
+            writeNode(page, newRoot);
+            this.file.setValue(this.rootSlot, page);
+        }
+    }
+
+    /**
+     * Removes the key and its value from the tree
+     * @param key the key to remove
+     * @return true if the key was in the tree
+     * @throws IOException throws IOException if the tree could not be read or written
+     */
+    boolean remove(String key) throws IOException {
+        int page = this.file.getValue(this.rootSlot);
+        Node node = readNode(page);
+        while (!node.isLeaf) {
+            page = node.children.get(childIndex(node, key));
+            node = readNode(page);
+        }
+        int i = Collections.binarySearch(node.keys, key);
+        if (i < 0) {
+            return false;
+        }
+        node.keys.remove(i);
+        freeValue(node.values.remove(i));
+        writeNode(page, node);
+        this.file.setValue(this.rootSlot + 1, size() - 1);
+        return true;
+    }
+
+    /**
+     * Returns the leaf that holds the key if it is in the tree
+     * @param key the key to look up
+     * @return the leaf
+     * @throws IOException throws IOException if the tree could not be read
+     */
+    private Node findLeaf(String key) throws IOException {
+        Node node = readNode(this.file.getValue(this.rootSlot));
+        while (!node.isLeaf) {
+            node = readNode(node.children.get(childIndex(node, key)));
+        }
+        return node;
+    }
+
+    /**
+     * Inserts the key into the subtree, splitting the nodes that no longer fit into their page on the way back up
+     * @param page the root page of the subtree
+     * @param key the key to insert
+     * @param value the stored value of the key
+     * @return the key and page of the new right sibling if the root of the subtree was split, otherwise null
+     * @throws IOException throws IOException if the tree could not be read or written
+     */
+    private Split insert(int page, String key, Value value) throws IOException {
+        Node node = readNode(page);
+        if (node.isLeaf) {
+            int i = Collections.binarySearch(node.keys, key);
+            if (i >= 0) {
+                freeValue(node.values.set(i, value));
+            } else {
+                node.keys.add(-i - 1, key);
+                node.values.add(-i - 1, value);
+            }
+        } else {
+            int c = childIndex(node, key);
+            Split split = insert(node.children.get(c), key, value);
+            if (split == null) {
+                return null;
+            }
+            node.keys.add(c, split.key);
+            node.children.add(c + 1, split.page);
+        }
+        if (node.getSize() <= PageFile.PAGE_SIZE) {
+            writeNode(page, node);
+            return null;
+        }
+        return split(page, node);
+    }
+
+    /**
+     * Splits the node into two nodes of about the same size in bytes, the node keeping its page
+     * @param page the page of the node
+     * @param node the node that no longer fits into its page
+     * @return the key that separates the two nodes and the page of the new right node
+     * @throws IOException throws IOException if a page could not be allocated
+     */
+    private Split split(int page, Node node) throws IOException {
+        int mid = node.getMiddle();
+        Node right = new Node(node.isLeaf);
+        String separator;
+        if (node.isLeaf) {
+            separator = node.keys.get(mid);
+            moveTail(node.keys, right.keys, mid);
+            moveTail(node.values, right.values, mid);
+        } else {
+            // the middle key moves up into the parent
+            separator = node.keys.get(mid);
+            moveTail(node.keys, right.keys, mid + 1);
+            node.keys.remove(mid);
+            moveTail(node.children, right.children, mid + 1);
+        }
+        int rightPage = this.file.allocate();
+        writeNode(page, node);
+        writeNode(rightPage, right);
+        return new Split(separator, rightPage);
+    }
+
+    private static <T> void moveTail(List<T> from, List<T> to, int start) {
+        List<T> tail = from.subList(start, from.size());
+        to.addAll(tail);
+        tail.clear();
+    }
+
+    /**
+     * Returns the index of the child of the internal node whose subtree holds the key
+     * @param node the internal node
+     * @param key the key to look up
+     * @return the index of the child
+     */
+    private static int childIndex(Node node, String key) {
+        int i = Collections.binarySearch(node.keys, key);
+        return i >= 0 ? i + 1 : -i - 1;
+    }
+
+    /**
+     * Stores the value inline if it is small enough, otherwise in a chain of overflow pages
+     * @param value the value to store
+     * @return the stored value
+     * @throws IOException throws IOException if a page could not be allocated
+     */
+    private Value storeValue(byte[] value) throws IOException {
+        if (value.length <= MAX_INLINE_VALUE) {
+            return new Value(value, 0, value.length);
+        }
+        int firstPage = this.file.allocate();
+        int page = firstPage;
+        for (int offset = 0; offset < value.length; offset += OVERFLOW_CAPACITY) {
+            int length = Math.min(OVERFLOW_CAPACITY, value.length - offset);
+            int next = offset + length < value.length ? this.file.allocate() : 0;
+            ByteBuffer data = ByteBuffer.allocate(OVERFLOW_HEADER_SIZE + length);
+            data.put(OVERFLOW).putInt(next).put(value, offset, length).flip();
+            this.file.write(page, data);
+            page = next;
+        }
+        return new Value(null, firstPage, value.length);
+    }
+
+    /**
+     * Reads a stored value
+     * @param value the stored value
+     * @return the bytes of the value
+     * @throws IOException throws IOException if an overflow page could not be read or is not valid
+     */
+    private byte[] readValue(Value value) throws IOException {
+        if (value.inline != null) {
+            return value.inline;
+        }
+        byte[] bytes = new byte[value.length];
+        int page = value.firstPage;
+        for (int offset = 0; offset < bytes.length; offset += OVERFLOW_CAPACITY) {
+            ByteBuffer data = readOverflowPage(page);
+            page = data.getInt();
+            data.get(bytes, offset, Math.min(OVERFLOW_CAPACITY, bytes.length - offset));
+        }
+        return bytes;
+    }
+
+    /**
+     * Frees the overflow pages of a stored value
+     * @param value the stored value that is no longer used
+     * @throws IOException throws IOException if an overflow page could not be read or is not valid
+     */
+    private void freeValue(Value value) throws IOException {
+        for (int page = value.firstPage; page != 0; ) {
+            int next = readOverflowPage(page).getInt();
+            this.file.free(page);
+            page = next;
+        }
+    }
+
+    private ByteBuffer readOverflowPage(int page) throws IOException {
+        ByteBuffer data = this.file.read(page);
+        if (data.get() != OVERFLOW) {
+            throw new IOException("Page " + page + " is not an overflow page");
+        }
+        return data;
+    }
+
+    /**
+     * Reads and decodes a node
+     * @param page the page of the node
+     * @return the node
+     * @throws IOException throws IOException if the page could not be read or is not a node
+     */
+    private Node readNode(int page) throws IOException {
+        ByteBuffer data = this.file.read(page);
+        byte type = data.get();
+        if (type != LEAF && type != INTERNAL) {
+            throw new IOException("Page " + page + " is not a B-tree node");
+        }
+        Node node = new Node(type == LEAF);
+        int count = data.getShort();
+        if (!node.isLeaf) {
+            node.children.add(data.getInt());
+        }
+        for (int i = 0; i < count; i++) {
+            byte[] key = new byte[data.getShort()];
+            data.get(key);
+            node.keys.add(new String(key, StandardCharsets.UTF_8));
+            if (node.isLeaf) {
+                node.values.add(readValueReference(data));
+            } else {
+                node.children.add(data.getInt());
+            }
+        }
+        return node;
+    }
+
+    private static Value readValueReference(ByteBuffer data) {
+        int length = data.getInt();
+        if (length > MAX_INLINE_VALUE) {
+            return new Value(null, data.getInt(), length);
+        }
+        byte[] inline = new byte[length];
+        data.get(inline);
+        return new Value(inline, 0, length);
+    }
+
+    /**
+     * Encodes and writes a node
+     * @param page the page of the node
+     * @param node the node, which must fit into a page
+     */
+    private void writeNode(int page, Node node) {
+        ByteBuffer data = ByteBuffer.allocate(node.getSize());
+        data.put(node.isLeaf ? LEAF : INTERNAL).putShort((short) node.keys.size());
+        if (!node.isLeaf) {
+            data.putInt(node.children.get(0));
+        }
+        for (int i = 0; i < node.keys.size(); i++) {
+            byte[] key = node.keys.get(i).getBytes(StandardCharsets.UTF_8);
+            data.putShort((short) key.length).put(key);
+            if (node.isLeaf) {
+                Value value = node.values.get(i);
+                data.putInt(value.length);
+                if (value.inline != null) {
+                    data.put(value.inline);
+                } else {
+                    data.putInt(value.firstPage);
+                }
+            } else {
+                data.putInt(node.children.get(i + 1));
+            }
+        }
+        data.flip();
+        this.file.write(page, data);
+    }
+
+    /**
+     * Represents a decoded node. A leaf holds a value for each key; an internal node holds one more child than keys,
+     * the subtree of child i holding the keys from key i - 1 up to but not including key i
+     */
+    private static class Node {
+        private final boolean isLeaf;
+        private final List<String> keys = new ArrayList<>();
+        private final List<Value> values = new ArrayList<>();
+        private final List<Integer> children = new ArrayList<>();
+
+        Node(boolean isLeaf) {
+            this.isLeaf = isLeaf;
+        }
+
+        // EFFECTS: returns the number of bytes the encoded node takes up
+        int getSize() {
+            int size = NODE_HEADER_SIZE + (this.isLeaf ? 0 : Integer.BYTES);
+            for (int i = 0; i < this.keys.size(); i++) {
+                size += getEntrySize(i);
+            }
+            return size;
+        }
+
+        // EFFECTS: returns the index of the first key after the first half of the encoded node, at least 1 and at
+        //          most the index of the last key
+        int getMiddle() {
+            int half = getSize() / 2;
+            int mid = 1;
+            for (int size = NODE_HEADER_SIZE; mid < this.keys.size() - 1; mid++) {
+                size += getEntrySize(mid - 1);
+                if (size >= half) {
+                    break;
+                }
+            }
+            return mid;
+        }
+
+        // EFFECTS: returns the number of bytes key i and its value or right child take up in the encoded node
+        int getEntrySize(int i) {
+            int size = Short.BYTES + this.keys.get(i).getBytes(StandardCharsets.UTF_8).length;
+            if (!this.isLeaf) {
+                return size + Integer.BYTES;
+            }
+            Value value = this.values.get(i);
+            return size + Integer.BYTES + (value.inline != null ? value.length : Integer.BYTES);
+        }
+    }
+
+    /**
+     * Represents a value as it is stored in a leaf, either inline or as the first page of its overflow chain
+     */
+    private static class Value {
+        private final byte[] inline;
+        private final int firstPage;
+        private final int length;
+
+        Value(byte[] inline, int firstPage, int length) {
+            this.inline = inline;
+            this.firstPage = firstPage;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Represents the result of splitting a node
+     */
+    private static class Split {
+        private final String key;
+        private final int page;
+
+        Split(String key, int page) {
+            this.key = key;
+            this.page = page;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package persistence;
+
+import model.Customer;
+import model.WarehouseStore;
+import model.exceptions.CorruptFileException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Represents a WarehouseStore kept in a single file on disk, so that a Warehouse can hold more customers and orders
+ * than fit on the heap. The file holds two B-trees that share a bounded cache of pages: one maps each customer name
+ * to the JSON representation of the customer and its orders, the other maps each invoice number to the name of the
+ * customer that owns it. Memory use is bounded by the page cache and the largest customer.
+ * <p>
+ * Changes are written to the file as pages are evicted from the cache, and completely on flush and close; the file
+ * is not crash-safe in between, so snapshots and the journal remain the durable copy of a warehouse. The trees share
+ * one cache, so the methods of a store are synchronized and threads that share a Warehouse read and write it one at a
+ * time. Failures to read or write the file are thrown as UncheckedIOExceptions
+ */
+public class BTreeWarehouseStore implements WarehouseStore, Closeable {
+    public static final int DEFAULT_CACHE_PAGES = 1024;
+
+    private static final int CUSTOMER_TREE_SLOT = 0;
+    private static final int INVOICE_TREE_SLOT = 2;
+
+    private final PageFile file;
+    private final BTree customers;
+    private final BTree invoices;
+
+    /**
+     * Opens the store kept in the file with a cache of DEFAULT_CACHE_PAGES pages, creating an empty store if the file
+     * is empty or does not exist
+     * @param file the file the store is kept in
+     * @throws IOException throws IOException if the file could not be opened or read
+     * @throws CorruptFileException throws CorruptFileException if the file is not a warehouse store
+     */
+    public BTreeWarehouseStore(File file) throws IOException, CorruptFileException {
+        this(file, DEFAULT_CACHE_PAGES);
+    }
+
+    /**
+     * Opens the store kept in the file, creating an empty store if the file is empty or does not exist
+     * @param file the file the store is kept in
+     * @param cachePages the number of pages of PageFile.PAGE_SIZE bytes the cache holds
+     * @throws IOException throws IOException if the file could not be opened or read
+     * @throws CorruptFileException throws CorruptFileException if the file is not a warehouse store
+     */
+    public BTreeWarehouseStore(File file, int cachePages) throws IOException, CorruptFileException {
+        this.file = new PageFile(file, cachePages);
+        try {
+            this.customers = new BTree(this.file, CUSTOMER_TREE_SLOT);
+            this.invoices = new BTree(this.file, INVOICE_TREE_SLOT);
+        } catch (IOException | RuntimeException e) {
+            this.file.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean isInMemory() {
+        return false;
+    }
+
+    @Override
+    public synchronized boolean containsCustomer(String customerName) {
+        try {
+            return this.customers.containsKey(customerName);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the customer with the given name from the file
+     * @param customerName the name of the customer
+     * @return a new copy of the stored customer, or null if it is not stored
+     * @throws UncheckedIOException throws UncheckedIOException if the file could not be read or the record of the
+     *                              customer is not valid
+     */
+    @Override
+    public synchronized Customer getCustomer(String customerName) {
+        try {
+            byte[] record = this.customers.get(customerName);
+            if (record == null) {
+                return null;
+            }
+            return new JsonReader().readCustomer(new StringReader(new String(record, StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (CorruptFileException e) {
+            throw new UncheckedIOException(new IOException("Record of customer " + customerName + " is not valid", e));
+        }
+    }
+
+    /**
+     * Returns a view of the stored customers in order of their names, each read from the file as the view is
+     * iterated
+     * @return the unmodifiable view
+     */
+    @Override
+    public Set<Customer> getCustomers() {
+        return new CustomerView();
+    }
+
+    /**
+     * Writes the customer and its orders under its name
+     * @param customer the customer to store
+     * @throws IllegalArgumentException throws IllegalArgumentException if the name of the customer is longer than
+     *                                  BTree.MAX_KEY_BYTES bytes in UTF-8
+     */
+    @Override
+    public synchronized void putCustomer(Customer customer) {
+        byte[] record = customer.convertToJsonObject().toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            this.customers.put(customer.getName(), record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void removeCustomer(String customerName) {
+        try {
+            this.customers.remove(customerName);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized String getCustomerNameOfInvoice(String invoiceNum) {
+        try {
+            byte[] customerName = this.invoices.get(invoiceNum);
+            return customerName == null ? null : new String(customerName, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void putInvoice(String invoiceNum, String customerName) {
+        try {
+            this.invoices.put(invoiceNum, customerName.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records the owner of the invoice number unless it already has one
+     * @param invoiceNum the invoice number
+     * @param customerName the name of the customer that owns it
+     * @return true if the owner was recorded, false if the invoice number already had an owner
+     */
+    @Override
+    public synchronized boolean putInvoiceIfAbsent(String invoiceNum, String customerName) {
+        if (getCustomerNameOfInvoice(invoiceNum) != null) {
+            return false;
+        }
+        putInvoice(invoiceNum, customerName);
+        return true;
+    }
+
+    @Override
+    public synchronized void removeInvoice(String invoiceNum) {
+        try {
+            this.invoices.remove(invoiceNum);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes every change to the file and forces it to disk
+     * @throws IOException throws IOException if the file could not be written
+     */
+    public synchronized void flush() throws IOException {
+        this.file.flush();
+    }
+
+    /**
+     * Writes every change to the file and closes it
+     * @throws IOException throws IOException if the file could not be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        this.file.close();
+    }
+
+    /**
+     * Represents the stored customers in order of their names. Each step of an iterator looks up the name following
+     * the last one returned, so customers can be put while the view is iterated
+     */
+    private class CustomerView extends AbstractSet<Customer> {
+
+        @Override
+        public Iterator<Customer> iterator() {
+            return new Iterator<Customer>() {
+                private String nextName = higherName(null);
+
+                @Override
+                public boolean hasNext() {
+                    return this.nextName != null;
+                }
+
+                @Override
+                public Customer next() {
+                    if (this.nextName == null) {
+                        throw new NoSuchElementException();
+                    }
+                    Customer customer = getCustomer(this.nextName);
+                    this.nextName = higherName(this.nextName);
+                    return customer;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            synchronized (BTreeWarehouseStore.this) {
+                return BTreeWarehouseStore.this.customers.size();
+            }
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Customer && containsCustomer(((Customer) o).getName());
+        }
+
+        private String higherName(String customerName) {
+            synchronized (BTreeWarehouseStore.this) {
+                try {
+                    return BTreeWarehouseStore.this.customers.higherKey(customerName);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package persistence;
+
+import model.Customer;
+import model.ExportLabel;
+import model.Label;
+import model.MonthlyChargeLabel;
+import model.Order;
+import model.Warehouse;
+import model.exceptions.CorruptFileException;
+import model.exceptions.InvalidImportDateException;
+import model.exceptions.InvalidMonthRangeException;
+import model.exceptions.QuantityNegativeException;
+import model.exceptions.QuantityZeroException;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents a reader that reads a Warehouse from a file in the binary snapshot format written by
+ * BinarySnapshotWriter. Snapshots with an index section are read through MappedSnapshot, which builds their
+ * customers in parallel. Others are read in one sequential pass, skipping any index section after checking its size
+ * and trailer
+ */
+public class BinarySnapshotReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+    // lists read from a count start no larger than this, so a corrupt count runs out of input before memory
+    private static final int MAX_INITIAL_CAPACITY = 1024;
+
+    /**
+     * Reads a warehouse from the source file
+     * @param source the file that contains the binary snapshot of a warehouse
+     * @return the warehouse read from the source file
+     * @throws IOException throws IOException if the file is not readable
+     * @throws CorruptFileException throws CorruptFileException if the file is not a valid binary snapshot
+     */
+    public Warehouse readWarehouse(File source) throws IOException, CorruptFileException {
+        return readWarehouse(source, new JSONObject());
+    }
+
+    /**
+     * Reads a warehouse from the source file, see readWarehouse(File)
+     * @param source the file that contains the binary snapshot of a warehouse
+     * @param header receives every value of the header of the file
+     * @return the warehouse read from the source file
+     * @throws IOException throws IOException if the file is not readable
+     * @throws CorruptFileException throws CorruptFileException if the file is not a valid binary snapshot
+     */
+    Warehouse readWarehouse(File source, JSONObject header) throws IOException, CorruptFileException {
+        return readWarehouse(source, header, new Warehouse());
+    }
+
+    /**
+     * Reads a warehouse from the source file into a given warehouse, see readWarehouse(File)
+     * @param source the file that contains the binary snapshot of a warehouse
+     * @param header receives every value of the header of the file
+     * @param warehouse the empty warehouse to add the customers to as they are read
+     * @return the given warehouse
+     * @throws IOException throws IOException if the file is not readable
+     * @throws CorruptFileException throws CorruptFileException if the file is not a valid binary snapshot
+     */
+    Warehouse readWarehouse(File source, JSONObject header, Warehouse warehouse)
+            throws IOException, CorruptFileException {
+        Warehouse mappedWarehouse = readMappedWarehouse(source, header, warehouse);
+        if (mappedWarehouse != null) {
+            return mappedWarehouse;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(source.toPath()),
+                BUFFER_SIZE))) {
+            long version = readVersion(in);
+            JSONObject fileHeader = new JSONObject(readString(in));
+            for (String key : fileHeader.keySet()) {
+                header.put(key, fileHeader.get(key));
+            }
+
+            String[] dictionary = new String[readDictionaryCount(in, Files.size(source.toPath()))];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = readString(in);
+            }
+            readCustomers(in, dictionary, warehouse);
+            if (version >= 2) {
+                checkIndex(in, dictionary.length, warehouse);
+            }
+            return warehouse;
+        } catch (EOFException | JSONException | DateTimeException e) {
+            // EOFException also marks lengths and counts too large to belong to a valid snapshot
+            throw new CorruptFileException();
+        }
+    }
+
+    /**
+     * Reads a snapshot with an index section through MappedSnapshot, which builds its customers in parallel
+     * @param source the file that contains the binary snapshot of a warehouse
+     * @param header receives every value of the header of the file
+     * @param target the empty warehouse to add the customers to, which is left empty if null is returned
+     * @return the given warehouse, or null if the file has to be read as a stream instead
+     * @throws IOException throws IOException if the file is not readable
+     */
+    private Warehouse readMappedWarehouse(File source, JSONObject header, Warehouse target) throws IOException {
+        try (MappedSnapshot snapshot = new MappedSnapshot(source)) {
+            Warehouse warehouse = snapshot.readWarehouse(target);
+            JSONObject fileHeader = snapshot.getHeader();
+            for (String key : fileHeader.keySet()) {
+                header.put(key, fileHeader.get(key));
+            }
+            return warehouse;
+        } catch (CorruptFileException e) {
+            // version 1 snapshots have no index section, and a corrupt file is reported by the stream reader
+            return null;
+        }
+    }
+
+    /**
+     * Reads the magic bytes and format version that start a binary snapshot
+     * @param in the stream to read from
+     * @return the format version of the snapshot
+     * @throws IOException throws IOException if the stream fails
+     * @throws CorruptFileException throws CorruptFileException if the stream is not a known version of binary snapshot
+     */
+    private long readVersion(DataInputStream in) throws IOException, CorruptFileException {
+        byte[] magic = new byte[BinarySnapshotWriter.MAGIC.length];
+        in.readFully(magic);
+        long version = readVarint(in);
+        if (!Arrays.equals(magic, BinarySnapshotWriter.MAGIC) || version < 1
+                || version > BinarySnapshotWriter.VERSION) {
+            throw new CorruptFileException();
+        }
+        return version;
+    }
+
+    /**
+     * Reads the number of dictionary strings, which each take at least one byte of the file
+     * @param in the stream to read from
+     * @param fileSize the size of the file in bytes
+     * @return the number of dictionary strings
+     * @throws IOException throws IOException if the stream fails or the count is larger than the file
+     */
+    private int readDictionaryCount(DataInputStream in, long fileSize) throws IOException {
+        int count = readCount(in);
+        if (count > fileSize) {
+            throw new EOFException("Dictionary count " + count + " exceeds file size " + fileSize);
+        }
+        return count;
+    }
+
+    /**
+     * Reads the customers of the snapshot and their orders into a warehouse
+     * @param in the stream to read from
+     * @param dictionary the dictionary of the snapshot
+     * @param warehouse the warehouse to add the customers to as they are read
+     * @throws IOException throws IOException if the stream fails
+     * @throws CorruptFileException throws CorruptFileException if a customer or order is not valid
+     */
+    private void readCustomers(DataInputStream in, String[] dictionary, Warehouse warehouse)
+            throws IOException, CorruptFileException {
+        int customerCount = readCount(in);
+        for (int i = 0; i < customerCount; i++) {
+            Customer customer = new Customer(lookUp(dictionary, readVarint(in)));
+            readOrders(in, dictionary, customer, true);
+            readOrders(in, dictionary, customer, false);
+            warehouse.addLoadedCustomer(customer);
+        }
+    }
+
+    /**
+     * Skips the index section and checks that the trailer matches the snapshot and ends the file
+     * @param in the stream to read from, positioned after the last customer
+     * @param dictionaryCount the number of dictionary strings of the snapshot
+     * @param warehouse the warehouse read from the snapshot
+     * @throws IOException throws IOException if the stream fails
+     * @throws CorruptFileException throws CorruptFileException if the index section or trailer is not valid
+     */
+    private void checkIndex(DataInputStream in, int dictionaryCount, Warehouse warehouse)
+            throws IOException, CorruptFileException {
+        int customerCount = warehouse.getCustomerSet().size();
+        long orderCount = 0;
+        for (Customer c : warehouse.getCustomerSet()) {
+            orderCount += c.getActiveOrderSize() + c.getCompleteOrderSize();
+        }
+        skipFully(in, (long) dictionaryCount * Long.BYTES
+                + (long) customerCount * BinarySnapshotWriter.CUSTOMER_ENTRY_SIZE
+                + orderCount * (BinarySnapshotWriter.ORDER_ENTRY_SIZE + Integer.BYTES));
+        if (in.readInt() != dictionaryCount || in.readInt() != customerCount || in.readInt() != orderCount) {
+            throw new CorruptFileException();
+        }
+        in.readLong();
+        if (in.read() != -1) {
+            throw new CorruptFileException();
+        }
+    }
+
+    /**
+     * Skips exactly the given number of bytes
+     * @param in the stream to read from
+     * @param count the number of bytes to skip
+     * @throws IOException throws IOException if the stream fails or ends first
+     */
+    private void skipFully(DataInputStream in, long count) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                // skip can stop short before the end of the stream, reading a byte tells the two apart
+                in.readByte();
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * Reads a count followed by the orders into the customer. The labels of each order are kept in their encoded
+     * form until they are read, see EncodedLabelHistory
+     * @param in the stream to read from
+     * @param dictionary the dictionary of the snapshot
+     * @param customer the customer the orders belong to
+     * @param isActiveOrder true if the orders are active orders
+     * @throws IOException throws IOException if the stream fails
+     * @throws CorruptFileException throws CorruptFileException if an order is not valid
+     */
+    private void readOrders(DataInputStream in, String[] dictionary, Customer customer, boolean isActiveOrder)
+            throws IOException, CorruptFileException {
+        int orderCount = readCount(in);
+        for (int i = 0; i < orderCount; i++) {
+            String content = lookUp(dictionary, readVarint(in));
+            String invoiceNumber = readString(in);
+            LocalDate importDate = readDate(in);
+            int originalQuantity = readCount(in);
+            int currentQuantity = readCount(in);
+            String storageLocation = lookUp(dictionary, readVarint(in));
+            try {
+                Order order = new Order(content, importDate, invoiceNumber, originalQuantity, storageLocation);
+                order.setCurrentQuantity(currentQuantity);
+                EncodedLabelHistory labels = EncodedLabelHistory.read(in);
+                order.deferLabels(labels, labels.readExportDays());
+                customer.addOrder(isActiveOrder, order);
+            } catch (QuantityNegativeException | QuantityZeroException | InvalidImportDateException e) {
+                throw new CorruptFileException();
+            }
+        }
+    }
+
+    /**
+     * Reads a count followed by the export labels
+     * @param in the stream to read from
+     * @return the export labels
+     * @throws IOException throws IOException if the stream fails or ends before the labels do
+     */
+    static List<Label> readExports(DataInputStream in) throws IOException {
+        int count = readCount(in);
+        List<Label> exports = new ArrayList<>(Math.min(count, MAX_INITIAL_CAPACITY));
+        for (int i = 0; i < count; i++) {
+            exports.add(new ExportLabel(readCount(in), readString(in), readDate(in)));
+        }
+        return exports;
+    }
+
+    /**
+     * Reads a count followed by the monthly charge labels
+     * @param in the stream to read from
+     * @return the monthly charge labels
+     * @throws IOException throws IOException if the stream fails or ends before the labels do
+     * @throws CorruptFileException throws CorruptFileException if a label does not cover a valid month
+     */
+    static List<Label> readMonthlyChargeLabels(DataInputStream in) throws IOException, CorruptFileException {
+        int count = readCount(in);
+        List<Label> monthlyChargeLabels = new ArrayList<>(Math.min(count, MAX_INITIAL_CAPACITY));
+        try {
+            for (int i = 0; i < count; i++) {
+                monthlyChargeLabels.add(new MonthlyChargeLabel(readCount(in), readString(in), readDate(in),
+                        readDate(in)));
+            }
+        } catch (InvalidMonthRangeException e) {
+            throw new CorruptFileException();
+        }
+        return monthlyChargeLabels;
+    }
+
+    /**
+     * Looks up a string in the dictionary
+     * @param dictionary the dictionary of the snapshot
+     * @param index the index of the string
+     * @return the string
+     * @throws CorruptFileException throws CorruptFileException if the index is not in the dictionary
+     */
+    private String lookUp(String[] dictionary, long index) throws CorruptFileException {
+        if (index >= dictionary.length) {
+            throw new CorruptFileException();
+        }
+        return dictionary[(int) index];
+    }
+
+    /**
+     * Reads a string written by BinarySnapshotWriter.writeString
+     * @param in the stream to read from
+     * @return the string
+     * @throws IOException throws IOException if the stream fails or the length is not plausible
+     */
+    static String readString(DataInputStream in) throws IOException {
+        int length = readCount(in);
+        if (length > MAX_STRING_LENGTH) {
+            throw new EOFException("String length " + length + " exceeds " + MAX_STRING_LENGTH);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a date written by BinarySnapshotWriter.writeDate
+     * @param in the stream to read from
+     * @return the date
+     * @throws IOException throws IOException if the stream fails
+     */
+    static LocalDate readDate(DataInputStream in) throws IOException {
+        return LocalDate.ofEpochDay(readEpochDay(in));
+    }
+
+    /**
+     * Reads a date written by BinarySnapshotWriter.writeDate without building it
+     * @param in the stream to read from
+     * @return the date as an epoch day
+     * @throws IOException throws IOException if the stream fails
+     */
+    static long readEpochDay(DataInputStream in) throws IOException {
+        long zigZag = readVarint(in);
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+    }
+
+    /**
+     * Reads a varint that must fit in an int, such as a count or quantity
+     * @param in the stream to read from
+     * @return the value
+     * @throws IOException throws IOException if the stream fails or the value does not fit in an int
+     */
+    static int readCount(DataInputStream in) throws IOException {
+        long value = readVarint(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new EOFException("Count " + value + " exceeds " + Integer.MAX_VALUE);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads an unsigned varint written by BinarySnapshotWriter.writeVarint
+     * @param in the stream to read from
+     * @return the value
+     * @throws IOException throws IOException if the stream fails or the varint is longer than 64 bits
+     */
+    static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new EOFException("Varint longer than 64 bits");
+    }
+}
@@ -0,0 +1,338 @@
+package persistence;
+
+import model.Customer;
+import model.ExportLabel;
+import model.Label;
+import model.MonthlyChargeLabel;
+import model.Order;
+import model.Warehouse;
+import org.json.JSONObject;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Represents a writer that writes a Warehouse to a chosen destination file in the compact binary snapshot format.
+ * <p>
+ * The file starts with the magic bytes "WHSB", the format version and a JSON header. A dictionary of every customer
+ * name, order content and storage location follows, so each is stored once and referred to by index. Then come the
+ * customers with their active and complete orders. Counts and quantities are unsigned varints and dates are
+ * zig-zag varint epoch days.
+ * <p>
+ * An index section follows the customers so MappedSnapshot can reach any record without reading the ones before
+ * it. It holds the offset of every dictionary string, a name index, first order number and active and complete
+ * order counts for each customer, the offset and customer of every order in file order, and the order numbers
+ * sorted by invoice number. These are fixed-width big-endian values. A trailer ends the file with the dictionary,
+ * customer and order counts and the offset of the index section. Saves are written atomically like JsonWriter's
+ */
+public class BinarySnapshotWriter {
+    static final byte[] MAGIC = {'W', 'H', 'S', 'B'};
+    static final int VERSION = 2;
+    static final int TRAILER_SIZE = 3 * Integer.BYTES + Long.BYTES;
+    static final int CUSTOMER_ENTRY_SIZE = 4 * Integer.BYTES;
+    static final int ORDER_ENTRY_SIZE = Long.BYTES + Integer.BYTES;
+
+    /**
+     * Writes/saves the warehouse to a chosen destination in the binary snapshot format
+     * @param destination the location to write to
+     * @param warehouse the warehouse to save
+     * @throws IOException throws IOException if the destination could not be written
+     */
+    public void saveWarehouse(File destination, Warehouse warehouse) throws IOException {
+        saveCustomers(destination, warehouse.getCustomerSet(), new JSONObject());
+    }
+
+    /**
+     * Writes/saves the customers of a warehouse to a chosen destination, see saveWarehouse(File, Warehouse)
+     * @param destination the location to write to
+     * @param customers the customers of the warehouse to save
+     * @param header values written in the header of the file
+     * @throws IOException throws IOException if the destination could not be written
+     */
+    void saveCustomers(File destination, Collection<Customer> customers, JSONObject header) throws IOException {
+        AtomicFile.write(destination, out -> writeWarehouse(new PositionedOutputStream(out), customers, header));
+    }
+
+    /**
+     * Writes the binary snapshot of the warehouse
+     * @param out the stream to write to
+     * @param customers the customers of the warehouse to write
+     * @param header values written in the header
+     * @throws IOException throws IOException if the stream fails
+     */
+    private void writeWarehouse(PositionedOutputStream out, Collection<Customer> customers, JSONObject header)
+            throws IOException {
+        out.write(MAGIC);
+        writeVarint(out, VERSION);
+        writeString(out, header.toString());
+
+        Map<String, Integer> dictionary = buildDictionary(customers);
+        long[] dictionaryOffsets = new long[dictionary.size()];
+        writeVarint(out, dictionary.size());
+        for (String s : dictionary.keySet()) {
+            dictionaryOffsets[dictionary.get(s)] = out.getPosition();
+            writeString(out, s);
+        }
+
+        SnapshotIndex index = new SnapshotIndex(customers);
+        writeVarint(out, customers.size());
+        for (Customer c : customers) {
+            writeVarint(out, dictionary.get(c.getName()));
+            writeOrders(out, c.getActiveOrders().values(), dictionary, index);
+            writeOrders(out, c.getCompleteOrders(), dictionary, index);
+            index.endCustomer(dictionary.get(c.getName()), c.getActiveOrderSize(), c.getCompleteOrderSize());
+        }
+        writeIndex(out, dictionaryOffsets, index);
+        out.flush();
+    }
+
+    /**
+     * Writes the index section and the trailer
+     * @param out the stream to write to, positioned after the last customer
+     * @param dictionaryOffsets the offset of every dictionary string
+     * @param index the customer and order entries collected while writing the customers
+     * @throws IOException throws IOException if the stream fails
+     */
+    private void writeIndex(PositionedOutputStream out, long[] dictionaryOffsets, SnapshotIndex index)
+            throws IOException {
+        long indexOffset = out.getPosition();
+        for (long offset : dictionaryOffsets) {
+            out.writeLong(offset);
+        }
+        for (int[] customer : index.customers) {
+            for (int value : customer) {
+                out.writeInt(value);
+            }
+        }
+        for (int i = 0; i < index.orderCount; i++) {
+            out.writeLong(index.orderOffsets[i]);
+            out.writeInt(index.orderCustomers[i]);
+        }
+        for (int orderNumber : index.sortByInvoiceNumber()) {
+            out.writeInt(orderNumber);
+        }
+
+        out.writeInt(dictionaryOffsets.length);
+        out.writeInt(index.customers.size());
+        out.writeInt(index.orderCount);
+        out.writeLong(indexOffset);
+    }
+
+    /**
+     * Assigns an index to every distinct customer name, order content and storage location of the warehouse
+     * @param customers the customers of the warehouse
+     * @return the dictionary, iterated in index order
+     */
+    private Map<String, Integer> buildDictionary(Collection<Customer> customers) {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (Customer c : customers) {
+            dictionary.putIfAbsent(c.getName(), dictionary.size());
+            for (Order o : c.getActiveOrders().values()) {
+                dictionary.putIfAbsent(o.getContent(), dictionary.size());
+                dictionary.putIfAbsent(o.getStorageLocation(), dictionary.size());
+            }
+            for (Order o : c.getCompleteOrders()) {
+                dictionary.putIfAbsent(o.getContent(), dictionary.size());
+                dictionary.putIfAbsent(o.getStorageLocation(), dictionary.size());
+            }
+        }
+        return dictionary;
+    }
+
+    /**
+     * Writes a count followed by the orders
+     * @param out the stream to write to
+     * @param orders the orders to write
+     * @param dictionary the dictionary of the snapshot
+     * @param index receives the offset of every order
+     * @throws IOException throws IOException if the stream fails
+     */
+    private void writeOrders(PositionedOutputStream out, Collection<Order> orders, Map<String, Integer> dictionary,
+                             SnapshotIndex index) throws IOException {
+        writeVarint(out, orders.size());
+        for (Order o : orders) {
+            index.addOrder(out.getPosition(), o.getInvoiceNumber());
+            writeVarint(out, dictionary.get(o.getContent()));
+            writeString(out, o.getInvoiceNumber());
+            writeDate(out, o.getImportDate().toEpochDay());
+            writeVarint(out, o.getOriginalQuantity());
+            writeVarint(out, o.getCurrentQuantity());
+            writeVarint(out, dictionary.get(o.getStorageLocation()));
+            writeExports(out, o.getExports());
+            writeMonthlyChargeLabels(out, o.getMonthlyChargeLabels());
+        }
+    }
+
+    /**
+     * Writes a count followed by the export labels
+     * @param out the stream to write to
+     * @param exports the export labels
+     * @throws IOException throws IOException if the stream fails
+     */
+    private void writeExports(DataOutputStream out, List<Label> exports) throws IOException {
+        writeVarint(out, exports.size());
+        for (Label l : exports) {
+            writeVarint(out, l.getQuantity());
+            writeString(out, l.getInvoiceNumber());
+            writeDate(out, ((ExportLabel) l).getExportDate().toEpochDay());
+        }
+    }
+
+    /**
+     * Writes a count followed by the monthly charge labels
+     * @param out the stream to write to
+     * @param monthlyChargeLabels the monthly charge labels
+     * @throws IOException throws IOException if the stream fails
+     */
+    private void writeMonthlyChargeLabels(DataOutputStream out, List<Label> monthlyChargeLabels) throws IOException {
+        writeVarint(out, monthlyChargeLabels.size());
+        for (Label l : monthlyChargeLabels) {
+            MonthlyChargeLabel monthlyChargeLabel = (MonthlyChargeLabel) l;
+            writeVarint(out, l.getQuantity());
+            writeString(out, l.getInvoiceNumber());
+            writeDate(out, monthlyChargeLabel.getStartDate().toEpochDay());
+            writeDate(out, monthlyChargeLabel.getEndDate().toEpochDay());
+        }
+    }
+
+    /**
+     * Writes a string as its varint UTF-8 length followed by its UTF-8 bytes
+     * @param out the stream to write to
+     * @param s the string
+     * @throws IOException throws IOException if the stream fails
+     */
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Writes an epoch day as a zig-zag encoded varint, so dates before 1970 stay short
+     * @param out the stream to write to
+     * @param epochDay the epoch day
+     * @throws IOException throws IOException if the stream fails
+     */
+    static void writeDate(DataOutputStream out, long epochDay) throws IOException {
+        writeVarint(out, (epochDay << 1) ^ (epochDay >> 63));
+    }
+
+    /**
+     * Writes a non-negative value as an unsigned varint, 7 bits per byte with the high bit set on all but the last
+     * @param out the stream to write to
+     * @param value the value
+     * @throws IOException throws IOException if the stream fails
+     */
+    static void writeVarint(DataOutputStream out, long value) throws IOException {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            out.writeByte((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        out.writeByte((int) remaining);
+    }
+
+    /**
+     * Represents the customer and order entries of the index section, collected while the customers are written
+     */
+    private static class SnapshotIndex {
+        private final List<int[]> customers = new ArrayList<>();
+        private final long[] orderOffsets;
+        private final int[] orderCustomers;
+        private final String[] invoiceNumbers;
+        private int orderCount;
+        private int customerFirstOrder;
+
+        SnapshotIndex(Collection<Customer> customers) {
+            int totalOrders = 0;
+            for (Customer c : customers) {
+                totalOrders += c.getActiveOrderSize() + c.getCompleteOrderSize();
+            }
+            this.orderOffsets = new long[totalOrders];
+            this.orderCustomers = new int[totalOrders];
+            this.invoiceNumbers = new String[totalOrders];
+        }
+
+        /**
+         * Records an order of the customer being written
+         * @param offset the offset of the order's record
+         * @param invoiceNumber the invoice number of the order
+         */
+        void addOrder(long offset, String invoiceNumber) {
+            this.orderOffsets[this.orderCount] = offset;
+            this.orderCustomers[this.orderCount] = this.customers.size();
+            this.invoiceNumbers[this.orderCount] = invoiceNumber;
+            this.orderCount++;
+        }
+
+        /**
+         * Records the customer whose orders were just added
+         * @param nameIndex the dictionary index of the customer's name
+         * @param activeCount the number of active orders of the customer
+         * @param completeCount the number of complete orders of the customer
+         */
+        void endCustomer(int nameIndex, int activeCount, int completeCount) {
+            this.customers.add(new int[]{nameIndex, this.customerFirstOrder, activeCount, completeCount});
+            this.customerFirstOrder = this.orderCount;
+        }
+
+        /**
+         * Sorts the order numbers by the invoice numbers of their orders
+         * @return the sorted order numbers
+         */
+        int[] sortByInvoiceNumber() {
+            return IntStream.range(0, this.orderCount).boxed()
+                    .sorted(Comparator.comparing(i -> this.invoiceNumbers[i]))
+                    .mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Represents a data output stream that keeps track of the number of bytes written through it as a long, so
+     * offsets stay correct in snapshots larger than 2 GiB
+     */
+    private static class PositionedOutputStream extends DataOutputStream {
+
+        PositionedOutputStream(OutputStream out) {
+            super(new CountingOutputStream(out));
+        }
+
+        long getPosition() {
+            return ((CountingOutputStream) super.out).count;
+        }
+    }
+
+    /**
+     * Represents an output stream that counts the bytes written to the stream it wraps
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            super.out.write(b);
+            this.count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            super.out.write(b, off, len);
+            this.count += len;
+        }
+    }
+}
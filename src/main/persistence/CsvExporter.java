@@ -0,0 +1,155 @@
+package persistence;
+
+import model.Customer;
+import model.ExportLabel;
+import model.Label;
+import model.MonthlyChargeLabel;
+import model.Order;
+import model.OrderRow;
+import model.Warehouse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Represents an exporter that writes the current inventory or the full history of a Warehouse as CSV files that
+ * spreadsheet programs can open. Orders are written one row at a time as they are streamed from the warehouse, so
+ * memory use does not grow with the size of the warehouse.
+ * <p>
+ * The history is written in the row format read by CsvImporter: a customer row for every customer, then for every
+ * order an import row of its original quantity followed by its monthly charges and its exports, so importing the
+ * history into an empty warehouse rebuilds every customer and order
+ */
+public class CsvExporter {
+    static final String[] INVENTORY_HEADER = {"customer", "invoice number", "quantity", "content", "import date",
+            "storage location"};
+
+    private static final char SEPARATOR = ',';
+    private static final String QUOTE = "\"";
+    private static final String LINE_BREAK = "\r\n";
+
+    /**
+     * Writes a row for every active order of the warehouse, after a header row, to the destination atomically
+     * @param destination the location to write to
+     * @param warehouse the warehouse to export
+     * @throws IOException throws IOException if the destination could not be written
+     */
+    public void writeInventory(File destination, Warehouse warehouse) throws IOException {
+        writeAtomically(destination, writer -> writeInventory(writer, warehouse));
+    }
+
+    /**
+     * Writes the current inventory of the warehouse, see writeInventory(File, Warehouse)
+     * @param writer the writer to write to
+     * @param warehouse the warehouse to export
+     * @throws IOException throws IOException if the writer fails
+     */
+    void writeInventory(Writer writer, Warehouse warehouse) throws IOException {
+        writeRecord(writer, INVENTORY_HEADER);
+        Iterator<OrderRow> rows = warehouse.streamOrderRows(true).iterator();
+        while (rows.hasNext()) {
+            OrderRow row = rows.next();
+            writeRecord(writer, row.getCustomerName(), row.getInvoiceNumber(),
+                    Integer.toString(row.getCurrentQuantity()), row.getContent(), row.getImportDate().toString(),
+                    row.getStorageLocation());
+        }
+    }
+
+    /**
+     * Writes the rows that rebuild every customer and order of the warehouse to the destination atomically
+     * @param destination the location to write to
+     * @param warehouse the warehouse to export
+     * @throws IOException throws IOException if the destination could not be written
+     */
+    public void writeHistory(File destination, Warehouse warehouse) throws IOException {
+        writeAtomically(destination, writer -> writeHistory(writer, warehouse));
+    }
+
+    /**
+     * Writes the history of the warehouse, see writeHistory(File, Warehouse)
+     * @param writer the writer to write to
+     * @param warehouse the warehouse to export
+     * @throws IOException throws IOException if the writer fails
+     */
+    void writeHistory(Writer writer, Warehouse warehouse) throws IOException {
+        for (Customer c : warehouse.getCustomerSet()) {
+            writeRecord(writer, CsvImporter.CUSTOMER_ROW, c.getName());
+        }
+        Iterator<OrderRow> rows = warehouse.streamOrderRows().iterator();
+        while (rows.hasNext()) {
+            OrderRow row = rows.next();
+            writeOrderHistory(writer, row.getCustomerName(), row.getOrder());
+        }
+    }
+
+    /**
+     * Writes the import row of an order followed by its monthly charge rows and export rows. Monthly charges can only
+     * be recorded for active orders, so they are written before the exports that may complete the order
+     * @param writer the writer to write to
+     * @param customerName the name of the customer that owns the order
+     * @param order the order
+     * @throws IOException throws IOException if the writer fails
+     */
+    private void writeOrderHistory(Writer writer, String customerName, Order order) throws IOException {
+        String invoiceNum = order.getInvoiceNumber();
+        writeRecord(writer, CsvImporter.IMPORT_ROW, customerName, order.getContent(),
+                order.getImportDate().toString(), invoiceNum, Integer.toString(order.getOriginalQuantity()),
+                order.getStorageLocation());
+        for (Label l : order.getMonthlyChargeLabels()) {
+            MonthlyChargeLabel monthlyChargeLabel = (MonthlyChargeLabel) l;
+            writeRecord(writer, CsvImporter.MONTHLY_CHARGE_ROW, customerName, invoiceNum,
+                    monthlyChargeLabel.getStartDate().toString(), monthlyChargeLabel.getEndDate().toString(),
+                    Integer.toString(l.getQuantity()), l.getInvoiceNumber());
+        }
+        for (Label l : order.getExports()) {
+            writeRecord(writer, CsvImporter.EXPORT_ROW, customerName, invoiceNum, Integer.toString(l.getQuantity()),
+                    ((ExportLabel) l).getExportDate().toString(), l.getInvoiceNumber());
+        }
+    }
+
+    /**
+     * Writes a record, quoting each field that contains a separator, quote or line break
+     * @param writer the writer to write to
+     * @param fields the fields of the record
+     * @throws IOException throws IOException if the writer fails
+     */
+    private static void writeRecord(Writer writer, String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(SEPARATOR);
+            }
+            String field = fields[i];
+            if (field.indexOf(SEPARATOR) >= 0 || field.contains(QUOTE) || field.indexOf('\r') >= 0
+                    || field.indexOf('\n') >= 0) {
+                field = QUOTE + field.replace(QUOTE, QUOTE + QUOTE) + QUOTE;
+            }
+            writer.write(field);
+        }
+        writer.write(LINE_BREAK);
+    }
+
+    /**
+     * Writes the file atomically with AtomicFile as UTF-8 text
+     * @param destination the location to write to
+     * @param content writes the CSV content of the file
+     * @throws IOException throws IOException if the destination could not be written
+     */
+    private static void writeAtomically(File destination, Content content) throws IOException {
+        AtomicFile.write(destination, out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            content.write(writer);
+            writer.flush();
+        });
+    }
+
+    /**
+     * Writes the content of a file
+     */
+    private interface Content {
+        void write(Writer writer) throws IOException;
+    }
+}
@@ -0,0 +1,78 @@
+package persistence;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Represents the outcome of a CSV bulk import: how many rows were applied to the warehouse and why each other row was
+ * rejected, by the line the row starts on
+ */
+public class CsvImportReport {
+    private static final int SUMMARY_ERRORS = 5;
+
+    private final SortedMap<Long, String> rejectedRows = new TreeMap<>(); // key = Line :: value = Reason
+    private int appliedRows;
+
+    /**
+     * Records that a row was applied to the warehouse
+     */
+    void addAppliedRow() {
+        this.appliedRows++;
+    }
+
+    /**
+     * Records that a row was rejected
+     * @param line the line the row starts on
+     * @param reason why the row was rejected
+     */
+    void addRejectedRow(long line, String reason) {
+        this.rejectedRows.put(line, reason);
+    }
+
+    public int getAppliedRows() {
+        return this.appliedRows;
+    }
+
+    /**
+     * Gets the rows that were rejected
+     * @return the reason each row was rejected, by the line the row starts on in line order
+     */
+    public SortedMap<Long, String> getRejectedRows() {
+        return Collections.unmodifiableSortedMap(this.rejectedRows);
+    }
+
+    /**
+     * Returns true if no row was rejected
+     * @return true if every row was applied
+     */
+    public boolean isComplete() {
+        return this.rejectedRows.isEmpty();
+    }
+
+    /**
+     * Describes the outcome in a single line that can be displayed to the user, listing the first few rejected rows
+     * @return the description
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append(this.appliedRows).append(" row(s) imported");
+        if (this.rejectedRows.isEmpty()) {
+            return summary.toString();
+        }
+        summary.append(", ").append(this.rejectedRows.size()).append(" row(s) rejected: ");
+        String separator = "";
+        int listed = 0;
+        for (Map.Entry<Long, String> rejected : this.rejectedRows.entrySet()) {
+            if (listed++ == SUMMARY_ERRORS) {
+                summary.append(", ...");
+                break;
+            }
+            summary.append(separator).append("line ").append(rejected.getKey())
+                    .append(" (").append(rejected.getValue()).append(')');
+            separator = ", ";
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,323 @@
+package persistence;
+
+import model.Warehouse;
+import model.exceptions.CustomerAlreadyExistsException;
+import model.exceptions.CustomerDoesNotExistException;
+import model.exceptions.InvalidCustomerNameException;
+import model.exceptions.InvalidEndDateException;
+import model.exceptions.InvalidExportDateException;
+import model.exceptions.InvalidImportDateException;
+import model.exceptions.InvalidMonthRangeException;
+import model.exceptions.InvalidQuantityException;
+import model.exceptions.InvalidStartDateException;
+import model.exceptions.OrderAlreadyExistsException;
+import model.exceptions.OrderDoesNotExistException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents an importer that applies the rows of a CSV file to a Warehouse through the same methods the input panels
+ * use, so every row is validated and journaled like a change made by hand. The first field of each row is its type,
+ * and the other fields are the arguments of the matching Warehouse method in the same order:
+ * <pre>
+ *     customer,name
+ *     import,customer,content,import date,invoice number,quantity,storage location
+ *     export,customer,import invoice number,quantity,export date,export invoice number
+ *     charge,customer,import invoice number,start date,end date,quantity,monthly invoice number
+ * </pre>
+ * Dates are written as yyyy-mm-dd. Text is trimmed and lower-cased the way the input panels refine what is typed.
+ * Blank rows, rows whose first field starts with '#' and empty trailing fields are ignored.
+ * <p>
+ * The file is read as a stream. Rows are parsed and checked in batches of a fixed size, then each batch is applied
+ * as one Warehouse batch, so a journal forces it to disk once rather than once per row. A row that is not valid, or
+ * that the warehouse rejects, is reported with its line and the rows after it are still applied
+ */
+public class CsvImporter {
+    public static final String CUSTOMER_ROW = "customer";
+    public static final String IMPORT_ROW = "import";
+    public static final String EXPORT_ROW = "export";
+    public static final String MONTHLY_CHARGE_ROW = "charge";
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String COMMENT = "#";
+
+    private final int batchSize;
+
+    public CsvImporter() {
+        this(DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates an importer that applies rows in batches of the given size
+     * @param batchSize the number of rows in each batch
+     * @throws IllegalArgumentException throws IllegalArgumentException if the batch size is less than 1
+     */
+    public CsvImporter(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size " + batchSize + " is less than 1");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Applies every row of the source file to the warehouse
+     * @param source the UTF-8 CSV file to import
+     * @param warehouse the warehouse to apply the rows to
+     * @return the report of the rows applied and rejected
+     * @throws IOException throws IOException if the file is not readable, rows read before the failure stay applied
+     */
+    public CsvImportReport importRows(File source, Warehouse warehouse) throws IOException {
+        try (Reader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(source.toPath()),
+                StandardCharsets.UTF_8.newDecoder()), BUFFER_SIZE)) {
+            return importRows(reader, warehouse);
+        }
+    }
+
+    /**
+     * Applies every row read from the reader to the warehouse, see importRows(File, Warehouse)
+     * @param reader the reader of the CSV rows
+     * @param warehouse the warehouse to apply the rows to
+     * @return the report of the rows applied and rejected
+     * @throws IOException throws IOException if the reader fails, rows read before the failure stay applied
+     */
+    CsvImportReport importRows(Reader reader, Warehouse warehouse) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        CsvImportReport report = new CsvImportReport();
+        List<PendingRow> batch = new ArrayList<>();
+        for (List<String> record = csv.readRecord(); record != null; record = csv.readRecord()) {
+            if (isIgnored(record)) {
+                continue;
+            }
+            try {
+                if (csv.hasUnclosedQuote()) {
+                    throw new IllegalArgumentException("a quoted field is not closed");
+                }
+                batch.add(new PendingRow(csv.getRecordLine(), parseRow(record)));
+            } catch (IllegalArgumentException e) {
+                report.addRejectedRow(csv.getRecordLine(), e.getMessage());
+            }
+            if (batch.size() == this.batchSize) {
+                applyBatch(batch, warehouse, report);
+                batch.clear();
+            }
+        }
+        applyBatch(batch, warehouse, report);
+        return report;
+    }
+
+    /**
+     * Applies a batch of parsed rows to the warehouse as one Warehouse batch
+     * @param batch the parsed rows, in file order
+     * @param warehouse the warehouse to apply the rows to
+     * @param report receives the outcome of each row
+     */
+    private void applyBatch(List<PendingRow> batch, Warehouse warehouse, CsvImportReport report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        warehouse.startBatch();
+        try {
+            for (PendingRow row : batch) {
+                try {
+                    row.change.applyTo(warehouse);
+                    report.addAppliedRow();
+                } catch (CustomerAlreadyExistsException | InvalidCustomerNameException | CustomerDoesNotExistException
+                        | OrderAlreadyExistsException | OrderDoesNotExistException | InvalidImportDateException
+                        | InvalidQuantityException | InvalidExportDateException | InvalidStartDateException
+                        | InvalidEndDateException | InvalidMonthRangeException | ParseException e) {
+                    report.addRejectedRow(row.line, e.getMessage());
+                }
+            }
+        } finally {
+            warehouse.finishBatch();
+        }
+    }
+
+    /**
+     * Returns true if a row is blank or a comment
+     * @param record the fields of the row
+     * @return true if the row is ignored
+     */
+    private static boolean isIgnored(List<String> record) {
+        if (record.get(0).trim().startsWith(COMMENT)) {
+            return true;
+        }
+        for (String field : record) {
+            if (!field.trim().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses and checks the fields of a row
+     * @param record the fields of the row
+     * @return the change the row makes
+     * @throws IllegalArgumentException throws IllegalArgumentException if the row is not valid
+     */
+    private static Change parseRow(List<String> record) {
+        String type = text(record, 0);
+        switch (type) {
+            case CUSTOMER_ROW:
+                checkFieldCount(record, 2);
+                String customerName = text(record, 1);
+                return warehouse -> warehouse.addCustomer(customerName);
+            case IMPORT_ROW:
+                return parseImportRow(record);
+            case EXPORT_ROW:
+                return parseExportRow(record);
+            case MONTHLY_CHARGE_ROW:
+                return parseMonthlyChargeRow(record);
+            default:
+                throw new IllegalArgumentException("\"" + type + "\" is not a row type");
+        }
+    }
+
+    /**
+     * Parses and checks the fields of an import row
+     * @param record the fields of the row
+     * @return the change the row makes
+     * @throws IllegalArgumentException throws IllegalArgumentException if the row is not valid
+     */
+    private static Change parseImportRow(List<String> record) {
+        checkFieldCount(record, 7);
+        String customerName = text(record, 1);
+        String content = text(record, 2);
+        LocalDate importDate = date(record, 3);
+        String invoiceNum = text(record, 4);
+        int quantity = quantity(record, 5);
+        String storageLocation = text(record, 6);
+        return warehouse -> warehouse.importProduct(customerName, content, importDate, invoiceNum, quantity,
+                storageLocation);
+    }
+
+    /**
+     * Parses and checks the fields of an export row
+     * @param record the fields of the row
+     * @return the change the row makes
+     * @throws IllegalArgumentException throws IllegalArgumentException if the row is not valid
+     */
+    private static Change parseExportRow(List<String> record) {
+        checkFieldCount(record, 6);
+        String customerName = text(record, 1);
+        String importInvoiceNum = text(record, 2);
+        int quantity = quantity(record, 3);
+        LocalDate exportDate = date(record, 4);
+        String exportInvoiceNum = text(record, 5);
+        return warehouse -> warehouse.exportOrder(customerName, importInvoiceNum, quantity, exportDate,
+                exportInvoiceNum);
+    }
+
+    /**
+     * Parses and checks the fields of a monthly charge row
+     * @param record the fields of the row
+     * @return the change the row makes
+     * @throws IllegalArgumentException throws IllegalArgumentException if the row is not valid
+     */
+    private static Change parseMonthlyChargeRow(List<String> record) {
+        checkFieldCount(record, 7);
+        String customerName = text(record, 1);
+        String importInvoiceNum = text(record, 2);
+        LocalDate startDate = date(record, 3);
+        LocalDate endDate = date(record, 4);
+        int quantity = quantity(record, 5);
+        String monthlyInvoiceNum = text(record, 6);
+        return warehouse -> warehouse.recordMonthlyCharge(customerName, importInvoiceNum, startDate, endDate,
+                quantity, monthlyInvoiceNum);
+    }
+
+    /**
+     * Checks that a row has the given number of fields, not counting empty trailing fields
+     * @param record the fields of the row
+     * @param count the number of fields the row must have
+     * @throws IllegalArgumentException throws IllegalArgumentException if the row has another number of fields
+     */
+    private static void checkFieldCount(List<String> record, int count) {
+        int fieldCount = record.size();
+        while (fieldCount > count && record.get(fieldCount - 1).trim().isEmpty()) {
+            fieldCount--;
+        }
+        if (fieldCount != count) {
+            throw new IllegalArgumentException("a " + text(record, 0) + " row has " + count + " fields, not "
+                    + fieldCount);
+        }
+    }
+
+    /**
+     * Gets a text field, trimmed and lower-cased
+     * @param record the fields of the row
+     * @param index the index of the field
+     * @return the text
+     */
+    private static String text(List<String> record, int index) {
+        return record.get(index).trim().toLowerCase();
+    }
+
+    /**
+     * Gets a date field
+     * @param record the fields of the row
+     * @param index the index of the field
+     * @return the date
+     * @throws IllegalArgumentException throws IllegalArgumentException if the field is not a date
+     */
+    private static LocalDate date(List<String> record, int index) {
+        String field = record.get(index).trim();
+        try {
+            return LocalDate.parse(field);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("\"" + field + "\" is not a date of the form yyyy-mm-dd");
+        }
+    }
+
+    /**
+     * Gets a quantity field
+     * @param record the fields of the row
+     * @param index the index of the field
+     * @return the quantity, which the warehouse checks is positive
+     * @throws IllegalArgumentException throws IllegalArgumentException if the field is not a whole number
+     */
+    private static int quantity(List<String> record, int index) {
+        String field = record.get(index).trim();
+        try {
+            return Integer.parseInt(field);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("\"" + field + "\" is not a whole number");
+        }
+    }
+
+    /**
+     * Represents the change a parsed row makes to a warehouse
+     */
+    private interface Change {
+        void applyTo(Warehouse warehouse) throws CustomerAlreadyExistsException, InvalidCustomerNameException,
+                CustomerDoesNotExistException, OrderAlreadyExistsException, OrderDoesNotExistException,
+                InvalidImportDateException, InvalidQuantityException, InvalidExportDateException,
+                InvalidStartDateException, InvalidEndDateException, InvalidMonthRangeException, ParseException;
+    }
+
+    /**
+     * Represents a parsed row waiting for its batch to be applied
+     */
+    private static class PendingRow {
+        private final long line;
+        private final Change change;
+
+        PendingRow(long line, Change change) {
+            this.line = line;
+            this.change = change;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package persistence;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a reader of comma-separated records in the format of RFC 4180, as written by spreadsheet programs.
+ * Fields may be quoted with double quotes, a quoted field may contain commas, line breaks and doubled double quotes,
+ * and records may end in CRLF, LF or CR. Records are read one at a time, so memory use is bounded by the largest
+ * record rather than the size of the input
+ */
+class CsvReader {
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private final Reader reader;
+    private int next = -2;                  // the character after the last one consumed, -2 if not yet read
+    private long line = 1;                  // the line of the next character
+    private long recordLine;                // the line the last record read started on
+    private boolean hasUnclosedQuote;       // true if the last record read ended inside a quoted field
+
+    /**
+     * Creates a reader of the records of the given character stream
+     * @param reader the character stream, which should be buffered
+     */
+    CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the next record, skipping a byte order mark at the start of the input
+     * @return the fields of the record, or null if there are no more records
+     * @throws IOException throws IOException if the input could not be read
+     */
+    List<String> readRecord() throws IOException {
+        if (this.next == -2) {
+            this.next = this.reader.read();
+            if (this.next == BYTE_ORDER_MARK) {
+                this.next = this.reader.read();
+            }
+        }
+        if (this.next == -1) {
+            return null;
+        }
+
+        this.recordLine = this.line;
+        this.hasUnclosedQuote = false;
+        List<String> fields = new ArrayList<>();
+        boolean isLastField;
+        do {
+            StringBuilder field = new StringBuilder();
+            if (this.next == QUOTE) {
+                consume();
+                readQuotedField(field);
+            }
+            isLastField = readUnquotedField(field);
+            fields.add(field.toString());
+        } while (!isLastField);
+        return fields;
+    }
+
+    /**
+     * Gets the line the last record read started on, the first line being line 1
+     * @return the line number
+     */
+    long getRecordLine() {
+        return this.recordLine;
+    }
+
+    /**
+     * Returns true if the input ended inside a quoted field of the last record read
+     * @return true if the last record is not complete
+     */
+    boolean hasUnclosedQuote() {
+        return this.hasUnclosedQuote;
+    }
+
+    /**
+     * Reads the rest of a quoted field up to and including its closing quote
+     * @param field receives the characters of the field
+     * @throws IOException throws IOException if the input could not be read
+     */
+    private void readQuotedField(StringBuilder field) throws IOException {
+        while (this.next != -1) {
+            int c = consume();
+            if (c != QUOTE) {
+                field.append((char) c);
+            } else if (this.next == QUOTE) {
+                field.append((char) consume());
+            } else {
+                return;
+            }
+        }
+        this.hasUnclosedQuote = true;
+    }
+
+    /**
+     * Reads characters of a field up to the separator or line break that ends it, and consumes that separator or
+     * line break; characters after the closing quote of a quoted field are kept as they are
+     * @param field receives the characters of the field
+     * @return true if the field is the last of its record
+     * @throws IOException throws IOException if the input could not be read
+     */
+    private boolean readUnquotedField(StringBuilder field) throws IOException {
+        while (this.next != -1) {
+            int c = consume();
+            if (c == SEPARATOR) {
+                return false;
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r' && this.next == '\n') {
+                    consume();
+                }
+                return true;
+            }
+            field.append((char) c);
+        }
+        return true;
+    }
+
+    /**
+     * Consumes the next character, counting the line breaks passed
+     * @return the character consumed
+     * @throws IOException throws IOException if the input could not be read
+     */
+    private int consume() throws IOException {
+        int c = this.next;
+        this.next = this.reader.read();
+        if (c == '\n' || (c == '\r' && this.next != '\n')) {
+            this.line++;
+        }
+        return c;
+    }
+}
@@ -0,0 +1,152 @@
+package persistence;
+
+import model.LabelHistory;
+import model.LabelHistorySource;
+import model.exceptions.CorruptFileException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.DateTimeException;
+
+/**
+ * Represents the label histories of a loaded Order kept as the bytes that encode them in a binary snapshot, see
+ * BinarySnapshotWriter.writeExports and writeMonthlyChargeLabels. The bytes are copied from the snapshot without
+ * building any labels and take a fraction of the memory of the decoded lists; they are decoded each time they are
+ * loaded, so labels that are never read are never decoded. Only the structure of the bytes is checked when they are
+ * copied, so labels that are not valid are only found when they are loaded
+ */
+class EncodedLabelHistory implements LabelHistorySource {
+    private static final int MAX_VARINT_BYTES = 10;
+
+    private final byte[] labels;
+
+    /**
+     * Creates a label history from the bytes of its encoding
+     * @param labels the encoded export labels followed by the encoded monthly charge labels
+     */
+    EncodedLabelHistory(byte[] labels) {
+        this.labels = labels;
+    }
+
+    /**
+     * Copies the encoded export labels and monthly charge labels that end an order record of a binary snapshot
+     * @param in the stream to read from, positioned at the export label count of the record
+     * @return the label history of the copied bytes
+     * @throws IOException throws IOException if the stream fails or ends before the labels do
+     */
+    static EncodedLabelHistory read(DataInputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int exportCount = copyCount(in, out);
+        for (int i = 0; i < exportCount; i++) {
+            copyVarint(in, out);        // quantity
+            copyString(in, out);        // invoice number
+            copyVarint(in, out);        // export date
+        }
+        int monthlyChargeCount = copyCount(in, out);
+        for (int i = 0; i < monthlyChargeCount; i++) {
+            copyVarint(in, out);        // quantity
+            copyString(in, out);        // invoice number
+            copyVarint(in, out);        // start date
+            copyVarint(in, out);        // end date
+        }
+        return new EncodedLabelHistory(out.toByteArray());
+    }
+
+    /**
+     * Decodes the label histories
+     * @return the decoded label histories
+     * @throws UncheckedIOException throws UncheckedIOException if the encoded labels are not valid
+     */
+    @Override
+    public LabelHistory load() {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(this.labels));
+        try {
+            return new LabelHistory(BinarySnapshotReader.readExports(in),
+                    BinarySnapshotReader.readMonthlyChargeLabels(in));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (CorruptFileException | DateTimeException e) {
+            throw new UncheckedIOException(new IOException("Encoded label histories are not valid", e));
+        }
+    }
+
+    /**
+     * Decodes only the export dates of the encoded export labels, without building any labels
+     * @return the export date of each export label as an epoch day, in order
+     * @throws CorruptFileException throws CorruptFileException if the encoded export labels are not valid
+     */
+    long[] readExportDays() throws CorruptFileException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(this.labels));
+        try {
+            int exportCount = BinarySnapshotReader.readCount(in);
+            // every encoded export takes at least three bytes, so a larger count cannot be valid
+            if (exportCount > this.labels.length / 3) {
+                throw new CorruptFileException();
+            }
+            long[] exportDays = new long[exportCount];
+            for (int i = 0; i < exportCount; i++) {
+                BinarySnapshotReader.readVarint(in);                        // quantity
+                in.skipBytes(BinarySnapshotReader.readCount(in));           // invoice number
+                exportDays[i] = BinarySnapshotReader.readEpochDay(in);
+            }
+            return exportDays;
+        } catch (IOException e) {
+            throw new CorruptFileException();
+        }
+    }
+
+    /**
+     * Copies a varint written by BinarySnapshotWriter.writeVarint
+     * @param in the stream to read from
+     * @param out the stream to copy to
+     * @return the value of the varint
+     * @throws IOException throws IOException if the stream fails or the varint is longer than 64 bits
+     */
+    private static long copyVarint(DataInputStream in, ByteArrayOutputStream out) throws IOException {
+        long value = 0;
+        for (int i = 0; i < MAX_VARINT_BYTES; i++) {
+            int b = in.readUnsignedByte();
+            out.write(b);
+            value |= (long) (b & 0x7F) << (7 * i);
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new EOFException("Varint longer than 64 bits");
+    }
+
+    /**
+     * Copies a varint that must fit in an int, such as a count or length
+     * @param in the stream to read from
+     * @param out the stream to copy to
+     * @return the value of the varint
+     * @throws IOException throws IOException if the stream fails or the value does not fit in an int
+     */
+    private static int copyCount(DataInputStream in, ByteArrayOutputStream out) throws IOException {
+        long value = copyVarint(in, out);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new EOFException("Count " + value + " exceeds " + Integer.MAX_VALUE);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Copies a string written by BinarySnapshotWriter.writeString
+     * @param in the stream to read from
+     * @param out the stream to copy to
+     * @throws IOException throws IOException if the stream fails or the length is not plausible
+     */
+    private static void copyString(DataInputStream in, ByteArrayOutputStream out) throws IOException {
+        int length = copyCount(in, out);
+        if (length > BinarySnapshotReader.MAX_STRING_LENGTH) {
+            throw new EOFException("String length " + length + " exceeds " + BinarySnapshotReader.MAX_STRING_LENGTH);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        out.write(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,115 @@
+package persistence;
+
+import model.LabelHistory;
+import model.LabelHistorySource;
+import model.Order;
+import model.OrderArchive;
+import model.exceptions.CorruptFileException;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Represents an archive segment file that the label histories of complete Orders are appended to. Each archived
+ * Order keeps only the position of its record in the file, and reads it back when its labels are next needed
+ */
+public class FileOrderArchive implements OrderArchive, Closeable {
+    private final File file;
+    private final FileChannel channel;
+
+    /**
+     * Creates a new empty archive segment, replacing the contents of the given file if it already exists
+     * @param file the archive segment file to write to
+     * @throws IOException throws IOException if the file could not be opened
+     */
+    public FileOrderArchive(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Appends the label histories of the given order to the end of the archive segment
+     * @param order the order whose label histories are archived
+     * @return a source that reads the label histories back from the archive segment
+     * @throws IOException throws IOException if the record could not be written
+     */
+    @Override
+    public synchronized LabelHistorySource archive(Order order) throws IOException {
+        LabelHistory labelHistory = new LabelHistory(order.getExports(), order.getMonthlyChargeLabels());
+        byte[] record = labelHistory.convertToJsonObject().toString().getBytes(StandardCharsets.UTF_8);
+
+        long position = this.channel.size();
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            this.channel.write(buffer, position + buffer.position());
+        }
+        return new ArchivedLabelHistory(position, record.length);
+    }
+
+    /**
+     * Reads a record back from the archive segment
+     * @param position the offset of the record in the file
+     * @param length the length of the record in bytes
+     * @return the label histories held by the record
+     * @throws IOException throws IOException if the record could not be read or is corrupt
+     */
+    private LabelHistory read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (this.channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException(this.file.getPath());
+            }
+        }
+
+        try {
+            return LabelHistory.fromJsonObject(new JSONObject(new String(buffer.array(), StandardCharsets.UTF_8)));
+        } catch (JSONException | CorruptFileException e) {
+            throw new IOException("Corrupt archive record at " + position + " in " + this.file.getPath(), e);
+        }
+    }
+
+    /**
+     * Closes the archive segment, label histories archived in it can no longer be read
+     * @throws IOException throws IOException if the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Represents the position of a single Order's record in the archive segment
+     */
+    private class ArchivedLabelHistory implements LabelHistorySource {
+        private final long position;
+        private final int length;
+
+        ArchivedLabelHistory(long position, int length) {
+            this.position = position;
+            this.length = length;
+        }
+
+        @Override
+        public LabelHistory load() {
+            try {
+                return read(this.position, this.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
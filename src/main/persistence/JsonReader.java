@@ -1,17 +1,34 @@
 package persistence;
 
+import model.Customer;
+import model.Order;
+import model.Warehouse;
+import model.exceptions.CorruptFileException;
+import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.stream.Stream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
 
 /**
- * Represents a reader that reads text from a file and returns a JSON Object from it
+ * Represents a reader that reads text from a file and returns a JSON Object or a Warehouse from it. Files compressed
+ * by JsonWriter are detected by their gzip magic bytes and decompressed as they are read
  */
 public class JsonReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
 
     /**
      * Retrieves JSON object representation of file data
@@ -20,21 +37,273 @@ public class JsonReader {
      * @throws IOException throws IOException if the file lines are not readable
      */
     public JSONObject getJsonRepresentation(File source) throws IOException {
-        String stringRepresentation = retrieveFileDataInStringRepresentation(source);
-        return new JSONObject(stringRepresentation);
+        try (Reader reader = openReader(source)) {
+            return new JSONObject(new JSONTokener(reader));
+        }
     }
 
     /**
-     * Retrieves the string representation of the source file
-     * @param source the file that is converted into a string
-     * @return string representation of file
-     * @throws IOException throws IOException if the file lines are not readable
+     * Reads a warehouse directly from the source file. The file is parsed as a stream of tokens, and only one order
+     * is held as a JSON object at a time, so memory use is bounded by the largest order rather than the file size
+     * @param source the file that contains the JSON representation of a warehouse
+     * @return the warehouse read from the source file
+     * @throws IOException throws IOException if the file is not readable
+     * @throws CorruptFileException throws CorruptFileException if the file does not represent a valid warehouse
+     */
+    public Warehouse readWarehouse(File source) throws IOException, CorruptFileException {
+        return readWarehouse(source, new JSONObject());
+    }
+
+    /**
+     * Reads a warehouse directly from the source file, see readWarehouse(File)
+     * @param source the file that contains the JSON representation of a warehouse
+     * @param header receives every top-level value of the file other than the customer set
+     * @return the warehouse read from the source file
+     * @throws IOException throws IOException if the file is not readable
+     * @throws CorruptFileException throws CorruptFileException if the file does not represent a valid warehouse
+     */
+    Warehouse readWarehouse(File source, JSONObject header) throws IOException, CorruptFileException {
+        return readWarehouse(source, header, new Warehouse());
+    }
+
+    /**
+     * Reads a warehouse directly from the source file into a given warehouse, see readWarehouse(File)
+     * @param source the file that contains the JSON representation of a warehouse
+     * @param header receives every top-level value of the file other than the customer set
+     * @param warehouse the empty warehouse to add the customers to as they are read
+     * @return the given warehouse
+     * @throws IOException throws IOException if the file is not readable
+     * @throws CorruptFileException throws CorruptFileException if the file does not represent a valid warehouse
+     */
+    Warehouse readWarehouse(File source, JSONObject header, Warehouse warehouse)
+            throws IOException, CorruptFileException {
+        try (Reader reader = openReader(source)) {
+            JSONTokener tokener = new JSONTokener(reader);
+            boolean[] hasCustomerSet = new boolean[1];
+            readObject(tokener, key -> {
+                if (key.equals("customerSet")) {
+                    readArray(tokener, () -> warehouse.addLoadedCustomer(readCustomer(tokener)));
+                    hasCustomerSet[0] = true;
+                } else {
+                    header.put(key, tokener.nextValue());
+                }
+            });
+            if (!hasCustomerSet[0]) {
+                throw new CorruptFileException();
+            }
+        } catch (JSONException e) {
+            throw readFailure(e);
+        } catch (ZipException | EOFException e) {
+            // the gzip header of a compressed file is read when it is opened
+            throw new CorruptFileException();
+        }
+        return warehouse;
+    }
+
+    /**
+     * Reads a single customer and its orders from a file written by JsonWriter.saveCustomer
+     * @param source the file that contains the JSON representation of a customer
+     * @return the customer read from the source file
+     * @throws IOException throws IOException if the file is not readable
+     * @throws CorruptFileException throws CorruptFileException if the file does not represent a valid customer
      */
-    private String retrieveFileDataInStringRepresentation(File source) throws IOException {
-        StringBuilder stringBuilder = new StringBuilder();
-        try (Stream<String> stream = Files.lines(Paths.get(source.getAbsolutePath()), StandardCharsets.UTF_8)) {
-            stream.forEach(stringBuilder::append);
+    Customer readCustomer(File source) throws IOException, CorruptFileException {
+        try (Reader reader = openReader(source)) {
+            return readCustomer(new JSONTokener(reader));
+        } catch (JSONException e) {
+            throw readFailure(e);
+        } catch (ZipException | EOFException e) {
+            // the gzip header of a compressed file is read when it is opened
+            throw new CorruptFileException();
         }
-        return stringBuilder.toString();
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads a single customer and its orders from the reader, such as a record of BTreeWarehouseStore
+     * @param reader the reader of the JSON representation of a customer
+     * @return the customer read
+     * @throws CorruptFileException throws CorruptFileException if the content does not represent a valid customer
+     */
+    Customer readCustomer(Reader reader) throws CorruptFileException {
+        try {
+            return readCustomer(new JSONTokener(reader));
+        } catch (JSONException e) {
+            throw new CorruptFileException();
+        }
+    }
+
+    /**
+     * Reads a customer and its orders from the tokener
+     * @param tokener the tokener positioned at the start of a customer object
+     * @return the customer read
+     * @throws CorruptFileException throws CorruptFileException if the customer or one of its orders is not valid
+     */
+    private Customer readCustomer(JSONTokener tokener) throws CorruptFileException {
+        // the name may follow the orders in the file, so orders are collected before the customer is created
+        String[] name = new String[1];
+        List<Order> activeOrders = new ArrayList<>();
+        List<Order> completeOrders = new ArrayList<>();
+        readObject(tokener, key -> {
+            if (key.equals("name")) {
+                name[0] = readString(tokener);
+            } else if (key.equals("activeOrders")) {
+                readArray(tokener, () -> activeOrders.add(Order.fromJsonObject(readJsonObject(tokener))));
+            } else if (key.equals("completeOrders")) {
+                readArray(tokener, () -> completeOrders.add(Order.fromJsonObject(readJsonObject(tokener))));
+            } else {
+                tokener.nextValue();
+            }
+        });
+
+        if (name[0] == null) {
+            throw new CorruptFileException();
+        }
+        Customer customer = new Customer(name[0]);
+        activeOrders.forEach(o -> customer.addOrder(true, o));
+        completeOrders.forEach(o -> customer.addOrder(false, o));
+        return customer;
+    }
+
+    /**
+     * Reads a JSON object from the tokener, calling fieldReader once for each key with the tokener positioned at
+     * the start of its value
+     * @param tokener the tokener positioned at the start of an object
+     * @param fieldReader reads the value of each key
+     * @throws CorruptFileException throws CorruptFileException if fieldReader finds a value that is not valid
+     */
+    private void readObject(JSONTokener tokener, FieldReader fieldReader) throws CorruptFileException {
+        expect(tokener, '{');
+        if (tokener.nextClean() == '}') {
+            return;
+        }
+        tokener.back();
+
+        char separator;
+        do {
+            String key = readString(tokener);
+            expect(tokener, ':');
+            fieldReader.read(key);
+            separator = tokener.nextClean();
+        } while (separator == ',');
+
+        if (separator != '}') {
+            throw tokener.syntaxError("Expected ',' or '}'");
+        }
+    }
+
+    /**
+     * Reads a JSON array from the tokener, calling elementReader once for each element with the tokener positioned
+     * at its start
+     * @param tokener the tokener positioned at the start of an array
+     * @param elementReader reads each element
+     * @throws CorruptFileException throws CorruptFileException if elementReader finds an element that is not valid
+     */
+    private void readArray(JSONTokener tokener, ElementReader elementReader) throws CorruptFileException {
+        expect(tokener, '[');
+        if (tokener.nextClean() == ']') {
+            return;
+        }
+        tokener.back();
+
+        char separator;
+        do {
+            elementReader.read();
+            separator = tokener.nextClean();
+        } while (separator == ',');
+
+        if (separator != ']') {
+            throw tokener.syntaxError("Expected ',' or ']'");
+        }
+    }
+
+    /**
+     * Reads a single JSON object value from the tokener
+     * @param tokener the tokener positioned at the start of an object
+     * @return the object read
+     * @throws CorruptFileException throws CorruptFileException if the value is not an object
+     */
+    private JSONObject readJsonObject(JSONTokener tokener) throws CorruptFileException {
+        Object value = tokener.nextValue();
+        if (!(value instanceof JSONObject)) {
+            throw new CorruptFileException();
+        }
+        return (JSONObject) value;
+    }
+
+    /**
+     * Reads a single string value from the tokener
+     * @param tokener the tokener positioned at the start of a string
+     * @return the string read
+     * @throws CorruptFileException throws CorruptFileException if the value is not a string
+     */
+    private String readString(JSONTokener tokener) throws CorruptFileException {
+        Object value = tokener.nextValue();
+        if (!(value instanceof String)) {
+            throw new CorruptFileException();
+        }
+        return (String) value;
+    }
+
+    /**
+     * Opens a buffered UTF-8 reader of the source file, decompressing it if it starts with the gzip magic bytes
+     * @param source the file to read
+     * @return the reader
+     * @throws IOException throws IOException if the file is not readable or its gzip header is not valid
+     */
+    private Reader openReader(File source) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(source.toPath()), BUFFER_SIZE);
+        try {
+            in.mark(JsonWriter.GZIP_MAGIC.length);
+            boolean isCompressed = in.read() == (JsonWriter.GZIP_MAGIC[0] & 0xFF)
+                    && in.read() == (JsonWriter.GZIP_MAGIC[1] & 0xFF);
+            in.reset();
+            InputStream content = isCompressed ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+            return new BufferedReader(new InputStreamReader(content, StandardCharsets.UTF_8.newDecoder()));
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Converts a failure of the tokener into the exception readWarehouse reports for it
+     * @param e the failure, JSONTokener wraps read failures of the underlying reader
+     * @return the CorruptFileException to throw if the content is not valid
+     * @throws IOException throws the read failure if the file could not be read
+     */
+    private CorruptFileException readFailure(JSONException e) throws IOException {
+        // a damaged or truncated compressed file fails while it is being decompressed
+        if (e.getCause() instanceof ZipException || e.getCause() instanceof EOFException) {
+            return new CorruptFileException();
+        }
+        if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+        }
+        return new CorruptFileException();
+    }
+
+    /**
+     * Consumes the next non-whitespace character from the tokener
+     * @param tokener the tokener to read from
+     * @param expected the character that must come next
+     */
+    private void expect(JSONTokener tokener, char expected) {
+        if (tokener.nextClean() != expected) {
+            throw tokener.syntaxError("Expected '" + expected + "'");
+        }
+    }
+
+    /**
+     * Reads the value of a single key of a JSON object
+     */
+    private interface FieldReader {
+        void read(String key) throws CorruptFileException;
+    }
+
+    /**
+     * Reads a single element of a JSON array
+     */
+    private interface ElementReader {
+        void read() throws CorruptFileException;
+    }
+}
@@ -1,25 +1,233 @@
 package persistence;
 
+import model.Customer;
+import model.Order;
+import model.Warehouse;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 /**
- * Represents a writer that writes JSON to a chosen destination file
+ * Represents a writer that writes JSON to a chosen destination file. Every save is written to a temporary file
+ * beside the destination, forced to disk and then renamed over the destination, so a failed save never leaves the
+ * destination partly written. A writer created with a compression level gzip-compresses the JSON as it is written,
+ * so the uncompressed document is never held in memory; JsonReader detects and decompresses such files
  */
 public class JsonWriter {
+    static final byte[] GZIP_MAGIC = {(byte) 0x1f, (byte) 0x8b};
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int UNCOMPRESSED = Integer.MIN_VALUE;
+
+    private final int compressionLevel;
+
+    /**
+     * Creates a writer that writes plain JSON
+     */
+    public JsonWriter() {
+        this.compressionLevel = UNCOMPRESSED;
+    }
+
+    /**
+     * Creates a writer that writes gzip-compressed JSON
+     * @param compressionLevel the deflate compression level, from Deflater.BEST_SPEED to Deflater.BEST_COMPRESSION,
+     *                         or Deflater.DEFAULT_COMPRESSION
+     * @throws IllegalArgumentException throws IllegalArgumentException if the compression level is not valid
+     */
+    public JsonWriter(int compressionLevel) {
+        if (compressionLevel != Deflater.DEFAULT_COMPRESSION
+                && (compressionLevel < Deflater.BEST_SPEED || compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+    }
 
     /**
      * Writes/saves JSON to a chosen destination
      * @param destination the location to write to
      * @param source the JSON data to save
-     * @throws FileNotFoundException throws FileNotFoundException if indicated file does not exist
+     * @throws IOException throws IOException if the destination could not be written
      */
-    public void saveToFile(File destination, JSONObject source) throws FileNotFoundException {
-        PrintWriter printWriter = new PrintWriter(destination);
-        printWriter.print(source);
-        printWriter.close();
+    public void saveToFile(File destination, JSONObject source) throws IOException {
+        writeAtomically(destination, source::write);
+    }
+
+    /**
+     * Writes/saves the warehouse to a chosen destination in the same format as saveToFile, streaming one order at a
+     * time instead of first building the JSON object representation of the whole warehouse
+     * @param destination the location to write to
+     * @param warehouse the warehouse to save
+     * @throws IOException throws IOException if the destination could not be written
+     */
+    public void saveWarehouse(File destination, Warehouse warehouse) throws IOException {
+        saveCustomers(destination, warehouse.getCustomerSet(), new JSONObject());
+    }
+
+    /**
+     * Writes/saves the customers of a warehouse to a chosen destination, see saveWarehouse(File, Warehouse)
+     * @param destination the location to write to
+     * @param customers the customers of the warehouse to save
+     * @param header values written at the top level of the file ahead of the customer set
+     * @throws IOException throws IOException if the destination could not be written
+     */
+    void saveCustomers(File destination, Collection<Customer> customers, JSONObject header) throws IOException {
+        writeAtomically(destination, writer -> writeWarehouse(writer, customers, header));
+    }
+
+    /**
+     * Writes/saves a single customer and its orders to a chosen destination, as the same JSON object it has in a
+     * saved warehouse
+     * @param destination the location to write to
+     * @param customer the customer to save
+     * @return the CRC32 checksum of the bytes of the file written
+     * @throws IOException throws IOException if the destination could not be written
+     */
+    long saveCustomer(File destination, Customer customer) throws IOException {
+        CRC32 checksum = new CRC32();
+        writeAtomically(destination, checksum, writer -> writeCustomer(writer, customer));
+        return checksum.getValue();
+    }
+
+    /**
+     * Writes the JSON representation of the warehouse
+     * @param writer the writer to write to
+     * @param customers the customers of the warehouse to write
+     * @param header values written ahead of the customer set
+     * @throws IOException throws IOException if the writer fails
+     */
+    private void writeWarehouse(Writer writer, Collection<Customer> customers, JSONObject header) throws IOException {
+        writer.write('{');
+        for (String key : header.keySet()) {
+            writer.write(JSONObject.quote(key));
+            writer.write(':');
+            writer.write(JSONObject.valueToString(header.get(key)));
+            writer.write(',');
+        }
+        writer.write("\"customerSet\":[");
+        boolean first = true;
+        for (Customer c : customers) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+
+            writeCustomer(writer, c);
+        }
+        writer.write("]}");
+    }
+
+    /**
+     * Writes the JSON representation of the customer
+     * @param writer the writer to write to
+     * @param customer the customer to write
+     * @throws IOException throws IOException if the writer fails
+     */
+    private void writeCustomer(Writer writer, Customer customer) throws IOException {
+        writer.write("{\"name\":");
+        writer.write(JSONObject.quote(customer.getName()));
+        writer.write(",\"activeOrders\":");
+        writeOrders(writer, customer.getActiveOrders().values());
+        writer.write(",\"completeOrders\":");
+        writeOrders(writer, customer.getCompleteOrders());
+        writer.write('}');
+    }
+
+    /**
+     * Writes the orders as a JSON array, holding only one order's JSON object representation at a time
+     * @param writer the writer to write to
+     * @param orders the orders to write
+     * @throws IOException throws IOException if the writer fails
+     */
+    private void writeOrders(Writer writer, Collection<Order> orders) throws IOException {
+        writer.write('[');
+        boolean first = true;
+        for (Order o : orders) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            o.convertToJsonObject().write(writer);
+        }
+        writer.write(']');
+    }
+
+    /**
+     * Writes the file atomically with AtomicFile, compressing it if this writer has a compression level and
+     * converting JSON failures into IOExceptions
+     * @param destination the location to write to
+     * @param content writes the JSON content of the file
+     * @throws IOException throws IOException if the destination could not be written
+     */
+    private void writeAtomically(File destination, Content content) throws IOException {
+        writeAtomically(destination, new CRC32(), content);
+    }
+
+    /**
+     * Writes the file atomically, see writeAtomically(File, Content), updating the checksum with every byte written
+     * @param destination the location to write to
+     * @param checksum the checksum to update
+     * @param content writes the JSON content of the file
+     * @throws IOException throws IOException if the destination could not be written
+     */
+    private void writeAtomically(File destination, Checksum checksum, Content content) throws IOException {
+        try {
+            AtomicFile.write(destination, file -> {
+                OutputStream out = new CheckedOutputStream(file, checksum);
+                if (this.compressionLevel == UNCOMPRESSED) {
+                    Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                    content.write(writer);
+                    writer.flush();
+                } else {
+                    // the gzip stream is finished rather than closed, AtomicFile still forces the file
+                    LeveledGzipOutputStream gzip = new LeveledGzipOutputStream(out, this.compressionLevel);
+                    try {
+                        Writer writer = new OutputStreamWriter(gzip, StandardCharsets.UTF_8);
+                        content.write(writer);
+                        writer.flush();
+                        gzip.finish();
+                    } finally {
+                        gzip.release();
+                    }
+                }
+            });
+        } catch (JSONException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e);
+        }
+    }
+
+    /**
+     * Writes the content of a file
+     */
+    private interface Content {
+        void write(Writer writer) throws IOException;
+    }
+
+    /**
+     * Represents a gzip output stream that compresses at a chosen deflate level
+     */
+    private static class LeveledGzipOutputStream extends GZIPOutputStream {
+
+        LeveledGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, BUFFER_SIZE);
+            super.def.setLevel(level);
+        }
+
+        /**
+         * Frees the native memory of the deflater, which close() would otherwise free
+         */
+        void release() {
+            super.def.end();
+        }
     }
 }
@@ -0,0 +1,85 @@
+package persistence;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Represents what could not be recovered while loading a snapshot whose damaged parts were skipped instead of
+ * failing the whole load. A customer is lost when its segment is missing or damaged; a damaged segment is moved into
+ * the quarantine directory beside the other segments, so it can still be inspected or repaired by hand.
+ * Customers may be reported from several threads at once
+ */
+public class LoadReport {
+    static final String QUARANTINE_DIRECTORY = "quarantine";
+
+    private final Map<String, String> lostCustomers = new TreeMap<>(); // key = Customer Name :: value = Reason
+    private final List<File> quarantinedFiles = new ArrayList<>();
+
+    /**
+     * Records that a customer could not be loaded
+     * @param customerName the name of the customer
+     * @param reason why the customer could not be loaded
+     * @param quarantinedFile the location its segment was moved to, or null if it was not moved
+     */
+    synchronized void addLostCustomer(String customerName, String reason, File quarantinedFile) {
+        this.lostCustomers.put(customerName, reason);
+        if (quarantinedFile != null) {
+            this.quarantinedFiles.add(quarantinedFile);
+        }
+    }
+
+    /**
+     * Returns true if the customer could not be loaded
+     * @param customerName the name of the customer
+     * @return true if the customer is lost
+     */
+    public synchronized boolean isLost(String customerName) {
+        return this.lostCustomers.containsKey(customerName);
+    }
+
+    /**
+     * Returns true if nothing was lost
+     * @return true if every customer was loaded
+     */
+    public synchronized boolean isComplete() {
+        return this.lostCustomers.isEmpty();
+    }
+
+    /**
+     * Gets the customers that could not be loaded
+     * @return the reason each customer could not be loaded, by customer name in name order
+     */
+    public synchronized Map<String, String> getLostCustomers() {
+        return Collections.unmodifiableMap(new TreeMap<>(this.lostCustomers));
+    }
+
+    public synchronized List<File> getQuarantinedFiles() {
+        return Collections.unmodifiableList(new ArrayList<>(this.quarantinedFiles));
+    }
+
+    /**
+     * Describes what was lost in a single line that can be displayed to the user
+     * @return the description, empty if nothing was lost
+     */
+    public synchronized String getSummary() {
+        if (this.lostCustomers.isEmpty()) {
+            return "";
+        }
+        StringBuilder summary = new StringBuilder();
+        summary.append(this.lostCustomers.size()).append(" customer(s) could not be recovered: ");
+        String separator = "";
+        for (Map.Entry<String, String> lost : this.lostCustomers.entrySet()) {
+            summary.append(separator).append(lost.getKey()).append(" (").append(lost.getValue()).append(')');
+            separator = ", ";
+        }
+        if (!this.quarantinedFiles.isEmpty()) {
+            summary.append(". Damaged segments were moved to ")
+                    .append(this.quarantinedFiles.get(0).getParentFile().getPath());
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,626 @@
+package persistence;
+
+import model.Customer;
+import model.ExportLabel;
+import model.Label;
+import model.MonthlyChargeLabel;
+import model.Order;
+import model.Warehouse;
+import model.exceptions.CorruptFileException;
+import model.exceptions.InvalidImportDateException;
+import model.exceptions.InvalidMonthRangeException;
+import model.exceptions.QuantityNegativeException;
+import model.exceptions.QuantityZeroException;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Represents a read-only view of a binary snapshot that is memory-mapped instead of read. Opening the view only
+ * reads the header and trailer of the file; rows and invoice number lookups are decoded straight from the mapped
+ * region through the index section written by BinarySnapshotWriter, so only the pages that are actually viewed are
+ * read from disk. Full Orders are built only on request, for example before one is changed.
+ * <p>
+ * Customers and orders are referred to by their position in the snapshot. Orders are numbered customer by customer,
+ * each customer's active orders before its complete orders, in the same order as Warehouse.getOrders
+ */
+public class MappedSnapshot implements Closeable {
+    // FileChannel.map cannot map more than Integer.MAX_VALUE bytes at once, so larger files are mapped in regions
+    private static final int REGION_BITS = 30;
+    private static final long REGION_SIZE = 1L << REGION_BITS;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] regions;
+    private final long size;
+    private final JSONObject header;
+    private final int dictionaryCount;
+    private final int customerCount;
+    private final int orderCount;
+    private final long dictionaryTable;
+    private final long customerTable;
+    private final long orderTable;
+    private final long invoiceTable;
+    // display rows already decoded by order number, kept until the garbage collector needs the memory
+    private final Map<Integer, SoftReference<String[]>> rows = new ConcurrentHashMap<>();
+
+    /**
+     * Maps the source file and reads its header and trailer
+     * @param source the file that contains the binary snapshot of a warehouse
+     * @throws IOException throws IOException if the file is not readable or could not be mapped
+     * @throws CorruptFileException throws CorruptFileException if the file is not a valid binary snapshot with an
+     *                              index section
+     */
+    public MappedSnapshot(File source) throws IOException, CorruptFileException {
+        this.channel = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+        try {
+            this.size = this.channel.size();
+            this.regions = map(this.channel, this.size);
+            Cursor cursor = new Cursor(0);
+            this.header = readHeader(cursor);
+
+            long trailer = this.size - BinarySnapshotWriter.TRAILER_SIZE;
+            this.dictionaryCount = getInt(trailer);
+            this.customerCount = getInt(trailer + Integer.BYTES);
+            this.orderCount = getInt(trailer + 2 * Integer.BYTES);
+            this.dictionaryTable = getLong(trailer + 3 * Integer.BYTES);
+            this.customerTable = this.dictionaryTable + (long) this.dictionaryCount * Long.BYTES;
+            this.orderTable = this.customerTable
+                    + (long) this.customerCount * BinarySnapshotWriter.CUSTOMER_ENTRY_SIZE;
+            this.invoiceTable = this.orderTable + (long) this.orderCount * BinarySnapshotWriter.ORDER_ENTRY_SIZE;
+            checkTables(cursor.position, trailer);
+        } catch (IOException | CorruptFileException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks that the tables of the index section lie between the header and the trailer and fill the space between
+     * the last customer and the trailer
+     * @param headerEnd the position just after the header
+     * @param trailer the position of the trailer
+     * @throws CorruptFileException throws CorruptFileException if the tables do not fit
+     */
+    private void checkTables(long headerEnd, long trailer) throws CorruptFileException {
+        if (this.dictionaryCount < 0 || this.customerCount < 0 || this.orderCount < 0
+                || this.dictionaryTable < headerEnd
+                || this.invoiceTable + (long) this.orderCount * Integer.BYTES != trailer) {
+            throw new CorruptFileException();
+        }
+    }
+
+    /**
+     * Maps a whole file in regions of at most REGION_SIZE bytes
+     * @param channel the channel of the file
+     * @param size the size of the file
+     * @return the mapped regions
+     * @throws IOException throws IOException if the file could not be mapped
+     */
+    private static MappedByteBuffer[] map(FileChannel channel, long size) throws IOException {
+        MappedByteBuffer[] regions = new MappedByteBuffer[(int) ((size + REGION_SIZE - 1) >>> REGION_BITS)];
+        for (int i = 0; i < regions.length; i++) {
+            long start = (long) i << REGION_BITS;
+            regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_SIZE, size - start));
+        }
+        return regions;
+    }
+
+    /**
+     * Gets the header values of the snapshot
+     * @return a copy of the header
+     */
+    public JSONObject getHeader() {
+        return new JSONObject(this.header.toString());
+    }
+
+    public int getCustomerCount() {
+        return this.customerCount;
+    }
+
+    public int getOrderCount() {
+        return this.orderCount;
+    }
+
+    /**
+     * Gets the name of a customer
+     * @param customer the position of the customer
+     * @return the name of the customer
+     * @throws CorruptFileException throws CorruptFileException if the snapshot is not valid
+     */
+    public String getCustomerName(int customer) throws CorruptFileException {
+        checkIndex(customer, this.customerCount);
+        return lookUp(getInt(customerEntry(customer)));
+    }
+
+    /**
+     * Checks whether an order is an active order
+     * @param order the number of the order
+     * @return true if the order is an active order, false if it is a complete order
+     * @throws CorruptFileException throws CorruptFileException if the snapshot is not valid
+     */
+    public boolean isActiveOrder(int order) throws CorruptFileException {
+        checkIndex(order, this.orderCount);
+        long customer = customerEntry(getInt(orderEntry(order) + Long.BYTES));
+        return order < getInt(customer + Integer.BYTES) + getInt(customer + 2 * Integer.BYTES);
+    }
+
+    /**
+     * Gets the display row of an order in the format of Order.getRow. A row is decoded the first time it is read and
+     * reused until the garbage collector needs the memory, so callers must not modify the returned array
+     * @param order the number of the order
+     * @return the display row of the order
+     * @throws CorruptFileException throws CorruptFileException if the snapshot is not valid
+     */
+    public String[] getRow(int order) throws CorruptFileException {
+        checkIndex(order, this.orderCount);
+        SoftReference<String[]> cached = this.rows.get(order);
+        String[] row = cached == null ? null : cached.get();
+        if (row == null) {
+            OrderRecord record = readRecord(order);
+            decodeLabels(record);
+            row = new String[]{getCustomerName(getInt(orderEntry(order) + Long.BYTES)), record.invoiceNumber,
+                    Integer.toString(record.currentQuantity), record.content,
+                    record.importDate.format(Label.DATE_FORMAT), record.storageLocation,
+                    joinLabels(record.exports), joinLabels(record.monthlyChargeLabels)};
+            this.rows.put(order, new SoftReference<>(row));
+        }
+        return row;
+    }
+
+    /**
+     * Gets the numbers of every active order or every complete order, in the order of Warehouse.getOrders. Only the
+     * customer table of the index section is read, so no order is decoded
+     * @param isActiveOrder true for active orders, false for complete orders
+     * @return the order numbers
+     * @throws CorruptFileException throws CorruptFileException if the snapshot is not valid
+     */
+    public int[] getOrderNumbers(boolean isActiveOrder) throws CorruptFileException {
+        int[] orders = new int[this.orderCount];
+        int count = 0;
+        for (int c = 0; c < this.customerCount; c++) {
+            long customer = customerEntry(c);
+            int firstOrder = getInt(customer + Integer.BYTES);
+            int activeCount = getInt(customer + 2 * Integer.BYTES);
+            int start = isActiveOrder ? firstOrder : firstOrder + activeCount;
+            int end = isActiveOrder ? start + activeCount : start + getInt(customer + 3 * Integer.BYTES);
+            if (start < 0 || end < start || end > this.orderCount || end - start > this.orderCount - count) {
+                throw new CorruptFileException();
+            }
+            for (int order = start; order < end; order++) {
+                orders[count++] = order;
+            }
+        }
+        return Arrays.copyOf(orders, count);
+    }
+
+    /**
+     * Gets the display rows of every active order or every complete order, see Warehouse.getOrders. Every row is
+     * decoded, so views of large snapshots read rows one at a time through getOrderNumbers and getRow instead
+     * @param isActiveOrder true for active orders, false for complete orders
+     * @return the display rows
+     * @throws CorruptFileException throws CorruptFileException if the snapshot is not valid
+     */
+    public String[][] getOrders(boolean isActiveOrder) throws CorruptFileException {
+        int[] orders = getOrderNumbers(isActiveOrder);
+        String[][] result = new String[orders.length][];
+        for (int i = 0; i < orders.length; i++) {
+            result[i] = getRow(orders[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the order with the given invoice number by binary search of the index section
+     * @param invoiceNumber the invoice number of the order
+     * @return the number of the order, or -1 if there is no such order
+     * @throws CorruptFileException throws CorruptFileException if the snapshot is not valid
+     */
+    public int findOrder(String invoiceNumber) throws CorruptFileException {
+        int low = 0;
+        int high = this.orderCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int order = getInt(this.invoiceTable + (long) middle * Integer.BYTES);
+            checkIndex(order, this.orderCount);
+            int comparison = readInvoiceNumber(order).compareTo(invoiceNumber);
+            if (comparison == 0) {
+                return order;
+            } else if (comparison < 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds the full Order of an order number. Its labels are copied in their encoded form and only decoded when
+     * they are read, see EncodedLabelHistory
+     * @param order the number of the order
+     * @return a new Order equal to the one that was saved
+     * @throws CorruptFileException throws CorruptFileException if the snapshot is not valid
+     */
+    public Order readOrder(int order) throws CorruptFileException {
+        checkIndex(order, this.orderCount);
+        OrderRecord record = readRecord(order);
+        try {
+            Order result = new Order(record.content, record.importDate, record.invoiceNumber,
+                    record.originalQuantity, record.storageLocation);
+            result.setCurrentQuantity(record.currentQuantity);
+            EncodedLabelHistory labels = new EncodedLabelHistory(copyLabels(record.labels));
+            result.deferLabels(labels, labels.readExportDays());
+            return result;
+        } catch (QuantityNegativeException | QuantityZeroException | InvalidImportDateException e) {
+            throw new CorruptFileException();
+        }
+    }
+
+    /**
+     * Builds the full Customer at a position, with all of its orders
+     * @param customer the position of the customer
+     * @return a new Customer equal to the one that was saved
+     * @throws CorruptFileException throws CorruptFileException if the snapshot is not valid
+     */
+    public Customer readCustomer(int customer) throws CorruptFileException {
+        checkIndex(customer, this.customerCount);
+        long entry = customerEntry(customer);
+        int firstOrder = getInt(entry + Integer.BYTES);
+        int activeCount = getInt(entry + 2 * Integer.BYTES);
+        int completeCount = getInt(entry + 3 * Integer.BYTES);
+        Customer result = new Customer(lookUp(getInt(entry)));
+        for (int i = 0; i < activeCount + completeCount; i++) {
+            result.addOrder(i < activeCount, readOrder(firstOrder + i));
+        }
+        return result;
+    }
+
+    /**
+     * Builds the full Warehouse of the snapshot. Customers are built in parallel, since each one is decoded from its
+     * own part of the mapped region
+     * @return a new Warehouse equal to the one that was saved
+     * @throws CorruptFileException throws CorruptFileException if the snapshot is not valid
+     */
+    public Warehouse readWarehouse() throws CorruptFileException {
+        return readWarehouse(new Warehouse());
+    }
+
+    /**
+     * Builds the full Warehouse of the snapshot into a given warehouse, see readWarehouse()
+     * @param warehouse the empty warehouse to add the customers to, which is left empty if the snapshot is not valid
+     * @return the given warehouse
+     * @throws CorruptFileException throws CorruptFileException if the snapshot is not valid
+     */
+    public Warehouse readWarehouse(Warehouse warehouse) throws CorruptFileException {
+        List<Integer> customers = new ArrayList<>();
+        for (int i = 0; i < this.customerCount; i++) {
+            customers.add(i);
+        }
+        try {
+            warehouse.addLoadedCustomers(customers, this::readCustomer);
+        } catch (IOException e) {
+            // reading the mapped region does not throw IOException, so this never happens
+            throw new CorruptFileException();
+        }
+        return warehouse;
+    }
+
+    /**
+     * Closes the file. The mapped regions are released once they are no longer reachable
+     * @throws IOException throws IOException if the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Reads the magic bytes, version and header at the start of the file
+     * @param cursor the cursor positioned at the start of the file, left positioned after the header
+     * @return the header
+     * @throws CorruptFileException throws CorruptFileException if the file is not a binary snapshot with an index
+     */
+    private JSONObject readHeader(Cursor cursor) throws CorruptFileException {
+        if (this.size < BinarySnapshotWriter.MAGIC.length + BinarySnapshotWriter.TRAILER_SIZE) {
+            throw new CorruptFileException();
+        }
+        for (byte b : BinarySnapshotWriter.MAGIC) {
+            if (cursor.readByte() != b) {
+                throw new CorruptFileException();
+            }
+        }
+        // version 1 snapshots have no index section and can only be read by BinarySnapshotReader
+        if (cursor.readVarint() != BinarySnapshotWriter.VERSION) {
+            throw new CorruptFileException();
+        }
+        try {
+            return new JSONObject(cursor.readString());
+        } catch (JSONException e) {
+            throw new CorruptFileException();
+        }
+    }
+
+    /**
+     * Decodes the record of an order, except for its labels
+     * @param order the number of the order
+     * @return the decoded record
+     * @throws CorruptFileException throws CorruptFileException if the record is not valid
+     */
+    private OrderRecord readRecord(int order) throws CorruptFileException {
+        Cursor cursor = new Cursor(getLong(orderEntry(order)));
+        OrderRecord record = new OrderRecord();
+        try {
+            record.content = lookUp(cursor.readVarint());
+            record.invoiceNumber = cursor.readString();
+            record.importDate = cursor.readDate();
+            record.originalQuantity = cursor.readCount();
+            record.currentQuantity = cursor.readCount();
+            record.storageLocation = lookUp(cursor.readVarint());
+            record.labels = cursor.position;
+        } catch (DateTimeException e) {
+            throw new CorruptFileException();
+        }
+        return record;
+    }
+
+    /**
+     * Decodes the labels of an order record
+     * @param record the record, receives the labels
+     * @throws CorruptFileException throws CorruptFileException if the labels are not valid
+     */
+    private void decodeLabels(OrderRecord record) throws CorruptFileException {
+        try {
+            readLabels(new Cursor(record.labels), record);
+        } catch (InvalidMonthRangeException | DateTimeException e) {
+            throw new CorruptFileException();
+        }
+    }
+
+    /**
+     * Decodes the export labels and monthly charge labels that end an order record
+     * @param cursor the cursor positioned at the export label count of the record
+     * @param record receives the labels
+     * @throws CorruptFileException throws CorruptFileException if the labels are not valid
+     * @throws InvalidMonthRangeException throws InvalidMonthRangeException if a monthly charge label is not valid
+     */
+    private void readLabels(Cursor cursor, OrderRecord record) throws CorruptFileException, InvalidMonthRangeException {
+        int exportCount = cursor.readCount();
+        for (int i = 0; i < exportCount; i++) {
+            record.exports.add(new ExportLabel(cursor.readCount(), cursor.readString(), cursor.readDate()));
+        }
+        int monthlyChargeCount = cursor.readCount();
+        for (int i = 0; i < monthlyChargeCount; i++) {
+            record.monthlyChargeLabels.add(new MonthlyChargeLabel(cursor.readCount(), cursor.readString(),
+                    cursor.readDate(), cursor.readDate()));
+        }
+    }
+
+    /**
+     * Copies the encoded export labels and monthly charge labels that end an order record without decoding them
+     * @param position the position of the export label count of the record
+     * @return the encoded labels
+     * @throws CorruptFileException throws CorruptFileException if the labels do not lie inside the file
+     */
+    private byte[] copyLabels(long position) throws CorruptFileException {
+        Cursor cursor = new Cursor(position);
+        int exportCount = cursor.readCount();
+        for (int i = 0; i < exportCount; i++) {
+            cursor.readVarint();
+            cursor.skipString();
+            cursor.readVarint();
+        }
+        int monthlyChargeCount = cursor.readCount();
+        for (int i = 0; i < monthlyChargeCount; i++) {
+            cursor.readVarint();
+            cursor.skipString();
+            cursor.readVarint();
+            cursor.readVarint();
+        }
+        if (cursor.position - position > Integer.MAX_VALUE) {
+            throw new CorruptFileException();
+        }
+        return new Cursor(position).readBytes((int) (cursor.position - position));
+    }
+
+    /**
+     * Decodes only the invoice number of an order, which follows the content index at the start of its record
+     * @param order the number of the order
+     * @return the invoice number
+     * @throws CorruptFileException throws CorruptFileException if the record is not valid
+     */
+    private String readInvoiceNumber(int order) throws CorruptFileException {
+        Cursor cursor = new Cursor(getLong(orderEntry(order)));
+        cursor.readVarint();
+        return cursor.readString();
+    }
+
+    /**
+     * Looks up a string in the dictionary of the snapshot
+     * @param index the index of the string
+     * @return the string
+     * @throws CorruptFileException throws CorruptFileException if the index is not in the dictionary
+     */
+    private String lookUp(long index) throws CorruptFileException {
+        if (index < 0 || index >= this.dictionaryCount) {
+            throw new CorruptFileException();
+        }
+        return new Cursor(getLong(this.dictionaryTable + index * Long.BYTES)).readString();
+    }
+
+    private long customerEntry(int customer) {
+        return this.customerTable + (long) customer * BinarySnapshotWriter.CUSTOMER_ENTRY_SIZE;
+    }
+
+    private long orderEntry(int order) {
+        return this.orderTable + (long) order * BinarySnapshotWriter.ORDER_ENTRY_SIZE;
+    }
+
+    /**
+     * Checks that a position refers to one of count customers or orders
+     * @param index the position
+     * @param count the number of customers or orders
+     * @throws CorruptFileException throws CorruptFileException if the position is out of range
+     */
+    private static void checkIndex(int index, int count) throws CorruptFileException {
+        if (index < 0 || index >= count) {
+            throw new CorruptFileException();
+        }
+    }
+
+    /**
+     * Gets the byte at a position of the file
+     * @param position the position
+     * @return the byte
+     * @throws CorruptFileException throws CorruptFileException if the position is outside the file
+     */
+    private byte getByte(long position) throws CorruptFileException {
+        if (position < 0 || position >= this.size) {
+            throw new CorruptFileException();
+        }
+        return this.regions[(int) (position >>> REGION_BITS)].get((int) (position & (REGION_SIZE - 1)));
+    }
+
+    /**
+     * Gets the big-endian int at a position of the file, which may span two mapped regions
+     * @param position the position
+     * @return the int
+     * @throws CorruptFileException throws CorruptFileException if the int is not inside the file
+     */
+    private int getInt(long position) throws CorruptFileException {
+        int value = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            value = (value << 8) | (getByte(position + i) & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Gets the big-endian long at a position of the file, which may span two mapped regions
+     * @param position the position
+     * @return the long
+     * @throws CorruptFileException throws CorruptFileException if the long is not inside the file
+     */
+    private long getLong(long position) throws CorruptFileException {
+        return ((long) getInt(position) << Integer.SIZE) | (getInt(position + Integer.BYTES) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Joins the string representations of labels, see Order.getExportsString
+     * @param labels the labels
+     * @return the joined string representations
+     */
+    private static String joinLabels(List<Label> labels) {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (Label l : labels) {
+            stringBuilder.append(l.toString());
+        }
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Represents the decoded fields of an order record; its labels are only decoded on request
+     */
+    private static class OrderRecord {
+        private final List<Label> exports = new ArrayList<>();
+        private final List<Label> monthlyChargeLabels = new ArrayList<>();
+        private long labels;            // position of the export label count of the record
+        private String content;
+        private String invoiceNumber;
+        private LocalDate importDate;
+        private int originalQuantity;
+        private int currentQuantity;
+        private String storageLocation;
+    }
+
+    /**
+     * Represents a read position in the mapped file that decodes the values written by BinarySnapshotWriter, see
+     * BinarySnapshotReader for the stream equivalents
+     */
+    private class Cursor {
+        private long position;
+
+        Cursor(long position) {
+            this.position = position;
+        }
+
+        byte readByte() throws CorruptFileException {
+            return getByte(this.position++);
+        }
+
+        long readVarint() throws CorruptFileException {
+            long value = 0;
+            for (int shift = 0; shift < Long.SIZE; shift += 7) {
+                int b = readByte() & 0xFF;
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new CorruptFileException();
+        }
+
+        int readCount() throws CorruptFileException {
+            long value = readVarint();
+            if (value > Integer.MAX_VALUE) {
+                throw new CorruptFileException();
+            }
+            return (int) value;
+        }
+
+        String readString() throws CorruptFileException {
+            return new String(readBytes(readCount()), StandardCharsets.UTF_8);
+        }
+
+        void skipString() throws CorruptFileException {
+            int length = readCount();
+            if (this.position + length > size) {
+                throw new CorruptFileException();
+            }
+            this.position += length;
+        }
+
+        byte[] readBytes(int length) throws CorruptFileException {
+            if (this.position + length > size) {
+                throw new CorruptFileException();
+            }
+            byte[] bytes = new byte[length];
+            if (length == 0) {
+                return bytes;
+            }
+            MappedByteBuffer region = regions[(int) (this.position >>> REGION_BITS)];
+            int offset = (int) (this.position & (REGION_SIZE - 1));
+            if (offset + length <= region.limit()) {
+                ByteBuffer view = region.duplicate();
+                view.position(offset);
+                view.get(bytes);
+                this.position += length;
+            } else {
+                for (int i = 0; i < length; i++) {
+                    bytes[i] = readByte();
+                }
+            }
+            return bytes;
+        }
+
+        LocalDate readDate() throws CorruptFileException {
+            long zigZag = readVarint();
+            return LocalDate.ofEpochDay((zigZag >>> 1) ^ -(zigZag & 1));
+        }
+    }
+}
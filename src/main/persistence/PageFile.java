@@ -0,0 +1,266 @@
+package persistence;
+
+import model.exceptions.CorruptFileException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Represents a file divided into fixed-size pages, read and written through a bounded cache of the most recently used
+ * pages. Page 0 is the header page; it holds the page count, the head of the list of freed pages and a few values
+ * kept for the users of the file, such as the root pages of B-trees. Changed pages are written back when they are
+ * evicted from the cache and on flush, so the file is only consistent on disk after flush or close
+ */
+class PageFile implements Closeable {
+    static final int PAGE_SIZE = 4096;
+    static final int VALUE_SLOTS = 8;
+    static final byte FREE_PAGE = 0x7F;
+
+    private static final byte[] MAGIC = {'W', 'H', 'B', 'T'};
+    private static final int VERSION = 1;
+    private static final int MIN_CACHE_PAGES = 8;
+
+    private final FileChannel channel;
+    private final Map<Integer, Page> cache;
+    private final int[] values = new int[VALUE_SLOTS];
+    private int pageCount;
+    private int freePage;                       // first page of the list of freed pages, 0 if there are none
+
+    /**
+     * Opens the file, creating it with an empty header page if it is empty or does not exist
+     * @param file the file to open
+     * @param cachePages the number of pages the cache holds
+     * @throws IOException throws IOException if the file could not be opened or read
+     * @throws CorruptFileException throws CorruptFileException if the file is not a page file of this version
+     */
+    PageFile(File file, int cachePages) throws IOException, CorruptFileException {
+        int capacity = Math.max(cachePages, MIN_CACHE_PAGES);
+        this.cache = new LinkedHashMap<Integer, Page>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+                return size() > capacity && evict(eldest);
+            }
+        };
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (this.channel.size() == 0) {
+                this.pageCount = 1;
+                writeHeader();
+            } else {
+                readHeader();
+            }
+        } catch (IOException | CorruptFileException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the contents of the page; the buffer must not be changed, write the page instead
+     * @param page the number of the page
+     * @return a read-only buffer positioned at the start of the page
+     * @throws IOException throws IOException if the page could not be read
+     */
+    ByteBuffer read(int page) throws IOException {
+        Page cached = this.cache.get(page);
+        if (cached == null) {
+            if (page <= 0 || page >= this.pageCount) {
+                throw new IOException("Page " + page + " is outside the file");
+            }
+            ByteBuffer data = ByteBuffer.allocate(PAGE_SIZE);
+            readFully(data, (long) page * PAGE_SIZE);
+            cached = new Page(page, data);
+            this.cache.put(page, cached);
+        }
+        ByteBuffer data = cached.data.asReadOnlyBuffer();
+        data.rewind();
+        return data;
+    }
+
+    /**
+     * Replaces the contents of the page; the page is written to the file when it is evicted or flushed
+     * @param page the number of the page
+     * @param data the new contents, at most PAGE_SIZE bytes from its position to its limit
+     */
+    void write(int page, ByteBuffer data) {
+        ByteBuffer copy = ByteBuffer.allocate(PAGE_SIZE);
+        copy.put(data);
+        Page written = new Page(page, copy);
+        written.dirty = true;
+        this.cache.put(page, written);
+    }
+
+    /**
+     * Allocates a page, reusing a freed page if there is one
+     * @return the number of the page, whose contents are undefined until it is written
+     * @throws IOException throws IOException if the list of freed pages could not be read
+     */
+    int allocate() throws IOException {
+        if (this.freePage == 0) {
+            return this.pageCount++;
+        }
+        int page = this.freePage;
+        ByteBuffer data = read(page);
+        if (data.get() != FREE_PAGE) {
+            throw new IOException("Page " + page + " is not a freed page");
+        }
+        this.freePage = data.getInt();
+        return page;
+    }
+
+    /**
+     * Adds the page to the list of freed pages, to be reused by allocate
+     * @param page the number of the page
+     */
+    void free(int page) {
+        ByteBuffer data = ByteBuffer.allocate(1 + Integer.BYTES);
+        data.put(FREE_PAGE).putInt(this.freePage).flip();
+        write(page, data);
+        this.freePage = page;
+    }
+
+    int getValue(int slot) {
+        return this.values[slot];
+    }
+
+    void setValue(int slot, int value) {
+        this.values[slot] = value;
+    }
+
+    /**
+     * Writes every changed page and the header page to the file and forces them to disk
+     * @throws IOException throws IOException if the file could not be written
+     */
+    void flush() throws IOException {
+        for (Page p : this.cache.values()) {
+            if (p.dirty) {
+                writeToFile(p);
+            }
+        }
+        writeHeader();
+        this.channel.force(false);
+    }
+
+    /**
+     * Flushes and closes the file
+     * @throws IOException throws IOException if the file could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Writes the eldest page of the cache to the file if it has changed, so that it can be evicted
+     * @param eldest the least recently used page
+     * @return true, as the page can always be evicted once written
+     */
+    private boolean evict(Map.Entry<Integer, Page> eldest) {
+        if (eldest.getValue().dirty) {
+            try {
+                writeToFile(eldest.getValue());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the page to its position in the file
+     * @param page the page to write
+     * @throws IOException throws IOException if the file could not be written
+     */
+    private void writeToFile(Page page) throws IOException {
+        ByteBuffer data = page.data.duplicate();
+        data.clear();
+        long position = (long) page.number * PAGE_SIZE;
+        while (data.hasRemaining()) {
+            position += this.channel.write(data, position);
+        }
+        page.dirty = false;
+    }
+
+    /**
+     * Reads the buffer's remaining bytes from the position in the file
+     * @param data the buffer to fill
+     * @param position the position in the file to read from
+     * @throws IOException throws IOException if the file ends before the buffer is full
+     */
+    private void readFully(ByteBuffer data, long position) throws IOException {
+        while (data.hasRemaining()) {
+            int n = this.channel.read(data, position + data.position());
+            if (n < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    /**
+     * Writes the header page
+     * @throws IOException throws IOException if the file could not be written
+     */
+    private void writeHeader() throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(PAGE_SIZE);
+        data.put(MAGIC).putInt(VERSION).putInt(PAGE_SIZE).putInt(this.pageCount).putInt(this.freePage);
+        for (int value : this.values) {
+            data.putInt(value);
+        }
+        writeToFile(new Page(0, data));
+    }
+
+    /**
+     * Reads and checks the header page
+     * @throws IOException throws IOException if the file could not be read
+     * @throws CorruptFileException throws CorruptFileException if the header is not valid
+     */
+    private void readHeader() throws IOException, CorruptFileException {
+        if (this.channel.size() < PAGE_SIZE) {
+            throw new CorruptFileException();
+        }
+        ByteBuffer data = ByteBuffer.allocate(PAGE_SIZE);
+        readFully(data, 0);
+        data.flip();
+        byte[] magic = new byte[MAGIC.length];
+        data.get(magic);
+        if (!Arrays.equals(magic, MAGIC) || data.getInt() != VERSION || data.getInt() != PAGE_SIZE) {
+            throw new CorruptFileException();
+        }
+        this.pageCount = data.getInt();
+        this.freePage = data.getInt();
+        if (this.pageCount < 1 || (long) this.pageCount * PAGE_SIZE > this.channel.size()
+                || this.freePage < 0 || this.freePage >= this.pageCount) {
+            throw new CorruptFileException();
+        }
+        for (int i = 0; i < VALUE_SLOTS; i++) {
+            this.values[i] = data.getInt();
+        }
+    }
+
+    /**
+     * Represents a cached page
+     */
+    private static class Page {
+        private final int number;
+        private final ByteBuffer data;
+        private boolean dirty;
+
+        Page(int number, ByteBuffer data) {
+            this.number = number;
+            this.data = data;
+        }
+    }
+}
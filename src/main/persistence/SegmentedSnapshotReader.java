@@ -0,0 +1,220 @@
+package persistence;
+
+import model.Customer;
+import model.Warehouse;
+import model.exceptions.CorruptFileException;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Represents a reader that reads a Warehouse from a manifest and its customer segments, as written by
+ * SegmentedSnapshotWriter. Every segment is checked against the CRC32 checksum the manifest holds for it before it
+ * is parsed; manifests written before checksums were added are read without checking
+ */
+public class SegmentedSnapshotReader {
+
+    /**
+     * Reads a warehouse from the manifest and the segments it refers to
+     * @param source the manifest file
+     * @return the warehouse read
+     * @throws IOException throws IOException if the manifest or a segment is not readable
+     * @throws CorruptFileException throws CorruptFileException if the manifest or a segment is not valid
+     */
+    public Warehouse readWarehouse(File source) throws IOException, CorruptFileException {
+        return readWarehouse(source, new JSONObject());
+    }
+
+    /**
+     * Reads a warehouse from the manifest and the segments it refers to, see readWarehouse(File)
+     * @param source the manifest file
+     * @param header receives every value of the header of the manifest
+     * @return the warehouse read
+     * @throws IOException throws IOException if the manifest or a segment is not readable
+     * @throws CorruptFileException throws CorruptFileException if the manifest or a segment is not valid
+     */
+    Warehouse readWarehouse(File source, JSONObject header) throws IOException, CorruptFileException {
+        return readWarehouse(source, header, null);
+    }
+
+    /**
+     * Reads a warehouse from the manifest and the segments it refers to, see readWarehouse(File). If a report is
+     * given, customers whose segment is missing or damaged are left out of the warehouse and added to the report
+     * instead of failing the load, and their damaged segments are moved into the quarantine directory
+     * @param source the manifest file
+     * @param header receives every value of the header of the manifest
+     * @param report receives the customers that could not be loaded, or null to fail the load instead
+     * @return the warehouse read
+     * @throws IOException throws IOException if the manifest or a segment is not readable
+     * @throws CorruptFileException throws CorruptFileException if the manifest, or a segment when no report is
+     *                              given, is not valid
+     */
+    Warehouse readWarehouse(File source, JSONObject header, LoadReport report)
+            throws IOException, CorruptFileException {
+        return readWarehouse(source, header, report, new Warehouse());
+    }
+
+    /**
+     * Reads a warehouse from the manifest and the segments it refers to into a given warehouse, see
+     * readWarehouse(File, JSONObject, LoadReport)
+     * @param source the manifest file
+     * @param header receives every value of the header of the manifest
+     * @param report receives the customers that could not be loaded, or null to fail the load instead
+     * @param warehouse the empty warehouse to add the customers to
+     * @return the given warehouse
+     * @throws IOException throws IOException if the manifest or a segment is not readable
+     * @throws CorruptFileException throws CorruptFileException if the manifest, or a segment when no report is
+     *                              given, is not valid
+     */
+    Warehouse readWarehouse(File source, JSONObject header, LoadReport report, Warehouse warehouse)
+            throws IOException, CorruptFileException {
+        JSONObject manifest = readManifest(source);
+        JSONObject manifestHeader = manifest.getJSONObject("header");
+        for (String key : manifestHeader.keySet()) {
+            header.put(key, manifestHeader.get(key));
+        }
+
+        // segments are independent of each other, so they are read and built in parallel
+        File directory = SegmentedSnapshotWriter.getSegmentDirectory(source);
+        JSONObject segments = manifest.getJSONObject("segments");
+        warehouse.addLoadedCustomers(new ArrayList<>(segments.keySet()),
+                name -> readSegment(directory, name, segments.get(name), report));
+        return warehouse;
+    }
+
+    /**
+     * Reads the customer of a segment, reporting it as lost instead of failing if a report is given and the segment
+     * is missing or damaged
+     * @param directory the segment directory
+     * @param name the name of the customer
+     * @param entry the entry of the customer in the segments object of the manifest
+     * @param report the report to add lost customers to, or null if the read should fail instead
+     * @return the customer, or null if it is lost
+     * @throws IOException throws IOException if the segment is not readable
+     * @throws CorruptFileException throws CorruptFileException if no report is given and the segment is not valid
+     */
+    private Customer readSegment(File directory, String name, Object entry, LoadReport report)
+            throws IOException, CorruptFileException {
+        try {
+            return readSegment(directory, name, entry);
+        } catch (NoSuchFileException e) {
+            if (report == null) {
+                throw e;
+            }
+            report.addLostCustomer(name, "segment missing", null);
+        } catch (CorruptFileException e) {
+            if (report == null) {
+                throw e;
+            }
+            report.addLostCustomer(name, "segment damaged", quarantine(directory, entry));
+        }
+        // the customer is left out of the warehouse
+        return null;
+    }
+
+    /**
+     * Reads the customer of a segment and checks it against its entry in the manifest
+     * @param directory the segment directory
+     * @param name the name of the customer
+     * @param entry the entry of the customer in the segments object of the manifest
+     * @return the customer
+     * @throws IOException throws IOException if the segment is not readable
+     * @throws CorruptFileException throws CorruptFileException if the entry or the segment is not valid
+     */
+    private Customer readSegment(File directory, String name, Object entry) throws IOException, CorruptFileException {
+        String segment = getSegmentFile(entry);
+        if (segment == null) {
+            throw new CorruptFileException();
+        }
+        byte[] bytes = Files.readAllBytes(new File(directory, segment).toPath());
+        if (entry instanceof JSONObject) {
+            CRC32 checksum = new CRC32();
+            checksum.update(bytes, 0, bytes.length);
+            if (checksum.getValue() != ((JSONObject) entry).optLong(SegmentedSnapshotWriter.CHECKSUM_KEY, -1)) {
+                throw new CorruptFileException();
+            }
+        }
+        Customer customer = new JsonReader().readCustomer(new InputStreamReader(new ByteArrayInputStream(bytes),
+                StandardCharsets.UTF_8));
+        if (!customer.getName().equals(name)) {
+            throw new CorruptFileException();
+        }
+        return customer;
+    }
+
+    /**
+     * Moves the segment of a manifest entry into the quarantine directory, so that later saves do not delete it
+     * @param directory the segment directory
+     * @param entry the entry of the segment in the segments object of the manifest
+     * @return the location the segment was moved to, or null if it could not be moved
+     */
+    private File quarantine(File directory, Object entry) {
+        String segment = getSegmentFile(entry);
+        if (segment == null) {
+            return null;
+        }
+        File quarantined = new File(new File(directory, LoadReport.QUARANTINE_DIRECTORY), segment);
+        try {
+            Files.createDirectories(quarantined.getParentFile().toPath());
+            Files.move(new File(directory, segment).toPath(), quarantined.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            return quarantined;
+        } catch (IOException e) {
+            // the segment stays where it is and is reported without a quarantined copy
+            return null;
+        }
+    }
+
+    /**
+     * Gets the segment file of a manifest entry, which is either an object holding the file and its checksum or,
+     * in manifests written before checksums were added, the file alone
+     * @param entry the entry of a customer in the segments object of the manifest
+     * @return the name of the segment file, or null if the entry does not name a file in the segment directory
+     */
+    static String getSegmentFile(Object entry) {
+        Object segment = entry instanceof JSONObject ? ((JSONObject) entry).opt(SegmentedSnapshotWriter.FILE_KEY)
+                : entry;
+        if (!(segment instanceof String) || !SegmentedSnapshotWriter.SEGMENT_NAME.matcher((String) segment).matches()) {
+            return null;
+        }
+        return (String) segment;
+    }
+
+    /**
+     * Reads the JSON object of a manifest
+     * @param source the manifest file
+     * @return the JSON object, which has a header and a segments object
+     * @throws IOException throws IOException if the manifest is not readable
+     * @throws CorruptFileException throws CorruptFileException if the file is not a valid manifest
+     */
+    static JSONObject readManifest(File source) throws IOException, CorruptFileException {
+        byte[] bytes = Files.readAllBytes(source.toPath());
+        int start = SegmentedSnapshotWriter.MAGIC.length + 1;
+        if (bytes.length < start
+                || !Arrays.equals(Arrays.copyOf(bytes, SegmentedSnapshotWriter.MAGIC.length),
+                        SegmentedSnapshotWriter.MAGIC)) {
+            throw new CorruptFileException();
+        }
+
+        try {
+            JSONObject manifest = new JSONObject(new String(bytes, start, bytes.length - start,
+                    StandardCharsets.UTF_8));
+            manifest.getJSONObject("header");
+            manifest.getJSONObject("segments");
+            return manifest;
+        } catch (JSONException e) {
+            throw new CorruptFileException();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package persistence;
+
+import model.Customer;
+import model.Warehouse;
+import model.exceptions.CorruptFileException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Represents a writer that writes a Warehouse to a chosen destination as a manifest plus one segment file per
+ * customer, so a save only has to rewrite the customers that changed since the last one.
+ * <p>
+ * Each customer is written to its own JSON segment file in a directory beside the manifest, named after the manifest
+ * with ".segments" appended. The manifest starts with the magic bytes "WHSM" and a line break, followed by a JSON
+ * object holding the header and, for every customer, its segment file and the CRC32 checksum of that file, so that a
+ * damaged segment can be detected and skipped without losing the other customers. Changed customers are always
+ * written to new segment files and the manifest is replaced atomically before unreferenced segments are deleted, so
+ * a failed save leaves the previous manifest and every segment it refers to untouched
+ */
+public class SegmentedSnapshotWriter {
+    static final byte[] MAGIC = {'W', 'H', 'S', 'M'};
+    static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.json");
+    static final String FILE_KEY = "file";
+    static final String CHECKSUM_KEY = "crc32";
+
+    /**
+     * Writes/saves every customer of the warehouse to a chosen destination in the segmented format
+     * @param destination the location of the manifest
+     * @param warehouse the warehouse to save
+     * @throws IOException throws IOException if the manifest or a segment could not be written
+     */
+    public void saveWarehouse(File destination, Warehouse warehouse) throws IOException {
+        saveCustomers(destination, warehouse.getCustomerSet(), new JSONObject(), null);
+    }
+
+    /**
+     * Writes/saves the customers of a warehouse to a chosen destination, reusing the segments of the manifest already
+     * there for customers that have not changed since it was written
+     * @param destination the location of the manifest
+     * @param customers the customers of the warehouse to save
+     * @param header values written in the header of the manifest
+     * @param changedCustomers the names of the customers changed since the manifest at the destination was written,
+     *                         or null to write every customer
+     * @throws IOException throws IOException if the manifest or a segment could not be written
+     */
+    void saveCustomers(File destination, Collection<Customer> customers, JSONObject header,
+                       Set<String> changedCustomers) throws IOException {
+        File directory = getSegmentDirectory(destination);
+        Files.createDirectories(directory.toPath());
+        JSONObject previousSegments = changedCustomers == null ? new JSONObject() : readSegments(destination);
+        long nextSegment = findLastSegmentNumber(directory) + 1;
+
+        JsonWriter jsonWriter = new JsonWriter();
+        JSONObject segments = new JSONObject();
+        for (Customer c : customers) {
+            // entries of manifests written before checksums were added are not reused, so they gain a checksum
+            JSONObject entry = previousSegments.optJSONObject(c.getName());
+            String segment = SegmentedSnapshotReader.getSegmentFile(entry);
+            if (segment == null || changedCustomers.contains(c.getName()) || !new File(directory, segment).exists()) {
+                segment = "segment-" + nextSegment++ + ".json";
+                long checksum = jsonWriter.saveCustomer(new File(directory, segment), c);
+                entry = new JSONObject().put(FILE_KEY, segment).put(CHECKSUM_KEY, checksum);
+            }
+            segments.put(c.getName(), entry);
+        }
+
+        JSONObject manifest = new JSONObject().put("header", header).put("segments", segments);
+        AtomicFile.write(destination, out -> {
+            out.write(MAGIC);
+            out.write('\n');
+            out.write(manifest.toString().getBytes(StandardCharsets.UTF_8));
+        });
+        deleteUnreferencedSegments(directory, segments);
+    }
+
+    /**
+     * Gets the directory that holds the segments of a manifest
+     * @param manifest the manifest file
+     * @return the segment directory
+     */
+    static File getSegmentDirectory(File manifest) {
+        return new File(manifest.getPath() + ".segments");
+    }
+
+    /**
+     * Reads the segment file of every customer from the manifest at the destination
+     * @param destination the location of the manifest
+     * @return the segment entries by customer name, empty if there is no valid manifest at the destination
+     */
+    private JSONObject readSegments(File destination) {
+        try {
+            return SegmentedSnapshotReader.readManifest(destination).getJSONObject("segments");
+        } catch (IOException | CorruptFileException e) {
+            // without a readable manifest no segment can be reused, so every customer is written
+            return new JSONObject();
+        }
+    }
+
+    /**
+     * Finds the highest number of the segment files in the directory, so new segments never replace existing ones
+     * @param directory the segment directory
+     * @return the highest segment number, or -1 if there are no segments
+     */
+    private long findLastSegmentNumber(File directory) {
+        long last = -1;
+        String[] names = directory.list();
+        for (String name : names == null ? new String[0] : names) {
+            Matcher matcher = SEGMENT_NAME.matcher(name);
+            // numbers too long for a long cannot have been written by this class
+            if (matcher.matches() && matcher.group(1).length() < 19) {
+                last = Math.max(last, Long.parseLong(matcher.group(1)));
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Deletes the segment files of the directory that the manifest does not refer to. Segments that cannot be
+     * deleted are left for a later save to delete
+     * @param directory the segment directory
+     * @param segments the entries of the segment files referred to by the manifest, by customer name
+     */
+    private void deleteUnreferencedSegments(File directory, JSONObject segments) {
+        Set<String> referenced = new HashSet<>();
+        for (String name : segments.keySet()) {
+            referenced.add(SegmentedSnapshotReader.getSegmentFile(segments.get(name)));
+        }
+        String[] names = directory.list();
+        for (String name : names == null ? new String[0] : names) {
+            if (SEGMENT_NAME.matcher(name).matches() && !referenced.contains(name)) {
+                new File(directory, name).delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package persistence;
+
+import model.Customer;
+import model.Warehouse;
+import model.exceptions.CorruptFileException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * Represents the file formats a Warehouse snapshot can be saved in
+ */
+public enum SnapshotFormat {
+    JSON("JSON files", "json"),
+    COMPRESSED_JSON("Compressed JSON files", "gz"),
+    BINARY("Binary snapshots", "whs"),
+    SEGMENTED("Segmented saves", "whm");
+
+    // the deflate level compressed snapshots are written with, see JsonWriter(int)
+    private static final int COMPRESSION_LEVEL = Integer.getInteger("warehouse.compressionLevel",
+            Deflater.DEFAULT_COMPRESSION);
+
+    private final String description;
+    private final String extension;
+
+    SnapshotFormat(String description, String extension) {
+        this.description = description;
+        this.extension = extension;
+    }
+
+    /**
+     * Detects the format of an existing snapshot from its first bytes
+     * @param source the snapshot file
+     * @return COMPRESSED_JSON, BINARY or SEGMENTED if the file starts with the magic bytes of that format, JSON
+     *         otherwise
+     * @throws IOException throws IOException if the file is not readable
+     */
+    public static SnapshotFormat detect(File source) throws IOException {
+        byte[] magic = new byte[BinarySnapshotWriter.MAGIC.length];
+        try (InputStream in = Files.newInputStream(source.toPath())) {
+            int read = 0;
+            while (read < magic.length) {
+                int n = in.read(magic, read, magic.length - read);
+                if (n < 0) {
+                    return JSON;
+                }
+                read += n;
+            }
+        }
+        if (magic[0] == JsonWriter.GZIP_MAGIC[0] && magic[1] == JsonWriter.GZIP_MAGIC[1]) {
+            return COMPRESSED_JSON;
+        }
+        if (Arrays.equals(magic, BinarySnapshotWriter.MAGIC)) {
+            return BINARY;
+        }
+        return Arrays.equals(magic, SegmentedSnapshotWriter.MAGIC) ? SEGMENTED : JSON;
+    }
+
+    /**
+     * Reads a warehouse from a snapshot in this format
+     * @param source the snapshot file
+     * @return the warehouse read
+     * @throws IOException throws IOException if the file is not readable
+     * @throws CorruptFileException throws CorruptFileException if the file is not a valid snapshot in this format
+     */
+    public Warehouse readWarehouse(File source) throws IOException, CorruptFileException {
+        return readWarehouse(source, new JSONObject());
+    }
+
+    /**
+     * Reads a warehouse from a snapshot in this format into a given warehouse, see readWarehouse(File)
+     * @param source the snapshot file
+     * @param warehouse the empty warehouse to add the customers read to
+     * @return the given warehouse
+     * @throws IOException throws IOException if the file is not readable
+     * @throws CorruptFileException throws CorruptFileException if the file is not a valid snapshot in this format
+     */
+    public Warehouse readWarehouse(File source, Warehouse warehouse) throws IOException, CorruptFileException {
+        return readWarehouse(source, new JSONObject(), null, warehouse);
+    }
+
+    /**
+     * Reads a warehouse from a snapshot in this format, see readWarehouse(File)
+     * @param source the snapshot file
+     * @param header receives the header values of the snapshot
+     * @return the warehouse read
+     * @throws IOException throws IOException if the file is not readable
+     * @throws CorruptFileException throws CorruptFileException if the file is not a valid snapshot in this format
+     */
+    Warehouse readWarehouse(File source, JSONObject header) throws IOException, CorruptFileException {
+        return readWarehouse(source, header, null, new Warehouse());
+    }
+
+    /**
+     * Reads a warehouse from a snapshot in this format, see readWarehouse(File). Only segmented snapshots can be
+     * partly recovered, see SegmentedSnapshotReader.readWarehouse(File, JSONObject, LoadReport)
+     * @param source the snapshot file
+     * @param header receives the header values of the snapshot
+     * @param report receives the customers that could not be recovered, or null to fail the load instead
+     * @param warehouse the empty warehouse to add the customers read to
+     * @return the given warehouse
+     * @throws IOException throws IOException if the file is not readable
+     * @throws CorruptFileException throws CorruptFileException if the file is not a valid snapshot in this format
+     */
+    Warehouse readWarehouse(File source, JSONObject header, LoadReport report, Warehouse warehouse)
+            throws IOException, CorruptFileException {
+        switch (this) {
+            case BINARY:
+                return new BinarySnapshotReader().readWarehouse(source, header, warehouse);
+            case SEGMENTED:
+                return new SegmentedSnapshotReader().readWarehouse(source, header, report, warehouse);
+            default:
+                return new JsonReader().readWarehouse(source, header, warehouse);
+        }
+    }
+
+    /**
+     * Writes a warehouse to a snapshot in this format
+     * @param destination the snapshot file
+     * @param warehouse the warehouse to write
+     * @throws IOException throws IOException if the file could not be written
+     */
+    public void saveWarehouse(File destination, Warehouse warehouse) throws IOException {
+        saveWarehouse(destination, warehouse, new JSONObject());
+    }
+
+    /**
+     * Writes a warehouse to a snapshot in this format, see saveWarehouse(File, Warehouse)
+     * @param destination the snapshot file
+     * @param warehouse the warehouse to write
+     * @param header values written in the header of the snapshot
+     * @throws IOException throws IOException if the file could not be written
+     */
+    void saveWarehouse(File destination, Warehouse warehouse, JSONObject header) throws IOException {
+        saveWarehouse(destination, warehouse, header, null);
+    }
+
+    /**
+     * Writes a warehouse to a snapshot in this format. Only the SEGMENTED format can write just the changed
+     * customers, the other formats write the whole warehouse
+     * @param destination the snapshot file
+     * @param warehouse the warehouse to write
+     * @param header values written in the header of the snapshot
+     * @param changedCustomers the names of the customers changed since the snapshot at the destination was written,
+     *                         or null to write every customer
+     * @throws IOException throws IOException if the file could not be written
+     */
+    void saveWarehouse(File destination, Warehouse warehouse, JSONObject header, Set<String> changedCustomers)
+            throws IOException {
+        saveCustomers(destination, warehouse.getCustomerSet(), header, changedCustomers);
+    }
+
+    /**
+     * Writes the customers of a warehouse to a snapshot in this format, see saveWarehouse(File, Warehouse, JSONObject,
+     * Set). Only the customers are read, so they need not belong to a warehouse that indexes their orders
+     * @param destination the snapshot file
+     * @param customers the customers of the warehouse to write
+     * @param header values written in the header of the snapshot
+     * @param changedCustomers the names of the customers changed since the snapshot at the destination was written,
+     *                         or null to write every customer
+     * @throws IOException throws IOException if the file could not be written
+     */
+    void saveCustomers(File destination, Collection<Customer> customers, JSONObject header,
+                       Set<String> changedCustomers) throws IOException {
+        switch (this) {
+            case BINARY:
+                new BinarySnapshotWriter().saveCustomers(destination, customers, header);
+                break;
+            case SEGMENTED:
+                new SegmentedSnapshotWriter().saveCustomers(destination, customers, header, changedCustomers);
+                break;
+            case COMPRESSED_JSON:
+                new JsonWriter(COMPRESSION_LEVEL).saveCustomers(destination, customers, header);
+                break;
+            default:
+                new JsonWriter().saveCustomers(destination, customers, header);
+        }
+    }
+
+    public String getDescription() {
+        return this.description;
+    }
+
+    public String getExtension() {
+        return this.extension;
+    }
+}
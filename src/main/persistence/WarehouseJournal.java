@@ -0,0 +1,722 @@
+package persistence;
+
+import model.Warehouse;
+import model.WarehouseListener;
+import model.exceptions.CorruptFileException;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a write-ahead journal of the changes made to a Warehouse since it was last written to its snapshot file.
+ * <p>
+ * Every change is appended to the journal file, beside the snapshot, as one JSON line and forced to disk before the
+ * change returns; the changes of a batch are forced to disk together when the batch finishes. Loading replays the
+ * journal on top of the snapshot. Compaction moves the journal aside, writes a copy of the warehouse to the snapshot
+ * on a background thread, and then deletes the old journal.
+ * <p>
+ * Each snapshot and journal carries the id of the journal it belongs to, and each journal entry carries a sequence
+ * number. A snapshot also records the sequence number of the last entry it contains, so entries are never applied
+ * twice even if compaction is interrupted.
+ * <p>
+ * A warehouse shared between threads journals the changes of each thread as they are made. Its copy is taken while
+ * no change is in progress, so a journal that grows large enough during a change is compacted on the background
+ * thread instead, once the change has finished.
+ */
+public class WarehouseJournal implements WarehouseListener, Closeable {
+    static final String JOURNAL_ID_KEY = "journalId";
+    static final String SEQUENCE_KEY = "journalSequence";
+    private static final int COMPACTION_THRESHOLD = 1000;
+    private static final long CLOSE_TIMEOUT_SECONDS = 60;
+
+    private final File snapshot;
+    private final File journal;
+    private final File compactingJournal;
+    private SnapshotFormat format;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "warehouse-journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private String journalId;
+    private Warehouse warehouse;
+    private FileChannel channel;
+    private Writer writer;
+    private long sequence;                  // sequence number of the last entry applied to the warehouse
+    private int entriesSinceCompaction;
+    private Future<?> compaction;
+    private Set<String> changedCustomers = new HashSet<>(); // customers changed since the snapshot was last written
+    private volatile boolean compactionFailed;               // true if the snapshot may be missing earlier changes
+    private LoadReport loadReport;                           // what the last load could not recover
+    private final Set<Thread> batchThreads = new HashSet<>(); // threads whose entries are forced per batch
+    private boolean compactionScheduled;                     // true while a compaction waits for the changes to end
+    private IOException writeFailure;                        // why an entry could not be written, NULL if none failed
+
+    /**
+     * Creates a journal for the given JSON snapshot file, the journal files are kept beside it
+     * @param snapshot the snapshot file of the warehouse
+     */
+    public WarehouseJournal(File snapshot) {
+        this(snapshot, SnapshotFormat.JSON);
+    }
+
+    /**
+     * Creates a journal for the given snapshot file, the journal files are kept beside it
+     * @param snapshot the snapshot file of the warehouse
+     * @param format the format snapshots are written in, load() uses the format of the existing snapshot instead
+     */
+    public WarehouseJournal(File snapshot, SnapshotFormat format) {
+        this.snapshot = snapshot;
+        this.format = format;
+        this.journal = new File(snapshot.getPath() + ".journal");
+        this.compactingJournal = new File(snapshot.getPath() + ".journal.compacting");
+    }
+
+    /**
+     * Reads the warehouse from the snapshot, replays the journal on top of it and starts journaling its changes.
+     * A snapshot without a journal id, such as a plain save file, or one whose last compaction was interrupted is
+     * written again with a new journal id before journaling starts.
+     * <p>
+     * Customers whose segment of a segmented snapshot is missing or damaged are left out, along with their journal
+     * entries, and listed in the load report; the snapshot is then written again without them
+     * @return the warehouse
+     * @throws IOException throws IOException if the snapshot or journal could not be read or the journal opened
+     * @throws CorruptFileException throws CorruptFileException if the snapshot or journal is not valid
+     */
+    public Warehouse load() throws IOException, CorruptFileException {
+        return load(new Warehouse());
+    }
+
+    /**
+     * Reads the warehouse from the snapshot into a given warehouse, see load(), such as one that archives the old
+     * complete orders of customers as they are loaded, see Warehouse.archiveLoadedOrders
+     * @param loadedWarehouse the empty warehouse to add the customers of the snapshot to
+     * @return the given warehouse
+     * @throws IOException throws IOException if the snapshot or journal could not be read or the journal opened
+     * @throws CorruptFileException throws CorruptFileException if the snapshot or journal is not valid
+     */
+    public Warehouse load(Warehouse loadedWarehouse) throws IOException, CorruptFileException {
+        JSONObject header = new JSONObject();
+        this.format = SnapshotFormat.detect(this.snapshot);
+        this.loadReport = new LoadReport();
+        this.format.readWarehouse(this.snapshot, header, this.loadReport, loadedWarehouse);
+        this.changedCustomers = new HashSet<>();
+        this.journalId = header.optString(JOURNAL_ID_KEY, UUID.randomUUID().toString());
+        this.sequence = header.optLong(SEQUENCE_KEY, 0);
+
+        replay(this.compactingJournal, loadedWarehouse);
+        long validLength = replay(this.journal, loadedWarehouse);
+        if (!header.has(JOURNAL_ID_KEY) || this.compactingJournal.exists() || !this.loadReport.isComplete()) {
+            start(loadedWarehouse);
+        } else {
+            openJournal(loadedWarehouse, validLength);
+        }
+        return loadedWarehouse;
+    }
+
+    /**
+     * Memory-maps the snapshot without loading it, if it is a binary snapshot that the journal has nothing to add to.
+     * Journaling does not start until load() is called, which is needed before the warehouse can be changed
+     * @return the mapped snapshot, or null if the warehouse must be loaded with load() instead
+     * @throws IOException throws IOException if the snapshot or journal could not be read
+     */
+    public MappedSnapshot map() throws IOException {
+        if (SnapshotFormat.detect(this.snapshot) != SnapshotFormat.BINARY || this.compactingJournal.exists()) {
+            return null;
+        }
+
+        MappedSnapshot mappedSnapshot;
+        try {
+            mappedSnapshot = new MappedSnapshot(this.snapshot);
+        } catch (CorruptFileException e) {
+            // older snapshots without an index section, and corrupt ones, are left for load() to read or reject
+            return null;
+        }
+        String snapshotJournalId = mappedSnapshot.getHeader().optString(JOURNAL_ID_KEY, null);
+        if (snapshotJournalId == null || hasJournalEntries(snapshotJournalId)) {
+            mappedSnapshot.close();
+            return null;
+        }
+        return mappedSnapshot;
+    }
+
+    /**
+     * Writes the warehouse to the snapshot, discards any journal left from an earlier warehouse and starts journaling
+     * the warehouse's changes
+     * @param startingWarehouse the warehouse to journal
+     * @throws IOException throws IOException if the snapshot could not be written or the journal opened
+     */
+    public void start(Warehouse startingWarehouse) throws IOException {
+        // changes made by other threads wait until journaling has started, so none is left out of both files
+        startingWarehouse.lockAllCustomers();
+        try {
+            this.journalId = UUID.randomUUID().toString();
+            this.sequence = 0;
+            this.format.saveWarehouse(this.snapshot, startingWarehouse, createHeader(this.sequence));
+            this.changedCustomers = new HashSet<>();
+            this.compactionFailed = false;
+
+            // the old journals belong to a different journal id, so they would be ignored even if deleting them fails
+            Files.deleteIfExists(this.journal.toPath());
+            Files.deleteIfExists(this.compactingJournal.toPath());
+            openJournal(startingWarehouse, 0);
+        } finally {
+            startingWarehouse.unlockAllCustomers();
+        }
+    }
+
+    /**
+     * Moves the journal aside and, on a background thread, writes a copy of the warehouse to the snapshot and deletes
+     * the old journal. Snapshots in the SEGMENTED format only rewrite the customers changed since the snapshot was
+     * last written. If a compaction is already running, it is returned instead of starting another. The copy is
+     * taken while no change to the warehouse is in progress, so this must not be called by a warehouse listener
+     * @return the running compaction
+     * @throws IOException throws IOException if the journal could not be moved aside
+     */
+    public Future<?> compact() throws IOException {
+        // the copy has to hold every change journaled so far and none journaled after it
+        this.warehouse.lockAllCustomers();
+        try {
+            return startCompaction();
+        } finally {
+            this.warehouse.unlockAllCustomers();
+        }
+    }
+
+    /**
+     * Moves the journal aside and starts writing a copy of the warehouse on the background thread, see compact()
+     * @return the running compaction
+     * @throws IOException throws IOException if the journal could not be moved aside
+     */
+    private synchronized Future<?> startCompaction() throws IOException {
+        this.compactionScheduled = false;
+        if (this.compaction != null && !this.compaction.isDone()) {
+            return this.compaction;
+        }
+
+        rotateJournal();
+        Warehouse copy = this.warehouse.copy();
+        JSONObject header = createHeader(this.sequence);
+        // after a failed compaction the snapshot on disk is not known to hold every earlier change
+        Set<String> changed = this.compactionFailed ? null : this.changedCustomers;
+        this.changedCustomers = new HashSet<>();
+        this.compactionFailed = false;
+        this.entriesSinceCompaction = 0;
+        this.compaction = this.compactor.submit(() -> {
+            try {
+                this.format.saveWarehouse(this.snapshot, copy, header, changed);
+            } catch (IOException | RuntimeException e) {
+                this.compactionFailed = true;
+                throw e;
+            }
+            Files.delete(this.compactingJournal.toPath());
+            return null;
+        });
+        return this.compaction;
+    }
+
+    /**
+     * Stops journaling, waits for a running compaction to finish and closes the journal file
+     * @throws IOException throws IOException if the journal file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.warehouse != null) {
+            this.warehouse.removeListener(this);
+        }
+        this.compactor.shutdown();
+        try {
+            this.compactor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (this.channel != null) {
+                if (this.writeFailure == null) {
+                    this.writer.flush();
+                }
+                this.channel.close();
+            }
+        }
+    }
+
+    public Warehouse getWarehouse() {
+        return this.warehouse;
+    }
+
+    /**
+     * Gets what the last call to load() could not recover
+     * @return the load report, or null if load() has not been called
+     */
+    public LoadReport getLoadReport() {
+        return this.loadReport;
+    }
+
+    /**
+     * Checks whether this journal's snapshot is the given file in the given format
+     * @param destination the file
+     * @param snapshotFormat the format
+     * @return true if compacting this journal writes the warehouse to the file in the format
+     */
+    public boolean writesTo(File destination, SnapshotFormat snapshotFormat) {
+        return this.snapshot.getAbsoluteFile().equals(destination.getAbsoluteFile()) && this.format == snapshotFormat;
+    }
+
+    /**
+     * Checks whether the journal file holds any entries, complete or not, for the given journal id
+     * @param snapshotJournalId the journal id of the snapshot
+     * @return true if the journal has entries that would be replayed on load
+     * @throws IOException throws IOException if the journal file could not be read
+     */
+    private boolean hasJournalEntries(String snapshotJournalId) throws IOException {
+        if (!this.journal.exists()) {
+            return false;
+        }
+        List<String> lines = readLines(this.journal);
+        JSONObject journalHeader = lines.isEmpty() ? null : parseLine(lines.get(0));
+        return journalHeader != null && lines.size() > 1
+                && snapshotJournalId.equals(journalHeader.optString(JOURNAL_ID_KEY));
+    }
+
+    /**
+     * Replays the entries of a journal file that are newer than the warehouse. A journal that belongs to a different
+     * journal id is ignored, as is a final line that was only partly written
+     * @param file the journal file
+     * @param target the warehouse to replay onto
+     * @return the length in bytes of the complete lines of the file
+     * @throws IOException throws IOException if the file could not be read
+     * @throws CorruptFileException throws CorruptFileException if an entry cannot be applied
+     */
+    private long replay(File file, Warehouse target) throws IOException, CorruptFileException {
+        if (!file.exists()) {
+            return 0;
+        }
+
+        List<String> lines = readLines(file);
+        JSONObject journalHeader = lines.isEmpty() ? null : parseLine(lines.get(0));
+        if (journalHeader == null || !this.journalId.equals(journalHeader.optString(JOURNAL_ID_KEY))) {
+            return 0;
+        }
+
+        long validLength = lineLength(lines.get(0));
+        for (int i = 1; i < lines.size(); i++) {
+            JSONObject entry = parseLine(lines.get(i));
+            if (entry == null && i == lines.size() - 1) {
+                break;
+            }
+            if (entry == null) {
+                throw new CorruptFileException();
+            }
+            applyIfNewer(target, entry);
+            validLength += lineLength(lines.get(i));
+        }
+        return validLength;
+    }
+
+    /**
+     * Applies a journal entry to the warehouse, unless the warehouse already contains it
+     * @param target the warehouse to apply to
+     * @param entry the journal entry
+     * @throws CorruptFileException throws CorruptFileException if the entry cannot be applied
+     */
+    private void applyIfNewer(Warehouse target, JSONObject entry) throws CorruptFileException {
+        long entrySequence = entry.optLong("seq", -1);
+        if (entrySequence <= this.sequence) {
+            return;
+        }
+        // the entries of customers that could not be recovered cannot be applied
+        if (this.loadReport.isLost(entry.optString("customer"))) {
+            this.sequence = entrySequence;
+            return;
+        }
+
+        try {
+            apply(target, entry);
+            this.changedCustomers.add(entry.getString("customer"));
+        } catch (Exception e) {
+            // any failure means the journal does not match the snapshot it was recorded against
+            throw new CorruptFileException();
+        }
+        this.sequence = entrySequence;
+    }
+
+    /**
+     * Applies a journal entry to the warehouse by repeating the change it records
+     * @param target the warehouse to apply to
+     * @param e the journal entry
+     * @throws Exception throws the exception of the change if it fails
+     */
+    private void apply(Warehouse target, JSONObject e) throws Exception {
+        switch (e.getString("op")) {
+            case "addCustomer":
+                target.addCustomer(e.getString("customer"));
+                break;
+            case "importProduct":
+                target.importProduct(e.getString("customer"), e.getString("content"), date(e, "importDate"),
+                        e.getString("invoiceNumber"), e.getInt("quantity"), e.getString("storageLocation"));
+                break;
+            case "exportOrder":
+                target.exportOrder(e.getString("customer"), e.getString("invoiceNumber"), e.getInt("quantity"),
+                        date(e, "exportDate"), e.getString("exportInvoiceNumber"));
+                break;
+            case "recordMonthlyCharge":
+                target.recordMonthlyCharge(e.getString("customer"), e.getString("invoiceNumber"),
+                        date(e, "startDate"), date(e, "endDate"), e.getInt("quantity"),
+                        e.getString("monthlyInvoiceNumber"));
+                break;
+            default:
+                applyDeleteOrEdit(target, e);
+        }
+    }
+
+    /**
+     * Applies a journal entry that deletes or edits to the warehouse
+     * @param target the warehouse to apply to
+     * @param e the journal entry
+     * @throws Exception throws the exception of the change if it fails
+     */
+    private void applyDeleteOrEdit(Warehouse target, JSONObject e) throws Exception {
+        switch (e.getString("op")) {
+            case "deleteCustomer":
+                target.deleteCustomer(e.getString("customer"));
+                break;
+            case "deleteCustomerOrder":
+                target.deleteCustomerOrder(e.getString("customer"), e.getString("invoiceNumber"));
+                break;
+            case "editActiveOrder":
+                target.editExistingActiveCustomerOrder(e.getString("customer"), e.getString("invoiceNumber"),
+                        e.getString("content"), e.getString("storageLocation"));
+                break;
+            default:
+                throw new CorruptFileException();
+        }
+    }
+
+    /**
+     * Opens the journal file for appending, creating it if it does not exist, and starts journaling the warehouse
+     * @param journaledWarehouse the warehouse whose changes are journaled
+     * @param validLength the length of the complete lines of the journal file, anything after it is discarded
+     * @throws IOException throws IOException if the journal file could not be opened
+     */
+    private void openJournal(Warehouse journaledWarehouse, long validLength) throws IOException {
+        this.channel = FileChannel.open(this.journal.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.channel.truncate(validLength);
+        this.channel.position(validLength);
+        this.writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(this.channel),
+                StandardCharsets.UTF_8));
+        this.writeFailure = null;
+        if (validLength == 0) {
+            writeLine(new JSONObject().put(JOURNAL_ID_KEY, this.journalId));
+            this.writer.flush();
+            this.channel.force(false);
+        }
+
+        this.warehouse = journaledWarehouse;
+        this.warehouse.addListener(this);
+    }
+
+    /**
+     * Closes the journal file and moves it aside for compaction, then opens a new journal file. If an earlier
+     * compaction failed, the journal is added to the end of the journal that is still waiting to be compacted
+     * @throws IOException throws IOException if the journal could not be moved aside or reopened
+     */
+    private void rotateJournal() throws IOException {
+        this.writer.flush();
+        this.channel.close();
+        if (this.compactingJournal.exists()) {
+            // the entries are copied as they were written, without the header line or a final line that was only
+            // partly written, which would otherwise run into the entries appended after it
+            byte[] bytes = Files.readAllBytes(this.journal.toPath());
+            int entriesStart = Math.min(lineEnd(bytes, 0) + 1, bytes.length);
+            int entriesEnd = bytes.length;
+            while (entriesEnd > entriesStart && bytes[entriesEnd - 1] != '\n') {
+                entriesEnd--;
+            }
+            Files.write(this.compactingJournal.toPath(), Arrays.copyOfRange(bytes, entriesStart, entriesEnd),
+                    StandardOpenOption.APPEND);
+            Files.delete(this.journal.toPath());
+        } else {
+            Files.move(this.journal.toPath(), this.compactingJournal.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        this.warehouse.removeListener(this);
+        openJournal(this.warehouse, 0);
+    }
+
+    /**
+     * Appends an entry to the journal and forces it to disk, unless a batch is running, compacting the journal once it
+     * has grown large enough. Once an entry could not be written no later entry is, since the journal would no longer
+     * replay to the warehouse, until the warehouse is written again by start()
+     * @param entry the entry to append
+     * @throws UncheckedIOException throws UncheckedIOException if the entry, or an earlier one, could not be written
+     */
+    private synchronized void append(JSONObject entry) {
+        checkWritable();
+        try {
+            this.sequence++;
+            writeLine(entry.put("seq", this.sequence));
+            this.changedCustomers.add(entry.getString("customer"));
+            this.entriesSinceCompaction++;
+            if (!this.batchThreads.contains(Thread.currentThread())) {
+                forceAndCompact();
+            }
+        } catch (IOException e) {
+            this.writeFailure = e;
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Checks that no entry has failed to be written since the journal file was opened
+     * @throws UncheckedIOException throws UncheckedIOException if an entry could not be written
+     */
+    private void checkWritable() {
+        if (this.writeFailure != null) {
+            throw new UncheckedIOException(this.writeFailure);
+        }
+    }
+
+    /**
+     * Checks whether an entry has failed to be written, in which case the changes made since are not journaled and the
+     * warehouse has to be written again with start() to keep them
+     * @return true if an entry could not be written since the journal file was opened
+     */
+    public synchronized boolean hasWriteFailed() {
+        return this.writeFailure != null;
+    }
+
+    /**
+     * Forces the lines written so far to disk, then compacts the journal if it has grown large enough. The journal of
+     * a warehouse shared between threads is copied and compacted on the background thread once the change being
+     * journaled has finished, so the thread making changes never waits for the copy. A warehouse used by one thread
+     * has no locks to keep its changes out of a copy taken on another thread, so it is compacted on its own thread;
+     * an application whose changing thread must not wait, such as a Swing event thread, uses a shared warehouse
+     * @throws IOException throws IOException if the journal could not be forced to disk or moved aside
+     */
+    private void forceAndCompact() throws IOException {
+        this.writer.flush();
+        this.channel.force(false);
+        if (this.entriesSinceCompaction < COMPACTION_THRESHOLD) {
+            return;
+        }
+        if (this.warehouse.isConcurrent()) {
+            scheduleCompaction();
+        } else {
+            compact();
+        }
+    }
+
+    /**
+     * Compacts the journal on the background thread, unless a compaction is already waiting to start there. The
+     * compaction waits for the changes in progress to finish, including the one being journaled. If the journal
+     * cannot be moved aside it is compacted after a later change instead
+     */
+    private void scheduleCompaction() {
+        if (this.compactionScheduled) {
+            return;
+        }
+        this.compactionScheduled = true;
+        this.compactor.execute(() -> {
+            try {
+                compact();
+            } catch (IOException e) {
+                // entriesSinceCompaction is left as it is, so the next change schedules another compaction
+            }
+        });
+    }
+
+    /**
+     * Writes a line to the journal file without forcing it to disk
+     * @param line the line to write
+     * @throws IOException throws IOException if the line could not be written
+     */
+    private void writeLine(JSONObject line) throws IOException {
+        this.writer.write(line.toString());
+        this.writer.write('\n');
+    }
+
+    /**
+     * Creates the header that a snapshot written at the given sequence number starts with
+     * @param snapshotSequence the sequence number of the last entry in the snapshot
+     * @return the header
+     */
+    private JSONObject createHeader(long snapshotSequence) {
+        return new JSONObject().put(JOURNAL_ID_KEY, this.journalId).put(SEQUENCE_KEY, snapshotSequence);
+    }
+
+    /**
+     * Parses a journal line
+     * @param line the line to parse
+     * @return the parsed line, or null if it is not a complete JSON object
+     */
+    private static JSONObject parseLine(String line) {
+        if (line == null) {
+            return null;
+        }
+        try {
+            return new JSONObject(line);
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the lines of a journal file. Each line is decoded on its own, so a final line that was cut off in the
+     * middle of a multi-byte character is read as a damaged line rather than failing the whole read
+     * @param file the journal file
+     * @return the lines of the file without their line breaks, with null for each line that is not valid UTF-8
+     * @throws IOException throws IOException if the file could not be read
+     */
+    private static List<String> readLines(File file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        while (start < bytes.length) {
+            int end = lineEnd(bytes, start);
+            try {
+                lines.add(decoder.decode(ByteBuffer.wrap(bytes, start, end - start)).toString());
+            } catch (CharacterCodingException e) {
+                lines.add(null);
+            }
+            start = end + 1;
+        }
+        return lines;
+    }
+
+    /**
+     * Finds the end of a journal line
+     * @param bytes the bytes of the journal file
+     * @param start the offset the line starts at
+     * @return the offset of the line break that ends the line, or the length of the file if it has none
+     */
+    private static int lineEnd(byte[] bytes, int start) {
+        int end = start;
+        while (end < bytes.length && bytes[end] != '\n') {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Returns the length in bytes of a journal line, including its line break
+     * @param line the line
+     * @return the length of the line
+     */
+    private static long lineLength(String line) {
+        return line.getBytes(StandardCharsets.UTF_8).length + 1;
+    }
+
+    /**
+     * Reads a date from a journal entry
+     * @param entry the journal entry
+     * @param key the key of the date
+     * @return the date
+     */
+    private static LocalDate date(JSONObject entry, String key) {
+        return LocalDate.parse(entry.getString(key));
+    }
+
+    /**
+     * Creates a journal entry for the given change
+     * @param op the name of the change
+     * @param customerName the customer that was changed
+     * @return the entry
+     */
+    private static JSONObject entry(String op, String customerName) {
+        return new JSONObject().put("op", op).put("customer", customerName);
+    }
+
+    @Override
+    public void customerAdded(String customerName) {
+        append(entry("addCustomer", customerName));
+    }
+
+    @Override
+    public void productImported(String customerName, String content, LocalDate importDate, String invoiceNum,
+                                int quantity, String storageLocation) {
+        append(entry("importProduct", customerName).put("content", content)
+                .put("importDate", importDate.toString()).put("invoiceNumber", invoiceNum).put("quantity", quantity)
+                .put("storageLocation", storageLocation));
+    }
+
+    @Override
+    public void orderExported(String customerName, String importInvoiceNum, int quantity, LocalDate exportDate,
+                              String exportInvoiceNum) {
+        append(entry("exportOrder", customerName).put("invoiceNumber", importInvoiceNum).put("quantity", quantity)
+                .put("exportDate", exportDate.toString()).put("exportInvoiceNumber", exportInvoiceNum));
+    }
+
+    @Override
+    public void monthlyChargeRecorded(String customerName, String importInvoiceNum, LocalDate startDate,
+                                      LocalDate endDate, int quantity, String monthlyInvoiceNum) {
+        append(entry("recordMonthlyCharge", customerName).put("invoiceNumber", importInvoiceNum)
+                .put("startDate", startDate.toString()).put("endDate", endDate.toString()).put("quantity", quantity)
+                .put("monthlyInvoiceNumber", monthlyInvoiceNum));
+    }
+
+    @Override
+    public void customerDeleted(String customerName) {
+        append(entry("deleteCustomer", customerName));
+    }
+
+    @Override
+    public void customerOrderDeleted(String customerName, String invoiceNum) {
+        append(entry("deleteCustomerOrder", customerName).put("invoiceNumber", invoiceNum));
+    }
+
+    @Override
+    public void activeOrderEdited(String customerName, String invoiceNum, String content, String storageLocation) {
+        append(entry("editActiveOrder", customerName).put("invoiceNumber", invoiceNum).put("content", content)
+                .put("storageLocation", storageLocation));
+    }
+
+    @Override
+    public synchronized void batchStarted() {
+        this.batchThreads.add(Thread.currentThread());
+    }
+
+    /**
+     * Forces the entries of the batch, and those of any other thread's batch written so far, to disk and compacts the
+     * journal if it has grown large enough
+     * @throws UncheckedIOException throws UncheckedIOException if the entries or an earlier one could not be written
+     */
+    @Override
+    public synchronized void batchFinished() {
+        this.batchThreads.remove(Thread.currentThread());
+        checkWritable();
+        try {
+            forceAndCompact();
+        } catch (IOException e) {
+            this.writeFailure = e;
+            throw new UncheckedIOException(e);
+        }
+    }
+}
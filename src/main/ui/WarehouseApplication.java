@@ -1,8 +1,20 @@
 package ui;
 
+import model.HeapWarehouseStore;
 import model.Warehouse;
 import model.exceptions.*;
 import org.json.JSONObject;
+import persistence.AutosaveService;
+import persistence.CsvExporter;
+import persistence.CsvImportReport;
+import persistence.CsvImporter;
+import persistence.FileOrderArchive;
+import persistence.LoadReport;
+import persistence.MappedSnapshot;
+import persistence.SnapshotFormat;
+import persistence.WarehouseJournal;
+import ui.components.dialog.CsvExportDialog;
+import ui.components.dialog.CsvImportDialog;
 import ui.components.dialog.LoadDialog;
 import ui.components.dialog.SaveDialog;
 import ui.components.displaypanel.CurrentInventoryPanel;
@@ -15,8 +27,18 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Period;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Warehouse Application Graphical User Interface
@@ -30,6 +52,7 @@ import java.io.IOException;
  *      - edit previously made orders
  *      - view current inventory
  *      - view all past transactions
+ *      - importing and exporting CSV files
  * @author Patrick Noda
  */
 public class WarehouseApplication extends JFrame implements ActionListener {
@@ -38,12 +61,37 @@ public class WarehouseApplication extends JFrame implements ActionListener {
     private static final Color GUI_BACKGROUND_COLOR = new Color(250, 230, 190);
     private static final int GUI_HEIGHT = 1000;
     private static final int GUI_WIDTH = 1430;
+    // complete orders whose last export is older than this many days have their labels archived to disk as they are
+    // loaded
+    private static final int ARCHIVE_AFTER_DAYS = Integer.getInteger("warehouse.archiveAfterDays", 365);
+    // changes to a warehouse that has not been saved or loaded are autosaved to this file after this many seconds;
+    // the next launch offers to restore it
+    private static final long AUTOSAVE_SECONDS = Long.getLong("warehouse.autosaveSeconds", 30);
+    private static final String AUTOSAVE_FILE = System.getProperty("warehouse.autosaveFile",
+            new File(System.getProperty("user.home"), ".warehouse-autosave.json").getPath());
+    private static final String RESTORE_AUTOSAVE_TITLE = "Restore Autosave";
+    private static final String RESTORE_AUTOSAVE_TEXT = "Changes that were never saved to a file were autosaved to %s."
+            + "\nRestore them? If not, they are replaced by the next autosave.";
+    private static final String ERROR_RESTORE_AUTOSAVE = "ERROR--- The autosave could not be restored";
+    // changes to customers hashing to different lock stripes can run while the journal copies the warehouse
+    private static final int LOCK_STRIPES = 16;
 
-    private Warehouse warehouse = new Warehouse();
+    private Warehouse warehouse = newWarehouse();
+    private FileOrderArchive orderArchive;
+    private WarehouseJournal journal;            // journals changes to the last loaded or saved file, if any
+    private MappedSnapshot mappedSnapshot;       // serves the rows of the loaded file until the warehouse is needed
+    private AutosaveService autosave;            // saves the warehouse in the background while it has no journal
+    private final ExecutorService saver = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "warehouse-save");
+        thread.setDaemon(true);
+        return thread;
+    });
     private JLabel commentLabel;
     private JPanel mainPanel;
     private JButton toolBarSaveButton;
     private JButton toolBarLoadButton;
+    private JButton toolBarImportCsvButton;
+    private JButton toolBarExportCsvButton;
     private ImportOrderPanel importOrderPanel;
     private ExportOrderPanel exportOrderPanel;
     private MonthlyChargePanel monthlyChargePanel;
@@ -59,6 +107,8 @@ public class WarehouseApplication extends JFrame implements ActionListener {
         setUpFrameIcon();
         setupComponents();
         addActionListenersComponents();
+        restoreAutosave();
+        startAutosave();
         update();
         setVisible(true);
     }
@@ -84,19 +134,86 @@ public class WarehouseApplication extends JFrame implements ActionListener {
     }
 
 
+    /**
+     * Displays that a change could not be written to the journal of the loaded or saved file and stops further changes,
+     * which would not be kept either, until the warehouse is saved or another file is loaded
+     * @param e the failure to write the change
+     */
+    public void journalFailed(UncheckedIOException e) {
+        setEditable(false);
+        update(SaveDialog.ERROR_JOURNAL_FAILED, false);
+    }
+
     /**
      * Gets the JSONObject representation of the warehouse
      * @return JSONObject
      */
     public JSONObject getWarehouseJsonObjectRepresentation() {
-        return this.warehouse.convertToJsonObject();
+        return getWarehouse().convertToJsonObject();
     }
 
-    /** Getter */
+    /**
+     * Gets the warehouse, loading it in full first if only the mapped snapshot of the loaded file has been read
+     * @return the warehouse
+     */
     public Warehouse getWarehouse() {
+        if (this.mappedSnapshot != null) {
+            loadMappedWarehouse();
+        }
         return this.warehouse;
     }
 
+    /**
+     * Gets the display rows of the warehouse. While the warehouse has not been loaded in full, the rows are read
+     * straight from the mapped snapshot of the loaded file, each one only when it is first read from the list
+     * @param isActiveOrder true for the rows of active orders, false for the rows of complete orders
+     * @return the display rows, which must not be modified
+     */
+    public List<String[]> getOrderRows(boolean isActiveOrder) {
+        MappedSnapshot snapshot = this.mappedSnapshot;
+        if (snapshot != null) {
+            try {
+                int[] orders = snapshot.getOrderNumbers(isActiveOrder);
+                return new AbstractList<String[]>() {
+                    @Override
+                    public String[] get(int index) {
+                        return getMappedRow(snapshot, orders[index]);
+                    }
+
+                    @Override
+                    public int size() {
+                        return orders.length;
+                    }
+                };
+            } catch (CorruptFileException e) {
+                // getWarehouse() loads the file in full below and reports the error if that fails too
+            }
+        }
+        return Arrays.asList(getWarehouse().getOrders(isActiveOrder));
+    }
+
+    /**
+     * Gets the display row of an order of the mapped snapshot. If the row cannot be decoded, an empty row is returned
+     * and the warehouse is loaded in full once the display has been drawn, which reports the error if that fails too
+     * @param snapshot the mapped snapshot
+     * @param order the number of the order
+     * @return the display row
+     */
+    private String[] getMappedRow(MappedSnapshot snapshot, int order) {
+        try {
+            return snapshot.getRow(order);
+        } catch (CorruptFileException e) {
+            SwingUtilities.invokeLater(() -> {
+                if (this.mappedSnapshot == snapshot) {
+                    getWarehouse();
+                    this.currentInventoryPanel.renderDisplay();
+                    this.transactionHistoryPanel.renderDisplay();
+                }
+            });
+            return new String[0];
+        }
+    }
+
     @Override
     public void actionPerformed(ActionEvent e) {
         Object source = e.getSource();
@@ -106,6 +223,12 @@ public class WarehouseApplication extends JFrame implements ActionListener {
         if (source == this.toolBarLoadButton) {
             loadOperation();
         }
+        if (source == this.toolBarImportCsvButton) {
+            importCsvOperation();
+        }
+        if (source == this.toolBarExportCsvButton) {
+            exportCsvOperation();
+        }
     }
 
     /**
@@ -186,36 +309,379 @@ public class WarehouseApplication extends JFrame implements ActionListener {
     private void addActionListenersComponents() {
         this.toolBarSaveButton.addActionListener(this);
         this.toolBarLoadButton.addActionListener(this);
+        this.toolBarImportCsvButton.addActionListener(this);
+        this.toolBarExportCsvButton.addActionListener(this);
     }
 
     /**
-     * Creates a new save dialog which allows user to choose save destination
+     * Creates a new save dialog which allows user to choose save destination and format, saves the warehouse there and
+     * journals every later change to it. Saving again to the file already being journaled compacts its journal
+     * instead of writing the warehouse from scratch. The warehouse is written in the background and the result is
+     * displayed once it has been written; saving and loading are disabled until then
      */
     private void saveOperation() {
+        SaveDialog saveDialog = new SaveDialog(this);
+        File file = saveDialog.run();
+        if (file == null) {
+            return;
+        }
+
+        Warehouse savedWarehouse = getWarehouse();
+        boolean isCompaction = isJournaledTo(file, saveDialog.getSelectedFormat());
+        if (!isCompaction) {
+            try {
+                closeJournal();
+            } catch (IOException e) {
+                // the new journal replaces it, and the warehouse is written in full to the chosen file
+            }
+        }
+        WarehouseJournal savedJournal = isCompaction ? this.journal
+                : new WarehouseJournal(file, saveDialog.getSelectedFormat());
+        setSaveAndLoadEnabled(false);
+        CompletableFuture.runAsync(() -> writeSave(savedJournal, savedWarehouse, isCompaction), this.saver)
+                .whenComplete((result, failure) -> SwingUtilities.invokeLater(() -> finishSave(savedJournal,
+                        failure)));
+    }
+
+    /**
+     * Writes the warehouse to the file of a journal, see saveOperation(). Runs on the save thread
+     * @param savedJournal the journal of the chosen file
+     * @param savedWarehouse the warehouse to save
+     * @param isCompaction true to compact the journal, which already journals the warehouse, false to start it
+     * @throws CompletionException throws CompletionException if the warehouse could not be written
+     */
+    private static void writeSave(WarehouseJournal savedJournal, Warehouse savedWarehouse, boolean isCompaction) {
         try {
-            SaveDialog saveDialog = new SaveDialog(this);
-            saveDialog.run();
-            update(SaveDialog.SUCCESS_SAVE_FILE_FOUND, true);
-        } catch (FileNotFoundException e) {
+            if (isCompaction) {
+                // saving again to the journaled file only has to write what changed since it was last written
+                savedJournal.compact().get();
+            } else {
+                savedJournal.start(savedWarehouse);
+            }
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Journals later changes to the saved file and displays the result of a save, see saveOperation(). Runs on the
+     * event thread
+     * @param savedJournal the journal of the chosen file
+     * @param failure why the warehouse could not be written, or null if it was written
+     */
+    private void finishSave(WarehouseJournal savedJournal, Throwable failure) {
+        setSaveAndLoadEnabled(true);
+        if (failure != null) {
+            if (savedJournal != this.journal) {
+                closeFailedJournal(savedJournal);
+            }
             update(SaveDialog.ERROR_SAVE_FILE_NOT_FOUND, false);
+            return;
         }
+        this.journal = savedJournal;
+        stopAutosave();
+        setEditable(true);
+        update(SaveDialog.SUCCESS_SAVE_FILE_FOUND, true);
     }
 
     /**
-     * Creates a new load dialog which allows user to choose load source
+     * Checks whether changes are being journaled to a given file in a given format, with every change written so far
+     * @param file the file
+     * @param format the format
+     * @return true if the journal writes to the file in the format and has not failed to write a change
+     */
+    private boolean isJournaledTo(File file, SnapshotFormat format) {
+        return this.journal != null && !this.journal.hasWriteFailed() && this.journal.writesTo(file, format);
+    }
+
+    /**
+     * Creates a new load dialog which allows user to choose load source, loads the warehouse from it with its journal
+     * replayed and journals every later change to it. A binary snapshot with nothing to replay is only memory-mapped,
+     * and is loaded in full the first time the warehouse is needed
      */
     private void loadOperation() {
+        File file = new LoadDialog(this).run();
+        if (file == null) {
+            return;
+        }
+
+        FileOrderArchive loadedArchive = null;
+        try {
+            WarehouseJournal loadedJournal = new WarehouseJournal(file);
+            MappedSnapshot loadedSnapshot = loadedJournal.map();
+            loadedArchive = loadedSnapshot == null ? openOrderArchive() : null;
+            Warehouse loadedWarehouse = loadedSnapshot == null
+                    ? loadedJournal.load(archivingWarehouse(newWarehouse(), loadedArchive)) : newWarehouse();
+            closeJournal();
+            this.warehouse = loadedWarehouse;
+            this.journal = loadedJournal;
+            this.mappedSnapshot = loadedSnapshot;
+            stopAutosave();
+            // the previously loaded warehouse and the orders archived from it are no longer used
+            replaceOrderArchive(loadedArchive);
+            setEditable(true);
+            showLoadResult(loadedJournal.getLoadReport());
+        } catch (IOException | CorruptFileException e) {
+            closeOrderArchive(loadedArchive);
+            update(LoadDialog.ERROR_LOAD_UNSUCCESSFUL, false);
+        }
+    }
+
+    /**
+     * Creates a new CSV import dialog which allows user to choose a CSV file and applies its rows to the warehouse,
+     * displaying how many rows were imported and why any other rows were rejected
+     */
+    private void importCsvOperation() {
+        File file = new CsvImportDialog(this).run();
+        if (file == null) {
+            return;
+        }
+
+        try {
+            CsvImportReport report = new CsvImporter().importRows(file, getWarehouse());
+            update(CsvImportDialog.SUCCESS_TEXT + report.getSummary(), report.isComplete());
+        } catch (IOException e) {
+            update(CsvImportDialog.ERROR_IMPORT_UNSUCCESSFUL, false);
+        } catch (UncheckedIOException e) {
+            journalFailed(e);
+        }
+    }
+
+    /**
+     * Creates a new CSV export dialog which allows user to choose an export destination, and writes the current
+     * inventory or the full history of the warehouse there
+     */
+    private void exportCsvOperation() {
+        CsvExportDialog exportDialog = new CsvExportDialog(this);
+        File file = exportDialog.run();
+        if (file == null) {
+            return;
+        }
+
         try {
-            LoadDialog loadDialog = new LoadDialog(this);
-            JSONObject jsonWarehouseRepresentation = loadDialog.run();
-            if (jsonWarehouseRepresentation == null) {
-                return;
+            if (exportDialog.isHistorySelected()) {
+                new CsvExporter().writeHistory(file, getWarehouse());
+            } else {
+                new CsvExporter().writeInventory(file, getWarehouse());
             }
-            this.warehouse = new Warehouse();
-            this.warehouse.convertJsonObjectToWarehouse(jsonWarehouseRepresentation);
+            update(CsvExportDialog.SUCCESS_TEXT, true);
+        } catch (IOException e) {
+            update(CsvExportDialog.ERROR_EXPORT_UNSUCCESSFUL, false);
+        }
+    }
+
+    /**
+     * Displays that the warehouse has been loaded, along with the customers that could not be recovered if any
+     * @param report the report of the load, or null if the warehouse was mapped instead of loaded
+     */
+    private void showLoadResult(LoadReport report) {
+        if (report != null && !report.isComplete()) {
+            update(LoadDialog.PARTIAL_LOAD_TEXT + report.getSummary(), false);
+        } else {
             update(LoadDialog.SUCCESS_TEXT, true);
+        }
+    }
+
+    /**
+     * Loads the warehouse of the mapped snapshot in full and starts journaling its changes. If it cannot be loaded,
+     * the error is displayed and an empty warehouse is used instead
+     */
+    private void loadMappedWarehouse() {
+        try {
+            this.mappedSnapshot.close();
+        } catch (IOException e) {
+            // the snapshot is read again by the journal below
+        }
+        this.mappedSnapshot = null;
+
+        FileOrderArchive loadedArchive = openOrderArchive();
+        try {
+            this.warehouse = this.journal.load(archivingWarehouse(newWarehouse(), loadedArchive));
+            replaceOrderArchive(loadedArchive);
         } catch (IOException | CorruptFileException e) {
-            update(LoadDialog.ERROR_LOAD_UNSUCCESSFUL, false);
+            closeOrderArchive(loadedArchive);
+            this.warehouse = newWarehouse();
+            this.journal = null;
+            startAutosave();
+            displayMessage(LoadDialog.ERROR_LOAD_UNSUCCESSFUL, false);
+        }
+    }
+
+    /**
+     * Closes the journal and mapped snapshot of the last loaded or saved file, if any
+     * @throws IOException If the journal could not be closed
+     */
+    private void closeJournal() throws IOException {
+        if (this.mappedSnapshot != null) {
+            this.mappedSnapshot.close();
+            this.mappedSnapshot = null;
+        }
+        if (this.journal != null) {
+            this.journal.close();
+            this.journal = null;
+        }
+    }
+
+    /**
+     * Offers to restore the warehouse autosaved by an earlier launch, if an autosave exists, and displays an error if
+     * it cannot be read
+     */
+    private void restoreAutosave() {
+        File file = new File(AUTOSAVE_FILE);
+        if (!file.isFile()) {
+            return;
+        }
+        int choice = JOptionPane.showConfirmDialog(this, String.format(RESTORE_AUTOSAVE_TEXT, file.getAbsolutePath()),
+                RESTORE_AUTOSAVE_TITLE, JOptionPane.YES_NO_OPTION);
+        if (choice != JOptionPane.YES_OPTION) {
+            return;
+        }
+        try {
+            this.warehouse = SnapshotFormat.JSON.readWarehouse(file, newWarehouse());
+        } catch (IOException | CorruptFileException e) {
+            JOptionPane.showMessageDialog(this, ERROR_RESTORE_AUTOSAVE, RESTORE_AUTOSAVE_TITLE,
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Starts autosaving the warehouse in the background, taking its copies on the Swing event thread
+     */
+    private void startAutosave() {
+        this.autosave = new AutosaveService(this.warehouse, new File(AUTOSAVE_FILE), SnapshotFormat.JSON,
+                TimeUnit.SECONDS.toMillis(AUTOSAVE_SECONDS), SwingUtilities::invokeLater);
+    }
+
+    /**
+     * Stops autosaving once the warehouse is journaled to a chosen file, which saves every change as it is made. The
+     * last autosave is written in the background, so the event thread does not wait for it
+     */
+    private void stopAutosave() {
+        if (this.autosave == null) {
+            return;
+        }
+        this.autosave.close();
+        this.autosave = null;
+    }
+
+    /**
+     * Opens a new temporary archive segment for the label histories of old complete orders of a warehouse to load
+     * @return the archive segment, or null if it cannot be created, in which case the labels stay in memory
+     */
+    private static FileOrderArchive openOrderArchive() {
+        try {
+            File segment = File.createTempFile("warehouse-archive", ".dat");
+            segment.deleteOnExit();
+            return new FileOrderArchive(segment);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Makes an empty warehouse move the label histories of old complete orders into an archive segment as its
+     * customers are loaded, so they are never all held in memory at once
+     * @param warehouse the empty warehouse to load into
+     * @param archive the archive segment, or null if orders are not archived
+     * @return the given warehouse
+     */
+    private static Warehouse archivingWarehouse(Warehouse warehouse, FileOrderArchive archive) {
+        if (archive != null) {
+            warehouse.archiveLoadedOrders(Period.ofDays(ARCHIVE_AFTER_DAYS), archive);
+        }
+        return warehouse;
+    }
+
+    /**
+     * Replaces the archive segment of the previously loaded warehouse with the segment of the loaded one, deleting
+     * the previous segment
+     * @param archive the archive segment of the loaded warehouse, or null if it has none
+     */
+    private void replaceOrderArchive(FileOrderArchive archive) {
+        closeOrderArchive(this.orderArchive);
+        this.orderArchive = archive;
+    }
+
+    /**
+     * Closes and deletes an archive segment that no order refers to any more
+     * @param archive the archive segment, or null if there is none
+     */
+    private static void closeOrderArchive(FileOrderArchive archive) {
+        if (archive == null) {
+            return;
+        }
+        try {
+            archive.close();
+        } catch (IOException e) {
+            // the segment is no longer referenced by any order
+        }
+        archive.getFile().delete();
+    }
+
+    /**
+     * Closes the journal of a save that failed to start it. The previous journal has already been closed, so the
+     * changes are autosaved until the next save
+     * @param failedJournal the journal that could not be started
+     */
+    private void closeFailedJournal(WarehouseJournal failedJournal) {
+        try {
+            failedJournal.close();
+        } catch (IOException e) {
+            // nothing was journaled to it
+        }
+        if (this.autosave == null) {
+            startAutosave();
+        }
+    }
+
+    /**
+     * Enables or disables saving and loading, which replace the journal of the warehouse
+     * @param isEnabled true to allow saving and loading, false to stop them
+     */
+    private void setSaveAndLoadEnabled(boolean isEnabled) {
+        this.toolBarSaveButton.setEnabled(isEnabled);
+        this.toolBarLoadButton.setEnabled(isEnabled);
+    }
+
+    /**
+     * Creates an empty warehouse the event thread changes while a journal may copy it on its compaction thread
+     * @return the warehouse
+     */
+    private static Warehouse newWarehouse() {
+        return new Warehouse(new HeapWarehouseStore(), LOCK_STRIPES);
+    }
+
+    /**
+     * Enables or disables the input panels and CSV import, which change the warehouse
+     * @param isEditable true to allow the warehouse to be changed, false to stop it from being changed
+     */
+    private void setEditable(boolean isEditable) {
+        setTreeEnabled(this.importOrderPanel, isEditable);
+        setTreeEnabled(this.exportOrderPanel, isEditable);
+        setTreeEnabled(this.monthlyChargePanel, isEditable);
+        setTreeEnabled(this.editOrderPanel, isEditable);
+        setTreeEnabled(this.deleteOrderPanel, isEditable);
+        setTreeEnabled(this.deleteCustomerPanel, isEditable);
+        setTreeEnabled(this.addCustomerPanel, isEditable);
+        this.toolBarImportCsvButton.setEnabled(isEditable);
+    }
+
+    /**
+     * Enables or disables a component along with every component inside it
+     * @param comp the component
+     * @param isEnabled true to enable the components, false to disable them
+     */
+    private static void setTreeEnabled(Component comp, boolean isEnabled) {
+        comp.setEnabled(isEnabled);
+        if (comp instanceof Container) {
+            for (Component child : ((Container) comp).getComponents()) {
+                setTreeEnabled(child, isEnabled);
+            }
         }
     }
 
@@ -0,0 +1,58 @@
+package ui.components.dialog;
+
+import ui.WarehouseApplication;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileFilter;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.io.File;
+
+/**
+ * Dialog that handles the CSV export functionality of the warehouse application, the chosen file filter decides
+ * whether the current inventory or the full history of the warehouse is exported
+ */
+public class CsvExportDialog extends Dialog {
+    public static final String ERROR_EXPORT_UNSUCCESSFUL = "ERROR--- CSV export unsuccessful..";
+    public static final String SUCCESS_TEXT = "Warehouse has been exported to CSV file";
+    private static final String TITLE = "Select a CSV Export Location";
+    private static final String EXTENSION = "csv";
+
+    private final FileFilter historyFilter = new FileNameExtensionFilter("Transaction history (.csv)", EXTENSION);
+    private boolean isHistorySelected;
+
+    public CsvExportDialog(WarehouseApplication app) {
+        super(app);
+        super.fileChooser.setDialogTitle(TITLE);
+        super.fileChooser.setAcceptAllFileFilterUsed(false);
+        super.fileChooser.addChoosableFileFilter(new FileNameExtensionFilter("Current inventory (.csv)", EXTENSION));
+        super.fileChooser.addChoosableFileFilter(this.historyFilter);
+        super.fileChooser.setFileFilter(super.fileChooser.getChoosableFileFilters()[0]);
+    }
+
+    /**
+     * Displays export dialog and responds to user input
+     * If the chosen file name has no extension, .csv is added to it
+     * @return the file the user selected to export the warehouse to, or null if no file was chosen
+     */
+    public File run() {
+        int retValue = super.fileChooser.showSaveDialog(this.warehouseApplication);
+
+        if (retValue == JFileChooser.APPROVE_OPTION) {
+            this.isHistorySelected = super.fileChooser.getFileFilter() == this.historyFilter;
+            File file = super.fileChooser.getSelectedFile();
+            if (!file.getName().contains(".")) {
+                file = new File(file.getPath() + "." + EXTENSION);
+            }
+            return file;
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the user chose to export the full history rather than the current inventory
+     * @return true if the history is exported
+     */
+    public boolean isHistorySelected() {
+        return this.isHistorySelected;
+    }
+}
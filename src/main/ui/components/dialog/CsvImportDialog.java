@@ -0,0 +1,36 @@
+package ui.components.dialog;
+
+import ui.WarehouseApplication;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.io.File;
+
+/**
+ * Dialog that handles the CSV bulk import functionality of the warehouse application
+ */
+public class CsvImportDialog extends Dialog {
+    public static final String ERROR_IMPORT_UNSUCCESSFUL = "ERROR--- CSV import unsuccessful..";
+    public static final String SUCCESS_TEXT = "CSV import finished: ";
+    private static final String TITLE = "Select CSV File to Import";
+
+    public CsvImportDialog(WarehouseApplication app) {
+        super(app);
+        super.fileChooser.setDialogTitle(TITLE);
+        super.fileChooser.setAcceptAllFileFilterUsed(false);
+        super.fileChooser.addChoosableFileFilter(new FileNameExtensionFilter("CSV files (.csv)", "csv"));
+    }
+
+    /**
+     * Displays import dialog and responds to user input
+     * @return the file the user selected to import rows from, or null if no file was chosen
+     */
+    public File run() {
+        int retValue = super.fileChooser.showOpenDialog(this.warehouseApplication);
+
+        if (retValue == JFileChooser.APPROVE_OPTION) {
+            return super.fileChooser.getSelectedFile();
+        }
+        return null;
+    }
+}
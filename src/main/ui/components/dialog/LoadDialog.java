@@ -1,12 +1,9 @@
 package ui.components.dialog;
 
-import org.json.JSONObject;
-import persistence.JsonReader;
 import ui.WarehouseApplication;
 
 import javax.swing.*;
 import java.io.File;
-import java.io.IOException;
 
 /**
  *  Dialog that handles the load functionality of the warehouse application
@@ -14,6 +11,7 @@ import java.io.IOException;
 public class LoadDialog extends Dialog {
     public static final String ERROR_LOAD_UNSUCCESSFUL = "ERROR--- Load unsuccessful..";
     public static final String SUCCESS_TEXT = "Warehouse has been loaded";
+    public static final String PARTIAL_LOAD_TEXT = "Warehouse has been loaded, but ";
     private static final String TITLE = "Select Load File";
 
     public LoadDialog(WarehouseApplication app) {
@@ -23,17 +21,13 @@ public class LoadDialog extends Dialog {
 
     /**
      * Displays load dialog and responds to user input
-     * If the user selects a file to retrieve data from, the file data is parsed into JSONObject
-     * @return JSONObject
-     * @throws IOException If the JSON in the chosen file cannot be parsed
+     * @return the file the user selected to retrieve data from, or null if no file was chosen
      */
-    public JSONObject run() throws IOException {
+    public File run() {
         int retValue = super.fileChooser.showOpenDialog(this.warehouseApplication);
 
         if (retValue == JFileChooser.APPROVE_OPTION) {
-            File file = super.fileChooser.getSelectedFile();
-            JsonReader reader = new JsonReader();
-            return reader.getJsonRepresentation(file);
+            return super.fileChooser.getSelectedFile();
         }
         return null;
     }
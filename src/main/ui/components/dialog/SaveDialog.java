@@ -1,37 +1,70 @@
 package ui.components.dialog;
 
-import persistence.JsonWriter;
+import persistence.SnapshotFormat;
 import ui.WarehouseApplication;
 
 import javax.swing.*;
+import javax.swing.filechooser.FileFilter;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Dialog that handles the save functionality of the warehouse application
  */
 public class SaveDialog extends Dialog {
     public static final String ERROR_SAVE_FILE_NOT_FOUND = "ERROR--- The save file could not be found";
+    public static final String ERROR_JOURNAL_FAILED =
+            "ERROR--- The last change could not be written to the file, save the warehouse to keep your changes";
     public static final String SUCCESS_SAVE_FILE_FOUND = "Warehouse has been saved to file";
     private static final String TITLE = "Select a Save Location";
 
+    private final Map<FileFilter, SnapshotFormat> formatFilters = new HashMap<>();
+    private SnapshotFormat selectedFormat = SnapshotFormat.JSON;
+
     public SaveDialog(WarehouseApplication app) {
         super(app);
         super.fileChooser.setDialogTitle(TITLE);
+        addFormatFilters();
+    }
+
+    /**
+     * Adds a file filter for each snapshot format, the chosen filter decides the format the warehouse is saved in
+     */
+    private void addFormatFilters() {
+        super.fileChooser.setAcceptAllFileFilterUsed(false);
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            FileFilter filter = new FileNameExtensionFilter(
+                    format.getDescription() + " (." + format.getExtension() + ")", format.getExtension());
+            this.formatFilters.put(filter, format);
+            super.fileChooser.addChoosableFileFilter(filter);
+        }
+        super.fileChooser.setFileFilter(super.fileChooser.getChoosableFileFilters()[0]);
     }
 
     /**
      * Displays save dialog and responds to user input
-     * If the user selects a file, the JSON object representation of the warehouse is saved in the chosen file location
-     * @throws FileNotFoundException Throws FileNotFoundException, if the file indicated by the user does not exist
+     * If the chosen file name has no extension, the extension of the chosen format is added to it
+     * @return the file the user selected to save the warehouse to, or null if no file was chosen
      */
-    public void run() throws FileNotFoundException {
+    public File run() {
         int retValue = super.fileChooser.showSaveDialog(this.warehouseApplication);
 
         if (retValue == JFileChooser.APPROVE_OPTION) {
+            this.selectedFormat = this.formatFilters.getOrDefault(super.fileChooser.getFileFilter(),
+                    SnapshotFormat.JSON);
             File file = super.fileChooser.getSelectedFile();
-            JsonWriter writer = new JsonWriter();
-            writer.saveToFile(file, super.warehouseApplication.getWarehouseJsonObjectRepresentation());
+            if (!file.getName().contains(".")) {
+                file = new File(file.getPath() + "." + this.selectedFormat.getExtension());
+            }
+            return file;
         }
+        return null;
+    }
+
+    /** Getter */
+    public SnapshotFormat getSelectedFormat() {
+        return this.selectedFormat;
     }
-}
\ No newline at end of file
+}
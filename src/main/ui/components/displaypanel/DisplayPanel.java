@@ -2,13 +2,14 @@ package ui.components.displaypanel;
 
 import ui.WarehouseApplication;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.AbstractTableModel;
 import javax.swing.table.TableCellRenderer;
 import javax.swing.table.TableColumnModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.List;
 
 /**
  * Represents a display panel that renders a table of data
@@ -38,9 +39,8 @@ public abstract class DisplayPanel extends JComponent implements ActionListener
         // set TableRowSorter to JTable
         getTable().setRowSorter(getTableRowSorter());
 
-        // adjust column/row characteristics in current JTable
+        // adjust column characteristics in current JTable, rows are fitted to their text as they are drawn
         setColumns(getTable());
-        setRowProperties(getTable());
     }
 
     /** Setter */
@@ -140,29 +140,56 @@ public abstract class DisplayPanel extends JComponent implements ActionListener
     }
 
     /**
-     * Dynamically sets row height depending on amount of text in each row
+     * Sets the height of a row depending on the amount of text in it, called as the row is drawn so that only the
+     * rows that are shown are read
      * @param jt JTable
+     * @param row the row in the view of the table
      */
-    private void setRowProperties(JTable jt) {
-        int numRows = jt.getRowCount();
+    private static void fitRowHeight(JTable jt, int row) {
         double fontHeightPixels = jt.getFontMetrics(jt.getFont()).getHeight() * 1.05;
-
-        for (int i = 0; i < numRows; i++) {
-            double heightThree = Math.ceil(((String) jt.getValueAt(i, 3)).length() / 23.0);
-            double heightSix = Math.ceil(((String) jt.getValueAt(i, 6)).length() / 28.0);
-            double heightSeven = Math.ceil(((String) jt.getValueAt(i, 7)).length() / 36.0);
-            double maxNumLines = Math.max(heightSeven, Math.max(heightThree, heightSix));
-            jt.setRowHeight(i, (int) Math.ceil((fontHeightPixels * maxNumLines)));
+        double heightThree = Math.ceil(String.valueOf(jt.getValueAt(row, 3)).length() / 23.0);
+        double heightSix = Math.ceil(String.valueOf(jt.getValueAt(row, 6)).length() / 28.0);
+        double heightSeven = Math.ceil(String.valueOf(jt.getValueAt(row, 7)).length() / 36.0);
+        double maxNumLines = Math.max(1, Math.max(heightSeven, Math.max(heightThree, heightSix)));
+        int height = (int) Math.ceil(fontHeightPixels * maxNumLines);
+        // setting the height draws the table again, so it is only set when it changes
+        if (jt.getRowHeight(row) != height) {
+            jt.setRowHeight(row, height);
         }
     }
 
     /**
-     *  MyTableModel class
+     *  MyTableModel class, which reads a row from its list only when the table draws, filters or sorts it
      */
-    protected static class MyTableModel extends DefaultTableModel {
+    protected static class MyTableModel extends AbstractTableModel {
+        private final List<String[]> rows;
+        private final String[] columnNames;
+
+        public MyTableModel(List<String[]> rows, String[] columnNames) {
+            this.rows = rows;
+            this.columnNames = columnNames;
+        }
 
-        public MyTableModel(String[][] data, String[] columnNames) {
-            super(data, columnNames);
+        @Override
+        public int getRowCount() {
+            return this.rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return this.columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int col) {
+            return this.columnNames[col];
+        }
+
+        @Override
+        public Object getValueAt(int row, int col) {
+            String[] values = this.rows.get(row);
+            // a row that could not be read is empty
+            return col < values.length ? values[col] : "";
         }
 
         @Override
@@ -203,6 +230,7 @@ public abstract class DisplayPanel extends JComponent implements ActionListener
         public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
                                                        boolean hasFocus, int row, int column) {
             setText(value == null ? "" : value.toString());
+            fitRowHeight(table, row);
             return this;
         }
     }
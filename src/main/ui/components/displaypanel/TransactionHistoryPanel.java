@@ -1,6 +1,5 @@
 package ui.components.displaypanel;
 
-import model.Warehouse;
 
 import javax.swing.*;
 import javax.swing.table.TableRowSorter;
@@ -45,8 +44,7 @@ public class TransactionHistoryPanel extends DisplayPanel {
 
     @Override
     protected MyTableModel createTableModel() {
-        Warehouse warehouse = this.warehouseApplication.getWarehouse();
-        return new MyTableModel(warehouse.getOrders(false), DISPLAY_COLUMN_NAMES);
+        return new MyTableModel(this.warehouseApplication.getOrderRows(false), DISPLAY_COLUMN_NAMES);
     }
 
     @Override
@@ -4,6 +4,7 @@ import ui.WarehouseApplication;
 import javax.swing.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.UncheckedIOException;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
@@ -21,7 +22,12 @@ public abstract class InputPanel extends JComponent implements ActionListener {
     public void actionPerformed(ActionEvent e) {
         String actionCommand = e.getActionCommand();
         if (actionCommand == "Enter") {
-            submitInput();
+            try {
+                submitInput();
+            } catch (UncheckedIOException ex) {
+                // the change was made but could not be journaled to the loaded or saved file
+                this.warehouseApplication.journalFailed(ex);
+            }
         }
 
         if (actionCommand == "Cancel") {
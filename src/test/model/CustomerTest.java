@@ -5,6 +5,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -16,6 +17,7 @@ import static org.junit.jupiter.api.Assertions.*;
 public class CustomerTest {
     // Test Customer initial values:
     private static final String TEST_CUSTOMER_NAME = "TEST";
+    private static final String TEST_CUSTOMER_NAME_TWO = "TEST2";
     // Test Order fields/values:
     private static final String TEST_ORDER_CONTENT_ONE = "Content1";
     private static final String TEST_ORDER_INVOICE_NUMBER_ONE = "123456-a";
@@ -245,7 +247,7 @@ public class CustomerTest {
             assertEquals(1, this.testCustomer.getActiveOrderSize());
             assertEquals(1, this.testCustomer.getCompleteOrderSize());
             assertEquals(TEST_ORDER_INVOICE_NUMBER_ONE,
-                    this.testCustomer.getCompleteOrders().get(0).getInvoiceNumber());
+                    this.testCustomer.getCompleteOrders().iterator().next().getInvoiceNumber());
         } catch (OrderDoesNotExistException e) {
             fail("This should not run");
         } catch (QuantityNegativeException e) {
@@ -334,6 +336,45 @@ public class CustomerTest {
         assertEquals(0, this.testCustomer.getCompleteOrderSize());
     }
 
+    @Test
+    public void testDeleteCompleteOrder() {
+        // setup
+        addOrdersToCustomer();
+
+        try {
+            this.testCustomer.removeFromOrder(TEST_ORDER_INVOICE_NUMBER_TWO, TEST_ORDER_QUANTITY_TWO,
+                    TEST_ORDER_IMPORT_DATE_TWO.plusDays(10), TEST_INVOICE_NUMBER_TWO);
+            this.testCustomer.removeFromOrder(TEST_ORDER_INVOICE_NUMBER_ONE, TEST_ORDER_QUANTITY_ONE,
+                    TEST_ORDER_IMPORT_DATE_ONE.plusDays(10), TEST_INVOICE_NUMBER_ONE);
+
+            // complete orders are kept in the order they were completed
+            Iterator<Order> completeOrders = this.testCustomer.getCompleteOrders().iterator();
+            assertEquals(TEST_ORDER_INVOICE_NUMBER_TWO, completeOrders.next().getInvoiceNumber());
+            assertEquals(TEST_ORDER_INVOICE_NUMBER_ONE, completeOrders.next().getInvoiceNumber());
+
+            this.testCustomer.deleteOrder(TEST_ORDER_INVOICE_NUMBER_TWO);
+        } catch (QuantityNegativeException | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException
+                | InvalidImportDateException | OrderDoesNotExistException e) {
+            fail("This should not run");
+        }
+
+        assertEquals(0, this.testCustomer.getActiveOrderSize());
+        assertEquals(1, this.testCustomer.getCompleteOrderSize());
+        assertEquals(TEST_ORDER_INVOICE_NUMBER_ONE,
+                this.testCustomer.getCompleteOrders().iterator().next().getInvoiceNumber());
+
+        try {
+            this.testCustomer.deleteOrder(TEST_ORDER_INVOICE_NUMBER_TWO);
+            fail("This should not run");
+        } catch (OrderDoesNotExistException e) {
+            // pass
+        } catch (QuantityNegativeException | QuantityZeroException | InvalidImportDateException e) {
+            fail("This should not run");
+        }
+        assertEquals(1, this.testCustomer.getCompleteOrderSize());
+    }
+
     @Test
     public void testRecordMonthlyChargeOnce() {
         // setup
@@ -427,4 +468,40 @@ public class CustomerTest {
             fail("This should not run");
         }
     }
+
+    @Test
+    public void testGetRowsCachedUntilChanged() {
+        // setup
+        addOrdersToCustomer();
+
+        String[][] activeRows = this.testCustomer.getRows(true);
+        assertEquals(2, activeRows.length);
+        assertEquals(0, this.testCustomer.getRows(false).length);
+        assertSame(activeRows, this.testCustomer.getRows(true));
+
+        try {
+            this.testCustomer.removeFromOrder(TEST_ORDER_INVOICE_NUMBER_ONE, TEST_ORDER_QUANTITY_ONE,
+                    TEST_DATE_ONE, TEST_INVOICE_NUMBER_ONE);
+        } catch (OrderDoesNotExistException | QuantityNegativeException | QuantityZeroException
+                | QuantityExceedsMaxQuantityException | RemovalQuantityExceedsAvailabilityException
+                | InvalidExportDateException e) {
+            fail("This should not run");
+        }
+
+        // only the rows of the changed order are rebuilt
+        String[][] updatedActiveRows = this.testCustomer.getRows(true);
+        assertNotSame(activeRows, updatedActiveRows);
+        assertEquals(1, updatedActiveRows.length);
+        assertEquals(TEST_ORDER_INVOICE_NUMBER_TWO, updatedActiveRows[0][1]);
+        assertSame(this.testCustomer.getActiveOrders().get(TEST_ORDER_INVOICE_NUMBER_TWO).getRow(TEST_CUSTOMER_NAME),
+                updatedActiveRows[0]);
+
+        String[][] completeRows = this.testCustomer.getRows(false);
+        assertEquals(1, completeRows.length);
+        assertEquals(TEST_CUSTOMER_NAME, completeRows[0][0]);
+        assertEquals("0", completeRows[0][2]);
+
+        this.testCustomer.setName(TEST_CUSTOMER_NAME_TWO);
+        assertEquals(TEST_CUSTOMER_NAME_TWO, this.testCustomer.getRows(false)[0][0]);
+    }
 }
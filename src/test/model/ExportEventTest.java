@@ -0,0 +1,64 @@
+package model;
+
+import model.exceptions.InvalidExportDateException;
+import model.exceptions.InvalidImportDateException;
+import model.exceptions.QuantityExceedsMaxQuantityException;
+import model.exceptions.QuantityNegativeException;
+import model.exceptions.QuantityZeroException;
+import model.exceptions.RemovalQuantityExceedsAvailabilityException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ExportEvent tests
+ */
+public class ExportEventTest {
+    private static final String TEST_CUSTOMER_NAME = "TEST";
+    private static final int TEST_EXPORT_QUANTITY = 10;
+    private static final String TEST_EXPORT_INVOICE_NUMBER = "000000";
+    private static final LocalDate TEST_EXPORT_DATE = LocalDate.of(2021, 12, 25);
+
+    private Order testOrder;
+    private ExportLabel testExportLabel;
+    private ExportEvent testExportEvent;
+
+    @BeforeEach
+    public void setUp() {
+        try {
+            this.testOrder = new Order("Content", LocalDate.of(2021, 12, 1), "123456", 50, "AL Warehouse");
+        } catch (QuantityNegativeException | QuantityZeroException | InvalidImportDateException e) {
+            fail("This should not run");
+        }
+        this.testExportLabel = new ExportLabel(TEST_EXPORT_QUANTITY, TEST_EXPORT_INVOICE_NUMBER, TEST_EXPORT_DATE);
+        this.testExportEvent = new ExportEvent(TEST_CUSTOMER_NAME, this.testOrder, this.testExportLabel);
+    }
+
+    @Test
+    public void testExportEventConstructor() {
+        assertEquals(TEST_CUSTOMER_NAME, this.testExportEvent.getCustomerName());
+        assertSame(this.testOrder, this.testExportEvent.getOrder());
+        assertSame(this.testExportLabel, this.testExportEvent.getExportLabel());
+        assertEquals(TEST_EXPORT_DATE, this.testExportEvent.getExportDate());
+        assertEquals(TEST_EXPORT_QUANTITY, this.testExportEvent.getQuantity());
+    }
+
+    @Test
+    public void testExportEventByPosition() {
+        try {
+            this.testOrder.remove(5, "111111", LocalDate.of(2021, 12, 10));
+            this.testOrder.remove(TEST_EXPORT_QUANTITY, TEST_EXPORT_INVOICE_NUMBER, TEST_EXPORT_DATE);
+        } catch (QuantityNegativeException | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException e) {
+            fail("This should not run");
+        }
+        ExportEvent event = new ExportEvent(TEST_CUSTOMER_NAME, this.testOrder, 1);
+
+        assertSame(this.testOrder.getExports().get(1), event.getExportLabel());
+        assertEquals(TEST_EXPORT_DATE, event.getExportDate());
+        assertEquals(TEST_EXPORT_QUANTITY, event.getQuantity());
+    }
+}
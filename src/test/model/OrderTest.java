@@ -5,7 +5,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -14,6 +22,7 @@ import static org.junit.jupiter.api.Assertions.*;
  */
 public class OrderTest {
     // Test Order fields/values:
+    private static final String TEST_CUSTOMER_NAME = "TEST";
     private static final String TEST_ORDER_CONTENT = "Content";
     private static final String TEST_ORDER_INVOICE_NUMBER = "123456-a";
     private static final String TEST_ORDER_STORAGE_LOCATION = "AL Warehouse";
@@ -113,7 +122,8 @@ public class OrderTest {
     @Test
     public void testRemoveOnce() {
         try {
-            this.testOrder.remove(TEST_QUANTITY_ONE, TEST_INVOICE_NUMBER_ONE, TEST_DATE_ONE);
+            ExportLabel exportLabel = this.testOrder.remove(TEST_QUANTITY_ONE, TEST_INVOICE_NUMBER_ONE, TEST_DATE_ONE);
+            assertEquals(new ExportLabel(TEST_QUANTITY_ONE, TEST_INVOICE_NUMBER_ONE, TEST_DATE_ONE), exportLabel);
         } catch (QuantityNegativeException e) {
             fail("This should not run");
         } catch (QuantityZeroException e) {
@@ -482,8 +492,252 @@ public class OrderTest {
         // confirm that no monthly charge label has been added
         assertEquals(0, this.testOrder.getMonthlyChargeLabels().size());
     }
-}
 
+    @Test
+    public void testGetRow() {
+        String[] row = this.testOrder.getRow(TEST_CUSTOMER_NAME);
+        assertArrayEquals(new String[]{TEST_CUSTOMER_NAME, TEST_ORDER_INVOICE_NUMBER,
+                Integer.toString(TEST_ORDER_QUANTITY), TEST_ORDER_CONTENT, "01/21/21", TEST_ORDER_STORAGE_LOCATION,
+                "", ""}, row);
+
+        // cached until this order changes
+        assertSame(row, this.testOrder.getRow(TEST_CUSTOMER_NAME));
+
+        try {
+            this.testOrder.remove(TEST_QUANTITY_ONE, TEST_INVOICE_NUMBER_ONE, TEST_DATE_ONE);
+        } catch (QuantityNegativeException | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException e) {
+            fail("This should not run");
+        }
+
+        String[] updatedRow = this.testOrder.getRow(TEST_CUSTOMER_NAME);
+        assertNotSame(row, updatedRow);
+        assertEquals(Integer.toString(TEST_ORDER_QUANTITY - TEST_QUANTITY_ONE), updatedRow[2]);
+        assertEquals("QTY=" + TEST_QUANTITY_ONE + "; INV=" + TEST_INVOICE_NUMBER_ONE + "; 03/21/21\n",
+                updatedRow[6]);
+
+        this.testOrder.setStorageLocation(TEST_INVOICE_NUMBER_TWO);
+        assertEquals(TEST_INVOICE_NUMBER_TWO, this.testOrder.getRow(TEST_CUSTOMER_NAME)[5]);
+        assertEquals(TEST_INVOICE_NUMBER_ONE, this.testOrder.getRow(TEST_INVOICE_NUMBER_ONE)[0]);
+    }
+
+    @Test
+    public void testArchiveLabels() {
+        try {
+            this.testOrder.remove(TEST_QUANTITY_ONE, TEST_INVOICE_NUMBER_ONE, TEST_DATE_ONE);
+        } catch (QuantityNegativeException | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException e) {
+            fail("This should not run");
+        }
+        String exportsString = this.testOrder.getExportsString();
+        LabelHistory labelHistory = new LabelHistory(new ArrayList<>(this.testOrder.getExports()),
+                new ArrayList<>(this.testOrder.getMonthlyChargeLabels()));
+        int[] loads = new int[1];
+
+        assertFalse(this.testOrder.isArchived());
+        this.testOrder.archiveLabels(() -> {
+            loads[0]++;
+            return labelHistory;
+        });
+        assertTrue(this.testOrder.isArchived());
+        assertEquals(0, loads[0]);
+
+        // labels are loaded back on demand and kept until the garbage collector needs the memory
+        assertEquals(exportsString, this.testOrder.getRow(TEST_CUSTOMER_NAME)[6]);
+        assertEquals(1, this.testOrder.getExports().size());
+        assertEquals(0, this.testOrder.getMonthlyChargeLabels().size());
+        assertEquals(1, loads[0]);
+
+        // changing the order brings its labels back into memory
+        try {
+            this.testOrder.remove(TEST_QUANTITY_TWO, TEST_INVOICE_NUMBER_TWO, TEST_DATE_TWO);
+        } catch (QuantityNegativeException | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException e) {
+            fail("This should not run");
+        }
+        assertFalse(this.testOrder.isArchived());
+        assertEquals(2, this.testOrder.getExports().size());
+        assertEquals(1, loads[0]);
+    }
+
+    @Test
+    public void testDeferLabels() {
+        try {
+            this.testOrder.remove(TEST_QUANTITY_ONE, TEST_INVOICE_NUMBER_ONE, TEST_DATE_ONE);
+        } catch (QuantityNegativeException | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException e) {
+            fail("This should not run");
+        }
+        String exportsString = this.testOrder.getExportsString();
+        LabelHistory labelHistory = new LabelHistory(new ArrayList<>(this.testOrder.getExports()),
+                new ArrayList<>(this.testOrder.getMonthlyChargeLabels()));
+        int[] loads = new int[1];
+
+        this.testOrder.deferLabels(() -> {
+            loads[0]++;
+            return labelHistory;
+        }, new long[]{TEST_DATE_ONE.toEpochDay()});
+        Order copy = this.testOrder.copy();
+        assertFalse(this.testOrder.isArchived());
+        assertEquals(0, loads[0]);
+
+        // the export dates and count are kept without decoding the labels
+        assertArrayEquals(new long[]{TEST_DATE_ONE.toEpochDay()}, this.testOrder.getExportDays());
+        assertEquals(1, this.testOrder.getExportCount());
+        assertEquals(0, loads[0]);
+
+        // deferred labels are only decoded when they are read
+        assertEquals(exportsString, copy.getRow(TEST_CUSTOMER_NAME)[6]);
+        assertEquals(1, copy.getExports().size());
+        assertEquals(1, loads[0]);
+
+        // changing the order brings its labels into memory
+        try {
+            this.testOrder.remove(TEST_QUANTITY_TWO, TEST_INVOICE_NUMBER_TWO, TEST_DATE_TWO);
+        } catch (QuantityNegativeException | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException e) {
+            fail("This should not run");
+        }
+        assertEquals(2, this.testOrder.getExports().size());
+        assertEquals(1, copy.getExports().size());
+        assertEquals(2, loads[0]);
+    }
+
+    @Test
+    public void testRestoreLabelsKeepsOtherExport() {
+        try {
+            this.testOrder.remove(TEST_QUANTITY_ONE, TEST_INVOICE_NUMBER_ONE, TEST_DATE_ONE);
+        } catch (QuantityNegativeException | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException e) {
+            fail("This should not run");
+        }
+        LabelHistory labelHistory = new LabelHistory(new ArrayList<>(this.testOrder.getExports()),
+                new ArrayList<>(this.testOrder.getMonthlyChargeLabels()));
+        int[] loads = new int[1];
+
+        // while the first load is slow, another export loads the labels back and is added before it finishes
+        this.testOrder.archiveLabels(() -> {
+            loads[0]++;
+            if (loads[0] == 1) {
+                try {
+                    this.testOrder.remove(TEST_QUANTITY_ONE, TEST_INVOICE_NUMBER_TWO, TEST_DATE_ONE);
+                } catch (QuantityNegativeException | QuantityZeroException | QuantityExceedsMaxQuantityException
+                        | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException e) {
+                    fail("This should not run");
+                }
+            }
+            return labelHistory;
+        });
+        try {
+            this.testOrder.remove(TEST_QUANTITY_ONE, TEST_INVOICE_NUMBER_ONE, TEST_DATE_TWO);
+        } catch (QuantityNegativeException | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException e) {
+            fail("This should not run");
+        }
+
+        assertEquals(2, loads[0]);
+        assertFalse(this.testOrder.isArchived());
+        assertEquals(3, this.testOrder.getExports().size());
+        assertEquals(TEST_ORDER_QUANTITY - 3 * TEST_QUANTITY_ONE, this.testOrder.getCurrentQuantity());
+    }
+
+    @Test
+    public void testVersion() {
+        assertEquals(0, this.testOrder.getVersion());
+        try {
+            this.testOrder.remove(TEST_QUANTITY_ONE, TEST_INVOICE_NUMBER_ONE, TEST_DATE_ONE);
+            this.testOrder.addMonthlyChargeLabel(TEST_QUANTITY_ONE, TEST_INVOICE_NUMBER_TWO, TEST_DATE_ONE,
+                    TEST_DATE_TWO);
+        } catch (QuantityNegativeException | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException
+                | InvalidStartDateException | InvalidEndDateException | InvalidMonthRangeException e) {
+            fail("This should not run");
+        }
+        assertEquals(2, this.testOrder.getVersion());
+
+        // a rejected change leaves the version as it was
+        try {
+            this.testOrder.remove(TEST_ORDER_QUANTITY, TEST_INVOICE_NUMBER_TWO, TEST_DATE_TWO);
+            fail("This should not run");
+        } catch (RemovalQuantityExceedsAvailabilityException e) {
+            // pass
+        } catch (QuantityNegativeException | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | InvalidExportDateException e) {
+            fail("This should not run");
+        }
+        assertEquals(2, this.testOrder.getVersion());
+
+        // archiving and restoring labels does not change them
+        Order copy = this.testOrder.copy();
+        this.testOrder.archiveLabels(() -> new LabelHistory(new ArrayList<>(copy.getExports()),
+                new ArrayList<>(copy.getMonthlyChargeLabels())));
+        assertEquals(1, this.testOrder.getExports().size());
+        assertEquals(2, this.testOrder.getVersion());
+        assertEquals(2, copy.getVersion());
+        copy.setCurrentQuantity(TEST_QUANTITY_ONE);
+        assertEquals(3, copy.getVersion());
+    }
+
+    @Test
+    public void testLabelsKeepOrder() {
+        List<List<Label>> readLabels = new ArrayList<>();
+        try {
+            for (int i = 0; i < 20; i++) {
+                this.testOrder.addMonthlyChargeLabel(TEST_QUANTITY_ONE, "charge " + i, TEST_DATE_ONE, TEST_DATE_TWO);
+                readLabels.add(this.testOrder.getMonthlyChargeLabels());
+            }
+        } catch (QuantityNegativeException | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | InvalidStartDateException | InvalidEndDateException | InvalidMonthRangeException e) {
+            fail("This should not run");
+        }
 
+        // every label is kept in the order it was added, and a list read earlier never changes
+        for (int i = 0; i < 20; i++) {
+            List<Label> labels = readLabels.get(i);
+            assertEquals(i + 1, labels.size());
+            for (int j = 0; j <= i; j++) {
+                assertEquals("charge " + j, labels.get(j).getInvoiceNumber());
+            }
+        }
+        assertEquals(readLabels.get(19), this.testOrder.getMonthlyChargeLabels());
+    }
 
+    @Test
+    public void testConcurrentRemove() {
+        AtomicInteger removed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Callable<Object>> exporters = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            String exportInvoicePrefix = "export " + t + " ";
+            exporters.add(() -> {
+                for (int i = 0; i < 10; i++) {
+                    try {
+                        this.testOrder.remove(1, exportInvoicePrefix + i, TEST_DATE_ONE);
+                        removed.incrementAndGet();
+                    } catch (RemovalQuantityExceedsAvailabilityException | ConcurrentModificationException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
 
+        ExecutorService threads = Executors.newFixedThreadPool(exporters.size());
+        try {
+            for (Future<Object> result : threads.invokeAll(exporters)) {
+                result.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            fail("This should not run");
+        } finally {
+            threads.shutdownNow();
+        }
+
+        // every removal that succeeded is kept, and no more than the order held was removed
+        assertEquals(80, removed.get() + rejected.get());
+        assertTrue(removed.get() <= TEST_ORDER_QUANTITY);
+        assertEquals(TEST_ORDER_QUANTITY - removed.get(), this.testOrder.getCurrentQuantity());
+        assertEquals(removed.get(), this.testOrder.getExports().size());
+        assertEquals(removed.get(), this.testOrder.getVersion());
+    }
+}
@@ -0,0 +1,94 @@
+package model;
+
+import model.exceptions.InvalidImportDateException;
+import model.exceptions.QuantityNegativeException;
+import model.exceptions.QuantityZeroException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SearchIndex tests
+ */
+public class SearchIndexTest {
+    private static final String TEST_CUSTOMER_NAME_ONE = "Acme Trading";
+    private static final String TEST_CUSTOMER_NAME_TWO = "NDS";
+    private static final LocalDate TEST_IMPORT_DATE = LocalDate.of(2021, 1, 21);
+
+    private SearchIndex testSearchIndex;
+    private Order testOrderOne;
+    private Order testOrderTwo;
+
+    @BeforeEach
+    public void setUp() {
+        this.testSearchIndex = new SearchIndex();
+        try {
+            this.testOrderOne = new Order("Frozen Salmon, 20kg boxes", TEST_IMPORT_DATE, "INV-1001", 10, "A1");
+            this.testOrderTwo = new Order("Frozen shrimp", TEST_IMPORT_DATE, "INV-2002", 5, "B2");
+        } catch (QuantityNegativeException | QuantityZeroException | InvalidImportDateException e) {
+            fail("This should not run");
+        }
+        this.testSearchIndex.add(this.testOrderOne, TEST_CUSTOMER_NAME_ONE);
+        this.testSearchIndex.add(this.testOrderTwo, TEST_CUSTOMER_NAME_TWO);
+    }
+
+    @Test
+    public void testSearchSingleToken() {
+        Set<Order> matches = this.testSearchIndex.search("frozen");
+        assertEquals(2, matches.size());
+        assertTrue(matches.contains(this.testOrderOne));
+        assertTrue(matches.contains(this.testOrderTwo));
+
+        assertEquals(1, this.testSearchIndex.search("SALMON").size());
+        assertTrue(this.testSearchIndex.search("salmon").contains(this.testOrderOne));
+    }
+
+    @Test
+    public void testSearchMultipleTokens() {
+        Set<Order> matches = this.testSearchIndex.search("frozen nds");
+        assertEquals(1, matches.size());
+        assertTrue(matches.contains(this.testOrderTwo));
+
+        assertTrue(this.testSearchIndex.search("salmon nds").isEmpty());
+    }
+
+    @Test
+    public void testSearchPrefixInvoiceAndCustomer() {
+        assertEquals(2, this.testSearchIndex.search("inv").size());
+        assertTrue(this.testSearchIndex.search("inv 2002").contains(this.testOrderTwo));
+        assertTrue(this.testSearchIndex.search("acme").contains(this.testOrderOne));
+        assertTrue(this.testSearchIndex.search("20kg").contains(this.testOrderOne));
+    }
+
+    @Test
+    public void testSearchEmptyQuery() {
+        assertTrue(this.testSearchIndex.search("").isEmpty());
+        assertTrue(this.testSearchIndex.search(" ,; ").isEmpty());
+        assertTrue(this.testSearchIndex.search("nothing").isEmpty());
+    }
+
+    @Test
+    public void testAddReplacesPreviousTokens() {
+        this.testOrderOne.setContent("Canned tuna");
+        this.testSearchIndex.add(this.testOrderOne, TEST_CUSTOMER_NAME_ONE);
+
+        assertEquals(2, this.testSearchIndex.size());
+        assertFalse(this.testSearchIndex.search("salmon").contains(this.testOrderOne));
+        assertTrue(this.testSearchIndex.search("tuna").contains(this.testOrderOne));
+        assertEquals(1, this.testSearchIndex.search("frozen").size());
+    }
+
+    @Test
+    public void testRemove() {
+        this.testSearchIndex.remove(this.testOrderTwo);
+        this.testSearchIndex.remove(this.testOrderTwo);
+
+        assertEquals(1, this.testSearchIndex.size());
+        assertTrue(this.testSearchIndex.search("shrimp").isEmpty());
+        assertEquals(1, this.testSearchIndex.search("frozen").size());
+    }
+}
@@ -1,12 +1,27 @@
 package model;
 
 import model.exceptions.*;
+import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
 import java.text.ParseException;
 import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.Spliterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -447,6 +462,22 @@ public class WarehouseTest {
         assertEquals(0, this.testWarehouse.getCustomerSet().size());
     }
 
+    @Test
+    public void testDeleteCustomerThenAddAgain() {
+        // setup
+        addCustomerToWarehouse(TEST_CUSTOMER_NAME_ONE);
+
+        try {
+            this.testWarehouse.deleteCustomer(TEST_CUSTOMER_NAME_ONE);
+            this.testWarehouse.addCustomer(TEST_CUSTOMER_NAME_ONE);
+            this.testWarehouse.deleteCustomer(TEST_CUSTOMER_NAME_ONE);
+        } catch (CustomerDoesNotExistException | CustomerAlreadyExistsException | InvalidCustomerNameException e) {
+            fail("This should not run");
+        }
+
+        assertEquals(0, this.testWarehouse.getCustomerSet().size());
+    }
+
     @Test
     public void testDeleteCustomerCustomerDoesNotExist() {
         // setup
@@ -488,4 +519,658 @@ public class WarehouseTest {
         assertEquals(1, customer.getActiveOrderSize());
         assertFalse(customer.getActiveOrders().containsKey(TEST_ORDER_INVOICE_NUMBER_ONE));
     }
+
+    @Test
+    public void testFindOrder() {
+        // setup
+        addCustomerToWarehouse(TEST_CUSTOMER_NAME_ONE);
+        addOrdersToWarehouse(TEST_CUSTOMER_NAME_ONE);
+
+        Customer customer = this.testWarehouse.getCustomerSet().stream().iterator().next();
+        assertSame(customer.getActiveOrders().get(TEST_ORDER_INVOICE_NUMBER_ONE),
+                this.testWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_ONE));
+        assertSame(customer.getActiveOrders().get(TEST_ORDER_INVOICE_NUMBER_TWO),
+                this.testWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_TWO));
+        assertNull(this.testWarehouse.findOrder(TEST_ORDER_EXPORT_INVOICE_NUMBER_ONE));
+    }
+
+    @Test
+    public void testImportProductInvoiceNumberUsedByCompleteOrder() {
+        // setup
+        addCustomerToWarehouse(TEST_CUSTOMER_NAME_ONE);
+        addOrdersToWarehouse(TEST_CUSTOMER_NAME_ONE);
+
+        try {
+            this.testWarehouse.exportOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_ONE,
+                    TEST_ORDER_QUANTITY_ONE, TEST_ORDER_IMPORT_DATE_ONE.plusDays(10),
+                    TEST_ORDER_EXPORT_INVOICE_NUMBER_ONE);
+        } catch (CustomerDoesNotExistException | OrderDoesNotExistException | QuantityNegativeException
+                | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException | ParseException e) {
+            fail("This should not run");
+        }
+
+        // complete order should still be found and its invoice number should remain reserved
+        Customer customer = this.testWarehouse.getCustomerSet().stream().iterator().next();
+        assertEquals(1, customer.getCompleteOrderSize());
+        assertSame(customer.getCompleteOrders().iterator().next(), this.testWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_ONE));
+
+        try {
+            this.testWarehouse.importProduct(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_CONTENT_TWO,
+                    TEST_ORDER_IMPORT_DATE_TWO, TEST_ORDER_INVOICE_NUMBER_ONE, TEST_ORDER_QUANTITY_TWO,
+                    TEST_ORDER_STORAGE_LOCATION_TWO);
+            fail("This should not run");
+        } catch (OrderAlreadyExistsException e) {
+            // pass
+        } catch (CustomerDoesNotExistException | QuantityNegativeException | QuantityZeroException
+                | InvalidImportDateException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testDeleteCustomerOrderReleasesInvoiceNumber() {
+        // setup
+        addCustomerToWarehouse(TEST_CUSTOMER_NAME_ONE);
+        addOrdersToWarehouse(TEST_CUSTOMER_NAME_ONE);
+
+        try {
+            this.testWarehouse.deleteCustomerOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_ONE);
+            assertNull(this.testWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_ONE));
+
+            // a deleted invoice number can be used again
+            this.testWarehouse.importProduct(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_CONTENT_ONE,
+                    TEST_ORDER_IMPORT_DATE_ONE, TEST_ORDER_INVOICE_NUMBER_ONE, TEST_ORDER_QUANTITY_ONE,
+                    TEST_ORDER_STORAGE_LOCATION_ONE);
+            assertNotNull(this.testWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_ONE));
+        } catch (CustomerDoesNotExistException | QuantityNegativeException | QuantityZeroException
+                | InvalidImportDateException | OrderDoesNotExistException | OrderAlreadyExistsException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testDeleteCustomerReleasesInvoiceNumbers() {
+        // setup
+        addCustomerToWarehouse(TEST_CUSTOMER_NAME_ONE);
+        addOrdersToWarehouse(TEST_CUSTOMER_NAME_ONE);
+
+        try {
+            this.testWarehouse.deleteCustomer(TEST_CUSTOMER_NAME_ONE);
+        } catch (CustomerDoesNotExistException e) {
+            fail("This should not run");
+        }
+
+        assertNull(this.testWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_ONE));
+        assertNull(this.testWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_TWO));
+    }
+
+    @Test
+    public void testGetOrdersAtLocation() {
+        // setup
+        addCustomerToWarehouse(TEST_CUSTOMER_NAME_ONE);
+        addOrdersToWarehouse(TEST_CUSTOMER_NAME_ONE);
+
+        Set<Order> ordersAtLocationOne = this.testWarehouse.getOrdersAtLocation(TEST_ORDER_STORAGE_LOCATION_ONE);
+        assertEquals(1, ordersAtLocationOne.size());
+        assertTrue(ordersAtLocationOne.contains(this.testWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_ONE)));
+        assertEquals(TEST_ORDER_QUANTITY_ONE,
+                this.testWarehouse.getQuantityAtLocation(TEST_ORDER_STORAGE_LOCATION_ONE));
+        assertEquals(TEST_ORDER_QUANTITY_TWO,
+                this.testWarehouse.getQuantityAtLocation(TEST_ORDER_STORAGE_LOCATION_TWO));
+        assertEquals(2, this.testWarehouse.getStorageLocations().size());
+        assertTrue(this.testWarehouse.getOrdersAtLocation("Unused Location").isEmpty());
+        assertEquals(0, this.testWarehouse.getQuantityAtLocation("Unused Location"));
+    }
+
+    @Test
+    public void testLocationIndexAfterExports() {
+        // setup
+        addCustomerToWarehouse(TEST_CUSTOMER_NAME_ONE);
+        addOrdersToWarehouse(TEST_CUSTOMER_NAME_ONE);
+
+        try {
+            // partial export keeps order at its location with reduced quantity
+            this.testWarehouse.exportOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_TWO,
+                    TEST_ORDER_QUANTITY_TWO - 10, TEST_ORDER_IMPORT_DATE_TWO.plusDays(10),
+                    TEST_ORDER_EXPORT_INVOICE_NUMBER_ONE);
+            assertEquals(10, this.testWarehouse.getQuantityAtLocation(TEST_ORDER_STORAGE_LOCATION_TWO));
+
+            // full export frees the location
+            this.testWarehouse.exportOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_TWO,
+                    10, TEST_ORDER_IMPORT_DATE_TWO.plusDays(11), TEST_ORDER_EXPORT_INVOICE_NUMBER_TWO);
+        } catch (CustomerDoesNotExistException | OrderDoesNotExistException | QuantityNegativeException
+                | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException | ParseException e) {
+            fail("This should not run");
+        }
+
+        assertTrue(this.testWarehouse.getOrdersAtLocation(TEST_ORDER_STORAGE_LOCATION_TWO).isEmpty());
+        assertFalse(this.testWarehouse.getStorageLocations().contains(TEST_ORDER_STORAGE_LOCATION_TWO));
+        Map<String, Integer> quantities = this.testWarehouse.getQuantitiesByLocation();
+        assertEquals(1, quantities.size());
+        assertEquals(TEST_ORDER_QUANTITY_ONE, quantities.get(TEST_ORDER_STORAGE_LOCATION_ONE));
+    }
+
+    @Test
+    public void testLocationIndexAfterEditAndDelete() {
+        // setup
+        addCustomerToWarehouse(TEST_CUSTOMER_NAME_ONE);
+        addOrdersToWarehouse(TEST_CUSTOMER_NAME_ONE);
+
+        try {
+            // moving order one into location two
+            this.testWarehouse.editExistingActiveCustomerOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_ONE,
+                    "", TEST_ORDER_STORAGE_LOCATION_TWO);
+            assertTrue(this.testWarehouse.getOrdersAtLocation(TEST_ORDER_STORAGE_LOCATION_ONE).isEmpty());
+            assertEquals(2, this.testWarehouse.getOrdersAtLocation(TEST_ORDER_STORAGE_LOCATION_TWO).size());
+            assertEquals(TEST_ORDER_QUANTITY_ONE + TEST_ORDER_QUANTITY_TWO,
+                    this.testWarehouse.getQuantityAtLocation(TEST_ORDER_STORAGE_LOCATION_TWO));
+
+            // an empty location leaves the order where it is
+            this.testWarehouse.editExistingActiveCustomerOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_ONE,
+                    TEST_ORDER_CONTENT_TWO, "");
+            assertEquals(2, this.testWarehouse.getOrdersAtLocation(TEST_ORDER_STORAGE_LOCATION_TWO).size());
+
+            this.testWarehouse.deleteCustomerOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_TWO);
+            assertEquals(1, this.testWarehouse.getOrdersAtLocation(TEST_ORDER_STORAGE_LOCATION_TWO).size());
+
+            this.testWarehouse.deleteCustomer(TEST_CUSTOMER_NAME_ONE);
+            assertTrue(this.testWarehouse.getStorageLocations().isEmpty());
+        } catch (CustomerDoesNotExistException | OrderDoesNotExistException | QuantityNegativeException
+                | QuantityZeroException | InvalidImportDateException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testSearch() {
+        // setup
+        addCustomerToWarehouse(TEST_CUSTOMER_NAME_ONE);
+        addOrdersToWarehouse(TEST_CUSTOMER_NAME_ONE);
+
+        assertEquals(2, this.testWarehouse.search(TEST_CUSTOMER_NAME_ONE).size());
+        assertEquals(2, this.testWarehouse.search("content").size());
+        assertTrue(this.testWarehouse.search(TEST_ORDER_CONTENT_ONE)
+                .contains(this.testWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_ONE)));
+
+        try {
+            // edited content is searchable, previous content is not
+            this.testWarehouse.editExistingActiveCustomerOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_ONE,
+                    "Frozen Salmon", "");
+            assertTrue(this.testWarehouse.search(TEST_ORDER_CONTENT_ONE).isEmpty());
+            assertEquals(1, this.testWarehouse.search("salmon").size());
+
+            // deleted orders are no longer searchable
+            this.testWarehouse.deleteCustomerOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_ONE);
+            assertTrue(this.testWarehouse.search("salmon").isEmpty());
+
+            this.testWarehouse.deleteCustomer(TEST_CUSTOMER_NAME_ONE);
+            assertTrue(this.testWarehouse.search(TEST_CUSTOMER_NAME_ONE).isEmpty());
+        } catch (CustomerDoesNotExistException | OrderDoesNotExistException | QuantityNegativeException
+                | QuantityZeroException | InvalidImportDateException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testGetOrdersImportedBetween() {
+        // setup
+        addCustomerToWarehouse(TEST_CUSTOMER_NAME_ONE);
+        addOrdersToWarehouse(TEST_CUSTOMER_NAME_ONE);
+
+        List<Order> orders = this.testWarehouse.getOrdersImportedBetween(TEST_ORDER_IMPORT_DATE_ONE,
+                TEST_ORDER_IMPORT_DATE_TWO).collect(Collectors.toList());
+        assertEquals(2, orders.size());
+        assertEquals(TEST_ORDER_INVOICE_NUMBER_ONE, orders.get(0).getInvoiceNumber());
+        assertEquals(TEST_ORDER_INVOICE_NUMBER_TWO, orders.get(1).getInvoiceNumber());
+
+        assertEquals(1, this.testWarehouse.getOrdersImportedBetween(TEST_ORDER_IMPORT_DATE_ONE.plusDays(1),
+                TEST_ORDER_IMPORT_DATE_TWO.plusDays(1)).count());
+        assertEquals(0, this.testWarehouse.getOrdersImportedBetween(TEST_ORDER_IMPORT_DATE_TWO.plusDays(1),
+                TEST_ORDER_IMPORT_DATE_TWO.plusDays(30)).count());
+        assertEquals(0, this.testWarehouse.getOrdersImportedBetween(TEST_ORDER_IMPORT_DATE_TWO,
+                TEST_ORDER_IMPORT_DATE_ONE).count());
+    }
+
+    @Test
+    public void testGetOrdersImportedBetweenCompleteAndDeletedOrders() {
+        // setup
+        addCustomerToWarehouse(TEST_CUSTOMER_NAME_ONE);
+        addOrdersToWarehouse(TEST_CUSTOMER_NAME_ONE);
+
+        try {
+            // complete orders remain in the range index
+            this.testWarehouse.exportOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_ONE,
+                    TEST_ORDER_QUANTITY_ONE, TEST_ORDER_IMPORT_DATE_ONE.plusDays(10),
+                    TEST_ORDER_EXPORT_INVOICE_NUMBER_ONE);
+            assertEquals(1, this.testWarehouse.getOrdersImportedBetween(TEST_ORDER_IMPORT_DATE_ONE,
+                    TEST_ORDER_IMPORT_DATE_ONE).count());
+
+            // deleted orders do not
+            this.testWarehouse.deleteCustomerOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_TWO);
+            assertEquals(0, this.testWarehouse.getOrdersImportedBetween(TEST_ORDER_IMPORT_DATE_TWO,
+                    TEST_ORDER_IMPORT_DATE_TWO).count());
+
+            this.testWarehouse.deleteCustomer(TEST_CUSTOMER_NAME_ONE);
+            assertEquals(0, this.testWarehouse.getOrdersImportedBetween(TEST_ORDER_IMPORT_DATE_ONE,
+                    TEST_ORDER_IMPORT_DATE_TWO).count());
+        } catch (CustomerDoesNotExistException | OrderDoesNotExistException | QuantityNegativeException
+                | QuantityZeroException | QuantityExceedsMaxQuantityException | InvalidImportDateException
+                | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException | ParseException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testGetExportsBetween() {
+        // setup
+        addCustomerToWarehouse(TEST_CUSTOMER_NAME_ONE);
+        addOrdersToWarehouse(TEST_CUSTOMER_NAME_ONE);
+        LocalDate exportDateOne = TEST_ORDER_IMPORT_DATE_TWO.plusDays(10);
+        LocalDate exportDateTwo = TEST_ORDER_IMPORT_DATE_TWO.plusDays(20);
+
+        try {
+            this.testWarehouse.exportOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_TWO, 30, exportDateTwo,
+                    TEST_ORDER_EXPORT_INVOICE_NUMBER_TWO);
+            this.testWarehouse.exportOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_ONE, 10, exportDateOne,
+                    TEST_ORDER_EXPORT_INVOICE_NUMBER_ONE);
+            this.testWarehouse.exportOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_TWO, 20, exportDateOne,
+                    TEST_ORDER_EXPORT_INVOICE_NUMBER_ONE);
+        } catch (CustomerDoesNotExistException | OrderDoesNotExistException | QuantityNegativeException
+                | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException | ParseException e) {
+            fail("This should not run");
+        }
+
+        // export events are returned in export date order
+        List<ExportEvent> exportEvents = this.testWarehouse.getExportsBetween(exportDateOne, exportDateTwo)
+                .collect(Collectors.toList());
+        assertEquals(3, exportEvents.size());
+        assertEquals(exportDateOne, exportEvents.get(0).getExportDate());
+        assertEquals(exportDateOne, exportEvents.get(1).getExportDate());
+        assertEquals(exportDateTwo, exportEvents.get(2).getExportDate());
+        assertSame(this.testWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_TWO), exportEvents.get(2).getOrder());
+        assertEquals(TEST_CUSTOMER_NAME_ONE, exportEvents.get(2).getCustomerName());
+        assertEquals(1, this.testWarehouse.getExportsBetween(exportDateTwo, exportDateTwo.plusDays(5)).count());
+        assertEquals(0, this.testWarehouse.getExportsBetween(exportDateTwo, exportDateOne).count());
+
+        SortedMap<LocalDate, Integer> dailyTotals = this.testWarehouse.getDailyExportTotals(exportDateOne,
+                exportDateTwo);
+        assertEquals(2, dailyTotals.size());
+        assertEquals(30, dailyTotals.get(exportDateOne));
+        assertEquals(30, dailyTotals.get(exportDateTwo));
+
+        try {
+            // deleted orders no longer show up in the export index
+            this.testWarehouse.deleteCustomerOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_TWO);
+        } catch (CustomerDoesNotExistException | QuantityNegativeException | QuantityZeroException
+                | InvalidImportDateException | OrderDoesNotExistException e) {
+            fail("This should not run");
+        }
+        assertEquals(1, this.testWarehouse.getExportsBetween(exportDateOne, exportDateTwo).count());
+        assertEquals(10, this.testWarehouse.getDailyExportTotals(exportDateOne, exportDateTwo).get(exportDateOne));
+    }
+
+    @Test
+    public void testGetOrders() {
+        // setup
+        addCustomerToWarehouse(TEST_CUSTOMER_NAME_ONE);
+        addOrdersToWarehouse(TEST_CUSTOMER_NAME_ONE);
+
+        assertEquals(2, this.testWarehouse.getOrders(true).length);
+        assertEquals(0, this.testWarehouse.getOrders(false).length);
+
+        try {
+            this.testWarehouse.exportOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_ONE,
+                    TEST_ORDER_QUANTITY_ONE, TEST_ORDER_IMPORT_DATE_ONE.plusDays(10),
+                    TEST_ORDER_EXPORT_INVOICE_NUMBER_ONE);
+        } catch (CustomerDoesNotExistException | OrderDoesNotExistException | QuantityNegativeException
+                | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException | ParseException e) {
+            fail("This should not run");
+        }
+
+        String[][] activeOrders = this.testWarehouse.getOrders(true);
+        String[][] completeOrders = this.testWarehouse.getOrders(false);
+        assertEquals(1, activeOrders.length);
+        assertEquals(TEST_ORDER_INVOICE_NUMBER_TWO, activeOrders[0][1]);
+        assertEquals(1, completeOrders.length);
+        assertEquals(TEST_CUSTOMER_NAME_ONE, completeOrders[0][0]);
+        assertEquals(TEST_ORDER_INVOICE_NUMBER_ONE, completeOrders[0][1]);
+    }
+
+    @Test
+    public void testStreamOrderRows() {
+        // setup
+        addCustomerToWarehouse(TEST_CUSTOMER_NAME_ONE);
+        addOrdersToWarehouse(TEST_CUSTOMER_NAME_ONE);
+
+        try {
+            this.testWarehouse.exportOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_ONE,
+                    TEST_ORDER_QUANTITY_ONE, TEST_ORDER_IMPORT_DATE_ONE.plusDays(10),
+                    TEST_ORDER_EXPORT_INVOICE_NUMBER_ONE);
+        } catch (CustomerDoesNotExistException | OrderDoesNotExistException | QuantityNegativeException
+                | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException | ParseException e) {
+            fail("This should not run");
+        }
+
+        List<OrderRow> activeRows = this.testWarehouse.streamOrderRows(true).collect(Collectors.toList());
+        assertEquals(1, activeRows.size());
+        OrderRow activeRow = activeRows.get(0);
+        assertTrue(activeRow.isActiveOrder());
+        assertEquals(TEST_CUSTOMER_NAME_ONE, activeRow.getCustomerName());
+        assertEquals(TEST_ORDER_INVOICE_NUMBER_TWO, activeRow.getInvoiceNumber());
+        assertEquals(TEST_ORDER_QUANTITY_TWO, activeRow.getCurrentQuantity());
+        assertEquals(TEST_ORDER_IMPORT_DATE_TWO, activeRow.getImportDate());
+        assertEquals(TEST_ORDER_STORAGE_LOCATION_TWO, activeRow.getStorageLocation());
+        assertArrayEquals(this.testWarehouse.getOrders(true)[0], activeRow.toDisplayRow());
+
+        List<OrderRow> completeRows = this.testWarehouse.streamOrderRows(false).collect(Collectors.toList());
+        assertEquals(1, completeRows.size());
+        assertFalse(completeRows.get(0).isActiveOrder());
+        assertEquals(0, completeRows.get(0).getCurrentQuantity());
+        assertEquals(1, completeRows.get(0).getExports().size());
+
+        assertEquals(2, this.testWarehouse.streamOrderRows().count());
+    }
+
+    @Test
+    public void testStreamOrderRowsParallel() {
+        int numCustomers = 7;
+        int ordersPerCustomer = 40;
+        try {
+            for (int c = 0; c < numCustomers; c++) {
+                this.testWarehouse.addCustomer("customer" + c);
+                for (int o = 0; o < ordersPerCustomer; o++) {
+                    this.testWarehouse.importProduct("customer" + c, TEST_ORDER_CONTENT_ONE,
+                            TEST_ORDER_IMPORT_DATE_ONE, c + "-" + o, o + 1, TEST_ORDER_STORAGE_LOCATION_ONE);
+                }
+            }
+        } catch (CustomerAlreadyExistsException | InvalidCustomerNameException | CustomerDoesNotExistException
+                | OrderAlreadyExistsException | QuantityNegativeException | QuantityZeroException
+                | InvalidImportDateException e) {
+            fail("This should not run");
+        }
+
+        int expectedTotal = numCustomers * (ordersPerCustomer * (ordersPerCustomer + 1) / 2);
+        assertEquals(expectedTotal,
+                this.testWarehouse.streamOrderRows(true).parallel().mapToInt(OrderRow::getCurrentQuantity).sum());
+        assertEquals(numCustomers * ordersPerCustomer,
+                this.testWarehouse.streamOrderRows(true).parallel().map(OrderRow::getInvoiceNumber).distinct().count());
+
+        // a single customer's orders can also be split
+        try {
+            for (int c = 1; c < numCustomers; c++) {
+                this.testWarehouse.deleteCustomer("customer" + c);
+            }
+        } catch (CustomerDoesNotExistException e) {
+            fail("This should not run");
+        }
+        Spliterator<OrderRow> spliterator = this.testWarehouse.streamOrderRows(true).spliterator();
+        Spliterator<OrderRow> prefix = spliterator.trySplit();
+        assertNotNull(prefix);
+        assertEquals(ordersPerCustomer, StreamSupport.stream(prefix, false).count()
+                + StreamSupport.stream(spliterator, false).count());
+    }
+
+    @Test
+    public void testArchiveCompleteOrders() {
+        // setup
+        addCustomerToWarehouse(TEST_CUSTOMER_NAME_ONE);
+        addOrdersToWarehouse(TEST_CUSTOMER_NAME_ONE);
+        List<Order> archivedOrders = new ArrayList<>();
+        OrderArchive testArchive = order -> {
+            archivedOrders.add(order);
+            LabelHistory labelHistory = new LabelHistory(new ArrayList<>(order.getExports()),
+                    new ArrayList<>(order.getMonthlyChargeLabels()));
+            return () -> labelHistory;
+        };
+
+        try {
+            this.testWarehouse.exportOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_ONE,
+                    TEST_ORDER_QUANTITY_ONE, TEST_ORDER_IMPORT_DATE_ONE.plusDays(10),
+                    TEST_ORDER_EXPORT_INVOICE_NUMBER_ONE);
+            this.testWarehouse.exportOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_TWO,
+                    TEST_ORDER_QUANTITY_TWO, LocalDate.now(), TEST_ORDER_EXPORT_INVOICE_NUMBER_TWO);
+        } catch (CustomerDoesNotExistException | OrderDoesNotExistException | QuantityNegativeException
+                | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException | ParseException e) {
+            fail("This should not run");
+        }
+        String jsonBeforeArchive = this.testWarehouse.convertToJsonObject().toString();
+        String[][] rowsBeforeArchive = this.testWarehouse.getOrders(false);
+
+        // only the order completed more than 30 days ago is archived, and only once
+        try {
+            assertEquals(1, this.testWarehouse.archiveCompleteOrders(Period.ofDays(30), testArchive));
+            assertEquals(0, this.testWarehouse.archiveCompleteOrders(Period.ofDays(30), testArchive));
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+        Order orderOne = this.testWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_ONE);
+        assertEquals(1, archivedOrders.size());
+        assertSame(orderOne, archivedOrders.get(0));
+        assertTrue(orderOne.isArchived());
+        assertFalse(this.testWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_TWO).isArchived());
+
+        // archived orders can still be found, searched, viewed and saved
+        assertTrue(this.testWarehouse.search(TEST_ORDER_CONTENT_ONE).contains(orderOne));
+        assertArrayEquals(rowsBeforeArchive, this.testWarehouse.getOrders(false));
+        assertEquals(jsonBeforeArchive, this.testWarehouse.convertToJsonObject().toString());
+    }
+
+    @Test
+    public void testArchiveLoadedOrders() {
+        // setup
+        addCustomerToWarehouse(TEST_CUSTOMER_NAME_ONE);
+        addOrdersToWarehouse(TEST_CUSTOMER_NAME_ONE);
+        List<Order> archivedOrders = new ArrayList<>();
+        OrderArchive testArchive = order -> {
+            archivedOrders.add(order);
+            LabelHistory labelHistory = new LabelHistory(new ArrayList<>(order.getExports()),
+                    new ArrayList<>(order.getMonthlyChargeLabels()));
+            return () -> labelHistory;
+        };
+        LocalDate oldExportDate = TEST_ORDER_IMPORT_DATE_ONE.plusDays(10);
+        try {
+            this.testWarehouse.exportOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_ONE,
+                    TEST_ORDER_QUANTITY_ONE, oldExportDate, TEST_ORDER_EXPORT_INVOICE_NUMBER_ONE);
+            this.testWarehouse.exportOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_TWO,
+                    TEST_ORDER_QUANTITY_TWO, LocalDate.now(), TEST_ORDER_EXPORT_INVOICE_NUMBER_TWO);
+        } catch (CustomerDoesNotExistException | OrderDoesNotExistException | QuantityNegativeException
+                | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException | ParseException e) {
+            fail("This should not run");
+        }
+
+        // old complete orders are archived as they are loaded, before they are indexed
+        Warehouse loadedWarehouse = new Warehouse();
+        loadedWarehouse.archiveLoadedOrders(Period.ofDays(30), testArchive);
+        try {
+            loadedWarehouse.convertJsonObjectToWarehouse(
+                    new JSONObject(this.testWarehouse.convertToJsonObject().toString()));
+        } catch (CorruptFileException e) {
+            fail("This should not run");
+        }
+        assertEquals(1, archivedOrders.size());
+        assertTrue(loadedWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_ONE).isArchived());
+        assertFalse(loadedWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_TWO).isArchived());
+        assertEquals(1, loadedWarehouse.getExportsBetween(oldExportDate, oldExportDate).count());
+        assertEquals(this.testWarehouse.convertToJsonObject().toString(),
+                loadedWarehouse.convertToJsonObject().toString());
+    }
+
+    @Test
+    public void testCopy() {
+        // setup
+        addCustomerToWarehouse(TEST_CUSTOMER_NAME_ONE);
+        addOrdersToWarehouse(TEST_CUSTOMER_NAME_ONE);
+
+        Warehouse copy = this.testWarehouse.copy();
+        assertEquals(this.testWarehouse.convertToJsonObject().toString(), copy.convertToJsonObject().toString());
+        assertNotSame(this.testWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_ONE),
+                copy.findOrder(TEST_ORDER_INVOICE_NUMBER_ONE));
+
+        // changes to the copy do not affect the original
+        try {
+            copy.exportOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_ONE, TEST_ORDER_QUANTITY_ONE,
+                    TEST_ORDER_IMPORT_DATE_ONE.plusDays(10), TEST_ORDER_EXPORT_INVOICE_NUMBER_ONE);
+            copy.deleteCustomerOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_TWO);
+        } catch (CustomerDoesNotExistException | OrderDoesNotExistException | QuantityNegativeException
+                | QuantityZeroException | QuantityExceedsMaxQuantityException
+                | RemovalQuantityExceedsAvailabilityException | InvalidExportDateException
+                | InvalidImportDateException | ParseException e) {
+            fail("This should not run");
+        }
+        assertEquals(TEST_ORDER_QUANTITY_ONE,
+                this.testWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_ONE).getCurrentQuantity());
+        assertEquals(0, this.testWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_ONE).getExports().size());
+        assertNotNull(this.testWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_TWO));
+        assertNull(copy.findOrder(TEST_ORDER_INVOICE_NUMBER_TWO));
+    }
+
+    @Test
+    public void testAddLoadedCustomers() {
+        List<Integer> sources = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            sources.add(i);
+        }
+
+        try {
+            this.testWarehouse.addLoadedCustomers(sources, i -> {
+                Customer customer = new Customer("customer " + i);
+                try {
+                    customer.importOrder(TEST_ORDER_CONTENT_ONE, TEST_ORDER_IMPORT_DATE_ONE, "invoice " + i,
+                            TEST_ORDER_QUANTITY_ONE, TEST_ORDER_STORAGE_LOCATION_ONE);
+                } catch (QuantityNegativeException | QuantityZeroException | InvalidImportDateException e) {
+                    fail("This should not run");
+                }
+                return customer;
+            });
+        } catch (IOException | CorruptFileException e) {
+            fail("This should not run");
+        }
+        assertEquals(200, this.testWarehouse.getCustomerSet().size());
+        assertEquals(200, this.testWarehouse.getOrdersAtLocation(TEST_ORDER_STORAGE_LOCATION_ONE).size());
+        assertNotNull(this.testWarehouse.findOrder("invoice 199"));
+    }
+
+    @Test
+    public void testAddLoadedCustomersFailure() {
+        List<Integer> sources = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            sources.add(i);
+        }
+
+        try {
+            this.testWarehouse.addLoadedCustomers(sources, i -> {
+                if (i == 150) {
+                    throw new CorruptFileException();
+                }
+                return new Customer("customer " + i);
+            });
+            fail("This should not run");
+        } catch (CorruptFileException e) {
+            // pass
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+        assertEquals(0, this.testWarehouse.getCustomerSet().size());
+    }
+
+    @Test
+    public void testConcurrentImportsReserveEachInvoiceNumberOnce() {
+        Warehouse concurrentWarehouse = new Warehouse(new HeapWarehouseStore(), 4);
+        List<Callable<Integer>> importers = new ArrayList<>();
+        for (int c = 0; c < 8; c++) {
+            String customerName = "customer " + c;
+            importers.add(() -> {
+                concurrentWarehouse.addCustomer(customerName);
+                int imported = 0;
+                for (int i = 0; i < 200; i++) {
+                    try {
+                        concurrentWarehouse.importProduct(customerName, TEST_ORDER_CONTENT_ONE,
+                                TEST_ORDER_IMPORT_DATE_ONE, "invoice " + i, TEST_ORDER_QUANTITY_ONE,
+                                TEST_ORDER_STORAGE_LOCATION_ONE);
+                        imported++;
+                    } catch (OrderAlreadyExistsException e) {
+                        // another customer imported this invoice number first
+                    }
+                }
+                return imported;
+            });
+        }
+
+        int imported = runInParallel(importers).stream().mapToInt(Integer::intValue).sum();
+        assertEquals(200, imported);
+        assertEquals(200, concurrentWarehouse.getOrders(true).length);
+        assertEquals(200 * TEST_ORDER_QUANTITY_ONE,
+                concurrentWarehouse.getQuantityAtLocation(TEST_ORDER_STORAGE_LOCATION_ONE));
+        for (int i = 0; i < 200; i++) {
+            assertNotNull(concurrentWarehouse.findOrder("invoice " + i));
+        }
+    }
+
+    @Test
+    public void testConcurrentExportsOfOneOrder() {
+        Warehouse concurrentWarehouse = new Warehouse(new HeapWarehouseStore(), 4);
+        try {
+            concurrentWarehouse.addCustomer(TEST_CUSTOMER_NAME_ONE);
+            concurrentWarehouse.importProduct(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_CONTENT_ONE,
+                    TEST_ORDER_IMPORT_DATE_ONE, TEST_ORDER_INVOICE_NUMBER_ONE, 400, TEST_ORDER_STORAGE_LOCATION_ONE);
+        } catch (CustomerAlreadyExistsException | InvalidCustomerNameException | CustomerDoesNotExistException
+                | OrderAlreadyExistsException | QuantityNegativeException | QuantityZeroException
+                | InvalidImportDateException e) {
+            fail("This should not run");
+        }
+        List<Callable<Integer>> exporters = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            String exportInvoicePrefix = "export " + t + " ";
+            exporters.add(() -> {
+                for (int i = 0; i < 100; i++) {
+                    concurrentWarehouse.exportOrder(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_INVOICE_NUMBER_ONE, 1,
+                            TEST_ORDER_IMPORT_DATE_TWO, exportInvoicePrefix + i);
+                }
+                return 100;
+            });
+        }
+
+        runInParallel(exporters);
+        Order order = concurrentWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_ONE);
+        assertEquals(0, order.getCurrentQuantity());
+        assertEquals(400, order.getExports().size());
+        assertEquals(400, (int) concurrentWarehouse.getDailyExportTotals(TEST_ORDER_IMPORT_DATE_TWO,
+                TEST_ORDER_IMPORT_DATE_TWO).get(TEST_ORDER_IMPORT_DATE_TWO));
+        assertTrue(concurrentWarehouse.getStorageLocations().isEmpty());
+    }
+
+    @Test
+    public void testConcurrentWarehouseLockStripesOutOfRange() {
+        try {
+            new Warehouse(new HeapWarehouseStore(), 0);
+            fail("This should not run");
+        } catch (IllegalArgumentException e) {
+            // pass
+        }
+        assertFalse(this.testWarehouse.isConcurrent());
+        assertTrue(new Warehouse(new HeapWarehouseStore(), 1).isConcurrent());
+    }
+
+    // EFFECTS: runs given tasks on a thread each and returns their results, failing the test if any task fails
+    private static <T> List<T> runInParallel(List<Callable<T>> tasks) {
+        ExecutorService threads = Executors.newFixedThreadPool(tasks.size());
+        List<T> results = new ArrayList<>();
+        try {
+            for (Future<T> result : threads.invokeAll(tasks)) {
+                results.add(result.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            fail("This should not run");
+        } finally {
+            threads.shutdownNow();
+        }
+        return results;
+    }
 }
@@ -0,0 +1,122 @@
+package persistence;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class AtomicFileTest {
+    private File directory;
+    private File testFile;
+
+    @BeforeEach
+    public void setUp() {
+        try {
+            this.directory = Files.createTempDirectory("testAtomicFile").toFile();
+            this.testFile = new File(this.directory, "warehouse.json");
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        File[] files = this.directory.listFiles();
+        for (File f : files == null ? new File[0] : files) {
+            f.delete();
+        }
+        this.directory.delete();
+    }
+
+    @Test
+    public void testWrite() {
+        try {
+            AtomicFile.write(this.testFile, out -> out.write("first".getBytes(StandardCharsets.UTF_8)));
+            AtomicFile.write(this.testFile, out -> out.write("second".getBytes(StandardCharsets.UTF_8)));
+
+            assertEquals("second", new String(Files.readAllBytes(this.testFile.toPath()), StandardCharsets.UTF_8));
+            assertEquals(1, this.directory.listFiles().length);
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testWriteFailureKeepsDestination() {
+        try {
+            AtomicFile.write(this.testFile, out -> out.write("first".getBytes(StandardCharsets.UTF_8)));
+            try {
+                AtomicFile.write(this.testFile, out -> {
+                    out.write("sec".getBytes(StandardCharsets.UTF_8));
+                    throw new IOException("test failure");
+                });
+                fail("This should not run");
+            } catch (IOException e) {
+                // pass
+            }
+
+            assertEquals("first", new String(Files.readAllBytes(this.testFile.toPath()), StandardCharsets.UTF_8));
+            assertEquals(1, this.directory.listFiles().length);
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testConcurrentWriters() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // the second write runs from start to end while the first is still writing its temporary file
+            AtomicFile.write(this.testFile, out -> {
+                out.write("first".getBytes(StandardCharsets.UTF_8));
+                Future<?> second = executor.submit(() -> {
+                    AtomicFile.write(this.testFile, o -> o.write("second".getBytes(StandardCharsets.UTF_8)));
+                    return null;
+                });
+                try {
+                    second.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    fail("This should not run");
+                }
+            });
+
+            assertEquals("first", new String(Files.readAllBytes(this.testFile.toPath()), StandardCharsets.UTF_8));
+            assertEquals(1, this.directory.listFiles().length);
+        } catch (IOException e) {
+            fail("This should not run");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testWriteKeepsPermissions() {
+        try {
+            AtomicFile.write(this.testFile, out -> out.write("first".getBytes(StandardCharsets.UTF_8)));
+            assumeTrue(Files.getFileAttributeView(this.testFile.toPath(), PosixFileAttributeView.class) != null);
+            Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+            Files.setPosixFilePermissions(this.testFile.toPath(), permissions);
+
+            AtomicFile.write(this.testFile, out -> out.write("second".getBytes(StandardCharsets.UTF_8)));
+
+            assertEquals(permissions, Files.getPosixFilePermissions(this.testFile.toPath()));
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package persistence;
+
+import model.Warehouse;
+import model.exceptions.CorruptFileException;
+import model.exceptions.CustomerAlreadyExistsException;
+import model.exceptions.InvalidCustomerNameException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AutosaveServiceTest {
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private File testFile;
+    private Warehouse testWarehouse;
+    private ExecutorService modelThread;
+
+    @BeforeEach
+    public void setUp() {
+        try {
+            this.testFile = File.createTempFile("testAutosaveService", ".json");
+            this.testFile.delete();
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+        this.testWarehouse = new Warehouse();
+        this.modelThread = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.modelThread.shutdownNow();
+        this.testFile.delete();
+    }
+
+    @Test
+    public void testSavesAfterInterval() {
+        try {
+            AutosaveService autosave = new AutosaveService(this.testWarehouse, this.testFile, SnapshotFormat.JSON, 50,
+                    this.modelThread);
+            this.modelThread.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    this.testWarehouse.addCustomer("customer " + i);
+                }
+                return null;
+            }).get();
+
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (!hasCustomers(100) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(hasCustomers(100));
+            this.modelThread.submit(autosave::close).get();
+        } catch (InterruptedException | ExecutionException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testSavesDeletedCustomer() {
+        try {
+            AutosaveService autosave = new AutosaveService(this.testWarehouse, this.testFile, SnapshotFormat.JSON, 50,
+                    this.modelThread);
+            this.modelThread.submit(() -> {
+                this.testWarehouse.addCustomer("customer 1");
+                this.testWarehouse.addCustomer("customer 2");
+                return null;
+            }).get();
+            waitForCustomers(2);
+
+            // only the changed customer is copied again, the copy of the other is kept from the last save
+            this.modelThread.submit(() -> {
+                this.testWarehouse.deleteCustomer("customer 1");
+                return null;
+            }).get();
+            waitForCustomers(1);
+            assertTrue(hasCustomers(1));
+            this.modelThread.submit(autosave::close).get();
+        } catch (InterruptedException | ExecutionException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testCloseWritesUnsavedChanges() {
+        try {
+            AutosaveService autosave = new AutosaveService(this.testWarehouse, this.testFile, SnapshotFormat.JSON,
+                    TimeUnit.HOURS.toMillis(1), this.modelThread);
+            this.testWarehouse.addCustomer("customer");
+            assertFalse(this.testFile.exists());
+
+            // the last changes are written in the background
+            autosave.close();
+            assertTrue(autosave.awaitTermination(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+            assertTrue(hasCustomers(1));
+
+            // changes after closing are not saved
+            this.testWarehouse.addCustomer("another customer");
+            autosave.close();
+            assertTrue(hasCustomers(1));
+        } catch (InterruptedException | CustomerAlreadyExistsException | InvalidCustomerNameException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testCloseWithoutChanges() {
+        try {
+            AutosaveService autosave = new AutosaveService(this.testWarehouse, this.testFile, SnapshotFormat.JSON, 50,
+                    this.modelThread);
+            autosave.close();
+            assertTrue(autosave.awaitTermination(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+            assertFalse(this.testFile.exists());
+        } catch (InterruptedException e) {
+            fail("This should not run");
+        }
+    }
+
+    // EFFECTS: waits until testFile holds a warehouse with given number of customers, or the timeout passes
+    private void waitForCustomers(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!hasCustomers(count) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+
+    // EFFECTS: returns true if testFile holds a warehouse with given number of customers
+    private boolean hasCustomers(int count) {
+        try {
+            return this.testFile.exists()
+                    && new JsonReader().readWarehouse(this.testFile).getCustomerSet().size() == count;
+        } catch (IOException | CorruptFileException e) {
+            // the file is replaced atomically, so it is never read partly written
+            return false;
+        }
+    }
+}
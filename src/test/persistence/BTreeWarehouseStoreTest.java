@@ -0,0 +1,166 @@
+package persistence;
+
+import model.Customer;
+import model.Order;
+import model.Warehouse;
+import model.exceptions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BTreeWarehouseStoreTest {
+    private static final String TEST_CUSTOMER_NAME_ONE = "test customer 1";
+    private static final String TEST_CUSTOMER_NAME_TWO = "test customer 2";
+    private static final LocalDate TEST_IMPORT_DATE = LocalDate.of(2021, 1, 21);
+    private static final String TEST_LOCATION = "A1";
+    private static final int TEST_CACHE_PAGES = 8;
+
+    private File storeFile;
+
+    @BeforeEach
+    public void setUp() {
+        try {
+            this.storeFile = File.createTempFile("testBTreeWarehouseStore", ".whb");
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.storeFile.delete();
+    }
+
+    @Test
+    public void testManyCustomersWithSmallCache() {
+        List<String> names = new ArrayList<>();
+        try (BTreeWarehouseStore store = new BTreeWarehouseStore(this.storeFile, TEST_CACHE_PAGES)) {
+            for (int i = 0; i < 600; i++) {
+                // every tenth customer is too large to be kept inline in its leaf, such as customer 0119
+                String name = String.format("customer %04d", (i * 7919) % 600);
+                names.add(name);
+                store.putCustomer(createCustomer(name, i % 10 == 1 ? 60 : 1));
+                store.putInvoice("invoice " + name, name);
+            }
+            // removals leave every other customer
+            for (int i = 0; i < 600; i += 2) {
+                store.removeCustomer(String.format("customer %04d", i));
+            }
+        } catch (IOException | CorruptFileException | InvalidImportDateException | QuantityNegativeException
+                | QuantityZeroException e) {
+            fail("This should not run");
+        }
+
+        Collections.sort(names);
+        try (BTreeWarehouseStore store = new BTreeWarehouseStore(this.storeFile, TEST_CACHE_PAGES)) {
+            assertEquals(300, store.getCustomers().size());
+            List<String> storedNames = new ArrayList<>();
+            for (Customer c : store.getCustomers()) {
+                storedNames.add(c.getName());
+            }
+            for (int i = 0; i < 300; i++) {
+                assertEquals(names.get(2 * i + 1), storedNames.get(i));
+            }
+            assertNull(store.getCustomer("customer 0000"));
+            assertEquals(60, store.getCustomer("customer 0119").getActiveOrderSize());
+            assertEquals("customer 0000", store.getCustomerNameOfInvoice("invoice customer 0000"));
+            assertFalse(store.containsCustomer("customer 0000"));
+            assertTrue(store.containsCustomer("customer 0001"));
+        } catch (IOException | CorruptFileException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testWarehouseOnStore() {
+        Warehouse heapWarehouse = new Warehouse();
+        try (BTreeWarehouseStore store = new BTreeWarehouseStore(this.storeFile, TEST_CACHE_PAGES)) {
+            Warehouse storeWarehouse = new Warehouse(store);
+            changeWarehouse(heapWarehouse);
+            changeWarehouse(storeWarehouse);
+
+            assertTrue(heapWarehouse.convertToJsonObject().similar(storeWarehouse.convertToJsonObject()));
+            assertEquals(heapWarehouse.search("content 2"), storeWarehouse.search("content 2"));
+            assertEquals(heapWarehouse.getOrdersAtLocation(TEST_LOCATION),
+                    storeWarehouse.getOrdersAtLocation(TEST_LOCATION));
+            assertEquals(heapWarehouse.getQuantitiesByLocation(), storeWarehouse.getQuantitiesByLocation());
+            assertEquals(heapWarehouse.getDailyExportTotals(TEST_IMPORT_DATE, TEST_IMPORT_DATE.plusDays(30)),
+                    storeWarehouse.getDailyExportTotals(TEST_IMPORT_DATE, TEST_IMPORT_DATE.plusDays(30)));
+            assertEquals(8, storeWarehouse.getOrdersImportedBetween(TEST_IMPORT_DATE, TEST_IMPORT_DATE).count());
+            assertEquals("edited content 2", storeWarehouse.findOrder("200").getContent());
+            assertNull(storeWarehouse.findOrder("100"));
+        } catch (IOException | CorruptFileException e) {
+            fail("This should not run");
+        }
+
+        // the warehouse is opened again from the file
+        try (BTreeWarehouseStore store = new BTreeWarehouseStore(this.storeFile, TEST_CACHE_PAGES)) {
+            Warehouse storeWarehouse = new Warehouse(store);
+            assertTrue(heapWarehouse.convertToJsonObject().similar(storeWarehouse.convertToJsonObject()));
+            assertEquals(heapWarehouse.getOrders(true).length, storeWarehouse.getOrders(true).length);
+        } catch (IOException | CorruptFileException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testOpenCorruptFile() {
+        try {
+            Files.write(this.storeFile.toPath(), "not a warehouse store".getBytes(StandardCharsets.UTF_8));
+            new BTreeWarehouseStore(this.storeFile).close();
+            fail("This should not run");
+        } catch (CorruptFileException e) {
+            // pass
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+
+    // EFFECTS: returns a customer with given name and given number of active orders with long content
+    private static Customer createCustomer(String name, int orders) throws InvalidImportDateException,
+            QuantityNegativeException, QuantityZeroException {
+        Customer customer = new Customer(name);
+        for (int i = 0; i < orders; i++) {
+            customer.addOrder(true, new Order("content of order " + i + " of " + name, TEST_IMPORT_DATE,
+                    name + " order " + i, 10 + i, TEST_LOCATION));
+        }
+        return customer;
+    }
+
+    // MODIFIES: warehouse
+    // EFFECTS: adds two customers to given warehouse, and imports, exports, edits and deletes their orders
+    private static void changeWarehouse(Warehouse warehouse) {
+        try {
+            warehouse.addCustomer(TEST_CUSTOMER_NAME_ONE);
+            warehouse.addCustomer(TEST_CUSTOMER_NAME_TWO);
+            for (int i = 0; i < 8; i++) {
+                warehouse.importProduct(TEST_CUSTOMER_NAME_ONE, "content " + (i % 3), TEST_IMPORT_DATE,
+                        Integer.toString(100 + i), 300 + i, TEST_LOCATION);
+                warehouse.exportOrder(TEST_CUSTOMER_NAME_ONE, Integer.toString(100 + i), i % 2 == 0 ? 300 + i : 1,
+                        TEST_IMPORT_DATE.plusDays(i), "export " + i);
+            }
+            warehouse.importProduct(TEST_CUSTOMER_NAME_TWO, "content 2", TEST_IMPORT_DATE, "200", 1000, "B2");
+            warehouse.recordMonthlyCharge(TEST_CUSTOMER_NAME_TWO, "200", TEST_IMPORT_DATE,
+                    TEST_IMPORT_DATE.plusDays(30), 1000, "monthly");
+            warehouse.editExistingActiveCustomerOrder(TEST_CUSTOMER_NAME_TWO, "200", "edited content 2", TEST_LOCATION);
+            warehouse.deleteCustomerOrder(TEST_CUSTOMER_NAME_ONE, "100");
+        } catch (CustomerAlreadyExistsException | InvalidCustomerNameException | CustomerDoesNotExistException
+                | OrderAlreadyExistsException | OrderDoesNotExistException | InvalidImportDateException
+                | InvalidQuantityException | InvalidExportDateException | InvalidStartDateException
+                | InvalidEndDateException | InvalidMonthRangeException | ParseException e) {
+            fail("This should not run");
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package persistence;
+
+import model.Warehouse;
+import model.exceptions.CorruptFileException;
+import model.exceptions.CustomerAlreadyExistsException;
+import model.exceptions.InvalidCustomerNameException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinarySnapshotReaderTest {
+    private File testFile;
+
+    @BeforeEach
+    public void setUp() {
+        try {
+            this.testFile = File.createTempFile("testBinarySnapshotReader", ".whs");
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.testFile.delete();
+    }
+
+    @Test
+    public void testReadWarehouseNonExistentFile() {
+        try {
+            new BinarySnapshotReader().readWarehouse(new File("./data/NoSuchFileExist"));
+            fail("This should not run");
+        } catch (IOException e) {
+            // pass
+        } catch (CorruptFileException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testReadWarehouseNotBinarySnapshot() {
+        try {
+            Files.write(this.testFile.toPath(), "{\"customerSet\":[]}".getBytes(StandardCharsets.UTF_8));
+            new BinarySnapshotReader().readWarehouse(this.testFile);
+            fail("This should not run");
+        } catch (CorruptFileException e) {
+            // pass
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testReadWarehouseTruncated() {
+        try {
+            Warehouse warehouse = new Warehouse();
+            warehouse.addCustomer("test customer");
+            new BinarySnapshotWriter().saveWarehouse(this.testFile, warehouse);
+            byte[] bytes = Files.readAllBytes(this.testFile.toPath());
+            Files.write(this.testFile.toPath(), Arrays.copyOf(bytes, bytes.length - 3));
+
+            new BinarySnapshotReader().readWarehouse(this.testFile);
+            fail("This should not run");
+        } catch (CorruptFileException e) {
+            // pass
+        } catch (IOException | CustomerAlreadyExistsException | InvalidCustomerNameException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testReadWarehouseDictionaryCountLargerThanFile() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.write(BinarySnapshotWriter.MAGIC);
+            BinarySnapshotWriter.writeVarint(out, 1);
+            BinarySnapshotWriter.writeString(out, "{}");
+            BinarySnapshotWriter.writeVarint(out, Integer.MAX_VALUE);
+            Files.write(this.testFile.toPath(), bytes.toByteArray());
+
+            new BinarySnapshotReader().readWarehouse(this.testFile);
+            fail("This should not run");
+        } catch (CorruptFileException e) {
+            // pass
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testReadExportsCountLargerThanInput() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            BinarySnapshotWriter.writeVarint(new DataOutputStream(bytes), Integer.MAX_VALUE);
+
+            BinarySnapshotReader.readExports(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            fail("This should not run");
+        } catch (EOFException e) {
+            // pass
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+}
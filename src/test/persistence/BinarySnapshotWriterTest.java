@@ -0,0 +1,106 @@
+package persistence;
+
+import model.Warehouse;
+import model.exceptions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinarySnapshotWriterTest {
+    private static final String TEST_CUSTOMER_NAME_ONE = "test customer 1";
+    private static final String TEST_CUSTOMER_NAME_TWO = "test customer 2";
+    private static final String TEST_LOCATION = "test location";
+    private static final LocalDate TEST_IMPORT_DATE = LocalDate.of(2021, 1, 21);
+    private static final LocalDate TEST_OLD_IMPORT_DATE = LocalDate.of(1965, 6, 1);
+
+    private File binaryFile;
+    private File jsonFile;
+    private Warehouse testWarehouse;
+
+    @BeforeEach
+    public void setUp() {
+        try {
+            this.binaryFile = File.createTempFile("testBinarySnapshotWriter", ".whs");
+            this.jsonFile = File.createTempFile("testBinarySnapshotWriter", ".json");
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+        this.testWarehouse = new Warehouse();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.binaryFile.delete();
+        this.jsonFile.delete();
+    }
+
+    @Test
+    public void testSaveWarehouseEmpty() {
+        try {
+            new BinarySnapshotWriter().saveWarehouse(this.binaryFile, this.testWarehouse);
+            assertEquals(SnapshotFormat.BINARY, SnapshotFormat.detect(this.binaryFile));
+            assertEquals(0, new BinarySnapshotReader().readWarehouse(this.binaryFile).getCustomerSet().size());
+        } catch (IOException | CorruptFileException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testSaveWarehouseRoundTrip() {
+        try {
+            addOrders();
+            new BinarySnapshotWriter().saveWarehouse(this.binaryFile, this.testWarehouse);
+            new JsonWriter().saveWarehouse(this.jsonFile, this.testWarehouse);
+
+            Warehouse loadedWarehouse = new BinarySnapshotReader().readWarehouse(this.binaryFile);
+            assertTrue(this.testWarehouse.convertToJsonObject().similar(loadedWarehouse.convertToJsonObject()));
+            assertNotNull(loadedWarehouse.findOrder("100"));
+            assertEquals(1, loadedWarehouse.getOrdersAtLocation(TEST_LOCATION).size());
+
+            // exports are indexed by the export dates kept with the encoded labels
+            assertEquals(21, loadedWarehouse.getExportsBetween(TEST_OLD_IMPORT_DATE,
+                    TEST_IMPORT_DATE.plusDays(19)).count());
+            assertEquals("export 5", loadedWarehouse.getExportsBetween(TEST_IMPORT_DATE.plusDays(5),
+                    TEST_IMPORT_DATE.plusDays(5)).findFirst().get().getExportLabel().getInvoiceNumber());
+
+            // field names and dates are not repeated on every order
+            assertTrue(this.binaryFile.length() * 2 < this.jsonFile.length());
+            assertEquals(SnapshotFormat.JSON, SnapshotFormat.detect(this.jsonFile));
+        } catch (IOException | CorruptFileException e) {
+            fail("This should not run");
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: adds two customers with active, complete, exported and monthly charged orders to testWarehouse
+    private void addOrders() {
+        try {
+            this.testWarehouse.addCustomer(TEST_CUSTOMER_NAME_ONE);
+            this.testWarehouse.addCustomer(TEST_CUSTOMER_NAME_TWO);
+            for (int i = 0; i < 20; i++) {
+                this.testWarehouse.importProduct(TEST_CUSTOMER_NAME_ONE, "content " + (i % 3), TEST_IMPORT_DATE,
+                        Integer.toString(100 + i), 300 + i, TEST_LOCATION);
+                this.testWarehouse.exportOrder(TEST_CUSTOMER_NAME_ONE, Integer.toString(100 + i), 300 + i,
+                        TEST_IMPORT_DATE.plusDays(i), "export " + i);
+            }
+            this.testWarehouse.importProduct(TEST_CUSTOMER_NAME_TWO, "content \u00e9", TEST_OLD_IMPORT_DATE, "200",
+                    1000, TEST_LOCATION);
+            this.testWarehouse.exportOrder(TEST_CUSTOMER_NAME_TWO, "200", 10, TEST_OLD_IMPORT_DATE.plusDays(5),
+                    "export old");
+            this.testWarehouse.recordMonthlyCharge(TEST_CUSTOMER_NAME_TWO, "200", TEST_OLD_IMPORT_DATE,
+                    TEST_OLD_IMPORT_DATE.plusDays(30), 990, "monthly old");
+        } catch (CustomerAlreadyExistsException | InvalidCustomerNameException | CustomerDoesNotExistException
+                | OrderAlreadyExistsException | OrderDoesNotExistException | InvalidImportDateException
+                | InvalidQuantityException | InvalidExportDateException | InvalidStartDateException
+                | InvalidEndDateException | InvalidMonthRangeException | ParseException e) {
+            fail("This should not run");
+        }
+    }
+}
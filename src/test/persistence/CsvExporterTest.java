@@ -0,0 +1,92 @@
+package persistence;
+
+import model.Warehouse;
+import model.exceptions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvExporterTest {
+    private static final String TEST_CUSTOMER_NAME_ONE = "test customer 1";
+    private static final String TEST_CUSTOMER_NAME_TWO = "test customer 2";
+    private static final LocalDate TEST_IMPORT_DATE = LocalDate.of(2021, 1, 21);
+
+    private File testFile;
+    private Warehouse testWarehouse;
+
+    @BeforeEach
+    public void setUp() {
+        try {
+            this.testFile = File.createTempFile("testCsvExporter", ".csv");
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+        this.testWarehouse = new Warehouse();
+        try {
+            this.testWarehouse.addCustomer(TEST_CUSTOMER_NAME_ONE);
+            this.testWarehouse.addCustomer(TEST_CUSTOMER_NAME_TWO);
+            this.testWarehouse.addCustomer("customer without orders");
+            for (int i = 0; i < 4; i++) {
+                this.testWarehouse.importProduct(TEST_CUSTOMER_NAME_ONE, "boxes, \"size " + i + "\"",
+                        TEST_IMPORT_DATE, Integer.toString(100 + i), 300 + i, "a" + i);
+                this.testWarehouse.exportOrder(TEST_CUSTOMER_NAME_ONE, Integer.toString(100 + i),
+                        i % 2 == 0 ? 300 + i : 1, TEST_IMPORT_DATE.plusDays(i), "export " + i);
+            }
+            this.testWarehouse.importProduct(TEST_CUSTOMER_NAME_TWO, "crates", TEST_IMPORT_DATE, "200", 1000, "b1");
+            this.testWarehouse.recordMonthlyCharge(TEST_CUSTOMER_NAME_TWO, "200", TEST_IMPORT_DATE,
+                    TEST_IMPORT_DATE.plusDays(30), 1000, "monthly 1");
+            this.testWarehouse.exportOrder(TEST_CUSTOMER_NAME_TWO, "200", 1000, TEST_IMPORT_DATE.plusDays(40),
+                    "export 200");
+        } catch (CustomerAlreadyExistsException | InvalidCustomerNameException | CustomerDoesNotExistException
+                | OrderAlreadyExistsException | OrderDoesNotExistException | InvalidImportDateException
+                | InvalidQuantityException | InvalidExportDateException | InvalidStartDateException
+                | InvalidEndDateException | InvalidMonthRangeException | ParseException e) {
+            fail("This should not run");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.testFile.delete();
+    }
+
+    @Test
+    public void testWriteInventory() {
+        try {
+            new CsvExporter().writeInventory(this.testFile, this.testWarehouse);
+            List<String> lines = Files.readAllLines(this.testFile.toPath(), StandardCharsets.UTF_8);
+
+            assertEquals(3, lines.size());
+            assertEquals(String.join(",", CsvExporter.INVENTORY_HEADER), lines.get(0));
+            assertTrue(lines.contains("test customer 1,101,300,\"boxes, \"\"size 1\"\"\",2021-01-21,a1"));
+            assertTrue(lines.contains("test customer 1,103,302,\"boxes, \"\"size 3\"\"\",2021-01-21,a3"));
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testWriteHistory() {
+        try {
+            new CsvExporter().writeHistory(this.testFile, this.testWarehouse);
+            Warehouse importedWarehouse = new Warehouse();
+            CsvImportReport report = new CsvImporter().importRows(this.testFile, importedWarehouse);
+
+            assertTrue(report.isComplete());
+            assertEquals(3 + 2 * 4 + 3, report.getAppliedRows());
+            assertTrue(this.testWarehouse.convertToJsonObject().similar(importedWarehouse.convertToJsonObject()));
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+}
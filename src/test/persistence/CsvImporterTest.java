@@ -0,0 +1,135 @@
+package persistence;
+
+import model.Order;
+import model.Warehouse;
+import model.exceptions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.SortedMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvImporterTest {
+    private static final String TEST_CUSTOMER_NAME = "test customer";
+    private static final LocalDate TEST_IMPORT_DATE = LocalDate.of(2021, 1, 21);
+
+    private File testFile;
+    private Warehouse testWarehouse;
+
+    @BeforeEach
+    public void setUp() {
+        try {
+            this.testFile = File.createTempFile("testCsvImporter", ".csv");
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+        this.testWarehouse = new Warehouse();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.testFile.delete();
+    }
+
+    @Test
+    public void testImportRows() {
+        String csv = "\uFEFF# rows exported from a spreadsheet\r\n"
+                + "Customer, Test Customer ,,,,,\r\n"
+                + "import,test customer,\"Boxes, \"\"large\"\"\nsecond line\",2021-01-21,100,300,A1\r\n"
+                + ",,,,,,\r\n"
+                + "IMPORT,test customer,crates,2021-01-21,101,50,B2\r\n"
+                + "charge,test customer,100,2021-01-21,2021-02-20,300,200\r\n"
+                + "export,test customer,100,300,2021-02-21,300\r\n"
+                + "export,test customer,101,20,2021-02-21,301";
+        try {
+            Files.write(this.testFile.toPath(), csv.getBytes(StandardCharsets.UTF_8));
+            CsvImportReport report = new CsvImporter(2).importRows(this.testFile, this.testWarehouse);
+
+            assertTrue(report.isComplete());
+            assertEquals(6, report.getAppliedRows());
+            assertEquals("6 row(s) imported", report.getSummary());
+            Order completeOrder = this.testWarehouse.findOrder("100");
+            assertEquals("boxes, \"large\"\nsecond line", completeOrder.getContent());
+            assertEquals(0, completeOrder.getCurrentQuantity());
+            assertEquals(1, completeOrder.getMonthlyChargeLabels().size());
+            assertEquals(30, this.testWarehouse.findOrder("101").getCurrentQuantity());
+            assertEquals(30, this.testWarehouse.getQuantityAtLocation("b2"));
+            assertEquals(TEST_IMPORT_DATE, this.testWarehouse.findOrder("101").getImportDate());
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testImportRowsRejected() {
+        String csv = "customer,test customer\n"
+                + "transfer,test customer\n"
+                + "import,test customer,boxes,21/01/2021,100,300,a1\n"
+                + "import,test customer,boxes,2021-01-21,100,many,a1\n"
+                + "import,test customer,boxes,2021-01-21,100,300\n"
+                + "import,other customer,boxes,2021-01-21,100,300,a1\n"
+                + "import,test customer,boxes,2021-01-21,100,300,a1\n"
+                + "import,test customer,boxes,2021-01-21,100,300,a1\n"
+                + "export,test customer,100,400,2021-02-21,300\n"
+                + "import,test customer,\"boxes,2021-01-21,101,300,a1\n";
+        try {
+            CsvImportReport report = new CsvImporter(3).importRows(new StringReader(csv), this.testWarehouse);
+
+            assertFalse(report.isComplete());
+            assertEquals(2, report.getAppliedRows());
+            SortedMap<Long, String> rejectedRows = report.getRejectedRows();
+            assertArrayEquals(new Long[]{2L, 3L, 4L, 5L, 6L, 8L, 9L, 10L}, rejectedRows.keySet().toArray());
+            assertEquals("\"transfer\" is not a row type", rejectedRows.get(2L));
+            assertEquals("\"many\" is not a whole number", rejectedRows.get(4L));
+            assertEquals(new CustomerDoesNotExistException("other customer").getMessage(), rejectedRows.get(6L));
+            assertEquals(new OrderAlreadyExistsException("100").getMessage(), rejectedRows.get(8L));
+            assertEquals("a quoted field is not closed", rejectedRows.get(10L));
+            assertTrue(report.getSummary().startsWith("2 row(s) imported, 8 row(s) rejected: line 2 ("));
+            assertTrue(report.getSummary().endsWith(", ..."));
+            assertEquals(300, this.testWarehouse.findOrder("100").getCurrentQuantity());
+            assertNull(this.testWarehouse.findOrder("101"));
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testImportRowsJournaled() {
+        try {
+            WarehouseJournal journal = new WarehouseJournal(this.testFile);
+            journal.start(this.testWarehouse);
+            new CsvImporter(2).importRows(new StringReader("customer,test customer\n"
+                    + "import,test customer,boxes,2021-01-21,100,300,a1\n"
+                    + "export,test customer,100,100,2021-02-21,300\n"), this.testWarehouse);
+            journal.close();
+
+            WarehouseJournal loadedJournal = new WarehouseJournal(this.testFile);
+            Warehouse loadedWarehouse = loadedJournal.load();
+            loadedJournal.close();
+            assertTrue(this.testWarehouse.convertToJsonObject().similar(loadedWarehouse.convertToJsonObject()));
+            assertEquals(200, loadedWarehouse.findOrder("100").getCurrentQuantity());
+        } catch (IOException | CorruptFileException e) {
+            fail("This should not run");
+        } finally {
+            new File(this.testFile.getPath() + ".journal").delete();
+        }
+    }
+
+    @Test
+    public void testBatchSizeOutOfRange() {
+        try {
+            new CsvImporter(0);
+            fail("This should not run");
+        } catch (IllegalArgumentException e) {
+            // pass
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package persistence;
+
+import model.LabelHistory;
+import model.LabelHistorySource;
+import model.Order;
+import model.exceptions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileOrderArchiveTest {
+    private static final LocalDate TEST_IMPORT_DATE = LocalDate.of(2021, 1, 21);
+    private static final LocalDate TEST_EXPORT_DATE = LocalDate.of(2021, 2, 21);
+
+    private File testFile;
+    private FileOrderArchive testArchive;
+
+    @BeforeEach
+    public void setUp() {
+        try {
+            this.testFile = File.createTempFile("testFileOrderArchive", ".dat");
+            this.testArchive = new FileOrderArchive(this.testFile);
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        try {
+            this.testArchive.close();
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+        this.testFile.delete();
+    }
+
+    @Test
+    public void testArchiveAndLoad() {
+        try {
+            Order orderOne = createCompleteOrder("111111", 10);
+            Order orderTwo = createCompleteOrder("222222", 20);
+            orderTwo.addMonthlyChargeLabel(20, "monthly", TEST_IMPORT_DATE, TEST_IMPORT_DATE.plusDays(30));
+
+            LabelHistorySource sourceOne = this.testArchive.archive(orderOne);
+            LabelHistorySource sourceTwo = this.testArchive.archive(orderTwo);
+
+            LabelHistory labelsTwo = sourceTwo.load();
+            assertEquals(1, labelsTwo.getExports().size());
+            assertEquals(orderTwo.getExports().get(0).toString(), labelsTwo.getExports().get(0).toString());
+            assertEquals(1, labelsTwo.getMonthlyChargeLabels().size());
+            assertEquals(orderTwo.getMonthlyChargeLabels().get(0).toString(),
+                    labelsTwo.getMonthlyChargeLabels().get(0).toString());
+
+            LabelHistory labelsOne = sourceOne.load();
+            assertEquals(orderOne.getExportsString(), labelsOne.getExports().get(0).toString());
+            assertEquals(0, labelsOne.getMonthlyChargeLabels().size());
+        } catch (IOException | QuantityNegativeException | QuantityZeroException | InvalidImportDateException
+                | QuantityExceedsMaxQuantityException | RemovalQuantityExceedsAvailabilityException
+                | InvalidExportDateException | InvalidStartDateException | InvalidEndDateException
+                | InvalidMonthRangeException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testLoadAfterClose() {
+        try {
+            LabelHistorySource source = this.testArchive.archive(createCompleteOrder("111111", 10));
+            this.testArchive.close();
+            source.load();
+            fail("This should not run");
+        } catch (UncheckedIOException e) {
+            // expected
+        } catch (IOException | QuantityNegativeException | QuantityZeroException | InvalidImportDateException
+                | QuantityExceedsMaxQuantityException | RemovalQuantityExceedsAvailabilityException
+                | InvalidExportDateException e) {
+            fail("This should not run");
+        }
+    }
+
+    // EFFECTS: returns a new order of given quantity that has been completely exported
+    private Order createCompleteOrder(String invoiceNumber, int quantity) throws QuantityNegativeException,
+            QuantityZeroException, InvalidImportDateException, QuantityExceedsMaxQuantityException,
+            RemovalQuantityExceedsAvailabilityException, InvalidExportDateException {
+        Order order = new Order("Content", TEST_IMPORT_DATE, invoiceNumber, quantity, "Location");
+        order.remove(quantity, "export " + invoiceNumber, TEST_EXPORT_DATE);
+        return order;
+    }
+}
@@ -10,6 +10,8 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Map;
 import java.util.Set;
 
@@ -86,8 +88,102 @@ public class JsonReaderTest {
             assertEquals(0, customerOne.getCompleteOrderSize());
             assertTrue(activeOrder.containsKey(TEST_ORDER_INVOICE_NUMBER_ONE));
             assertTrue(activeOrder.containsKey(TEST_ORDER_INVOICE_NUMBER_TWO));
+            assertSame(activeOrder.get(TEST_ORDER_INVOICE_NUMBER_ONE),
+                    this.testWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_ONE));
+            assertSame(activeOrder.get(TEST_ORDER_INVOICE_NUMBER_TWO),
+                    this.testWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_TWO));
         } catch (IOException | CorruptFileException e) {
             fail("This should not run");
         }
     }
+
+    @Test
+    public void testReadWarehouseNonExistentFile() {
+        try {
+            new JsonReader().readWarehouse(new File("./data/NoSuchFileExist"));
+            fail("This should not run");
+        } catch (IOException e) {
+            // pass
+        } catch (CorruptFileException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testReadWarehouseEmptyInventory() {
+        try {
+            Warehouse warehouse = new JsonReader().readWarehouse(TEST_FILE_EMPTY_INVENTORY);
+            Set<Customer> customerSet = warehouse.getCustomerSet();
+            assertEquals(2, customerSet.size());
+            assertTrue(customerSet.contains(new Customer(TEST_CUSTOMER_NAME_ONE)));
+            assertTrue(customerSet.contains(new Customer(TEST_CUSTOMER_NAME_TWO)));
+        } catch (IOException | CorruptFileException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testReadWarehouseMultipleOrders() {
+        try {
+            // the customer name follows its orders in this file
+            Warehouse warehouse = new JsonReader().readWarehouse(TEST_FILE_MULTIPLE_ORDER);
+            this.testWarehouse.convertJsonObjectToWarehouse(
+                    new JsonReader().getJsonRepresentation(TEST_FILE_MULTIPLE_ORDER));
+
+            Customer customerOne = warehouse.getCustomerSet().iterator().next();
+            Map<String, Order> activeOrder = customerOne.getActiveOrders();
+            assertEquals(TEST_CUSTOMER_NAME_ONE, customerOne.getName());
+            assertEquals(2, customerOne.getActiveOrderSize());
+            assertEquals(0, customerOne.getCompleteOrderSize());
+            assertSame(activeOrder.get(TEST_ORDER_INVOICE_NUMBER_ONE),
+                    warehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_ONE));
+            assertSame(activeOrder.get(TEST_ORDER_INVOICE_NUMBER_TWO),
+                    warehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_TWO));
+            assertEquals(this.testWarehouse.convertToJsonObject().toString(),
+                    warehouse.convertToJsonObject().toString());
+        } catch (IOException | CorruptFileException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testReadWarehouseCorruptFile() {
+        File corruptFile = null;
+        try {
+            corruptFile = File.createTempFile("testJsonReaderCorrupt", ".json");
+            Files.write(corruptFile.toPath(),
+                    "{\"customerSet\": [{\"name\": \"test\", \"activeOrders\": [{\"content\": "
+                            .getBytes(StandardCharsets.UTF_8));
+            new JsonReader().readWarehouse(corruptFile);
+            fail("This should not run");
+        } catch (CorruptFileException e) {
+            // pass
+        } catch (IOException e) {
+            fail("This should not run");
+        } finally {
+            if (corruptFile != null) {
+                corruptFile.delete();
+            }
+        }
+    }
+
+    @Test
+    public void testReadWarehouseCorruptCompressedFile() {
+        File corruptFile = null;
+        try {
+            // a gzip header followed by data that is not a deflate stream
+            corruptFile = File.createTempFile("testJsonReaderCorrupt", ".json.gz");
+            Files.write(corruptFile.toPath(), new byte[] {(byte) 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, 0, 7, 7, 7});
+            new JsonReader().readWarehouse(corruptFile);
+            fail("This should not run");
+        } catch (CorruptFileException e) {
+            // pass
+        } catch (IOException e) {
+            fail("This should not run");
+        } finally {
+            if (corruptFile != null) {
+                corruptFile.delete();
+            }
+        }
+    }
 }
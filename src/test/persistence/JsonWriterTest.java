@@ -4,15 +4,19 @@ import model.Customer;
 import model.Order;
 import model.Warehouse;
 import model.exceptions.*;
+import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.LocalDate;
 import java.util.Map;
 import java.util.Set;
+import java.util.zip.Deflater;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -145,4 +149,104 @@ public class JsonWriterTest {
             fail("This should not run");
         }
     }
+
+    @Test
+    public void testSaveWarehouse() {
+        File destination = null;
+        try {
+            // setup
+            this.testWarehouse.addCustomer(TEST_CUSTOMER_NAME_ONE);
+            this.testWarehouse.addCustomer(TEST_CUSTOMER_NAME_TWO);
+            this.testWarehouse.importProduct(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_CONTENT_ONE, TEST_ORDER_IMPORT_DATE_ONE,
+                    TEST_ORDER_INVOICE_NUMBER_ONE, TEST_ORDER_QUANTITY_ONE, TEST_ORDER_STORAGE_LOCATION_ONE);
+            this.testWarehouse.importProduct(TEST_CUSTOMER_NAME_TWO, TEST_ORDER_CONTENT_TWO, TEST_ORDER_IMPORT_DATE_TWO,
+                    TEST_ORDER_INVOICE_NUMBER_TWO, TEST_ORDER_QUANTITY_TWO, TEST_ORDER_STORAGE_LOCATION_TWO);
+
+            // an existing file is replaced and no temporary file is left behind
+            destination = File.createTempFile("testJsonWriterSaveWarehouse", ".json");
+            Files.write(destination.toPath(), "previous save".getBytes(StandardCharsets.UTF_8));
+            new JsonWriter().saveWarehouse(destination, this.testWarehouse);
+            String tempPrefix = destination.getName() + ".";
+            assertEquals(0, destination.getParentFile().listFiles(
+                    (dir, name) -> name.startsWith(tempPrefix) && name.endsWith(".tmp")).length);
+
+            // confirm the file matches the JSON object representation of the warehouse
+            JSONObject saved = new JsonReader().getJsonRepresentation(destination);
+            assertTrue(this.testWarehouse.convertToJsonObject().similar(saved));
+            Warehouse loadedWarehouse = new JsonReader().readWarehouse(destination);
+            assertEquals(2, loadedWarehouse.getCustomerSet().size());
+            assertNotNull(loadedWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_ONE));
+            assertNotNull(loadedWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_TWO));
+        } catch (CustomerAlreadyExistsException | IOException | CustomerDoesNotExistException
+                | OrderAlreadyExistsException | QuantityNegativeException | QuantityZeroException
+                | InvalidImportDateException | CorruptFileException | InvalidCustomerNameException e) {
+            fail("This should not run");
+        } finally {
+            if (destination != null) {
+                destination.delete();
+            }
+        }
+    }
+
+    @Test
+    public void testSaveWarehouseUnwritableDestination() {
+        try {
+            new JsonWriter().saveWarehouse(new File("./data/NoSuchDirectory/warehouse.json"), this.testWarehouse);
+            fail("This should not run");
+        } catch (IOException e) {
+            // pass
+        }
+        assertFalse(new File("./data/NoSuchDirectory").exists());
+    }
+
+    @Test
+    public void testSaveWarehouseCompressed() {
+        File plain = null;
+        File compressed = null;
+        try {
+            // setup
+            this.testWarehouse.addCustomer(TEST_CUSTOMER_NAME_ONE);
+            this.testWarehouse.addCustomer(TEST_CUSTOMER_NAME_TWO);
+            this.testWarehouse.importProduct(TEST_CUSTOMER_NAME_ONE, TEST_ORDER_CONTENT_ONE, TEST_ORDER_IMPORT_DATE_ONE,
+                    TEST_ORDER_INVOICE_NUMBER_ONE, TEST_ORDER_QUANTITY_ONE, TEST_ORDER_STORAGE_LOCATION_ONE);
+            this.testWarehouse.importProduct(TEST_CUSTOMER_NAME_TWO, TEST_ORDER_CONTENT_TWO, TEST_ORDER_IMPORT_DATE_TWO,
+                    TEST_ORDER_INVOICE_NUMBER_TWO, TEST_ORDER_QUANTITY_TWO, TEST_ORDER_STORAGE_LOCATION_TWO);
+            plain = File.createTempFile("testJsonWriterPlain", ".json");
+            compressed = File.createTempFile("testJsonWriterCompressed", ".json.gz");
+            new JsonWriter().saveWarehouse(plain, this.testWarehouse);
+            new JsonWriter(Deflater.BEST_COMPRESSION).saveWarehouse(compressed, this.testWarehouse);
+
+            // the compressed file is detected and read back like the plain one
+            assertTrue(compressed.length() < plain.length());
+            assertEquals(SnapshotFormat.COMPRESSED_JSON, SnapshotFormat.detect(compressed));
+            assertEquals(SnapshotFormat.JSON, SnapshotFormat.detect(plain));
+            JSONObject saved = new JsonReader().getJsonRepresentation(compressed);
+            assertTrue(this.testWarehouse.convertToJsonObject().similar(saved));
+            Warehouse loadedWarehouse = SnapshotFormat.COMPRESSED_JSON.readWarehouse(compressed);
+            assertEquals(2, loadedWarehouse.getCustomerSet().size());
+            assertNotNull(loadedWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_ONE));
+            assertNotNull(loadedWarehouse.findOrder(TEST_ORDER_INVOICE_NUMBER_TWO));
+        } catch (CustomerAlreadyExistsException | IOException | CustomerDoesNotExistException
+                | OrderAlreadyExistsException | QuantityNegativeException | QuantityZeroException
+                | InvalidImportDateException | CorruptFileException | InvalidCustomerNameException e) {
+            fail("This should not run");
+        } finally {
+            if (plain != null) {
+                plain.delete();
+            }
+            if (compressed != null) {
+                compressed.delete();
+            }
+        }
+    }
+
+    @Test
+    public void testCompressionLevelOutOfRange() {
+        try {
+            new JsonWriter(Deflater.BEST_COMPRESSION + 1);
+            fail("This should not run");
+        } catch (IllegalArgumentException e) {
+            // pass
+        }
+    }
 }
@@ -0,0 +1,196 @@
+package persistence;
+
+import model.Order;
+import model.Warehouse;
+import model.exceptions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedSnapshotTest {
+    private static final String TEST_CUSTOMER_NAME_ONE = "test customer 1";
+    private static final String TEST_CUSTOMER_NAME_TWO = "test customer 2";
+    private static final String TEST_LOCATION = "test location";
+    private static final LocalDate TEST_IMPORT_DATE = LocalDate.of(2021, 1, 21);
+
+    private File testFile;
+    private Warehouse testWarehouse;
+
+    @BeforeEach
+    public void setUp() {
+        try {
+            this.testFile = File.createTempFile("testMappedSnapshot", ".whs");
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+        this.testWarehouse = new Warehouse();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.testFile.delete();
+    }
+
+    @Test
+    public void testGetOrders() {
+        addOrders();
+        try (MappedSnapshot snapshot = saveAndMap()) {
+            assertEquals(2, snapshot.getCustomerCount());
+            assertEquals(TEST_CUSTOMER_NAME_ONE, snapshot.getCustomerName(0));
+            assertEquals(11, snapshot.getOrderCount());
+            assertArrayEquals(this.testWarehouse.getOrders(true), snapshot.getOrders(true));
+            assertArrayEquals(this.testWarehouse.getOrders(false), snapshot.getOrders(false));
+            assertTrue(snapshot.isActiveOrder(0));
+            assertFalse(snapshot.isActiveOrder(5));
+        } catch (IOException | CorruptFileException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testGetOrderNumbers() {
+        addOrders();
+        try (MappedSnapshot snapshot = saveAndMap()) {
+            int[] activeOrders = snapshot.getOrderNumbers(true);
+            int[] completeOrders = snapshot.getOrderNumbers(false);
+            assertEquals(snapshot.getOrderCount(), activeOrders.length + completeOrders.length);
+            for (int order : activeOrders) {
+                assertTrue(snapshot.isActiveOrder(order));
+            }
+            for (int order : completeOrders) {
+                assertFalse(snapshot.isActiveOrder(order));
+            }
+            assertSame(snapshot.getRow(activeOrders[0]), snapshot.getRow(activeOrders[0]));
+        } catch (IOException | CorruptFileException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testFindAndReadOrder() {
+        addOrders();
+        try (MappedSnapshot snapshot = saveAndMap()) {
+            for (String invoiceNumber : new String[]{"100", "109", "200"}) {
+                int order = snapshot.findOrder(invoiceNumber);
+                assertEquals(invoiceNumber, snapshot.getRow(order)[1]);
+                assertTrue(this.testWarehouse.findOrder(invoiceNumber).convertToJsonObject()
+                        .similar(snapshot.readOrder(order).convertToJsonObject()));
+            }
+            assertEquals(-1, snapshot.findOrder("999"));
+            assertEquals(-1, snapshot.findOrder(""));
+        } catch (IOException | CorruptFileException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testReadOrderLabelsAfterClose() {
+        addOrders();
+        Order order = null;
+        try (MappedSnapshot snapshot = saveAndMap()) {
+            order = snapshot.readOrder(snapshot.findOrder("200"));
+        } catch (IOException | CorruptFileException e) {
+            fail("This should not run");
+        }
+
+        // the labels were copied from the mapped file and are decoded when first read
+        assertFalse(order.isArchived());
+        assertEquals(this.testWarehouse.findOrder("200").getMonthlyChargeLabelsString(),
+                order.getMonthlyChargeLabelsString());
+        assertEquals(1, order.getMonthlyChargeLabels().size());
+        assertEquals(0, order.getExports().size());
+    }
+
+    @Test
+    public void testReadWarehouse() {
+        addOrders();
+        try (MappedSnapshot snapshot = saveAndMap()) {
+            Warehouse loadedWarehouse = snapshot.readWarehouse();
+            assertTrue(this.testWarehouse.convertToJsonObject().similar(loadedWarehouse.convertToJsonObject()));
+            assertArrayEquals(this.testWarehouse.getOrders(true), loadedWarehouse.getOrders(true));
+        } catch (IOException | CorruptFileException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testMapEmptyWarehouse() {
+        try (MappedSnapshot snapshot = saveAndMap()) {
+            assertEquals(0, snapshot.getOrderCount());
+            assertEquals(0, snapshot.getOrders(true).length);
+            assertEquals(-1, snapshot.findOrder("100"));
+        } catch (IOException | CorruptFileException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testMapJsonFile() {
+        try {
+            new JsonWriter().saveWarehouse(this.testFile, this.testWarehouse);
+            new MappedSnapshot(this.testFile).close();
+            fail("This should not run");
+        } catch (CorruptFileException e) {
+            // pass
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testMapTruncated() {
+        try {
+            addOrders();
+            new BinarySnapshotWriter().saveWarehouse(this.testFile, this.testWarehouse);
+            byte[] bytes = Files.readAllBytes(this.testFile.toPath());
+            Files.write(this.testFile.toPath(), Arrays.copyOf(bytes, bytes.length - 3));
+
+            new MappedSnapshot(this.testFile).close();
+            fail("This should not run");
+        } catch (CorruptFileException e) {
+            // pass
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+
+    // EFFECTS: saves testWarehouse to testFile as a binary snapshot and maps it
+    private MappedSnapshot saveAndMap() throws IOException, CorruptFileException {
+        new BinarySnapshotWriter().saveWarehouse(this.testFile, this.testWarehouse);
+        return new MappedSnapshot(this.testFile);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: adds a customer with five complete and five active orders and a customer with one monthly charged
+    //          order to testWarehouse
+    private void addOrders() {
+        try {
+            this.testWarehouse.addCustomer(TEST_CUSTOMER_NAME_ONE);
+            this.testWarehouse.addCustomer(TEST_CUSTOMER_NAME_TWO);
+            for (int i = 0; i < 10; i++) {
+                this.testWarehouse.importProduct(TEST_CUSTOMER_NAME_ONE, "content " + (i % 3), TEST_IMPORT_DATE,
+                        Integer.toString(109 - i), 300 + i, TEST_LOCATION);
+                this.testWarehouse.exportOrder(TEST_CUSTOMER_NAME_ONE, Integer.toString(109 - i), i < 5 ? 300 + i : 1,
+                        TEST_IMPORT_DATE.plusDays(i), "export " + i);
+            }
+            this.testWarehouse.importProduct(TEST_CUSTOMER_NAME_TWO, "content \u00e9", TEST_IMPORT_DATE, "200",
+                    1000, TEST_LOCATION);
+            this.testWarehouse.recordMonthlyCharge(TEST_CUSTOMER_NAME_TWO, "200", TEST_IMPORT_DATE,
+                    TEST_IMPORT_DATE.plusDays(30), 1000, "monthly 1");
+        } catch (CustomerAlreadyExistsException | InvalidCustomerNameException | CustomerDoesNotExistException
+                | OrderAlreadyExistsException | OrderDoesNotExistException | InvalidImportDateException
+                | InvalidQuantityException | InvalidExportDateException | InvalidStartDateException
+                | InvalidEndDateException | InvalidMonthRangeException | ParseException e) {
+            fail("This should not run");
+        }
+    }
+}
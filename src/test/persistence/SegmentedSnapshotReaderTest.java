@@ -0,0 +1,136 @@
+package persistence;
+
+import model.Warehouse;
+import model.exceptions.CorruptFileException;
+import model.exceptions.CustomerAlreadyExistsException;
+import model.exceptions.InvalidCustomerNameException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentedSnapshotReaderTest {
+    private File manifest;
+    private File segmentDirectory;
+
+    @BeforeEach
+    public void setUp() {
+        try {
+            this.manifest = File.createTempFile("testSegmentedSnapshotReader", ".whm");
+            this.segmentDirectory = SegmentedSnapshotWriter.getSegmentDirectory(this.manifest);
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        File quarantine = new File(this.segmentDirectory, LoadReport.QUARANTINE_DIRECTORY);
+        File[] quarantined = quarantine.listFiles();
+        for (File f : quarantined == null ? new File[0] : quarantined) {
+            f.delete();
+        }
+        quarantine.delete();
+        File[] segments = this.segmentDirectory.listFiles();
+        for (File f : segments == null ? new File[0] : segments) {
+            f.delete();
+        }
+        this.segmentDirectory.delete();
+        this.manifest.delete();
+    }
+
+    @Test
+    public void testReadWarehouseNotManifest() {
+        try {
+            Files.write(this.manifest.toPath(), "{\"customerSet\":[]}".getBytes(StandardCharsets.UTF_8));
+            new SegmentedSnapshotReader().readWarehouse(this.manifest);
+            fail("This should not run");
+        } catch (CorruptFileException e) {
+            // pass
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testReadWarehouseSegmentOutsideDirectory() {
+        try {
+            Files.write(this.manifest.toPath(), "WHSM\n{\"header\":{},\"segments\":{\"a\":\"../a.json\"}}"
+                    .getBytes(StandardCharsets.UTF_8));
+            new SegmentedSnapshotReader().readWarehouse(this.manifest);
+            fail("This should not run");
+        } catch (CorruptFileException e) {
+            // pass
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testReadWarehouseMissingSegment() {
+        try {
+            Warehouse warehouse = new Warehouse();
+            warehouse.addCustomer("test customer");
+            new SegmentedSnapshotWriter().saveWarehouse(this.manifest, warehouse);
+            for (File f : this.segmentDirectory.listFiles()) {
+                f.delete();
+            }
+
+            new SegmentedSnapshotReader().readWarehouse(this.manifest);
+            fail("This should not run");
+        } catch (IOException e) {
+            // pass
+        } catch (CorruptFileException | CustomerAlreadyExistsException | InvalidCustomerNameException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testReadWarehouseDamagedSegment() {
+        File damaged = null;
+        try {
+            Warehouse warehouse = new Warehouse();
+            warehouse.addCustomer("test customer 1");
+            warehouse.addCustomer("test customer 2");
+            new SegmentedSnapshotWriter().saveWarehouse(this.manifest, warehouse);
+            JSONObject segments = SegmentedSnapshotReader.readManifest(this.manifest).getJSONObject("segments");
+            damaged = new File(this.segmentDirectory, SegmentedSnapshotReader.getSegmentFile(
+                    segments.get("test customer 1")));
+            byte[] bytes = Files.readAllBytes(damaged.toPath());
+            bytes[bytes.length / 2] ^= 1;
+            Files.write(damaged.toPath(), bytes);
+        } catch (IOException | CorruptFileException | CustomerAlreadyExistsException | InvalidCustomerNameException e) {
+            fail("This should not run");
+        }
+
+        try {
+            new SegmentedSnapshotReader().readWarehouse(this.manifest);
+            fail("This should not run");
+        } catch (CorruptFileException e) {
+            // pass
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+
+        try {
+            LoadReport report = new LoadReport();
+            Warehouse warehouse = new SegmentedSnapshotReader().readWarehouse(this.manifest, new JSONObject(), report);
+            assertEquals(1, warehouse.getCustomerSet().size());
+            assertEquals("test customer 2", warehouse.getCustomerSet().iterator().next().getName());
+            assertTrue(report.isLost("test customer 1"));
+            assertFalse(report.isComplete());
+            assertFalse(damaged.exists());
+            assertEquals(1, report.getQuarantinedFiles().size());
+            assertTrue(report.getQuarantinedFiles().get(0).exists());
+        } catch (IOException | CorruptFileException e) {
+            fail("This should not run");
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package persistence;
+
+import model.Warehouse;
+import model.exceptions.*;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentedSnapshotWriterTest {
+    private static final String TEST_CUSTOMER_NAME_ONE = "test customer 1";
+    private static final String TEST_CUSTOMER_NAME_TWO = "test customer 2";
+    private static final LocalDate TEST_IMPORT_DATE = LocalDate.of(2021, 1, 21);
+
+    private File manifest;
+    private File segmentDirectory;
+    private Warehouse testWarehouse;
+
+    @BeforeEach
+    public void setUp() {
+        try {
+            this.manifest = File.createTempFile("testSegmentedSnapshotWriter", ".whm");
+            this.segmentDirectory = SegmentedSnapshotWriter.getSegmentDirectory(this.manifest);
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+        this.testWarehouse = new Warehouse();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        File[] segments = this.segmentDirectory.listFiles();
+        for (File f : segments == null ? new File[0] : segments) {
+            f.delete();
+        }
+        this.segmentDirectory.delete();
+        this.manifest.delete();
+    }
+
+    @Test
+    public void testSaveWarehouseRoundTrip() {
+        try {
+            addOrders();
+            new SegmentedSnapshotWriter().saveWarehouse(this.manifest, this.testWarehouse);
+
+            assertEquals(SnapshotFormat.SEGMENTED, SnapshotFormat.detect(this.manifest));
+            assertEquals(2, this.segmentDirectory.list().length);
+            Warehouse loadedWarehouse = new SegmentedSnapshotReader().readWarehouse(this.manifest);
+            assertTrue(this.testWarehouse.convertToJsonObject().similar(loadedWarehouse.convertToJsonObject()));
+        } catch (IOException | CorruptFileException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testSaveWarehouseOnlyChangedCustomers() {
+        try {
+            addOrders();
+            SegmentedSnapshotWriter writer = new SegmentedSnapshotWriter();
+            writer.saveWarehouse(this.manifest, this.testWarehouse);
+            JSONObject segments = SegmentedSnapshotReader.readManifest(this.manifest).getJSONObject("segments");
+
+            this.testWarehouse.deleteCustomerOrder(TEST_CUSTOMER_NAME_ONE, "100");
+            writer.saveCustomers(this.manifest, this.testWarehouse.getCustomerSet(), new JSONObject(),
+                    Collections.singleton(TEST_CUSTOMER_NAME_ONE));
+            JSONObject newSegments = SegmentedSnapshotReader.readManifest(this.manifest).getJSONObject("segments");
+
+            assertNotEquals(segments.getJSONObject(TEST_CUSTOMER_NAME_ONE).toString(),
+                    newSegments.getJSONObject(TEST_CUSTOMER_NAME_ONE).toString());
+            assertEquals(segments.getJSONObject(TEST_CUSTOMER_NAME_TWO).toString(),
+                    newSegments.getJSONObject(TEST_CUSTOMER_NAME_TWO).toString());
+            // the replaced segment is deleted once the new manifest is in place
+            assertEquals(2, this.segmentDirectory.list().length);
+            Warehouse loadedWarehouse = new SegmentedSnapshotReader().readWarehouse(this.manifest);
+            assertTrue(this.testWarehouse.convertToJsonObject().similar(loadedWarehouse.convertToJsonObject()));
+        } catch (IOException | CorruptFileException | CustomerDoesNotExistException | OrderDoesNotExistException
+                | InvalidQuantityException | InvalidImportDateException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testSaveWarehouseDeletedCustomer() {
+        try {
+            addOrders();
+            SegmentedSnapshotWriter writer = new SegmentedSnapshotWriter();
+            writer.saveWarehouse(this.manifest, this.testWarehouse);
+
+            this.testWarehouse.deleteCustomer(TEST_CUSTOMER_NAME_TWO);
+            writer.saveCustomers(this.manifest, this.testWarehouse.getCustomerSet(), new JSONObject(),
+                    Collections.singleton(TEST_CUSTOMER_NAME_TWO));
+
+            assertEquals(1, this.segmentDirectory.list().length);
+            Warehouse loadedWarehouse = new SegmentedSnapshotReader().readWarehouse(this.manifest);
+            assertEquals(1, loadedWarehouse.getCustomerSet().size());
+            assertNull(loadedWarehouse.findOrder("200"));
+            assertNotNull(loadedWarehouse.findOrder("100"));
+        } catch (IOException | CorruptFileException | CustomerDoesNotExistException e) {
+            fail("This should not run");
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: adds two customers with one order each to testWarehouse
+    private void addOrders() {
+        try {
+            this.testWarehouse.addCustomer(TEST_CUSTOMER_NAME_ONE);
+            this.testWarehouse.addCustomer(TEST_CUSTOMER_NAME_TWO);
+            this.testWarehouse.importProduct(TEST_CUSTOMER_NAME_ONE, "content 1", TEST_IMPORT_DATE, "100", 10,
+                    "location 1");
+            this.testWarehouse.importProduct(TEST_CUSTOMER_NAME_TWO, "content 2", TEST_IMPORT_DATE, "200", 20,
+                    "location 2");
+        } catch (CustomerAlreadyExistsException | InvalidCustomerNameException | CustomerDoesNotExistException
+                | OrderAlreadyExistsException | InvalidImportDateException | InvalidQuantityException e) {
+            fail("This should not run");
+        }
+    }
+}
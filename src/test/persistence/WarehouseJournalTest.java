@@ -0,0 +1,406 @@
+package persistence;
+
+import model.HeapWarehouseStore;
+import model.Warehouse;
+import model.exceptions.*;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WarehouseJournalTest {
+    private static final String TEST_CUSTOMER_NAME_ONE = "test customer 1";
+    private static final String TEST_CUSTOMER_NAME_TWO = "test customer 2";
+    private static final String TEST_INVOICE_NUMBER_ONE = "111111";
+    private static final String TEST_INVOICE_NUMBER_TWO = "222222";
+    private static final String TEST_INVOICE_NUMBER_THREE = "333333";
+    private static final LocalDate TEST_IMPORT_DATE = LocalDate.of(2021, 1, 21);
+
+    private File snapshot;
+    private File journalFile;
+    private File compactingJournalFile;
+
+    @BeforeEach
+    public void setUp() {
+        try {
+            this.snapshot = File.createTempFile("testWarehouseJournal", ".json");
+            this.journalFile = new File(this.snapshot.getPath() + ".journal");
+            this.compactingJournalFile = new File(this.snapshot.getPath() + ".journal.compacting");
+        } catch (IOException e) {
+            fail("This should not run");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.snapshot.delete();
+        this.journalFile.delete();
+        this.compactingJournalFile.delete();
+        File[] segmentFiles = SegmentedSnapshotWriter.getSegmentDirectory(this.snapshot).listFiles();
+        for (File f : segmentFiles == null ? new File[0] : segmentFiles) {
+            f.delete();
+        }
+        SegmentedSnapshotWriter.getSegmentDirectory(this.snapshot).delete();
+    }
+
+    @Test
+    public void testStartAndReplay() {
+        try {
+            Warehouse warehouse = new Warehouse();
+            warehouse.addCustomer(TEST_CUSTOMER_NAME_ONE);
+            WarehouseJournal journal = new WarehouseJournal(this.snapshot);
+            journal.start(warehouse);
+            makeChanges(warehouse);
+            journal.close();
+
+            // the snapshot holds only the state when journaling started, the journal holds a header line and the rest
+            assertEquals(1, new JsonReader().readWarehouse(this.snapshot).getCustomerSet().size());
+            assertEquals(10, Files.readAllLines(this.journalFile.toPath()).size());
+
+            WarehouseJournal loadedJournal = new WarehouseJournal(this.snapshot);
+            Warehouse loadedWarehouse = loadedJournal.load();
+            loadedJournal.close();
+            assertTrue(warehouse.convertToJsonObject().similar(loadedWarehouse.convertToJsonObject()));
+        } catch (IOException | CorruptFileException | CustomerAlreadyExistsException
+                | InvalidCustomerNameException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testLoadIgnoresPartlyWrittenEntry() {
+        try {
+            Warehouse warehouse = new Warehouse();
+            WarehouseJournal journal = new WarehouseJournal(this.snapshot);
+            journal.start(warehouse);
+            warehouse.addCustomer(TEST_CUSTOMER_NAME_ONE);
+            journal.close();
+            Files.write(this.journalFile.toPath(), "{\"op\":\"addCus".getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+
+            // the partly written entry is dropped and journaling continues after the last complete entry
+            WarehouseJournal loadedJournal = new WarehouseJournal(this.snapshot);
+            Warehouse loadedWarehouse = loadedJournal.load();
+            loadedWarehouse.addCustomer(TEST_CUSTOMER_NAME_TWO);
+            loadedJournal.close();
+            assertEquals(3, Files.readAllLines(this.journalFile.toPath()).size());
+
+            WarehouseJournal reloadedJournal = new WarehouseJournal(this.snapshot);
+            assertEquals(2, reloadedJournal.load().getCustomerSet().size());
+            reloadedJournal.close();
+        } catch (IOException | CorruptFileException | CustomerAlreadyExistsException
+                | InvalidCustomerNameException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testLoadIgnoresEntryCutInCharacter() {
+        try {
+            Warehouse warehouse = new Warehouse();
+            WarehouseJournal journal = new WarehouseJournal(this.snapshot);
+            journal.start(warehouse);
+            warehouse.addCustomer(TEST_CUSTOMER_NAME_ONE);
+            journal.close();
+            // the entry ends after the first of the two bytes of a character
+            byte[] cut = "{\"op\":\"addCustomer\",\"customer\":\"caf\u00e9\"}".getBytes(StandardCharsets.UTF_8);
+            Files.write(this.journalFile.toPath(), Arrays.copyOf(cut, cut.length - 3), StandardOpenOption.APPEND);
+
+            WarehouseJournal loadedJournal = new WarehouseJournal(this.snapshot);
+            Warehouse loadedWarehouse = loadedJournal.load();
+            loadedWarehouse.addCustomer(TEST_CUSTOMER_NAME_TWO);
+            loadedJournal.close();
+
+            WarehouseJournal reloadedJournal = new WarehouseJournal(this.snapshot);
+            assertEquals(2, reloadedJournal.load().getCustomerSet().size());
+            reloadedJournal.close();
+        } catch (IOException | CorruptFileException | CustomerAlreadyExistsException
+                | InvalidCustomerNameException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testAppendFailureStopsJournaling() {
+        try {
+            Warehouse warehouse = new Warehouse();
+            WarehouseJournal journal = new WarehouseJournal(this.snapshot);
+            journal.start(warehouse);
+            // an interrupted thread closes the journal file as the entry is written
+            Thread.currentThread().interrupt();
+            try {
+                warehouse.addCustomer(TEST_CUSTOMER_NAME_ONE);
+                fail("This should not run");
+            } catch (UncheckedIOException e) {
+                // expected
+            }
+            Thread.interrupted();
+            assertTrue(journal.hasWriteFailed());
+            try {
+                warehouse.addCustomer(TEST_CUSTOMER_NAME_TWO);
+                fail("This should not run");
+            } catch (UncheckedIOException e) {
+                // expected
+            }
+            journal.close();
+
+            // writing the warehouse again keeps the changes that were not journaled
+            WarehouseJournal restartedJournal = new WarehouseJournal(this.snapshot);
+            restartedJournal.start(warehouse);
+            assertFalse(restartedJournal.hasWriteFailed());
+            restartedJournal.close();
+            WarehouseJournal loadedJournal = new WarehouseJournal(this.snapshot);
+            assertEquals(2, loadedJournal.load().getCustomerSet().size());
+            loadedJournal.close();
+        } catch (IOException | CorruptFileException | CustomerAlreadyExistsException
+                | InvalidCustomerNameException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testCompact() {
+        try {
+            Warehouse warehouse = new Warehouse();
+            WarehouseJournal journal = new WarehouseJournal(this.snapshot);
+            journal.start(warehouse);
+            warehouse.addCustomer(TEST_CUSTOMER_NAME_ONE);
+            makeChanges(warehouse);
+            journal.compact().get();
+            warehouse.addCustomer(TEST_CUSTOMER_NAME_TWO);
+            journal.close();
+
+            // the snapshot now holds every change made before compaction, and the journal only those after it
+            assertFalse(this.compactingJournalFile.exists());
+            assertEquals(1, new JsonReader().readWarehouse(this.snapshot).getCustomerSet().size());
+            assertEquals(2, Files.readAllLines(this.journalFile.toPath()).size());
+
+            WarehouseJournal loadedJournal = new WarehouseJournal(this.snapshot);
+            Warehouse loadedWarehouse = loadedJournal.load();
+            loadedJournal.close();
+            assertTrue(warehouse.convertToJsonObject().similar(loadedWarehouse.convertToJsonObject()));
+        } catch (IOException | CorruptFileException | CustomerAlreadyExistsException
+                | InvalidCustomerNameException | InterruptedException | ExecutionException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testLoadAfterInterruptedCompaction() {
+        try {
+            Warehouse warehouse = new Warehouse();
+            WarehouseJournal journal = new WarehouseJournal(this.snapshot);
+            journal.start(warehouse);
+            warehouse.addCustomer(TEST_CUSTOMER_NAME_ONE);
+            journal.compact().get();
+            warehouse.addCustomer(TEST_CUSTOMER_NAME_TWO);
+            journal.close();
+
+            // simulate a compaction that wrote the snapshot but stopped before deleting the old journal
+            List<String> lines = Files.readAllLines(this.journalFile.toPath());
+            Files.write(this.compactingJournalFile.toPath(), lines);
+            Files.write(this.compactingJournalFile.toPath(), new JSONObject().put("seq", 1).put("op", "addCustomer")
+                    .put("customer", TEST_CUSTOMER_NAME_ONE).toString().getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+
+            // entries already in the snapshot are not applied again
+            WarehouseJournal loadedJournal = new WarehouseJournal(this.snapshot);
+            assertEquals(2, loadedJournal.load().getCustomerSet().size());
+            loadedJournal.close();
+            assertFalse(this.compactingJournalFile.exists());
+        } catch (IOException | CorruptFileException | CustomerAlreadyExistsException
+                | InvalidCustomerNameException | InterruptedException | ExecutionException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testLoadPlainSaveFile() {
+        try {
+            Warehouse warehouse = new Warehouse();
+            warehouse.addCustomer(TEST_CUSTOMER_NAME_ONE);
+            new JsonWriter().saveWarehouse(this.snapshot, warehouse);
+
+            WarehouseJournal journal = new WarehouseJournal(this.snapshot);
+            Warehouse loadedWarehouse = journal.load();
+            loadedWarehouse.addCustomer(TEST_CUSTOMER_NAME_TWO);
+            journal.close();
+
+            WarehouseJournal reloadedJournal = new WarehouseJournal(this.snapshot);
+            assertEquals(2, reloadedJournal.load().getCustomerSet().size());
+            reloadedJournal.close();
+        } catch (IOException | CorruptFileException | CustomerAlreadyExistsException
+                | InvalidCustomerNameException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testBinarySnapshot() {
+        try {
+            Warehouse warehouse = new Warehouse();
+            warehouse.addCustomer(TEST_CUSTOMER_NAME_ONE);
+            WarehouseJournal journal = new WarehouseJournal(this.snapshot, SnapshotFormat.BINARY);
+            journal.start(warehouse);
+            makeChanges(warehouse);
+            journal.compact().get();
+            journal.close();
+
+            assertEquals(SnapshotFormat.BINARY, SnapshotFormat.detect(this.snapshot));
+            WarehouseJournal loadedJournal = new WarehouseJournal(this.snapshot);
+            Warehouse loadedWarehouse = loadedJournal.load();
+            loadedJournal.close();
+            assertTrue(warehouse.convertToJsonObject().similar(loadedWarehouse.convertToJsonObject()));
+        } catch (IOException | CorruptFileException | CustomerAlreadyExistsException
+                | InvalidCustomerNameException | InterruptedException | ExecutionException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testMap() {
+        try {
+            Warehouse warehouse = new Warehouse();
+            warehouse.addCustomer(TEST_CUSTOMER_NAME_ONE);
+            WarehouseJournal journal = new WarehouseJournal(this.snapshot, SnapshotFormat.BINARY);
+            journal.start(warehouse);
+
+            MappedSnapshot mappedSnapshot = new WarehouseJournal(this.snapshot).map();
+            assertEquals(TEST_CUSTOMER_NAME_ONE, mappedSnapshot.getCustomerName(0));
+            mappedSnapshot.close();
+
+            // entries that are not in the snapshot yet must be replayed by load()
+            warehouse.addCustomer(TEST_CUSTOMER_NAME_TWO);
+            journal.close();
+            assertNull(new WarehouseJournal(this.snapshot).map());
+
+            new JsonWriter().saveWarehouse(this.snapshot, warehouse);
+            assertNull(new WarehouseJournal(this.snapshot).map());
+        } catch (IOException | CorruptFileException | CustomerAlreadyExistsException
+                | InvalidCustomerNameException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testSegmentedCompactionWritesChangedCustomers() {
+        try {
+            Warehouse warehouse = new Warehouse();
+            warehouse.addCustomer(TEST_CUSTOMER_NAME_ONE);
+            warehouse.addCustomer(TEST_CUSTOMER_NAME_TWO);
+            WarehouseJournal journal = new WarehouseJournal(this.snapshot, SnapshotFormat.SEGMENTED);
+            journal.start(warehouse);
+            JSONObject segments = SegmentedSnapshotReader.readManifest(this.snapshot).getJSONObject("segments");
+
+            warehouse.importProduct(TEST_CUSTOMER_NAME_ONE, "content 1", TEST_IMPORT_DATE, TEST_INVOICE_NUMBER_ONE,
+                    20, "location 1");
+            journal.compact().get();
+            journal.close();
+
+            JSONObject newSegments = SegmentedSnapshotReader.readManifest(this.snapshot).getJSONObject("segments");
+            assertNotEquals(segments.getJSONObject(TEST_CUSTOMER_NAME_ONE).toString(),
+                    newSegments.getJSONObject(TEST_CUSTOMER_NAME_ONE).toString());
+            assertEquals(segments.getJSONObject(TEST_CUSTOMER_NAME_TWO).toString(),
+                    newSegments.getJSONObject(TEST_CUSTOMER_NAME_TWO).toString());
+            assertTrue(journal.writesTo(this.snapshot, SnapshotFormat.SEGMENTED));
+            assertFalse(journal.writesTo(this.snapshot, SnapshotFormat.JSON));
+
+            WarehouseJournal loadedJournal = new WarehouseJournal(this.snapshot);
+            Warehouse loadedWarehouse = loadedJournal.load();
+            loadedJournal.close();
+            assertTrue(warehouse.convertToJsonObject().similar(loadedWarehouse.convertToJsonObject()));
+        } catch (IOException | CorruptFileException | CustomerAlreadyExistsException | InvalidCustomerNameException
+                | CustomerDoesNotExistException | OrderAlreadyExistsException | InvalidImportDateException
+                | InvalidQuantityException | InterruptedException | ExecutionException e) {
+            fail("This should not run");
+        }
+    }
+
+    // MODIFIES: warehouse
+    // EFFECTS: makes one change of every kind to given warehouse, which must contain TEST_CUSTOMER_NAME_ONE
+    private void makeChanges(Warehouse warehouse) {
+        try {
+            warehouse.addCustomer(TEST_CUSTOMER_NAME_TWO);
+            warehouse.importProduct(TEST_CUSTOMER_NAME_ONE, "content 1", TEST_IMPORT_DATE, TEST_INVOICE_NUMBER_ONE,
+                    20, "location 1");
+            warehouse.importProduct(TEST_CUSTOMER_NAME_ONE, "content 2", TEST_IMPORT_DATE, TEST_INVOICE_NUMBER_TWO,
+                    40, "location 2");
+            warehouse.importProduct(TEST_CUSTOMER_NAME_TWO, "content 3", TEST_IMPORT_DATE,
+                    TEST_INVOICE_NUMBER_THREE, 10, "location 3");
+            warehouse.exportOrder(TEST_CUSTOMER_NAME_ONE, TEST_INVOICE_NUMBER_ONE, 5, TEST_IMPORT_DATE.plusDays(3),
+                    "export 1");
+            warehouse.recordMonthlyCharge(TEST_CUSTOMER_NAME_ONE, TEST_INVOICE_NUMBER_ONE, TEST_IMPORT_DATE,
+                    TEST_IMPORT_DATE.plusDays(30), 15, "monthly 1");
+            warehouse.editExistingActiveCustomerOrder(TEST_CUSTOMER_NAME_ONE, TEST_INVOICE_NUMBER_ONE,
+                    "edited content", "edited location");
+            warehouse.deleteCustomerOrder(TEST_CUSTOMER_NAME_ONE, TEST_INVOICE_NUMBER_TWO);
+            warehouse.deleteCustomer(TEST_CUSTOMER_NAME_TWO);
+        } catch (CustomerAlreadyExistsException | InvalidCustomerNameException | CustomerDoesNotExistException
+                | OrderAlreadyExistsException | OrderDoesNotExistException | InvalidImportDateException
+                | InvalidQuantityException | InvalidExportDateException | InvalidStartDateException
+                | InvalidEndDateException | InvalidMonthRangeException | ParseException e) {
+            fail("This should not run");
+        }
+    }
+
+    @Test
+    public void testConcurrentWarehouse() {
+        try {
+            Warehouse warehouse = new Warehouse(new HeapWarehouseStore(), 4);
+            WarehouseJournal journal = new WarehouseJournal(this.snapshot);
+            journal.start(warehouse);
+            List<Callable<Object>> importers = new ArrayList<>();
+            for (int c = 0; c < 4; c++) {
+                String customerName = "customer " + c;
+                importers.add(() -> {
+                    warehouse.addCustomer(customerName);
+                    // enough changes in all to compact the journal while the other threads keep changing it
+                    for (int i = 0; i < 400; i++) {
+                        warehouse.importProduct(customerName, "boxes", TEST_IMPORT_DATE, customerName + " " + i, 10,
+                                "a1");
+                    }
+                    return null;
+                });
+            }
+            ExecutorService threads = Executors.newFixedThreadPool(importers.size());
+            for (Future<Object> result : threads.invokeAll(importers)) {
+                result.get();
+            }
+            threads.shutdown();
+            journal.close();
+            // the journal was compacted once it held 1000 entries, so it only holds the entries made after that
+            assertTrue(Files.readAllLines(this.journalFile.toPath(), StandardCharsets.UTF_8).size() < 1000);
+            assertFalse(this.compactingJournalFile.exists());
+
+            WarehouseJournal loadedJournal = new WarehouseJournal(this.snapshot);
+            Warehouse loadedWarehouse = loadedJournal.load();
+            loadedJournal.close();
+            assertEquals(1600, loadedWarehouse.getOrders(true).length);
+            assertTrue(warehouse.convertToJsonObject().similar(loadedWarehouse.convertToJsonObject()));
+        } catch (IOException | CorruptFileException | ExecutionException e) {
+            fail("This should not run");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail("This should not run");
+        }
+    }
+}